@@ -7,19 +7,44 @@ package com.backblaze.b2.client;
 import com.backblaze.b2.client.exceptions.B2Exception;
 import com.backblaze.b2.client.exceptions.B2LocalException;
 import com.backblaze.b2.client.structures.B2AccountAuthorization;
+import com.backblaze.b2.util.B2Clock;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The B2AccountAuthorizationCache holds the most recent account authorization
  * and can be cleared when it appears to have become invalid.
  * <p>
+ * If the refresh policy is enabled, it also gets a new authorization before
+ * the current one gets too old, without making anybody wait for it.  See
+ * B2AccountAuthorizationRefreshPolicy.  The authorization and the time it
+ * was made are kept together, so a refresh swaps both at once.  The
+ * authorizer says how old each authorization is, since one it saved
+ * earlier may already be old.
+ * <p>
  * REQUIRES: the provided accountAuthorizer must be thread-safe.
  * <p>
  * THREAD-SAFETY: this class may be used from multiple threads safely.
  */
 class B2AccountAuthorizationCache {
+    private static final B2Clock clock = B2Clock.get();
+
     private final B2StorageClientWebifier webifier;
     private final B2AccountAuthorizer accountAuthorizer;
-    private volatile B2AccountAuthorization authorization;
+    private final B2AccountAuthorizationRefreshPolicy refreshPolicy;
+    private final ExecutorService executorOrNull;
+
+    private final AtomicReference<Current> current = new AtomicReference<>();
+
+    // held while authorizing, so that only one thread authorizes at a time.
+    // it's a lock instead of synchronized so that waiting for it can be
+    // bounded by a B2Deadline.
+    private final ReentrantLock authorizeLock = new ReentrantLock();
 
     /**
      * The authorize() call from the authorizer should always
@@ -29,10 +54,35 @@ class B2AccountAuthorizationCache {
      */
     private volatile String accountId;
 
+    // true while a refresh is running.  only one runs at a time.
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    // after a refresh fails, we don't try another until this monotonic time.
+    private volatile long noRefreshUntilMillis;
+
+    private static class Current {
+        private final B2AccountAuthorization authorization;
+        private final long obtainedAtMillis; // monotonic; when the server made it, as far as we know.
+
+        private Current(B2AccountAuthorization authorization, long obtainedAtMillis) {
+            this.authorization = authorization;
+            this.obtainedAtMillis = obtainedAtMillis;
+        }
+    }
+
     B2AccountAuthorizationCache(B2StorageClientWebifier webifier,
                                 B2AccountAuthorizer accountAuthorizer) {
+        this(webifier, accountAuthorizer, B2AccountAuthorizationRefreshPolicy.defaultPolicy(), null);
+    }
+
+    B2AccountAuthorizationCache(B2StorageClientWebifier webifier,
+                                B2AccountAuthorizer accountAuthorizer,
+                                B2AccountAuthorizationRefreshPolicy refreshPolicy,
+                                ExecutorService executorOrNull) {
         this.webifier = webifier;
         this.accountAuthorizer = accountAuthorizer;
+        this.refreshPolicy = refreshPolicy;
+        this.executorOrNull = executorOrNull;
     }
 
 
@@ -44,21 +94,28 @@ class B2AccountAuthorizationCache {
      *            succeeds, they'll all benefit.  if one of them fails,
      *            the next one that asks will try again.  no need to ask
      *            multiple times in parallel.
+     *            a refresh ahead doesn't block anybody, since there's
+     *            still a good authorization to hand out in the meantime.
+     *            if there's a B2Deadline in effect, a thread stops waiting
+     *            for the one that's authorizing when the deadline passes.
      */
     B2AccountAuthorization get() throws B2Exception {
-        // Store a local copy of authorization in case clear() is called concurrently after the null check
-        B2AccountAuthorization localAuthorization = authorization;
-        if (localAuthorization != null) {
-            return localAuthorization;
+        // Store a local copy of the current authorization in case clear() is called concurrently after the null check
+        Current localCurrent = current.get();
+        if (localCurrent != null) {
+            maybeRefreshAhead(localCurrent);
+            return localCurrent.authorization;
         }
 
-        synchronized (this) {
-            localAuthorization = authorization;
-            if (localAuthorization == null) {
-                localAuthorization = accountAuthorizer.authorize(webifier);
-                authorization = localAuthorization;
+        lockAuthorizeLock();
+        try {
+            localCurrent = current.get();
+            if (localCurrent == null) {
+                final B2AccountAuthorization authorization = accountAuthorizer.authorize(webifier);
+                localCurrent = new Current(authorization, obtainedAtMillis(authorization));
+                current.set(localCurrent);
 
-                final String accountIdFromAuthorization = localAuthorization.getAccountId();
+                final String accountIdFromAuthorization = authorization.getAccountId();
                 if (accountId == null) {
                     accountId = accountIdFromAuthorization;
                 } else {
@@ -68,7 +125,9 @@ class B2AccountAuthorizationCache {
                     }
                 }
             }
-            return localAuthorization;
+            return localCurrent.authorization;
+        } finally {
+            authorizeLock.unlock();
         }
     }
 
@@ -83,15 +142,98 @@ class B2AccountAuthorizationCache {
             return accountId;
         }
 
-        synchronized (this) {
+        lockAuthorizeLock();
+        try {
             if (accountId == null) {
                 get();
             }
+        } finally {
+            authorizeLock.unlock();
         }
         return accountId;
     }
 
      void clear() {
-        authorization = null;
+        current.set(null);
+    }
+
+    private void lockAuthorizeLock() throws B2LocalException {
+        final B2Deadline deadlineOrNull = B2Deadline.currentOrNull();
+        if (deadlineOrNull == null) {
+            authorizeLock.lock();
+            return;
+        }
+        try {
+            if (!authorizeLock.tryLock(deadlineOrNull.getRemainingMillis(), TimeUnit.MILLISECONDS)) {
+                throw deadlineOrNull.makeExceededException("waiting for another thread to authorize the account", null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new B2LocalException("interrupted", "interrupted while waiting for another thread to authorize the account", e);
+        }
+    }
+
+    private void maybeRefreshAhead(Current localCurrent) {
+        if (!refreshPolicy.isEnabled()) {
+            return;
+        }
+        final long now = clock.monotonicMillis();
+        if (now - localCurrent.obtainedAtMillis < refreshPolicy.getRefreshAfterMillis() ||
+                now < noRefreshUntilMillis) {
+            return;
+        }
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        final Runnable refresh = () -> {
+            try {
+                refresh(localCurrent);
+            } finally {
+                refreshing.set(false);
+            }
+        };
+        if (executorOrNull == null) {
+            refresh.run();
+            return;
+        }
+        try {
+            executorOrNull.execute(refresh);
+        } catch (RejectedExecutionException e) {
+            // the executor is probably shutting down.  we'll try again on the
+            // next get(), and if the authorization expires first, the retryer
+            // will clear it.
+            refreshing.set(false);
+        }
+    }
+
+    private long obtainedAtMillis(B2AccountAuthorization authorization) {
+        return clock.monotonicMillis() - Math.max(0, accountAuthorizer.getAgeMillis(authorization));
+    }
+
+    /**
+     * Gets a new authorization and swaps it in for the old one, unless
+     * something else has replaced the old one in the meantime.
+     * If it fails, the old one stays, and we try again later.
+     */
+    private void refresh(Current old) {
+        final B2AccountAuthorization fresh;
+        try {
+            fresh = accountAuthorizer.authorize(webifier);
+        } catch (B2Exception | RuntimeException e) {
+            noRefreshUntilMillis = clock.monotonicMillis() + refreshPolicy.getRetryIntervalMillis();
+            return;
+        }
+        if (!fresh.getAccountId().equals(accountId)) {
+            // the next authorization that doesn't have an old one to fall back on will complain.
+            noRefreshUntilMillis = clock.monotonicMillis() + refreshPolicy.getRetryIntervalMillis();
+            return;
+        }
+
+        // if it was cleared while we were refreshing, the new one is just what's needed.
+        final Current replacement = new Current(fresh, obtainedAtMillis(fresh));
+        if (!current.compareAndSet(old, replacement)) {
+            current.compareAndSet(null, replacement);
+        }
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.util.Objects;
+
+/**
+ * B2AccountAuthorizationRefreshPolicy says whether the client gets a new
+ * account authorization before the one it has expires, and if so, when.
+ *
+ * Authorizations from b2_authorize_account are good for 24 hours.  Without
+ * refreshing, the client keeps using one until a request fails with
+ * expired_auth_token, and then every request waits while it authorizes again.
+ * With refreshing, once the authorization is refreshAfterMillis old, the next
+ * request that needs it starts authorizing again in the background, and keeps
+ * using the old one until the new one is ready.  If that fails, we try again
+ * retryIntervalMillis later.
+ *
+ * The refresh runs on B2ClientConfig's background executor.  Without one,
+ * it runs on the thread of the request that noticed, and only that request
+ * waits for it.
+ *
+ * The default policy doesn't refresh ahead.
+ *
+ * THREAD-SAFETY: this class is immutable.
+ */
+public class B2AccountAuthorizationRefreshPolicy {
+    static final long DEFAULT_REFRESH_AFTER_MILLIS = 0;
+    static final long DEFAULT_RETRY_INTERVAL_MILLIS = 60 * 1000;
+
+    private final long refreshAfterMillis;
+    private final long retryIntervalMillis;
+
+    private B2AccountAuthorizationRefreshPolicy(long refreshAfterMillis,
+                                                long retryIntervalMillis) {
+        B2Preconditions.checkArgument(refreshAfterMillis >= 0, "refreshAfterMillis must not be negative");
+        B2Preconditions.checkArgument(retryIntervalMillis > 0, "retryIntervalMillis must be positive");
+        this.refreshAfterMillis = refreshAfterMillis;
+        this.retryIntervalMillis = retryIntervalMillis;
+    }
+
+    public static B2AccountAuthorizationRefreshPolicy defaultPolicy() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return how old an authorization gets before we start getting a new one.
+     *         zero means we don't refresh ahead.  20 hours is a good choice.
+     */
+    public long getRefreshAfterMillis() {
+        return refreshAfterMillis;
+    }
+
+    /**
+     * @return how long we wait after a failed refresh before trying again.
+     */
+    public long getRetryIntervalMillis() {
+        return retryIntervalMillis;
+    }
+
+    /**
+     * @return true iff this policy refreshes ahead.
+     */
+    public boolean isEnabled() {
+        return refreshAfterMillis > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        B2AccountAuthorizationRefreshPolicy that = (B2AccountAuthorizationRefreshPolicy) o;
+        return refreshAfterMillis == that.refreshAfterMillis &&
+                retryIntervalMillis == that.retryIntervalMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(refreshAfterMillis, retryIntervalMillis);
+    }
+
+    public static class Builder {
+        private long refreshAfterMillis = DEFAULT_REFRESH_AFTER_MILLIS;
+        private long retryIntervalMillis = DEFAULT_RETRY_INTERVAL_MILLIS;
+
+        public Builder setRefreshAfterMillis(long refreshAfterMillis) {
+            this.refreshAfterMillis = refreshAfterMillis;
+            return this;
+        }
+
+        public Builder setRetryIntervalMillis(long retryIntervalMillis) {
+            this.retryIntervalMillis = retryIntervalMillis;
+            return this;
+        }
+
+        public B2AccountAuthorizationRefreshPolicy build() {
+            return new B2AccountAuthorizationRefreshPolicy(refreshAfterMillis, retryIntervalMillis);
+        }
+    }
+}
@@ -24,4 +24,17 @@ public interface B2AccountAuthorizer {
      *                     ACCOUNT_AUTHORIZATION, so retries work properly.
      */
     B2AccountAuthorization authorize(B2StorageClientWebifier webifier) throws B2Exception;
+
+    /**
+     * B2AccountAuthorizationCache uses this to decide when to refresh an
+     * authorization.  Authorizers that hand out authorizations they've saved
+     * should override it.
+     *
+     * @param authorization an authorization that authorize() just returned.
+     * @return how many milliseconds ago the authorization was made.  the
+     *         default is 0, since authorize() normally makes a new one.
+     */
+    default long getAgeMillis(B2AccountAuthorization authorization) {
+        return 0;
+    }
 }
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2Preconditions;
+
+/**
+ * B2AdaptiveConcurrencyLimiter bounds the number of transfers (uploads, copies
+ * and downloads) that may be in flight at once, and it adjusts that bound with
+ * AIMD (additive-increase, multiplicative-decrease), much like TCP's congestion
+ * window.
+ *
+ * While transfers succeed and latency stays near its long-term average, the
+ * limit grows by 'additiveIncrease' each time a full limit's worth of busy
+ * transfers completes.  When the server says it's overloaded (a B2ServiceUnavailableException
+ * or a B2TooManyRequestsException) or the recent latency rises well above its
+ * long-term average, the limit is multiplied by 'backoffRatio'.
+ *
+ * To avoid cutting the limit once for every transfer that was already in flight
+ * when trouble started, only transfers which were admitted after the most recent
+ * decrease can cause another decrease.
+ *
+ * A transfer's latency is the time from admitting it until its response starts,
+ * which is when a download's sink is called.  The rest of the transfer depends
+ * on how big it is and how fast the caller reads it, not on how busy the server
+ * is.  Uploads and copies only get their responses once all of the bytes have
+ * been sent or copied, so they don't count toward the latency averages at all;
+ * only the errors they get do.
+ *
+ * Give the same instance to several B2ClientConfigs if you want them to share
+ * a single limit.
+ *
+ * THREAD-SAFETY: this class may be used from multiple threads safely.
+ */
+public class B2AdaptiveConcurrencyLimiter {
+    private static final int DEFAULT_INITIAL_LIMIT = 4;
+    private static final int DEFAULT_MIN_LIMIT = 1;
+    private static final int DEFAULT_MAX_LIMIT = 64;
+    private static final double DEFAULT_ADDITIVE_INCREASE = 1.0;
+    private static final double DEFAULT_BACKOFF_RATIO = 0.5;
+    private static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+    private static final double DEFAULT_MAX_ERROR_RATE = 0.05;
+
+    // how quickly the averages follow new samples.
+    private static final double SHORT_LATENCY_WEIGHT = 0.25;
+    private static final double LONG_LATENCY_WEIGHT = 0.01;
+    private static final double ERROR_RATE_WEIGHT = 0.05;
+
+    // we don't trust the latency averages until we've seen this many samples.
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    private static final B2Clock clock = B2Clock.get();
+
+    private static final long NOT_STARTED = -1;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double additiveIncrease;
+    private final double backoffRatio;
+    private final double latencyToleranceOrZero;
+    private final double maxErrorRate;
+
+    // all of these are protected by synchronized(this).
+    private double limit;
+    private int inFlight;
+    private int successesSinceIncrease;
+    private long generation;
+    private long latencySamples;
+    private double shortLatencyMillis;
+    private double longLatencyMillis;
+    private double errorRate;
+
+    /**
+     * The outcome of a transfer, as far as the limiter is concerned.
+     */
+    enum Outcome {
+        // the transfer worked.
+        SUCCEEDED,
+
+        // the server told us to back off.
+        OVERLOADED,
+
+        // the transfer failed for some other reason involving the server or the network.
+        FAILED,
+
+        // the transfer failed for reasons that say nothing about the server's health.
+        IGNORED
+    }
+
+    /**
+     * A Permit is returned by acquire() and must be released exactly once.
+     */
+    final class Permit {
+        private final long generationAtAcquire;
+        private final long acquiredAtMonoMillis;
+        private final int inFlightAtAcquire;
+        private volatile long responseStartedAtMonoMillis = NOT_STARTED;
+        private boolean released;
+
+        private Permit(long generationAtAcquire,
+                       long acquiredAtMonoMillis,
+                       int inFlightAtAcquire) {
+            this.generationAtAcquire = generationAtAcquire;
+            this.acquiredAtMonoMillis = acquiredAtMonoMillis;
+            this.inFlightAtAcquire = inFlightAtAcquire;
+        }
+
+        /**
+         * Called when the transfer's response starts, to measure its latency.
+         * Only the first call counts.
+         */
+        void responseStarted() {
+            if (responseStartedAtMonoMillis == NOT_STARTED) {
+                responseStartedAtMonoMillis = clock.monotonicMillis();
+            }
+        }
+
+        void release(Outcome outcome) {
+            B2AdaptiveConcurrencyLimiter.this.release(this, outcome);
+        }
+    }
+
+    private B2AdaptiveConcurrencyLimiter(int initialLimit,
+                                         int minLimit,
+                                         int maxLimit,
+                                         double additiveIncrease,
+                                         double backoffRatio,
+                                         double latencyToleranceOrZero,
+                                         double maxErrorRate) {
+        B2Preconditions.checkArgument(minLimit >= 1, "minLimit must be at least 1");
+        B2Preconditions.checkArgument(minLimit <= maxLimit, "minLimit must not be bigger than maxLimit");
+        B2Preconditions.checkArgument(minLimit <= initialLimit && initialLimit <= maxLimit,
+                "initialLimit must be between minLimit and maxLimit");
+        B2Preconditions.checkArgument(additiveIncrease > 0, "additiveIncrease must be positive");
+        B2Preconditions.checkArgument(0 < backoffRatio && backoffRatio < 1, "backoffRatio must be between 0 and 1");
+        B2Preconditions.checkArgument(latencyToleranceOrZero == 0 || latencyToleranceOrZero > 1,
+                "latencyTolerance must be zero (disabled) or greater than 1");
+        B2Preconditions.checkArgument(0 <= maxErrorRate && maxErrorRate <= 1, "maxErrorRate must be between 0 and 1");
+
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.additiveIncrease = additiveIncrease;
+        this.backoffRatio = backoffRatio;
+        this.latencyToleranceOrZero = latencyToleranceOrZero;
+        this.maxErrorRate = maxErrorRate;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the number of transfers currently allowed to be in flight at once.
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return the number of transfers currently in flight.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Waits until there's room for another transfer and then admits it.
+     *
+     * @return a permit which must be released when the transfer is done.
+     * @throws B2LocalException if the thread is interrupted while waiting,
+     *                          or if the current B2Deadline passes first.
+     */
+    synchronized Permit acquire() throws B2LocalException {
+        final B2Deadline deadlineOrNull = B2Deadline.currentOrNull();
+        while (inFlight >= (int) limit) {
+            try {
+                if (!B2Deadline.waitOn(this, deadlineOrNull)) {
+                    throw deadlineOrNull.makeExceededException("waiting for a transfer slot", null);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new B2LocalException("interrupted", "interrupted while waiting for a transfer slot", e);
+            }
+        }
+        inFlight++;
+        return new Permit(generation, clock.monotonicMillis(), inFlight);
+    }
+
+    private synchronized void release(Permit permit,
+                                      Outcome outcome) {
+        B2Preconditions.checkState(!permit.released, "permit released more than once?!");
+        permit.released = true;
+
+        // was the limit actually being used while this transfer ran?  if only a few
+        // transfers are running, succeeding says nothing about whether we could run more.
+        final boolean wasBusy = (Math.max(permit.inFlightAtAcquire, inFlight) * 2 >= (int) limit);
+        inFlight--;
+
+        switch (outcome) {
+            case SUCCEEDED: {
+                final long responseStartedAtMonoMillis = permit.responseStartedAtMonoMillis;
+                final boolean latencyIsHealthy = (responseStartedAtMonoMillis == NOT_STARTED) ||
+                        recordLatency(responseStartedAtMonoMillis - permit.acquiredAtMonoMillis);
+                recordError(false);
+                if (!latencyIsHealthy) {
+                    decrease(permit);
+                } else if (wasBusy && errorRate <= maxErrorRate) {
+                    successesSinceIncrease++;
+                    if (successesSinceIncrease >= (int) limit) {
+                        limit = Math.min(maxLimit, limit + additiveIncrease);
+                        successesSinceIncrease = 0;
+                    }
+                }
+                break;
+            }
+
+            case OVERLOADED:
+                recordError(true);
+                decrease(permit);
+                break;
+
+            case FAILED:
+                recordError(true);
+                break;
+
+            case IGNORED:
+                break;
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Updates the latency averages.
+     *
+     * @return false iff the recent latency is too far above the long-term latency.
+     */
+    private boolean recordLatency(long tookMillis) {
+        if (latencySamples == 0) {
+            shortLatencyMillis = tookMillis;
+            longLatencyMillis = tookMillis;
+        } else {
+            shortLatencyMillis += SHORT_LATENCY_WEIGHT * (tookMillis - shortLatencyMillis);
+            longLatencyMillis += LONG_LATENCY_WEIGHT * (tookMillis - longLatencyMillis);
+        }
+        latencySamples++;
+
+        if (latencyToleranceOrZero == 0 || latencySamples < MIN_LATENCY_SAMPLES) {
+            return true;
+        }
+        return shortLatencyMillis <= longLatencyMillis * latencyToleranceOrZero;
+    }
+
+    private void recordError(boolean isError) {
+        errorRate += ERROR_RATE_WEIGHT * ((isError ? 1.0 : 0.0) - errorRate);
+    }
+
+    private void decrease(Permit permit) {
+        if (permit.generationAtAcquire != generation) {
+            // we've already cut the limit since this transfer started.
+            return;
+        }
+        limit = Math.max(minLimit, limit * backoffRatio);
+        successesSinceIncrease = 0;
+        generation++;
+    }
+
+    public static class Builder {
+        private int initialLimit = DEFAULT_INITIAL_LIMIT;
+        private int minLimit = DEFAULT_MIN_LIMIT;
+        private int maxLimit = DEFAULT_MAX_LIMIT;
+        private double additiveIncrease = DEFAULT_ADDITIVE_INCREASE;
+        private double backoffRatio = DEFAULT_BACKOFF_RATIO;
+        private double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+        private double maxErrorRate = DEFAULT_MAX_ERROR_RATE;
+
+        public Builder setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public Builder setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public Builder setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * @param additiveIncrease how much the limit grows after a whole limit's worth of successful transfers.
+         */
+        public Builder setAdditiveIncrease(double additiveIncrease) {
+            this.additiveIncrease = additiveIncrease;
+            return this;
+        }
+
+        /**
+         * @param backoffRatio what the limit is multiplied by when we need to back off.  between 0 and 1.
+         */
+        public Builder setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * @param latencyTolerance we back off when the recent average latency (until the response
+         *                         starts) is more than this many times the long-term average
+         *                         latency.  use 0 to ignore latency.
+         */
+        public Builder setLatencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+            return this;
+        }
+
+        /**
+         * @param maxErrorRate the limit doesn't grow while the recent fraction of failed transfers is above this.
+         */
+        public Builder setMaxErrorRate(double maxErrorRate) {
+            this.maxErrorRate = maxErrorRate;
+            return this;
+        }
+
+        public B2AdaptiveConcurrencyLimiter build() {
+            return new B2AdaptiveConcurrencyLimiter(
+                    initialLimit,
+                    minLimit,
+                    maxLimit,
+                    additiveIncrease,
+                    backoffRatio,
+                    latencyTolerance,
+                    maxErrorRate);
+        }
+    }
+}
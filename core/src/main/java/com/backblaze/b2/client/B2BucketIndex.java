@@ -0,0 +1,570 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.client.structures.B2FileVersion;
+import com.backblaze.b2.client.structures.B2ListFileNamesRequest;
+import com.backblaze.b2.client.structures.B2ListFileNamesResponse;
+import com.backblaze.b2.util.B2IoUtils;
+import com.backblaze.b2.util.B2Preconditions;
+import com.backblaze.b2.util.B2Sha1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * B2BucketIndex is a local copy of what b2_list_file_names says about a
+ * bucket: the name, fileId, length, sha1 and upload time of the latest
+ * version of every visible file.  It's kept in a file so that sync-style
+ * programs don't have to list the whole bucket every time they run.
+ *
+ * The file is a sorted B2BucketIndexSegment, which is memory-mapped.
+ * Changes are kept in memory, on top of the segment, until save() writes
+ * a new segment with them merged in.  Only the entries that are different
+ * from the segment are kept, and refresh() saves as it goes when there
+ * are a lot of them, so re-listing a big bucket doesn't hold the whole
+ * listing in memory.
+ *
+ * The index is kept up to date by:
+ *   * listings.  a page of b2_list_file_names without a delimiter says
+ *     everything about the names from where it started to where the next
+ *     page starts, so the index replaces that range with what's in the page.
+ *   * this client's own changes.  uploads and hides in this bucket are
+ *     applied directly.  when we don't know the bucket of a new version
+ *     (copies without a destination bucket, and large files finished by
+ *     fileId), or when a version is deleted (which might uncover an older
+ *     one), the name is marked as dirty.
+ * Register the index with B2StorageClientImpl.addBucketIndex() to have the
+ * client do this, or call versionCreated(), versionDeleted() and
+ * fileNamesListed() yourself.
+ *
+ * Changes made by other clients aren't seen until the names are listed
+ * again.  refresh() re-lists the names with a prefix, and
+ * refreshDirtyFileNames() looks at just the dirty names, so only the
+ * ranges that might have changed have to be listed.
+ *
+ * NOTE: save() replaces the file while the old one is still mapped.  That's
+ *   fine on unix-like systems.  On Windows, the old segment stays mapped until
+ *   it's garbage collected, and replacing it may fail until then.
+ *
+ * THREAD-SAFETY: this class is thread-safe.  Everything is protected by
+ *   synchronized(this), except the listing done by refresh() and
+ *   refreshDirtyFileNames() and the file reading done by diff().
+ */
+public class B2BucketIndex {
+    // in 'changes', this means the name has been removed.
+    private static final B2BucketIndexEntry REMOVED = new B2BucketIndexEntry("", null, 0, null, 0);
+
+    // when refresh() has this many changes in memory, it saves them.
+    static final int DEFAULT_MAX_CHANGES_DURING_REFRESH = 100_000;
+
+    private final Path path;
+    private final String bucketId;
+    private final int maxChangesDuringRefresh;
+
+    // all protected by synchronized(this).
+    private B2BucketIndexSegment segment;
+    private final NavigableMap<String, B2BucketIndexEntry> changes = new TreeMap<>(B2FileNameOrder::compareNames);
+    private final TreeSet<String> dirtyNames = new TreeSet<>(B2FileNameOrder::compareNames);
+    private boolean hasUnsavedChanges;
+
+    private B2BucketIndex(Path path, B2BucketIndexSegment segment, int maxChangesDuringRefresh) {
+        this.path = path;
+        this.bucketId = segment.getBucketId();
+        this.maxChangesDuringRefresh = maxChangesDuringRefresh;
+        this.segment = segment;
+        this.dirtyNames.addAll(segment.getDirtyNames());
+    }
+
+    /**
+     * Opens the index in the given file, or starts an empty one if the file
+     * doesn't exist.  An empty index doesn't know about anything until its
+     * bucket is listed or refresh() is called.
+     *
+     * @param path the index file.  save() writes a temporary file next to it.
+     * @param bucketId the bucket the index is for.
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if the file is the index of another bucket.
+     */
+    public static B2BucketIndex open(Path path, String bucketId) throws IOException {
+        return open(path, bucketId, DEFAULT_MAX_CHANGES_DURING_REFRESH);
+    }
+
+    /*forTests*/ static B2BucketIndex open(Path path, String bucketId, int maxChangesDuringRefresh) throws IOException {
+        B2Preconditions.checkArgument(maxChangesDuringRefresh > 0, "maxChangesDuringRefresh must be positive");
+        if (!Files.exists(path)) {
+            return new B2BucketIndex(path, B2BucketIndexSegment.empty(bucketId), maxChangesDuringRefresh);
+        }
+        final B2BucketIndexSegment segment = B2BucketIndexSegment.read(path);
+        B2Preconditions.checkArgument(segment.getBucketId().equals(bucketId),
+                path + " is the index of bucket " + segment.getBucketId() + ", not " + bucketId);
+        return new B2BucketIndex(path, segment, maxChangesDuringRefresh);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getBucketId() {
+        return bucketId;
+    }
+
+    /**
+     * @return the entry for the given name, or null if the name isn't in the index.
+     */
+    public synchronized B2BucketIndexEntry getOrNull(String fileName) {
+        final B2BucketIndexEntry changed = changes.get(fileName);
+        if (changed != null) {
+            return (changed == REMOVED) ? null : changed;
+        }
+        return segmentEntryOrNull(fileName);
+    }
+
+    /**
+     * @return the entries whose names start with the prefix, in order by name.
+     */
+    public synchronized List<B2BucketIndexEntry> entriesWithPrefix(String prefix) {
+        final List<B2BucketIndexEntry> result = new ArrayList<>();
+        new MergingIterator(prefix, null, prefix).forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+     * @return the names that might have changed in ways we don't know about.
+     */
+    public synchronized List<String> getDirtyFileNames() {
+        return new ArrayList<>(dirtyNames);
+    }
+
+    /**
+     * @return true iff there are changes that save() hasn't written yet.
+     */
+    public synchronized boolean hasUnsavedChanges() {
+        return hasUnsavedChanges;
+    }
+
+    /**
+     * @return how many entries are different from the saved file.
+     */
+    /*forTests*/ synchronized int getChangedEntryCount() {
+        return changes.size();
+    }
+
+    /**
+     * Writes the index, with all of its changes, to a new file and
+     * replaces the old one with it.
+     *
+     * @throws IOException if there's trouble writing.  the old file is
+     *         left as it was, and the changes are still in memory.
+     */
+    public synchronized void save() throws IOException {
+        // write() syncs the new file before we move it into place, so the
+        // rename can't reach the disk before the contents do.  then we sync
+        // the directory so the rename itself is on the disk.
+        final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        B2BucketIndexSegment.write(tmp, bucketId, new MergingIterator("", null, ""), dirtyNames);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        B2IoUtils.syncDirectoryQuietly(path.toAbsolutePath().getParent());
+        segment = B2BucketIndexSegment.read(path);
+        changes.clear();
+        hasUnsavedChanges = false;
+    }
+
+    /**
+     * Tells the index about a version this client just made.
+     *
+     * @param bucketIdOrNull the bucket it's in, or null if we don't know.
+     */
+    public synchronized void versionCreated(String bucketIdOrNull, B2FileVersion version) {
+        final String fileName = version.getFileName();
+        if (bucketIdOrNull == null) {
+            markDirty(fileName);
+        } else if (bucketIdOrNull.equals(bucketId)) {
+            final B2BucketIndexEntry existing = getOrNull(fileName);
+            if (existing != null && existing.getUploadTimestamp() > version.getUploadTimestamp()) {
+                // a custom upload timestamp can make the new version older than the one we know about.
+                markDirty(fileName);
+            } else if (version.isUpload()) {
+                put(fileName, B2BucketIndexEntry.from(version));
+            } else if (version.isHide()) {
+                put(fileName, REMOVED);
+            }
+        }
+    }
+
+    /**
+     * Tells the index that a version, in some bucket, has been deleted.
+     * If it's the version we know about, we forget it.  Either way, the
+     * delete might have uncovered another version, so the name is dirty.
+     */
+    public synchronized void versionDeleted(String fileId, String fileName) {
+        final B2BucketIndexEntry existing = getOrNull(fileName);
+        if (existing != null && existing.getFileId().equals(fileId)) {
+            put(fileName, REMOVED);
+        }
+        markDirty(fileName);
+    }
+
+    /**
+     * Updates the index from a page of b2_list_file_names.  Pages for other
+     * buckets and pages listed with a delimiter are ignored.
+     */
+    public synchronized void fileNamesListed(B2ListFileNamesRequest request, B2ListFileNamesResponse response) {
+        if (!bucketId.equals(request.getBucketId()) || request.getDelimiter() != null) {
+            return;
+        }
+        final String prefix = (request.getPrefix() == null) ? "" : request.getPrefix();
+        final String start = request.getStartFileName();
+        final String from = (start == null || B2FileNameOrder.compareNames(start, prefix) < 0) ? prefix : start;
+        replaceRange(from, response.getNextFileName(), prefix, response.getFiles());
+    }
+
+    /**
+     * Lists all of the names with the given prefix and makes the index match.
+     *
+     * @param client the client to list with.  it should be for this index's account.
+     * @param prefix the prefix to refresh.  "" refreshes the whole bucket.
+     * @throws B2Exception if there's trouble listing, or if there's trouble
+     *         saving the changes when there are a lot of them.
+     */
+    public void refresh(B2StorageClient client, String prefix) throws B2Exception {
+        final B2ListFileNamesRequest request = B2ListFileNamesRequest
+                .builder(bucketId)
+                .setPrefix(prefix)
+                .build();
+
+        // we update as we go instead of holding the whole listing in memory.
+        // each version replaces the range from just after the previous one up
+        // to and including itself.
+        String from = prefix;
+        for (B2FileVersion version : client.fileNames(request)) {
+            final String through = justAfter(version.getFileName());
+            synchronized (this) {
+                replaceRange(from, through, prefix, Collections.singletonList(version));
+                if (changes.size() >= maxChangesDuringRefresh) {
+                    saveDuringRefresh();
+                }
+            }
+            from = through;
+        }
+        synchronized (this) {
+            replaceRange(from, null, prefix, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Looks up each dirty name in the bucket and makes the index match.
+     *
+     * @param client the client to list with.  it should be for this index's account.
+     * @throws B2Exception if there's trouble listing.
+     */
+    public void refreshDirtyFileNames(B2StorageClient client) throws B2Exception {
+        for (String fileName : getDirtyFileNames()) {
+            final B2ListFileNamesRequest request = B2ListFileNamesRequest
+                    .builder(bucketId)
+                    .setStartFileName(fileName)
+                    .setPrefix(fileName)
+                    .setMaxFileCount(1)
+                    .build();
+            final Iterator<B2FileVersion> iter = client.fileNames(request).iterator();
+            final B2FileVersion firstOrNull = iter.hasNext() ? iter.next() : null;
+            final List<B2FileVersion> found = (firstOrNull != null && firstOrNull.getFileName().equals(fileName)) ?
+                    Collections.singletonList(firstOrNull) :
+                    Collections.emptyList();
+            synchronized (this) {
+                replaceRange(fileName, justAfter(fileName), fileName, found);
+            }
+        }
+    }
+
+    /**
+     * Compares a local directory tree with the entries that have the given
+     * prefix.  The local file "a/b.txt" under localDirectory goes with the
+     * B2 name prefix + "a/b.txt".
+     *
+     * This only knows what the index knows, so you might want to
+     * refreshDirtyFileNames() first.
+     *
+     * @param localDirectory the root of the local tree.
+     * @param prefix the prefix of the B2 names that go with the local tree.
+     * @param compareSha1s if true, local files that are the same length as
+     *                     their entries are read to compare their sha1s.
+     *                     if false, only lengths are compared.
+     * @return the differences.
+     * @throws IOException if there's trouble reading the local tree.
+     */
+    public B2BucketIndexDiff diff(Path localDirectory, String prefix, boolean compareSha1s) throws IOException {
+        final TreeMap<String, Path> localFiles = new TreeMap<>(B2FileNameOrder::compareNames);
+        try (Stream<Path> paths = Files.walk(localDirectory)) {
+            final Iterator<Path> iter = paths.filter(Files::isRegularFile).iterator();
+            while (iter.hasNext()) {
+                final Path localPath = iter.next();
+                localFiles.put(prefix + toB2Name(localDirectory.relativize(localPath)), localPath);
+            }
+        }
+
+        final List<String> onlyLocal = new ArrayList<>();
+        final List<B2BucketIndexEntry> onlyInBucket = new ArrayList<>();
+        final List<B2BucketIndexEntry> changed = new ArrayList<>();
+        final Iterator<Map.Entry<String, Path>> localIter = localFiles.entrySet().iterator();
+        final Iterator<B2BucketIndexEntry> remoteIter = entriesWithPrefix(prefix).iterator();
+        Map.Entry<String, Path> local = localIter.hasNext() ? localIter.next() : null;
+        B2BucketIndexEntry remote = remoteIter.hasNext() ? remoteIter.next() : null;
+        while (local != null || remote != null) {
+            final int cmp = (local == null) ? 1 :
+                    (remote == null) ? -1 :
+                    B2FileNameOrder.compareNames(local.getKey(), remote.getFileName());
+            if (cmp < 0) {
+                onlyLocal.add(local.getKey());
+                local = localIter.hasNext() ? localIter.next() : null;
+            } else if (cmp > 0) {
+                onlyInBucket.add(remote);
+                remote = remoteIter.hasNext() ? remoteIter.next() : null;
+            } else {
+                if (isChanged(local.getValue(), remote, compareSha1s)) {
+                    changed.add(remote);
+                }
+                local = localIter.hasNext() ? localIter.next() : null;
+                remote = remoteIter.hasNext() ? remoteIter.next() : null;
+            }
+        }
+        return new B2BucketIndexDiff(onlyLocal, onlyInBucket, changed);
+    }
+
+    private void saveDuringRefresh() throws B2LocalException {
+        try {
+            save();
+        } catch (IOException e) {
+            throw new B2LocalException("write_failed", "failed to save the bucket index during refresh: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isChanged(Path localPath,
+                                     B2BucketIndexEntry entry,
+                                     boolean compareSha1s) throws IOException {
+        if (Files.size(localPath) != entry.getContentLength()) {
+            return true;
+        }
+        if (!compareSha1s || entry.getContentSha1OrNull() == null) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(localPath)) {
+            return !B2Sha1.equalHexSha1s(B2Sha1.hexSha1OfInputStream(in), entry.getContentSha1OrNull());
+        }
+    }
+
+    private static String toB2Name(Path relativePath) {
+        final StringBuilder name = new StringBuilder();
+        for (Path element : relativePath) {
+            if (name.length() > 0) {
+                name.append('/');
+            }
+            name.append(element.toString());
+        }
+        return name.toString();
+    }
+
+    /**
+     * @return the first name after the given one.  B2 names can't have
+     *         control characters, so nothing sorts between them.
+     */
+    private static String justAfter(String fileName) {
+        return fileName + '\u0000';
+    }
+
+    /**
+     * Makes the names with the prefix, from 'from' up to (but not including)
+     * 'toOrNull', be just the given versions.  Anything in that range is
+     * no longer dirty.
+     *
+     * Only the names whose entries are different from the segment's are
+     * left in 'changes'.
+     */
+    private void replaceRange(String from, String toOrNull, String prefix, List<B2FileVersion> versions) {
+        final Map<String, B2BucketIndexEntry> listed = new HashMap<>();
+        for (B2FileVersion version : versions) {
+            if (version.isUpload()) {
+                listed.put(version.getFileName(), B2BucketIndexEntry.from(version));
+            }
+        }
+
+        // every name in the range is in the segment, in 'changes', or listed.
+        // (it's fine to do a name more than once.)
+        for (int i = segment.lowerBound(from); i < segment.size(); i++) {
+            final String name = segment.nameAt(i);
+            if (!isInRange(name, toOrNull, prefix)) {
+                break;
+            }
+            makeEntry(name, segment.get(i), listed.get(name));
+        }
+        // collect these first, since we can't change 'changes' while going through it.
+        final List<String> changedNames = new ArrayList<>();
+        for (String name : changes.tailMap(from, true).keySet()) {
+            if (!isInRange(name, toOrNull, prefix)) {
+                break;
+            }
+            changedNames.add(name);
+        }
+        for (String name : changedNames) {
+            makeEntry(name, segmentEntryOrNull(name), listed.get(name));
+        }
+        for (Map.Entry<String, B2BucketIndexEntry> entry : listed.entrySet()) {
+            makeEntry(entry.getKey(), segmentEntryOrNull(entry.getKey()), entry.getValue());
+        }
+
+        final Iterator<String> dirtyIter = dirtyNames.tailSet(from, true).iterator();
+        while (dirtyIter.hasNext()) {
+            final String name = dirtyIter.next();
+            if (!isInRange(name, toOrNull, prefix)) {
+                break;
+            }
+            dirtyIter.remove();
+            hasUnsavedChanges = true;
+        }
+    }
+
+    private void put(String fileName, B2BucketIndexEntry entryOrRemoved) {
+        changes.put(fileName, entryOrRemoved);
+        hasUnsavedChanges = true;
+    }
+
+    /**
+     * Makes the entry for the name be entryOrNull, keeping it in 'changes'
+     * only if that's different from the segment's.
+     */
+    private void makeEntry(String fileName, B2BucketIndexEntry segmentEntryOrNull, B2BucketIndexEntry entryOrNull) {
+        if (Objects.equals(segmentEntryOrNull, entryOrNull)) {
+            if (changes.remove(fileName) != null) {
+                hasUnsavedChanges = true;
+            }
+        } else {
+            final B2BucketIndexEntry entryOrRemoved = (entryOrNull == null) ? REMOVED : entryOrNull;
+            if (!entryOrRemoved.equals(changes.put(fileName, entryOrRemoved))) {
+                hasUnsavedChanges = true;
+            }
+        }
+    }
+
+    private B2BucketIndexEntry segmentEntryOrNull(String fileName) {
+        final int i = segment.lowerBound(fileName);
+        if (i < segment.size() && segment.nameAt(i).equals(fileName)) {
+            return segment.get(i);
+        }
+        return null;
+    }
+
+    private void markDirty(String fileName) {
+        if (dirtyNames.add(fileName)) {
+            hasUnsavedChanges = true;
+        }
+    }
+
+    // names with the prefix are all together in the sort order, so once a
+    // name that's at least 'from' doesn't have it, none of the rest will.
+    private static boolean isInRange(String name, String toOrNull, String prefix) {
+        return name.startsWith(prefix) &&
+                (toOrNull == null || B2FileNameOrder.compareNames(name, toOrNull) < 0);
+    }
+
+    /**
+     * Goes through the entries of the segment with the changes applied,
+     * starting at 'from' and stopping before 'toOrNull' or the first name
+     * without the prefix, whichever comes first.  'from' must not be before
+     * the prefix.
+     *
+     * It must be used while synchronized(this), and nothing may be changed
+     * while it's in use.
+     */
+    private class MergingIterator implements Iterator<B2BucketIndexEntry> {
+        private final String toOrNull;
+        private final String prefix;
+        private final Iterator<Map.Entry<String, B2BucketIndexEntry>> changeIter;
+        private int segmentIndex;
+        private Map.Entry<String, B2BucketIndexEntry> change;
+        private B2BucketIndexEntry next;
+
+        private MergingIterator(String from, String toOrNull, String prefix) {
+            this.toOrNull = toOrNull;
+            this.prefix = prefix;
+            this.changeIter = changes.tailMap(from, true).entrySet().iterator();
+            this.segmentIndex = segment.lowerBound(from);
+            this.change = nextChangeOrNull();
+            this.next = findNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public B2BucketIndexEntry next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final B2BucketIndexEntry result = next;
+            next = findNext();
+            return result;
+        }
+
+        private Map.Entry<String, B2BucketIndexEntry> nextChangeOrNull() {
+            if (changeIter.hasNext()) {
+                final Map.Entry<String, B2BucketIndexEntry> entry = changeIter.next();
+                if (isInRange(entry.getKey(), toOrNull, prefix)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private B2BucketIndexEntry findNext() {
+            while (true) {
+                String segmentName = null;
+                if (segmentIndex < segment.size()) {
+                    segmentName = segment.nameAt(segmentIndex);
+                    if (!isInRange(segmentName, toOrNull, prefix)) {
+                        segmentName = null;
+                    }
+                }
+                if (segmentName == null && change == null) {
+                    return null;
+                }
+
+                final int cmp = (segmentName == null) ? 1 :
+                        (change == null) ? -1 :
+                        B2FileNameOrder.compareNames(segmentName, change.getKey());
+                if (cmp < 0) {
+                    return segment.get(segmentIndex++);
+                }
+                if (cmp == 0) {
+                    // the change replaces the segment's entry.
+                    segmentIndex++;
+                }
+                final B2BucketIndexEntry changed = change.getValue();
+                change = nextChangeOrNull();
+                if (changed != REMOVED) {
+                    return changed;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * B2BucketIndexDiff says how a local directory differs from what a
+ * B2BucketIndex knows about the bucket.  All the lists are in order
+ * by file name.
+ *
+ * THREAD-SAFETY: this class is immutable.
+ */
+public class B2BucketIndexDiff {
+    private final List<String> onlyLocalFileNames;
+    private final List<B2BucketIndexEntry> onlyInBucket;
+    private final List<B2BucketIndexEntry> changed;
+
+    B2BucketIndexDiff(List<String> onlyLocalFileNames,
+                      List<B2BucketIndexEntry> onlyInBucket,
+                      List<B2BucketIndexEntry> changed) {
+        this.onlyLocalFileNames = onlyLocalFileNames;
+        this.onlyInBucket = onlyInBucket;
+        this.changed = changed;
+    }
+
+    /**
+     * @return the B2 names of local files that aren't in the bucket.
+     */
+    public List<String> getOnlyLocalFileNames() {
+        return onlyLocalFileNames;
+    }
+
+    /**
+     * @return the bucket's entries that don't have a local file.
+     */
+    public List<B2BucketIndexEntry> getOnlyInBucket() {
+        return onlyInBucket;
+    }
+
+    /**
+     * @return the bucket's entries whose local file has a different length
+     *         (or, if sha1s were compared, different contents).
+     */
+    public List<B2BucketIndexEntry> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return true iff the directory matches the bucket.
+     */
+    public boolean isEmpty() {
+        return onlyLocalFileNames.isEmpty() && onlyInBucket.isEmpty() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "B2BucketIndexDiff{" +
+                "onlyLocal=" + onlyLocalFileNames.size() + ", " +
+                "onlyInBucket=" + onlyInBucket.size() + ", " +
+                "changed=" + changed.size() +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        B2BucketIndexDiff that = (B2BucketIndexDiff) o;
+        return Objects.equals(onlyLocalFileNames, that.onlyLocalFileNames) &&
+                Objects.equals(onlyInBucket, that.onlyInBucket) &&
+                Objects.equals(changed, that.changed);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(onlyLocalFileNames, onlyInBucket, changed);
+    }
+}
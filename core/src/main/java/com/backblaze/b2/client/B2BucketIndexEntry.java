@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.structures.B2FileVersion;
+
+import java.util.Objects;
+
+/**
+ * B2BucketIndexEntry is what a B2BucketIndex knows about the latest
+ * version of one file name.
+ *
+ * THREAD-SAFETY: this class is immutable.
+ */
+public class B2BucketIndexEntry {
+    private static final String UNVERIFIED_PREFIX = "unverified:";
+
+    private final String fileName;
+    private final String fileId;
+    private final long contentLength;
+    private final String contentSha1OrNull;
+    private final long uploadTimestamp;
+
+    public B2BucketIndexEntry(String fileName,
+                              String fileId,
+                              long contentLength,
+                              String contentSha1OrNull,
+                              long uploadTimestamp) {
+        this.fileName = fileName;
+        this.fileId = fileId;
+        this.contentLength = contentLength;
+        this.contentSha1OrNull = contentSha1OrNull;
+        this.uploadTimestamp = uploadTimestamp;
+    }
+
+    /**
+     * Large files don't have a contentSha1, so we use the large_file_sha1
+     * from their fileInfo, if they have one.  We also drop the "unverified:"
+     * that the server puts on the sha1 of some uploads, since it's still
+     * the sha1 the uploader claimed.
+     *
+     * @return an entry for the given version.
+     */
+    public static B2BucketIndexEntry from(B2FileVersion version) {
+        String sha1 = version.getContentSha1();
+        if (sha1 != null && sha1.startsWith(UNVERIFIED_PREFIX)) {
+            sha1 = sha1.substring(UNVERIFIED_PREFIX.length());
+        }
+        if (sha1 == null || sha1.equals("none")) {
+            sha1 = (version.getFileInfo() == null) ? null : version.getLargeFileSha1OrNull();
+        }
+        return new B2BucketIndexEntry(
+                version.getFileName(),
+                version.getFileId(),
+                version.getContentLength(),
+                sha1,
+                version.getUploadTimestamp());
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return the hex sha1 of the file's contents, or null if we don't know it.
+     */
+    public String getContentSha1OrNull() {
+        return contentSha1OrNull;
+    }
+
+    public long getUploadTimestamp() {
+        return uploadTimestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "B2BucketIndexEntry{" +
+                "fileName='" + fileName + "', " +
+                "fileId='" + fileId + "', " +
+                "contentLength=" + contentLength + ", " +
+                "contentSha1='" + contentSha1OrNull + "', " +
+                "uploadTimestamp=" + uploadTimestamp +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        B2BucketIndexEntry that = (B2BucketIndexEntry) o;
+        return contentLength == that.contentLength &&
+                uploadTimestamp == that.uploadTimestamp &&
+                Objects.equals(fileName, that.fileName) &&
+                Objects.equals(fileId, that.fileId) &&
+                Objects.equals(contentSha1OrNull, that.contentSha1OrNull);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fileName, fileId, contentLength, contentSha1OrNull, uploadTimestamp);
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2FlushAndSyncFileOnCloseOutputStream;
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * B2BucketIndexSegment is the on-disk part of a B2BucketIndex: a file with
+ * the entries sorted by name, which is memory-mapped and searched in place,
+ * so opening a big index doesn't mean reading it all.
+ *
+ * The layout is:
+ *   MAGIC (long)
+ *   bucketId (string)
+ *   the entries, one after another, each:
+ *     fileName (string), fileId (string), contentLength (long),
+ *     uploadTimestamp (long), contentSha1 (string, may be null)
+ *   the offset of each entry (int each)
+ *   the dirty file names (string each)
+ *   a footer: entryCount, dirtyCount, offsetTablePosition, dirtyPosition (ints),
+ *             MAGIC (long)
+ * A string is its length in UTF-8 bytes (an int, -1 for null), followed by
+ * the bytes.  Everything is big-endian.  The footer is at the end so that
+ * we can write the whole file in one pass.
+ *
+ * Names are sorted by code point, which is the same as sorting their UTF-8
+ * bytes, which is the order B2 lists them in.
+ *
+ * Files must be smaller than 2GB, so that one int can hold any offset.
+ * That's room for millions of names.
+ *
+ * THREAD-SAFETY: segments are immutable and may be read from multiple threads.
+ */
+class B2BucketIndexSegment {
+    private static final long MAGIC = 0x4232496e64657831L; // "B2Index1"
+    private static final int FOOTER_SIZE = 4 * 4 + 8;
+
+    private final String bucketId;
+    private final ByteBuffer bufferOrNull;
+    private final int entryCount;
+    private final int offsetTablePosition;
+    private final List<String> dirtyNames;
+
+    private B2BucketIndexSegment(String bucketId,
+                                 ByteBuffer bufferOrNull,
+                                 int entryCount,
+                                 int offsetTablePosition,
+                                 List<String> dirtyNames) {
+        this.bucketId = bucketId;
+        this.bufferOrNull = bufferOrNull;
+        this.entryCount = entryCount;
+        this.offsetTablePosition = offsetTablePosition;
+        this.dirtyNames = dirtyNames;
+    }
+
+    static B2BucketIndexSegment empty(String bucketId) {
+        return new B2BucketIndexSegment(bucketId, null, 0, 0, Collections.emptyList());
+    }
+
+    /**
+     * Maps the given segment file.
+     *
+     * @throws IOException if the file can't be read or isn't a segment file.
+     */
+    static B2BucketIndexSegment read(Path path) throws IOException {
+        final ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < 8 + 4 + FOOTER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException(path + " isn't a bucket index (its size is " + size + ")");
+            }
+            // the mapping stays valid after the channel is closed.
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        final int footer = buffer.limit() - FOOTER_SIZE;
+        if (buffer.getLong(0) != MAGIC || buffer.getLong(footer + 16) != MAGIC) {
+            throw new IOException(path + " isn't a bucket index");
+        }
+        final int entryCount = buffer.getInt(footer);
+        final int dirtyCount = buffer.getInt(footer + 4);
+        final int offsetTablePosition = buffer.getInt(footer + 8);
+        final int dirtyPosition = buffer.getInt(footer + 12);
+        if (entryCount < 0 || dirtyCount < 0 ||
+                offsetTablePosition < 8 || offsetTablePosition + 4L * entryCount != dirtyPosition ||
+                dirtyPosition > footer) {
+            throw new IOException(path + " is a damaged bucket index");
+        }
+
+        final String bucketId = readString(buffer, 8);
+        final List<String> dirtyNames = new ArrayList<>(dirtyCount);
+        int position = dirtyPosition;
+        for (int i = 0; i < dirtyCount; i++) {
+            final String name = readString(buffer, position);
+            dirtyNames.add(name);
+            position += 4 + utf8Length(buffer, position);
+        }
+        return new B2BucketIndexSegment(bucketId, buffer, entryCount, offsetTablePosition, dirtyNames);
+    }
+
+    /**
+     * Writes a segment file.
+     *
+     * @param entries the entries, in order by name.
+     * @throws IOException if there's trouble writing, or if it's too big.
+     *         the file is synced to the disk before this returns.
+     */
+    static void write(Path path,
+                      String bucketId,
+                      Iterator<B2BucketIndexEntry> entries,
+                      Collection<String> dirtyNames) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(B2FlushAndSyncFileOnCloseOutputStream.create(path.toFile())))) {
+            out.writeLong(MAGIC);
+            writeString(out, bucketId);
+
+            int[] offsets = new int[1024];
+            int entryCount = 0;
+            String previousName = null;
+            while (entries.hasNext()) {
+                final B2BucketIndexEntry entry = entries.next();
+                B2Preconditions.checkState(previousName == null || B2FileNameOrder.compareNames(previousName, entry.getFileName()) < 0,
+                        "entries must be in order by name");
+                previousName = entry.getFileName();
+
+                if (entryCount == offsets.length) {
+                    int[] bigger = new int[2 * offsets.length];
+                    System.arraycopy(offsets, 0, bigger, 0, entryCount);
+                    offsets = bigger;
+                }
+                offsets[entryCount++] = checkedSize(out);
+                writeString(out, entry.getFileName());
+                writeString(out, entry.getFileId());
+                out.writeLong(entry.getContentLength());
+                out.writeLong(entry.getUploadTimestamp());
+                writeString(out, entry.getContentSha1OrNull());
+            }
+
+            final int offsetTablePosition = checkedSize(out);
+            for (int i = 0; i < entryCount; i++) {
+                out.writeInt(offsets[i]);
+            }
+            final int dirtyPosition = checkedSize(out);
+            for (String name : dirtyNames) {
+                writeString(out, name);
+            }
+            out.writeInt(entryCount);
+            out.writeInt(dirtyNames.size());
+            out.writeInt(offsetTablePosition);
+            out.writeInt(dirtyPosition);
+            out.writeLong(MAGIC);
+            checkedSize(out);
+        }
+    }
+
+    String getBucketId() {
+        return bucketId;
+    }
+
+    int size() {
+        return entryCount;
+    }
+
+    List<String> getDirtyNames() {
+        return dirtyNames;
+    }
+
+    String nameAt(int i) {
+        return readString(bufferOrNull, entryPosition(i));
+    }
+
+    B2BucketIndexEntry get(int i) {
+        int position = entryPosition(i);
+        final String fileName = readString(bufferOrNull, position);
+        position += 4 + utf8Length(bufferOrNull, position);
+        final String fileId = readString(bufferOrNull, position);
+        position += 4 + utf8Length(bufferOrNull, position);
+        final long contentLength = bufferOrNull.getLong(position);
+        final long uploadTimestamp = bufferOrNull.getLong(position + 8);
+        final String sha1 = readString(bufferOrNull, position + 16);
+        return new B2BucketIndexEntry(fileName, fileId, contentLength, sha1, uploadTimestamp);
+    }
+
+    /**
+     * @return the index of the first entry whose name isn't less than the given name,
+     *         or size() if there isn't one.
+     */
+    int lowerBound(String name) {
+        int lo = 0;
+        int hi = entryCount;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (B2FileNameOrder.compareNames(nameAt(mid), name) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int entryPosition(int i) {
+        B2Preconditions.checkArgument(0 <= i && i < entryCount);
+        return bufferOrNull.getInt(offsetTablePosition + 4 * i);
+    }
+
+    private static int checkedSize(DataOutputStream out) throws IOException {
+        // DataOutputStream.size() sticks at Integer.MAX_VALUE when it overflows.
+        if (out.size() == Integer.MAX_VALUE) {
+            throw new IOException("bucket index is too big");
+        }
+        return out.size();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    // the number of bytes after the length, which is zero for null.
+    private static int utf8Length(ByteBuffer buffer, int position) {
+        return Math.max(0, buffer.getInt(position));
+    }
+
+    private static String readString(ByteBuffer buffer, int position) {
+        final int length = buffer.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        // we use a duplicate so that other threads' positions don't matter.
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position + 4);
+        duplicate.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+
+/**
+ * A B2BulkOperationListener is told about each item of a bulk operation
+ * as soon as the work on that item is done, so callers can process the
+ * results as they stream in instead of waiting for the whole operation.
+ *
+ * THREAD-SAFETY: Listeners will be called from the executor's threads and
+ * may be called from multiple threads simultaneously, so implementations
+ * must be thread-safe.
+ *
+ * PERFORMANCE: do not do anything that might block the thread for any appreciable
+ *              amount of time.  doing so holds up the rest of the operation.
+ *
+ * @param <T> the type of the items being worked on.
+ * @param <R> the type of the result of working on one item.
+ */
+public interface B2BulkOperationListener<T, R> {
+    /**
+     * Called when the work on an item succeeded.
+     */
+    void succeeded(T item, R result);
+
+    /**
+     * Called when the work on an item failed, after any retries.
+     */
+    void failed(T item, B2Exception e);
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2Preconditions;
+
+/**
+ * B2BulkOperationOptions control how a bulk operation, such as
+ * B2StorageClient.uploadSmallFiles(), runs.
+ *
+ * maxConcurrency is the most items that will be worked on at once.  The
+ * operation won't pull another item from its input until one of the
+ * in-flight items is done, so slow inputs (like listings) are consumed
+ * at the pace the work is getting done.
+ *
+ * If cancellationTokenOrNull is non-null and it is cancelled, the operation
+ * stops starting new items, waits for the ones in flight to finish and
+ * returns a summary that says it was cancelled.
+ */
+public class B2BulkOperationOptions {
+    static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+    private final int maxConcurrency;
+    private final B2CancellationToken cancellationTokenOrNull;
+
+    private B2BulkOperationOptions(int maxConcurrency,
+                                   B2CancellationToken cancellationTokenOrNull) {
+        B2Preconditions.checkArgument(maxConcurrency > 0, "maxConcurrency must be positive");
+        this.maxConcurrency = maxConcurrency;
+        this.cancellationTokenOrNull = cancellationTokenOrNull;
+    }
+
+    public static B2BulkOperationOptions defaultOptions() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public B2CancellationToken getCancellationTokenOrNull() {
+        return cancellationTokenOrNull;
+    }
+
+    public static class Builder {
+        private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        private B2CancellationToken cancellationTokenOrNull;
+
+        public Builder setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public Builder setCancellationTokenOrNull(B2CancellationToken cancellationTokenOrNull) {
+            this.cancellationTokenOrNull = cancellationTokenOrNull;
+            return this;
+        }
+
+        public B2BulkOperationOptions build() {
+            return new B2BulkOperationOptions(maxConcurrency, cancellationTokenOrNull);
+        }
+    }
+}
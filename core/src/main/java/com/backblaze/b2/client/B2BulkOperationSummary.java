@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * B2BulkOperationSummary describes how a bulk operation went.
+ *
+ * @param <T> the type of the items that were worked on.
+ */
+public class B2BulkOperationSummary<T> {
+    private final long succeededCount;
+    private final long skippedCount;
+    private final List<Failure<T>> failures;
+    private final boolean cancelled;
+
+    /**
+     * One item that couldn't be processed and why.
+     */
+    public static class Failure<T> {
+        private final T item;
+        private final B2Exception exception;
+
+        Failure(T item,
+                B2Exception exception) {
+            this.item = item;
+            this.exception = exception;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public B2Exception getException() {
+            return exception;
+        }
+
+        @Override
+        public String toString() {
+            return "Failure{" +
+                    "item=" + item +
+                    ", exception=" + exception +
+                    '}';
+        }
+    }
+
+    B2BulkOperationSummary(long succeededCount,
+                           long skippedCount,
+                           List<Failure<T>> failures,
+                           boolean cancelled) {
+        this.succeededCount = succeededCount;
+        this.skippedCount = skippedCount;
+        this.failures = Collections.unmodifiableList(failures);
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @return how many items were processed successfully.
+     */
+    public long getSucceededCount() {
+        return succeededCount;
+    }
+
+    /**
+     * @return how many items failed.
+     */
+    public long getFailedCount() {
+        return failures.size();
+    }
+
+    /**
+     * @return how many items were taken from the input but never worked on
+     *         because the operation was cancelled.
+     */
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @return the items that failed, in the order they failed.
+     */
+    public List<Failure<T>> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return true iff the operation was cancelled before all of the items were processed.
+     */
+    public boolean wasCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true iff every item was processed successfully.
+     */
+    public boolean allSucceeded() {
+        return failures.isEmpty() && !cancelled;
+    }
+
+    @Override
+    public String toString() {
+        return "B2BulkOperationSummary{" +
+                "succeededCount=" + succeededCount +
+                ", failedCount=" + failures.size() +
+                ", skippedCount=" + skippedCount +
+                ", cancelled=" + cancelled +
+                '}';
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.client.exceptions.B2RuntimeException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * B2BulkRunner does the same operation to each item from an Iterable, using
+ * up to options.getMaxConcurrency() of the executor's threads at once.
+ *
+ * The calling thread walks the Iterable and hands items to the executor.  It
+ * only pulls the next item once there's room for it, so when the Iterable is
+ * something like a B2ListFilesIterable, the next page is fetched while the
+ * items from the previous page are still being worked on, and we never hold
+ * more than a page of items that haven't been started yet.
+ *
+ * Each item's operation is expected to do its own retrying (the
+ * B2StorageClient methods all do).  A failure is recorded in the summary and
+ * the runner keeps going.  If the Iterable itself throws, the runner stops
+ * starting new items, waits for the in-flight ones, and throws.
+ *
+ * THREAD-SAFETY: run() may be called from multiple threads at once.
+ */
+class B2BulkRunner<T, R> {
+    interface Operation<T, R> {
+        R apply(T item) throws B2Exception;
+    }
+
+    private final Operation<T, R> operation;
+    private final B2BulkOperationOptions options;
+    private final B2BulkOperationListener<T, R> listenerOrNull;
+    private final ExecutorService executor;
+    private final Semaphore slots;
+
+    // these are protected by synchronized(this).
+    private long succeededCount;
+    private long skippedCount;
+    private final List<B2BulkOperationSummary.Failure<T>> failures = new ArrayList<>();
+
+    private B2BulkRunner(Operation<T, R> operation,
+                         B2BulkOperationOptions options,
+                         B2BulkOperationListener<T, R> listenerOrNull,
+                         ExecutorService executor) {
+        this.operation = operation;
+        this.options = options;
+        this.listenerOrNull = listenerOrNull;
+        this.executor = executor;
+        this.slots = new Semaphore(options.getMaxConcurrency());
+    }
+
+    /**
+     * Applies operation to every item and waits for all of them to finish.
+     *
+     * @return a summary of what happened.
+     * @throws B2Exception if iterating the items fails or we're interrupted.
+     *                     any items that were started have finished before this is thrown.
+     */
+    static <T, R> B2BulkOperationSummary<T> run(Iterable<T> items,
+                                                Operation<T, R> operation,
+                                                B2BulkOperationOptions options,
+                                                B2BulkOperationListener<T, R> listenerOrNull,
+                                                ExecutorService executor) throws B2Exception {
+        return new B2BulkRunner<>(operation, options, listenerOrNull, executor).runAll(items);
+    }
+
+    private B2BulkOperationSummary<T> runAll(Iterable<T> items) throws B2Exception {
+        final B2CancellationToken tokenOrNull = options.getCancellationTokenOrNull();
+        boolean cancelled = false;
+        try {
+            final Iterator<T> iterator = items.iterator();
+            while (true) {
+                if (isCancelled(tokenOrNull)) {
+                    cancelled = true;
+                    break;
+                }
+
+                acquireSlot();
+                final T item;
+                try {
+                    if (!iterator.hasNext()) {
+                        slots.release();
+                        break;
+                    }
+                    item = iterator.next();
+                } catch (RuntimeException | Error e) {
+                    // give the slot back, or the finally block below would wait for it forever.
+                    slots.release();
+                    throw e;
+                }
+                submit(item, tokenOrNull);
+            }
+        } catch (B2RuntimeException e) {
+            // the iterators we hand out wrap B2Exceptions this way.
+            throw unwrap(e);
+        } finally {
+            // no matter how we got here, don't return while items are still being worked on.
+            slots.acquireUninterruptibly(options.getMaxConcurrency());
+        }
+
+        synchronized (this) {
+            return new B2BulkOperationSummary<>(succeededCount,
+                    skippedCount,
+                    new ArrayList<>(failures),
+                    cancelled || isCancelled(tokenOrNull));
+        }
+    }
+
+    private void acquireSlot() throws B2LocalException {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new B2LocalException("interrupted", "interrupted while waiting for a bulk operation slot", e);
+        }
+    }
+
+    private void submit(T item,
+                        B2CancellationToken tokenOrNull) throws B2LocalException {
+        try {
+            executor.execute(() -> {
+                try {
+                    process(item, tokenOrNull);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw new B2LocalException("trouble", "executor rejected bulk operation task: " + e, e);
+        }
+    }
+
+    private void process(T item,
+                         B2CancellationToken tokenOrNull) {
+        if (isCancelled(tokenOrNull)) {
+            synchronized (this) {
+                skippedCount++;
+            }
+            return;
+        }
+
+        final R result;
+        try {
+            result = operation.apply(item);
+        } catch (B2Exception e) {
+            recordFailure(item, e);
+            return;
+        } catch (RuntimeException e) {
+            recordFailure(item, new B2LocalException("trouble", "unexpected exception: " + e, e));
+            return;
+        }
+
+        synchronized (this) {
+            succeededCount++;
+        }
+        if (listenerOrNull != null) {
+            listenerOrNull.succeeded(item, result);
+        }
+    }
+
+    private void recordFailure(T item,
+                               B2Exception e) {
+        synchronized (this) {
+            failures.add(new B2BulkOperationSummary.Failure<>(item, e));
+        }
+        if (listenerOrNull != null) {
+            listenerOrNull.failed(item, e);
+        }
+    }
+
+    private static boolean isCancelled(B2CancellationToken tokenOrNull) {
+        return tokenOrNull != null && tokenOrNull.isCancelled();
+    }
+
+    private static B2Exception unwrap(B2RuntimeException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof B2Exception) {
+            return (B2Exception) cause;
+        }
+        return new B2LocalException("trouble", "exception while iterating: " + e, e);
+    }
+}
@@ -12,6 +12,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
 /**
  * Token to pass around whether the caller has cancelled an operation so that
  * sub tasks can stop their processing.
+ *
+ * Callers may make their own tokens and cancel them to stop bulk operations
+ * (see B2BulkOperationOptions).
  */
 public class B2CancellationToken {
     /**
@@ -32,7 +35,7 @@ public class B2CancellationToken {
     /**
      * Sets the cancelled state
      */
-    void cancel() {
+    public void cancel() {
         cancelled.set(true);
     }
 
@@ -40,7 +43,7 @@ public class B2CancellationToken {
      * Check if the state is cancelled
      * @return whether cancel has been called already
      */
-    boolean isCancelled() {
+    public boolean isCancelled() {
         return cancelled.get();
     }
 }
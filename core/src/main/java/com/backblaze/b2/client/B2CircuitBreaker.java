@@ -0,0 +1,153 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2Clock;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * B2CircuitBreaker keeps a circuit for each operation, as described in
+ * B2CircuitBreakerPolicy.  B2Retryer asks it before each attempt, and tells
+ * it how each attempt went.
+ *
+ * THREAD-SAFETY: this class is thread-safe.  each circuit is synchronized
+ * on itself, so operations don't contend with each other.
+ */
+class B2CircuitBreaker {
+    private static final B2Clock clock = B2Clock.get();
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final B2CircuitBreakerPolicy policy;
+    private final ConcurrentHashMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    B2CircuitBreaker(B2CircuitBreakerPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * @return true iff an attempt at the operation may be made now.
+     *         if so, the caller must report how it went with succeeded(),
+     *         failed() or ignored().
+     */
+    boolean tryToAttempt(String operation) {
+        return circuitFor(operation).tryToAttempt(clock.monotonicMillis());
+    }
+
+    /**
+     * The attempt got an answer from the service.
+     */
+    void succeeded(String operation) {
+        circuitFor(operation).succeeded();
+    }
+
+    /**
+     * The attempt failed in a way that says the service is in trouble.
+     */
+    void failed(String operation) {
+        circuitFor(operation).failed(clock.monotonicMillis());
+    }
+
+    /**
+     * The attempt ended in a way that doesn't say whether the service is ok.
+     */
+    void ignored(String operation) {
+        circuitFor(operation).ignored();
+    }
+
+    State getState(String operation) {
+        return circuitFor(operation).getState();
+    }
+
+    private Circuit circuitFor(String operation) {
+        return circuits.computeIfAbsent(operation, k -> new Circuit(policy));
+    }
+
+    private static class Circuit {
+        private final B2CircuitBreakerPolicy policy;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAtMillis;
+        private int probesInProgress;
+
+        Circuit(B2CircuitBreakerPolicy policy) {
+            this.policy = policy;
+        }
+
+        synchronized boolean tryToAttempt(long nowMillis) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+
+                case OPEN:
+                    if (nowMillis - openedAtMillis < policy.getOpenMillis()) {
+                        return false;
+                    }
+                    state = State.HALF_OPEN;
+                    probesInProgress = 1;
+                    return true;
+
+                case HALF_OPEN:
+                default:
+                    if (probesInProgress >= policy.getHalfOpenProbes()) {
+                        return false;
+                    }
+                    probesInProgress++;
+                    return true;
+            }
+        }
+
+        synchronized void succeeded() {
+            // an attempt that started before the circuit opened doesn't
+            // get to close it; only the probes do.
+            if (state != State.OPEN) {
+                state = State.CLOSED;
+                consecutiveFailures = 0;
+                probesInProgress = 0;
+            }
+        }
+
+        synchronized void failed(long nowMillis) {
+            switch (state) {
+                case CLOSED:
+                    consecutiveFailures++;
+                    if (consecutiveFailures >= policy.getFailureThreshold()) {
+                        open(nowMillis);
+                    }
+                    break;
+
+                case HALF_OPEN:
+                    open(nowMillis);
+                    break;
+
+                case OPEN:
+                default:
+                    break;
+            }
+        }
+
+        synchronized void ignored() {
+            if (state == State.HALF_OPEN && probesInProgress > 0) {
+                // let another probe take its place.
+                probesInProgress--;
+            }
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+
+        private void open(long nowMillis) {
+            state = State.OPEN;
+            openedAtMillis = nowMillis;
+            probesInProgress = 0;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.util.Objects;
+
+/**
+ * B2CircuitBreakerPolicy says whether the client stops calling an operation
+ * that keeps failing, and for how long.
+ *
+ * The client keeps a circuit breaker for each operation, such as
+ * "b2_list_file_names".  When failureThreshold attempts at an operation fail
+ * in a row, its breaker opens, and calls to it fail right away with a
+ * B2LocalException whose code is "circuit_open", instead of waiting through
+ * all of their retries.  After openMillis, the breaker lets up to
+ * halfOpenProbes attempts through to see whether the operation works again.
+ * If one succeeds, the breaker closes; if one fails, it opens again.
+ *
+ * The failures that count are the ones that say the service is in trouble:
+ * 500, 503, request timeouts and network errors.  Other errors, like 400 or
+ * 404, mean that the service answered, so they count as successes.  Being
+ * told to slow down (429) doesn't count either way.
+ *
+ * The default policy never opens.
+ *
+ * THREAD-SAFETY: this class is immutable.
+ */
+public class B2CircuitBreakerPolicy {
+    static final int DEFAULT_FAILURE_THRESHOLD = 0;
+    static final long DEFAULT_OPEN_MILLIS = 10_000;
+    static final int DEFAULT_HALF_OPEN_PROBES = 1;
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final int halfOpenProbes;
+
+    private B2CircuitBreakerPolicy(int failureThreshold,
+                                   long openMillis,
+                                   int halfOpenProbes) {
+        B2Preconditions.checkArgument(failureThreshold >= 0, "failureThreshold must not be negative");
+        B2Preconditions.checkArgument(openMillis > 0, "openMillis must be positive");
+        B2Preconditions.checkArgument(halfOpenProbes > 0, "halfOpenProbes must be positive");
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    public static B2CircuitBreakerPolicy defaultPolicy() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return how many attempts at an operation must fail in a row to open
+     *         its breaker.  zero means breakers never open.
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * @return how long a breaker stays open before it lets probes through.
+     */
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    /**
+     * @return how many attempts may be in progress while a breaker is half open.
+     */
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+
+    /**
+     * @return true iff breakers can open under this policy.
+     */
+    public boolean isEnabled() {
+        return failureThreshold > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        B2CircuitBreakerPolicy that = (B2CircuitBreakerPolicy) o;
+        return failureThreshold == that.failureThreshold &&
+                openMillis == that.openMillis &&
+                halfOpenProbes == that.halfOpenProbes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(failureThreshold, openMillis, halfOpenProbes);
+    }
+
+    public static class Builder {
+        private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+        private long openMillis = DEFAULT_OPEN_MILLIS;
+        private int halfOpenProbes = DEFAULT_HALF_OPEN_PROBES;
+
+        public Builder setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        public Builder setOpenMillis(long openMillis) {
+            this.openMillis = openMillis;
+            return this;
+        }
+
+        public Builder setHalfOpenProbes(int halfOpenProbes) {
+            this.halfOpenProbes = halfOpenProbes;
+            return this;
+        }
+
+        public B2CircuitBreakerPolicy build() {
+            return new B2CircuitBreakerPolicy(failureThreshold, openMillis, halfOpenProbes);
+        }
+    }
+}
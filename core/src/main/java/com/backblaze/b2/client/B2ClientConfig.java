@@ -8,6 +8,7 @@ import com.backblaze.b2.client.structures.B2TestMode;
 import com.backblaze.b2.util.B2Preconditions;
 
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 
 /**
  * B2ClientConfig describes the various settings the B2 clients need.
@@ -27,17 +28,112 @@ public class B2ClientConfig {
      */
     private final boolean partNumberGapsAllowed;
 
+    /**
+     * If non-null, transfers (uploads, copies and downloads) wait for a permit
+     * from this limiter before they start.  The same limiter may be shared by
+     * several clients.
+     */
+    private final B2AdaptiveConcurrencyLimiter concurrencyLimiterOrNull;
+
+    /**
+     * Says how many upload urls we keep for reuse and how long we trust them.
+     */
+    private final B2UploadUrlCachePolicy uploadUrlCachePolicy;
+
+    /**
+     * Says whether we remember file metadata for getFileInfo() and
+     * getFileInfoByName(), and for how long.
+     */
+    private final B2FileInfoCachePolicy fileInfoCachePolicy;
+
+    /**
+     * If true, concurrent identical calls to getFileInfo(), getFileInfoByName()
+     * and downloadById() share one request to the server.
+     */
+    private final boolean requestCoalescingEnabled;
+
+    /**
+     * Says whether we get a new account authorization before the current
+     * one expires, and when.
+     */
+    private final B2AccountAuthorizationRefreshPolicy accountAuthorizationRefreshPolicy;
+
+    /**
+     * If non-null, it's told about every attempt the client makes and
+     * how many bytes it uploads and downloads.  The same instance may be
+     * shared by several clients.
+     */
+    private final B2Metrics metricsOrNull;
+
+    /**
+     * Says whether reads are hedged, and when.  Hedging needs
+     * the background executor.  Download sinks still run on the
+     * calling thread.
+     */
+    private final B2HedgePolicy hedgePolicy;
+
+    /**
+     * If non-null, retries after a delay are limited to a fraction of the
+     * successful attempts.  It may be shared by several clients.
+     */
+    private final B2RetryBudget retryBudgetOrNull;
+
+    /**
+     * Says when the client stops trying operations that keep failing.
+     * By default, it never does.
+     */
+    private final B2CircuitBreakerPolicy circuitBreakerPolicy;
+
+    /**
+     * If non-null, every request waits for its turn from it, and the whole
+     * client slows down when the service says to.  It may be shared by
+     * several clients that use the same account.
+     */
+    private final B2RateLimiter rateLimiterOrNull;
+
+    /**
+     * If non-null, the client uses this for work it does in the background,
+     * such as prefetching upload urls.  The client never shuts it down.
+     */
+    private final ExecutorService backgroundExecutorOrNull;
+
     private B2ClientConfig(B2AccountAuthorizer accountAuthorizer,
                            String userAgent,
                            String masterUrl,
                            B2TestMode testModeOrNull,
-                           boolean partNumberGapsAllowed) {
+                           boolean partNumberGapsAllowed,
+                           B2AdaptiveConcurrencyLimiter concurrencyLimiterOrNull,
+                           B2UploadUrlCachePolicy uploadUrlCachePolicy,
+                           B2FileInfoCachePolicy fileInfoCachePolicy,
+                           boolean requestCoalescingEnabled,
+                           B2AccountAuthorizationRefreshPolicy accountAuthorizationRefreshPolicy,
+                           B2Metrics metricsOrNull,
+                           B2HedgePolicy hedgePolicy,
+                           B2RetryBudget retryBudgetOrNull,
+                           B2CircuitBreakerPolicy circuitBreakerPolicy,
+                           B2RateLimiter rateLimiterOrNull,
+                           ExecutorService backgroundExecutorOrNull) {
         B2Preconditions.checkArgument(userAgent != null && !userAgent.isEmpty());
+        B2Preconditions.checkArgument(uploadUrlCachePolicy.getPrefetchCount() == 0 || backgroundExecutorOrNull != null,
+                "prefetching upload urls requires a background executor");
+        B2Preconditions.checkArgument(!hedgePolicy.isEnabled() || backgroundExecutorOrNull != null,
+                "hedging requires a background executor");
         this.accountAuthorizer = accountAuthorizer;
         this.userAgent = userAgent;
         this.masterUrl = masterUrl;
         this.testModeOrNull = testModeOrNull;
         this.partNumberGapsAllowed = partNumberGapsAllowed;
+        this.concurrencyLimiterOrNull = concurrencyLimiterOrNull;
+        this.uploadUrlCachePolicy = uploadUrlCachePolicy;
+        this.fileInfoCachePolicy = fileInfoCachePolicy;
+        this.requestCoalescingEnabled = requestCoalescingEnabled;
+        this.accountAuthorizationRefreshPolicy = accountAuthorizationRefreshPolicy;
+        this.metricsOrNull = metricsOrNull;
+        this.hedgePolicy = hedgePolicy;
+        this.retryBudgetOrNull = retryBudgetOrNull;
+        this.circuitBreakerPolicy = circuitBreakerPolicy;
+        this.rateLimiterOrNull = rateLimiterOrNull;
+        this.backgroundExecutorOrNull = backgroundExecutorOrNull;
     }
 
     public B2AccountAuthorizer getAccountAuthorizer() {
@@ -60,6 +156,50 @@ public class B2ClientConfig {
         return partNumberGapsAllowed;
     }
 
+    public B2AdaptiveConcurrencyLimiter getConcurrencyLimiterOrNull() {
+        return concurrencyLimiterOrNull;
+    }
+
+    public B2UploadUrlCachePolicy getUploadUrlCachePolicy() {
+        return uploadUrlCachePolicy;
+    }
+
+    public B2FileInfoCachePolicy getFileInfoCachePolicy() {
+        return fileInfoCachePolicy;
+    }
+
+    public boolean isRequestCoalescingEnabled() {
+        return requestCoalescingEnabled;
+    }
+
+    public B2AccountAuthorizationRefreshPolicy getAccountAuthorizationRefreshPolicy() {
+        return accountAuthorizationRefreshPolicy;
+    }
+
+    public B2Metrics getMetricsOrNull() {
+        return metricsOrNull;
+    }
+
+    public B2HedgePolicy getHedgePolicy() {
+        return hedgePolicy;
+    }
+
+    public B2RetryBudget getRetryBudgetOrNull() {
+        return retryBudgetOrNull;
+    }
+
+    public B2CircuitBreakerPolicy getCircuitBreakerPolicy() {
+        return circuitBreakerPolicy;
+    }
+
+    public B2RateLimiter getRateLimiterOrNull() {
+        return rateLimiterOrNull;
+    }
+
+    public ExecutorService getBackgroundExecutorOrNull() {
+        return backgroundExecutorOrNull;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -69,7 +209,18 @@ public class B2ClientConfig {
                 Objects.equals(getUserAgent(), that.getUserAgent()) &&
                 Objects.equals(getMasterUrl(), that.getMasterUrl()) &&
                 getTestModeOrNull() == that.getTestModeOrNull() &&
-                isPartNumberGapsAllowed() == that.isPartNumberGapsAllowed();
+                isPartNumberGapsAllowed() == that.isPartNumberGapsAllowed() &&
+                Objects.equals(getConcurrencyLimiterOrNull(), that.getConcurrencyLimiterOrNull()) &&
+                Objects.equals(getUploadUrlCachePolicy(), that.getUploadUrlCachePolicy()) &&
+                Objects.equals(getFileInfoCachePolicy(), that.getFileInfoCachePolicy()) &&
+                isRequestCoalescingEnabled() == that.isRequestCoalescingEnabled() &&
+                Objects.equals(getAccountAuthorizationRefreshPolicy(), that.getAccountAuthorizationRefreshPolicy()) &&
+                Objects.equals(getMetricsOrNull(), that.getMetricsOrNull()) &&
+                Objects.equals(getHedgePolicy(), that.getHedgePolicy()) &&
+                Objects.equals(getRetryBudgetOrNull(), that.getRetryBudgetOrNull()) &&
+                Objects.equals(getCircuitBreakerPolicy(), that.getCircuitBreakerPolicy()) &&
+                Objects.equals(getRateLimiterOrNull(), that.getRateLimiterOrNull()) &&
+                Objects.equals(getBackgroundExecutorOrNull(), that.getBackgroundExecutorOrNull());
 
     }
 
@@ -80,7 +231,18 @@ public class B2ClientConfig {
                 getUserAgent(),
                 getMasterUrl(),
                 getTestModeOrNull(),
-                isPartNumberGapsAllowed());
+                isPartNumberGapsAllowed(),
+                getConcurrencyLimiterOrNull(),
+                getUploadUrlCachePolicy(),
+                getFileInfoCachePolicy(),
+                isRequestCoalescingEnabled(),
+                getAccountAuthorizationRefreshPolicy(),
+                getMetricsOrNull(),
+                getHedgePolicy(),
+                getRetryBudgetOrNull(),
+                getCircuitBreakerPolicy(),
+                getRateLimiterOrNull(),
+                getBackgroundExecutorOrNull());
     }
 
     public static Builder builder(B2AccountAuthorizer accountAuthorizer, String userAgent) {
@@ -103,6 +265,17 @@ public class B2ClientConfig {
         private String masterUrl;
         private B2TestMode testModeOrNull;
         private boolean partNumberGapsAllowed = false;
+        private B2AdaptiveConcurrencyLimiter concurrencyLimiterOrNull;
+        private B2UploadUrlCachePolicy uploadUrlCachePolicy = B2UploadUrlCachePolicy.defaultPolicy();
+        private B2FileInfoCachePolicy fileInfoCachePolicy = B2FileInfoCachePolicy.defaultPolicy();
+        private boolean requestCoalescingEnabled = false;
+        private B2AccountAuthorizationRefreshPolicy accountAuthorizationRefreshPolicy = B2AccountAuthorizationRefreshPolicy.defaultPolicy();
+        private B2Metrics metricsOrNull;
+        private B2HedgePolicy hedgePolicy = B2HedgePolicy.defaultPolicy();
+        private B2RetryBudget retryBudgetOrNull;
+        private B2CircuitBreakerPolicy circuitBreakerPolicy = B2CircuitBreakerPolicy.defaultPolicy();
+        private B2RateLimiter rateLimiterOrNull;
+        private ExecutorService backgroundExecutorOrNull;
 
         public Builder(B2AccountAuthorizer accountAuthorizer,
                        String userAgent) {
@@ -126,13 +299,79 @@ public class B2ClientConfig {
             return this;
         }
 
+        public Builder setConcurrencyLimiterOrNull(B2AdaptiveConcurrencyLimiter concurrencyLimiterOrNull) {
+            this.concurrencyLimiterOrNull = concurrencyLimiterOrNull;
+            return this;
+        }
+
+        public Builder setUploadUrlCachePolicy(B2UploadUrlCachePolicy uploadUrlCachePolicy) {
+            this.uploadUrlCachePolicy = uploadUrlCachePolicy;
+            return this;
+        }
+
+        public Builder setFileInfoCachePolicy(B2FileInfoCachePolicy fileInfoCachePolicy) {
+            this.fileInfoCachePolicy = fileInfoCachePolicy;
+            return this;
+        }
+
+        public Builder setRequestCoalescingEnabled(boolean requestCoalescingEnabled) {
+            this.requestCoalescingEnabled = requestCoalescingEnabled;
+            return this;
+        }
+
+        public Builder setAccountAuthorizationRefreshPolicy(B2AccountAuthorizationRefreshPolicy accountAuthorizationRefreshPolicy) {
+            this.accountAuthorizationRefreshPolicy = accountAuthorizationRefreshPolicy;
+            return this;
+        }
+
+        public Builder setMetricsOrNull(B2Metrics metricsOrNull) {
+            this.metricsOrNull = metricsOrNull;
+            return this;
+        }
+
+        public Builder setHedgePolicy(B2HedgePolicy hedgePolicy) {
+            this.hedgePolicy = hedgePolicy;
+            return this;
+        }
+
+        public Builder setRetryBudgetOrNull(B2RetryBudget retryBudgetOrNull) {
+            this.retryBudgetOrNull = retryBudgetOrNull;
+            return this;
+        }
+
+        public Builder setCircuitBreakerPolicy(B2CircuitBreakerPolicy circuitBreakerPolicy) {
+            this.circuitBreakerPolicy = circuitBreakerPolicy;
+            return this;
+        }
+
+        public Builder setRateLimiterOrNull(B2RateLimiter rateLimiterOrNull) {
+            this.rateLimiterOrNull = rateLimiterOrNull;
+            return this;
+        }
+
+        public Builder setBackgroundExecutorOrNull(ExecutorService backgroundExecutorOrNull) {
+            this.backgroundExecutorOrNull = backgroundExecutorOrNull;
+            return this;
+        }
+
         public B2ClientConfig build() {
             return new B2ClientConfig(
                     accountAuthorizer,
                     userAgent,
                     masterUrl,
                     testModeOrNull,
-                    partNumberGapsAllowed);
+                    partNumberGapsAllowed,
+                    concurrencyLimiterOrNull,
+                    uploadUrlCachePolicy,
+                    fileInfoCachePolicy,
+                    requestCoalescingEnabled,
+                    accountAuthorizationRefreshPolicy,
+                    metricsOrNull,
+                    hedgePolicy,
+                    retryBudgetOrNull,
+                    circuitBreakerPolicy,
+                    rateLimiterOrNull,
+                    backgroundExecutorOrNull);
         }
     }
 }
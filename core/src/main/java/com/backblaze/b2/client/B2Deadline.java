@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.time.Duration;
+
+/**
+ * A B2Deadline is the time by which a call to the client must finish.
+ *
+ * Rather than adding a deadline to every request, you enter one around
+ * the calls it applies to:
+ *
+ *   try (B2Deadline.Scope ignored = B2Deadline.afterMillis(300).enter()) {
+ *       final B2FileVersion version = client.getFileInfo(fileId);
+ *   }
+ *
+ * While it's in effect, the client:
+ *   * doesn't start an attempt after the deadline, failing with a
+ *     B2LocalException whose code is "deadline_exceeded",
+ *   * doesn't wait to retry if the wait would end after the deadline,
+ *     and throws the error it got instead,
+ *   * limits each attempt's wait for a pooled connection, for connecting,
+ *     and for each read to the time that's left (when it's using
+ *     B2WebApiHttpClientImpl),
+ *   * stops storing a large file, including parts that are in progress,
+ *     when the deadline passes, and
+ *   * stops waiting for the rate limiter, for a transfer slot, for another
+ *     thread's identical request or shared download, or for another thread
+ *     to authorize the account, when the deadline passes, failing with a
+ *     "deadline_exceeded" B2LocalException.
+ *
+ * It also applies to the hedges and large file parts that the client runs
+ * on other threads for the call.  It does not apply to work the client does
+ * in the background, like prefetching listings or upload urls.
+ *
+ * Entering a deadline while another is in effect can only make it sooner.
+ *
+ * THREAD-SAFETY: instances are immutable.  Each thread has its own current
+ * deadline, and a Scope must be closed by the thread that entered it.
+ */
+public class B2Deadline {
+    private static final B2Clock clock = B2Clock.get();
+    private static final ThreadLocal<B2Deadline> current = new ThreadLocal<>();
+    private static final Scope NO_OP_SCOPE = () -> {};
+
+    private final long expiresAtMonoMillis;
+
+    private B2Deadline(long expiresAtMonoMillis) {
+        this.expiresAtMonoMillis = expiresAtMonoMillis;
+    }
+
+    /**
+     * @param millis how long from now the deadline is.
+     * @return a deadline that many milliseconds from now.
+     */
+    public static B2Deadline afterMillis(long millis) {
+        B2Preconditions.checkArgument(millis >= 0, "millis must not be negative");
+        return new B2Deadline(clock.monotonicMillis() + millis);
+    }
+
+    public static B2Deadline after(Duration duration) {
+        return afterMillis(duration.toMillis());
+    }
+
+    /**
+     * @return the deadline that's in effect on this thread, or null if none is.
+     */
+    public static B2Deadline currentOrNull() {
+        return current.get();
+    }
+
+    /**
+     * Makes the given deadline, if any, the current one until the scope is
+     * closed.  This is how a deadline is passed to another thread.
+     */
+    public static Scope enter(B2Deadline deadlineOrNull) {
+        return (deadlineOrNull == null) ? NO_OP_SCOPE : deadlineOrNull.enter();
+    }
+
+    /**
+     * Makes this the current deadline until the scope is closed, unless the
+     * one that's already in effect is sooner.
+     */
+    public Scope enter() {
+        final B2Deadline previousOrNull = current.get();
+        if (previousOrNull == null || expiresAtMonoMillis < previousOrNull.expiresAtMonoMillis) {
+            current.set(this);
+        }
+        return () -> {
+            if (previousOrNull == null) {
+                current.remove();
+            } else {
+                current.set(previousOrNull);
+            }
+        };
+    }
+
+    /**
+     * @return how many milliseconds are left before the deadline, or zero
+     *         if it has passed.
+     */
+    public long getRemainingMillis() {
+        return Math.max(0, expiresAtMonoMillis - clock.monotonicMillis());
+    }
+
+    public boolean hasPassed() {
+        return getRemainingMillis() == 0;
+    }
+
+    /**
+     * Waits on the monitor, which the caller must hold, until it's notified,
+     * or until the deadline passes, if there is one.  Like Object.wait(),
+     * it may return early, so call it in a loop that checks the condition.
+     *
+     * @return false, without waiting, if the deadline has already passed.
+     */
+    static boolean waitOn(Object monitor,
+                          B2Deadline deadlineOrNull) throws InterruptedException {
+        if (deadlineOrNull == null) {
+            monitor.wait();
+            return true;
+        }
+        // wait(0) would wait forever.
+        final long remainingMillis = deadlineOrNull.getRemainingMillis();
+        if (remainingMillis == 0) {
+            return false;
+        }
+        monitor.wait(remainingMillis);
+        return true;
+    }
+
+    /**
+     * @param whatWasHappening describes what didn't finish in time.
+     * @return the exception to throw when the deadline has passed.
+     */
+    public B2LocalException makeExceededException(String whatWasHappening,
+                                                  Throwable causeOrNull) {
+        return new B2LocalException("deadline_exceeded",
+                "the deadline passed while " + whatWasHappening,
+                causeOrNull);
+    }
+
+    /**
+     * Restores the deadline that was in effect before it was entered.
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
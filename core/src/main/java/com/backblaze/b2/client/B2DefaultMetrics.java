@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * B2DefaultMetrics aggregates what it's told, per operation:
+ *   * a latency histogram of the attempts (see B2LatencyHistogram),
+ *   * how many attempts succeeded, failed, and are in flight,
+ *   * how many times attempts were retried, and
+ *   * how many bytes were uploaded and downloaded.
+ * It also counts retries by the type of the exception being retried.
+ *
+ * Call snapshot() to see the numbers.  They only ever go up (except the
+ * in-flight counts), so take the difference between two snapshots to see
+ * the rates.  The same instance may be given to several clients.
+ *
+ * Recording doesn't lock, and once an operation or exception type has been
+ * seen, it doesn't allocate either.
+ *
+ * THREAD-SAFETY: this class is thread-safe.
+ */
+public class B2DefaultMetrics implements B2Metrics {
+    private final ConcurrentHashMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, LongAdder> retriesByExceptionType = new ConcurrentHashMap<>();
+
+    private static class OperationMetrics {
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder inFlight = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder bytesUploaded = new LongAdder();
+        private final LongAdder bytesDownloaded = new LongAdder();
+        private final B2LatencyHistogram latency = new B2LatencyHistogram();
+
+        B2MetricsSnapshot.Operation snapshot() {
+            return new B2MetricsSnapshot.Operation(
+                    succeeded.sum(),
+                    failed.sum(),
+                    inFlight.sum(),
+                    retries.sum(),
+                    bytesUploaded.sum(),
+                    bytesDownloaded.sum(),
+                    latency.copyCounts(),
+                    latency.getTotalMillis(),
+                    latency.getMaxMillis());
+        }
+    }
+
+    @Override
+    public void attemptStarted(String operation) {
+        metricsFor(operation).inFlight.increment();
+    }
+
+    @Override
+    public void attemptSucceeded(String operation,
+                                 long tookMillis) {
+        final OperationMetrics metrics = metricsFor(operation);
+        metrics.latency.record(tookMillis);
+        metrics.succeeded.increment();
+        metrics.inFlight.decrement();
+    }
+
+    @Override
+    public void attemptFailed(String operation,
+                              long tookMillis,
+                              Throwable t) {
+        final OperationMetrics metrics = metricsFor(operation);
+        metrics.latency.record(tookMillis);
+        metrics.failed.increment();
+        metrics.inFlight.decrement();
+    }
+
+    @Override
+    public void retrying(String operation,
+                         int attemptsSoFar,
+                         Exception e) {
+        metricsFor(operation).retries.increment();
+
+        final Class<?> type = e.getClass();
+        LongAdder count = retriesByExceptionType.get(type);
+        if (count == null) {
+            count = retriesByExceptionType.computeIfAbsent(type, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    @Override
+    public void uploaded(String operation,
+                         long byteCount) {
+        metricsFor(operation).bytesUploaded.add(byteCount);
+    }
+
+    @Override
+    public void downloaded(String operation,
+                           long byteCount) {
+        metricsFor(operation).bytesDownloaded.add(byteCount);
+    }
+
+    /**
+     * @return a copy of the numbers so far.
+     */
+    public B2MetricsSnapshot snapshot() {
+        final Map<String, B2MetricsSnapshot.Operation> operationSnapshots = new HashMap<>();
+        operations.forEach((name, metrics) -> operationSnapshots.put(name, metrics.snapshot()));
+
+        // different classes can have the same simple name.  just add them up.
+        final Map<String, Long> retries = new HashMap<>();
+        retriesByExceptionType.forEach((type, count) -> retries.merge(type.getSimpleName(), count.sum(), Long::sum));
+
+        return new B2MetricsSnapshot(operationSnapshots, retries);
+    }
+
+    private OperationMetrics metricsFor(String operation) {
+        // get() first, since computeIfAbsent() locks the bin even when the key is there.
+        final OperationMetrics metrics = operations.get(operation);
+        if (metrics != null) {
+            return metrics;
+        }
+        return operations.computeIfAbsent(operation, k -> new OperationMetrics());
+    }
+}
@@ -0,0 +1,560 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentHandlers.B2ContentSink;
+import com.backblaze.b2.client.contentHandlers.B2ContentWriter;
+import com.backblaze.b2.client.contentSources.B2Headers;
+import com.backblaze.b2.client.contentSources.B2HeadersImpl;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.client.structures.B2DownloadByIdRequest;
+import com.backblaze.b2.util.B2ByteRange;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2InputStreamExcerpt;
+import com.backblaze.b2.util.B2IoUtils;
+import com.backblaze.b2.util.B2Preconditions;
+import com.backblaze.b2.util.B2Sha1;
+import com.backblaze.b2.util.B2Sha1InputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * B2DownloadCache keeps the contents of files downloaded by fileId in a
+ * directory, so that downloading them again doesn't have to go to the server.
+ *
+ * Since a fileId always names the same bytes, entries never need to be
+ * invalidated.  The cache holds at most maxBytes (counting the small header
+ * at the front of each cache file), and evicts the least recently used
+ * entries to stay under it.
+ *
+ * Entries are keyed by fileId and byte range.  A request for a range is
+ * served from the whole file if that's cached, and otherwise is cached on
+ * its own.
+ *
+ * Before a whole file is put in the cache, its sha1 is checked against the
+ * one in the download's headers.  If they don't match, the download fails
+ * with a "mismatch" B2LocalException, just like B2ContentWriter.  Whole files
+ * without a sha1 to check (large files uploaded without large_file_sha1) are
+ * handed to the sink, but not cached.  B2 doesn't give a sha1 for ranges,
+ * so we can only check that we got as many bytes as the server promised.
+ *
+ * Hits are read straight from the cache file's FileChannel.
+ * downloadById(client, request, channel) uses FileChannel.transferTo(),
+ * which lets the OS copy the bytes without bringing them into the JVM.
+ *
+ * We don't cache downloads that use SSE-C, since we'd be writing the
+ * decrypted contents to disk, or that override response headers, since
+ * we'd hand back the overrides to later requests.  Those go straight to
+ * the client.
+ *
+ * Each entry is one file in the directory, named with the sha1 of its key:
+ *   MAGIC (int)
+ *   the length of the header block (int)
+ *   the header block: contentLength (long), headerCount (int), and
+ *                     the name and value of each header (modified UTF-8)
+ *   the content
+ * Downloads go to a temp file in the same directory, which is moved into
+ * place once it's been checked, so a cache file is always complete.
+ * open() picks up the entries left from before, in order by last-modified
+ * time, which hits bump.  Only one B2DownloadCache should use a directory
+ * at a time.
+ *
+ * On Windows, an evicted file that's still being read can't be deleted.
+ * We leave it, and the next open() will find it again.
+ *
+ * THREAD-SAFETY: this class is thread-safe.  The index is protected by
+ *   synchronized(this), and the lock is never held while talking to the
+ *   server or reading content.  Hits open their file under the lock, so a
+ *   concurrent eviction can't pull it away from them first.  If two threads
+ *   download the same key at once, both go to the server and the second
+ *   one to finish just uses the first one's entry.
+ */
+public class B2DownloadCache {
+    private static final int MAGIC = 0x42324443; // "B2DC"
+    private static final String SUFFIX = ".b2cache";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final B2Clock clock = B2Clock.get();
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // these are protected by synchronized(this).
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static class Entry {
+        private final Path path;
+        private final long fileSize;
+        private final long contentOffset;
+        private final B2Headers headers;
+
+        private Entry(Path path, long fileSize, long contentOffset, B2Headers headers) {
+            this.path = path;
+            this.fileSize = fileSize;
+            this.contentOffset = contentOffset;
+            this.headers = headers;
+        }
+
+        long getContentLength() {
+            return fileSize - contentOffset;
+        }
+    }
+
+    /**
+     * Some content that's ready to read, and the headers to go with it.
+     * Closing it closes the channel, and deletes the file if it's a temp
+     * file that wasn't cached.
+     */
+    private static class Content implements Closeable {
+        private final B2Headers headers;
+        private final FileChannel channel;
+        private final long position;
+        private final long length;
+        private final Path deleteWhenClosedOrNull;
+
+        private Content(B2Headers headers, FileChannel channel, long position, long length, Path deleteWhenClosedOrNull) {
+            this.headers = headers;
+            this.channel = channel;
+            this.position = position;
+            this.length = length;
+            this.deleteWhenClosedOrNull = deleteWhenClosedOrNull;
+        }
+
+        @Override
+        public void close() {
+            B2IoUtils.closeQuietly(channel);
+            if (deleteWhenClosedOrNull != null) {
+                deleteQuietly(deleteWhenClosedOrNull);
+            }
+        }
+    }
+
+    private B2DownloadCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Opens a cache in the given directory, creating the directory if needed.
+     * Entries that are already there are kept, as long as they fit in maxBytes.
+     *
+     * @param directory where to keep the cached files.
+     * @param maxBytes the most bytes of files to keep.
+     * @return the cache.
+     * @throws IOException if the directory can't be created or read.
+     */
+    public static B2DownloadCache open(Path directory, long maxBytes) throws IOException {
+        B2Preconditions.checkArgument(maxBytes > 0, "maxBytes must be positive");
+        Files.createDirectories(directory);
+
+        final List<Path> paths = new ArrayList<>();
+        final Map<Path, Long> lastModified = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                final String name = path.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // left behind by a download that didn't finish.
+                    deleteQuietly(path);
+                } else if (name.endsWith(SUFFIX)) {
+                    paths.add(path);
+                    lastModified.put(path, Files.getLastModifiedTime(path).toMillis());
+                }
+            }
+        }
+        paths.sort(Comparator.comparingLong(lastModified::get));
+
+        final B2DownloadCache cache = new B2DownloadCache(directory, maxBytes);
+        synchronized (cache) {
+            for (Path path : paths) {
+                final Entry entry = readEntryOrNull(path);
+                if (entry == null) {
+                    deleteQuietly(path);
+                } else {
+                    final String name = path.getFileName().toString();
+                    cache.entries.put(name.substring(0, name.length() - SUFFIX.length()), entry);
+                    cache.totalBytes += entry.fileSize;
+                }
+            }
+            cache.evictIfNeeded();
+        }
+        return cache;
+    }
+
+    /**
+     * Hands the content of the requested file (or range) to the sink, from
+     * the cache if possible, and otherwise from the client, caching it.
+     *
+     * @param client the client to download with on a miss.
+     * @param request the download to do.
+     * @param sink what to give the headers and content to.
+     * @throws B2Exception if there's trouble downloading or with the cache.
+     */
+    public void downloadById(B2StorageClient client,
+                             B2DownloadByIdRequest request,
+                             B2ContentSink sink) throws B2Exception {
+        if (!isCacheable(request)) {
+            client.downloadById(request, sink);
+            return;
+        }
+
+        try (Content content = find(client, request)) {
+            content.channel.position(content.position);
+            final InputStream in = new B2InputStreamExcerpt(Channels.newInputStream(content.channel), 0, content.length);
+            sink.readContent(content.headers, in);
+        } catch (IOException e) {
+            throw new B2LocalException("read_failed", "failed to read cached content: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Like downloadById() with a sink, but writes the content to the given
+     * channel.  Hits are copied with FileChannel.transferTo().
+     *
+     * @param client the client to download with on a miss.
+     * @param request the download to do.
+     * @param out where to write the content.
+     * @return the headers of the download.
+     * @throws B2Exception if there's trouble downloading or with the cache.
+     */
+    public B2Headers downloadById(B2StorageClient client,
+                                  B2DownloadByIdRequest request,
+                                  WritableByteChannel out) throws B2Exception {
+        if (!isCacheable(request)) {
+            final B2Headers[] headers = new B2Headers[1];
+            client.downloadById(request, (responseHeaders, in) -> {
+                headers[0] = responseHeaders;
+                B2IoUtils.copy(in, Channels.newOutputStream(out));
+            });
+            return headers[0];
+        }
+
+        try (Content content = find(client, request)) {
+            long position = content.position;
+            final long end = content.position + content.length;
+            while (position < end) {
+                position += content.channel.transferTo(position, end - position, out);
+            }
+            return content.headers;
+        } catch (IOException e) {
+            throw new B2LocalException("write_failed", "failed to write cached content: " + e.getMessage(), e);
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return how many bytes of cache files there are now.
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static boolean isCacheable(B2DownloadByIdRequest request) {
+        return request.getServerSideEncryption() == null &&
+                !B2FileInfoCache.overridesHeaders(request);
+    }
+
+    private Content find(B2StorageClient client,
+                         B2DownloadByIdRequest request) throws B2Exception, IOException {
+        final B2ByteRange rangeOrNull = request.getRange();
+        final String key = keyFor(request.getFileId(), rangeOrNull);
+        final Content hit = openHitOrNull(key, rangeOrNull, keyFor(request.getFileId(), null));
+        if (hit != null) {
+            return hit;
+        }
+        misses.increment();
+        return download(client, request, key);
+    }
+
+    /**
+     * @return the content for the key, or for the range of the whole file,
+     *         or null if neither is cached.
+     */
+    private Content openHitOrNull(String key,
+                                  B2ByteRange rangeOrNull,
+                                  String wholeFileKey) throws IOException {
+        final Entry entry;
+        final Content content;
+        synchronized (this) {
+            final Entry exact = entries.get(key);
+            final Entry whole = (rangeOrNull == null || exact != null) ? null : entries.get(wholeFileKey);
+            if (exact != null) {
+                entry = exact;
+                content = openEntry(exact, exact.headers, exact.contentOffset, exact.getContentLength());
+            } else if (whole != null && isSatisfiable(rangeOrNull, whole.getContentLength())) {
+                entry = whole;
+                content = openRangeOfEntry(whole, rangeOrNull);
+            } else {
+                return null;
+            }
+        }
+        hits.increment();
+        touch(entry.path);
+        return content;
+    }
+
+    private Content download(B2StorageClient client,
+                             B2DownloadByIdRequest request,
+                             String key) throws B2Exception, IOException {
+        final Path temp = Files.createTempFile(directory, "download", TEMP_SUFFIX);
+        boolean handedOff = false;
+        try {
+            final boolean wholeFile = (request.getRange() == null);
+            final boolean[] verified = new boolean[1];
+            final Entry[] written = new Entry[1];
+            client.downloadById(request, (headers, in) -> {
+                // if the client retries, the sink is called again and starts the file over.
+                written[0] = writeEntry(temp, headers, in, wholeFile);
+                verified[0] = !wholeFile || B2ContentWriter.getSha1ToCheckOrNull(headers) != null;
+            });
+            B2Preconditions.checkState(written[0] != null, "downloadById() didn't call the sink");
+
+            final Content content = insertAndOpen(key, temp, written[0], verified[0]);
+            handedOff = true;
+            return content;
+        } finally {
+            if (!handedOff) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    /**
+     * Moves the temp file into the cache, unless another thread got there
+     * first, or it's unverified or too big.  Either way, it returns the content
+     * to hand back, and the temp file is moved or will be deleted.
+     */
+    private synchronized Content insertAndOpen(String key,
+                                               Path temp,
+                                               Entry written,
+                                               boolean verified) throws IOException {
+        final Entry existing = entries.get(key);
+        if (existing != null) {
+            deleteQuietly(temp);
+            return openEntry(existing, existing.headers, existing.contentOffset, existing.getContentLength());
+        }
+        if (!verified || written.fileSize > maxBytes) {
+            return new Content(written.headers,
+                    FileChannel.open(temp, StandardOpenOption.READ),
+                    written.contentOffset,
+                    written.getContentLength(),
+                    temp);
+        }
+
+        final Path path = directory.resolve(key + SUFFIX);
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        final Entry entry = new Entry(path, written.fileSize, written.contentOffset, written.headers);
+        entries.put(key, entry);
+        totalBytes += entry.fileSize;
+
+        // we open it before evicting, so it's safe even though it's the only entry.
+        final Content content = openEntry(entry, entry.headers, entry.contentOffset, entry.getContentLength());
+        evictIfNeeded();
+        return content;
+    }
+
+    private void evictIfNeeded() {
+        final Iterator<Entry> iter = entries.values().iterator();
+        while (totalBytes > maxBytes && iter.hasNext()) {
+            final Entry eldest = iter.next();
+            iter.remove();
+            totalBytes -= eldest.fileSize;
+            evictions.increment();
+            deleteQuietly(eldest.path);
+        }
+    }
+
+    private static Content openEntry(Entry entry, B2Headers headers, long position, long length) throws IOException {
+        return new Content(headers, FileChannel.open(entry.path, StandardOpenOption.READ), position, length, null);
+    }
+
+    /**
+     * Serves a range from a whole file, with the headers the server would
+     * have sent for the range.
+     */
+    private static Content openRangeOfEntry(Entry whole, B2ByteRange range) throws IOException {
+        final long total = whole.getContentLength();
+        final long start;
+        final long end;
+        if (range.start == null) {
+            // a suffix: the last 'end' bytes.
+            start = Math.max(0, total - range.end);
+            end = total - 1;
+        } else {
+            start = range.start;
+            end = (range.end == null) ? total - 1 : Math.min(range.end, total - 1);
+        }
+        final long length = end - start + 1;
+
+        final B2HeadersImpl.Builder builder = B2HeadersImpl.builder();
+        for (String name : whole.headers.getNames()) {
+            if (!name.equalsIgnoreCase(B2Headers.CONTENT_LENGTH)) {
+                builder.set(name, whole.headers.getValueOrNull(name));
+            }
+        }
+        builder.set(B2Headers.CONTENT_LENGTH, Long.toString(length));
+        builder.set(B2Headers.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + total);
+        return openEntry(whole, builder.build(), whole.contentOffset + start, length);
+    }
+
+    /**
+     * @return true iff the range has at least one byte of a file of the given
+     *         length.  if not, we let the server say what's wrong with it.
+     */
+    private static boolean isSatisfiable(B2ByteRange range, long total) {
+        if (range.start == null) {
+            return range.end != null && range.end > 0 && total > 0;
+        }
+        return range.start < total && (range.end == null || range.start <= range.end);
+    }
+
+    private static String keyFor(String fileId, B2ByteRange rangeOrNull) {
+        final String key = (rangeOrNull == null) ? fileId : fileId + " " + rangeOrNull;
+        return B2Sha1.hexSha1OfBytes(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the headers and content to the file, checking the content's
+     * length and, for whole files with a sha1, its sha1.
+     */
+    private static Entry writeEntry(Path path,
+                                    B2Headers headers,
+                                    InputStream rawIn,
+                                    boolean wholeFile) throws B2Exception, IOException {
+        final long contentLength = headers.getContentLength();
+        final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        try (DataOutputStream headerOut = new DataOutputStream(headerBytes)) {
+            headerOut.writeLong(contentLength);
+            headerOut.writeInt(headers.getNames().size());
+            for (String name : headers.getNames()) {
+                headerOut.writeUTF(name);
+                headerOut.writeUTF(headers.getValueOrNull(name));
+            }
+        }
+
+        final String expectedSha1OrNull = wholeFile ? B2ContentWriter.getSha1ToCheckOrNull(headers) : null;
+        final InputStream in = (expectedSha1OrNull == null) ? rawIn : new B2Sha1InputStream(rawIn);
+        final long contentOffset = 4 + 4 + headerBytes.size();
+        final long copied;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), COPY_BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(headerBytes.size());
+            headerBytes.writeTo(out);
+            copied = B2IoUtils.copy(in, out);
+        }
+
+        if (copied != contentLength) {
+            throw new B2LocalException("mismatch", "length mismatch from network.  expected " + contentLength + " bytes, but got " + copied);
+        }
+        if (expectedSha1OrNull != null) {
+            final String actualSha1 = ((B2Sha1InputStream) in).hexDigest();
+            if (!B2Sha1.equalHexSha1s(expectedSha1OrNull, actualSha1)) {
+                throw new B2LocalException("mismatch", "sha1 mismatch from network.  expected " + expectedSha1OrNull + ", but got " + actualSha1);
+            }
+        }
+        return new Entry(path, contentOffset + contentLength, contentOffset, headers);
+    }
+
+    /**
+     * @return the entry in the given cache file, or null if it isn't one.
+     */
+    private static Entry readEntryOrNull(Path path) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            final long fileSize = Files.size(path);
+            if (fileSize < 8 || in.readInt() != MAGIC) {
+                return null;
+            }
+            final int headerSize = in.readInt();
+            if (headerSize < 0 || 8L + headerSize > fileSize) {
+                return null;
+            }
+            final byte[] headerBytes = new byte[headerSize];
+            in.readFully(headerBytes);
+
+            final DataInputStream headerIn = new DataInputStream(new ByteArrayInputStream(headerBytes));
+            final long contentLength = headerIn.readLong();
+            final int headerCount = headerIn.readInt();
+            final B2HeadersImpl.Builder builder = B2HeadersImpl.builder();
+            for (int i = 0; i < headerCount; i++) {
+                builder.set(headerIn.readUTF(), headerIn.readUTF());
+            }
+            final long contentOffset = 8L + headerSize;
+            if (contentOffset + contentLength != fileSize) {
+                return null;
+            }
+            return new Entry(path, fileSize, contentOffset, builder.build());
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // so that open() can tell which entries were used most recently.
+    private static void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(clock.wallClockMillis()));
+        } catch (IOException e) {
+            // it's only a hint for the next open().
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // see the class comment about Windows.
+        }
+    }
+}
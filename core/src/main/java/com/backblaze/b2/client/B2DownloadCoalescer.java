@@ -0,0 +1,517 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentHandlers.B2ContentSink;
+import com.backblaze.b2.client.contentSources.B2Headers;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * B2DownloadCoalescer lets concurrent identical downloads share one response.
+ *
+ * The first caller for a key (the leader) does the download.  Callers that
+ * arrive before the leader's sink is called (the followers) don't download
+ * anything.  Instead, as the leader's sink reads the response, the bytes are
+ * also handed to each follower's sink, each on its own caller's thread.
+ * Once the response starts, it's too late to join, so a later caller starts
+ * a new download.
+ *
+ * The bytes are buffered until every follower has read them, but the leader
+ * won't get more than maxBufferedBytes ahead of the slowest follower.  So a
+ * slow sink slows down the others, just as it would slow down its own download.
+ * If the leader's sink stops reading early (or fails), we read the rest of the
+ * response for the followers that are still reading it before returning to
+ * the leader.  If there aren't any, which is usual, we don't read any more.
+ *
+ * If the leader's download is retried, its sink is called again with the new
+ * response.  A follower whose stream was cut off by the failure gets an
+ * IOException, and then its sink is called again with the new response, just
+ * like it would be if it had been retried.  If the leader's download fails
+ * for good, the followers that didn't get all of the content throw the same
+ * exception as the leader.
+ *
+ * Each caller's waits are bounded by its own B2Deadline, if any.  A follower
+ * that's still waiting for the content when its deadline passes gives up
+ * with a "deadline_exceeded" B2LocalException, and so does a leader that's
+ * still waiting for its followers to catch up; the leader's failure ends
+ * the download for its followers, too.
+ *
+ * THREAD-SAFETY: this class is thread-safe.  Each flight's state is protected
+ *   by synchronized on the flight.
+ */
+class B2DownloadCoalescer<K> {
+    static final int DEFAULT_MAX_BUFFERED_BYTES = 4 * 1024 * 1024;
+    private static final int DRAIN_BUFFER_SIZE = 8 * 1024;
+
+    interface Download {
+        void download(B2ContentSink sink) throws B2Exception;
+    }
+
+    private final int maxBufferedBytes;
+
+    // the flights that can still be joined.
+    private final ConcurrentHashMap<K, Flight> joinable = new ConcurrentHashMap<>();
+
+    private final LongAdder sharedCount = new LongAdder();
+
+    B2DownloadCoalescer(int maxBufferedBytes) {
+        B2Preconditions.checkArgument(maxBufferedBytes > 0, "maxBufferedBytes must be positive");
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Hands the content to the sink, either by calling download with a sink
+     * that shares it, or by joining an identical download that's about to start.
+     */
+    void download(K key, B2ContentSink sink, Download download) throws B2Exception {
+        while (true) {
+            final Flight mine = new Flight(key);
+            final Flight existing = joinable.putIfAbsent(key, mine);
+            if (existing == null) {
+                mine.lead(sink, download);
+                return;
+            }
+            final Follower follower = existing.joinOrNull();
+            if (follower != null) {
+                sharedCount.increment();
+                follower.follow(sink);
+                return;
+            }
+            // it has already started and is about to leave the map.
+            joinable.remove(key, existing);
+        }
+    }
+
+    /**
+     * @return how many downloads were answered by sharing another download.
+     */
+    long getSharedCount() {
+        return sharedCount.sum();
+    }
+
+    private class Flight {
+        private final K key;
+
+        // these are protected by synchronized(this).
+        private final List<Follower> followers = new ArrayList<>();
+        private boolean started;
+        private Attempt attemptOrNull;
+        private boolean finished;
+        private Throwable failureOrNull;
+
+        private Flight(K key) {
+            this.key = key;
+        }
+
+        synchronized Follower joinOrNull() {
+            if (started) {
+                return null;
+            }
+            final Follower follower = new Follower(this);
+            followers.add(follower);
+            return follower;
+        }
+
+        void lead(B2ContentSink sink, Download download) throws B2Exception {
+            Throwable failure = null;
+            try {
+                download.download((headers, in) -> readAndShare(sink, headers, in));
+            } catch (B2Exception | RuntimeException | Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                joinable.remove(key, this);
+                finish(failure);
+            }
+        }
+
+        private void readAndShare(B2ContentSink sink,
+                                  B2Headers headers,
+                                  InputStream in) throws B2Exception, IOException {
+            final Attempt attempt = startAttempt(headers);
+            final SharingInputStream sharing = new SharingInputStream(in, attempt);
+            boolean sinkSucceeded = false;
+            try {
+                sink.readContent(headers, sharing);
+                sinkSucceeded = true;
+            } finally {
+                // the followers need the rest, even if our sink didn't.
+                // if there aren't any, we leave the rest unread.
+                try {
+                    sharing.drain();
+                } catch (IOException e) {
+                    if (sinkSucceeded) {
+                        //noinspection ThrowFromFinallyBlock
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        private synchronized Attempt startAttempt(B2Headers headers) {
+            if (!started) {
+                started = true;
+                joinable.remove(key, this);
+            }
+            if (attemptOrNull != null) {
+                attemptOrNull.abort(new IOException("the shared download is being retried"));
+            }
+            attemptOrNull = new Attempt(headers);
+            notifyAll();
+            return attemptOrNull;
+        }
+
+        private synchronized void finish(Throwable failureOrNull) {
+            finished = true;
+            this.failureOrNull = failureOrNull;
+            if (attemptOrNull != null && failureOrNull != null) {
+                attemptOrNull.abort(new IOException("the shared download failed", failureOrNull));
+            }
+            notifyAll();
+        }
+
+        /**
+         * @return the attempt after previousOrNull, or null if the flight
+         *         finished without another one.
+         * @throws B2LocalException if the deadline passes first.
+         */
+        synchronized Attempt awaitAttemptAfter(Attempt previousOrNull,
+                                               B2Deadline deadlineOrNull) throws InterruptedException, B2LocalException {
+            while (!finished && attemptOrNull == previousOrNull) {
+                if (!B2Deadline.waitOn(this, deadlineOrNull)) {
+                    throw deadlineOrNull.makeExceededException("waiting for a shared download", null);
+                }
+            }
+            return (attemptOrNull != previousOrNull) ? attemptOrNull : null;
+        }
+
+        synchronized Throwable getFailureOrNull() {
+            return failureOrNull;
+        }
+
+        // so that the leader doesn't wait for a follower that has stopped reading.
+        synchronized void doneReading(Attempt attempt, Follower follower) {
+            attempt.removeReader(follower);
+        }
+
+        synchronized void leave(Follower follower) {
+            followers.remove(follower);
+            if (attemptOrNull != null) {
+                attemptOrNull.removeReader(follower);
+            }
+            notifyAll();
+        }
+
+        /**
+         * One response, as the leader reads it.  Each follower that was
+         * following when it started gets a Reader of it.
+         *
+         * Everything in here is protected by synchronized(Flight.this).
+         */
+        private class Attempt {
+            private final B2Headers headers;
+            private final Map<Follower, Reader> readers = new HashMap<>();
+            private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+            private long firstChunkPosition;
+            private long published;
+            private boolean ended;
+            private IOException abortedOrNull;
+
+            private Attempt(B2Headers headers) {
+                this.headers = headers;
+                for (Follower follower : followers) {
+                    readers.put(follower, new Reader(this));
+                }
+            }
+
+            boolean isAborted() {
+                synchronized (Flight.this) {
+                    return abortedOrNull != null;
+                }
+            }
+
+            Reader readerFor(Follower follower) {
+                synchronized (Flight.this) {
+                    return readers.get(follower);
+                }
+            }
+
+            // these are only called with the lock held.
+
+            void publish(byte[] b, int off, int len) throws IOException {
+                while (abortedOrNull == null && !readers.isEmpty() && published - minReaderPosition() >= maxBufferedBytes) {
+                    waitForReaders();
+                }
+                if (!readers.isEmpty()) {
+                    final byte[] chunk = new byte[len];
+                    System.arraycopy(b, off, chunk, 0, len);
+                    chunks.addLast(chunk);
+                }
+                published += len;
+                Flight.this.notifyAll();
+            }
+
+            void end() {
+                ended = true;
+                Flight.this.notifyAll();
+            }
+
+            void abort(IOException e) {
+                if (!ended && abortedOrNull == null) {
+                    abortedOrNull = e;
+                    chunks.clear();
+                    Flight.this.notifyAll();
+                }
+            }
+
+            void removeReader(Follower follower) {
+                readers.remove(follower);
+                trim();
+            }
+
+            void trim() {
+                final long min = readers.isEmpty() ? published : minReaderPosition();
+                while (!chunks.isEmpty() && firstChunkPosition + chunks.peekFirst().length <= min) {
+                    firstChunkPosition += chunks.pollFirst().length;
+                }
+                Flight.this.notifyAll();
+            }
+
+            private long minReaderPosition() {
+                long min = Long.MAX_VALUE;
+                for (Reader reader : readers.values()) {
+                    min = Math.min(min, reader.position);
+                }
+                return min;
+            }
+
+            private void waitForReaders() throws IOException {
+                final B2Deadline deadlineOrNull = B2Deadline.currentOrNull();
+                try {
+                    if (!B2Deadline.waitOn(Flight.this, deadlineOrNull)) {
+                        throw deadlineExceeded(deadlineOrNull, "waiting for followers to read a shared download");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for followers to read a shared download");
+                }
+            }
+        }
+
+        /**
+         * The leader's stream of an attempt, which shares what it reads.
+         */
+        private class SharingInputStream extends InputStream {
+            private final InputStream in;
+            private final Attempt attempt;
+
+            private SharingInputStream(InputStream in, Attempt attempt) {
+                this.in = in;
+                this.attempt = attempt;
+            }
+
+            @Override
+            public int read() throws IOException {
+                final byte[] one = new byte[1];
+                final int n = read(one, 0, 1);
+                return (n == -1) ? -1 : (one[0] & 0xff);
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                final int n;
+                try {
+                    n = in.read(b, off, len);
+                } catch (IOException e) {
+                    synchronized (Flight.this) {
+                        attempt.abort(e);
+                    }
+                    throw e;
+                }
+                synchronized (Flight.this) {
+                    if (n == -1) {
+                        attempt.end();
+                    } else if (n > 0) {
+                        attempt.publish(b, off, n);
+                    }
+                }
+                return n;
+            }
+
+            /**
+             * Reads the rest of the response for the followers, until they've
+             * all stopped reading.
+             */
+            void drain() throws IOException {
+                final byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+                //noinspection StatementWithEmptyBody
+                while (hasReaders() && read(buffer, 0, buffer.length) != -1) {
+                }
+            }
+
+            private boolean hasReaders() {
+                synchronized (Flight.this) {
+                    return !attempt.readers.isEmpty();
+                }
+            }
+
+            @Override
+            public void close() {
+                // the client closes the response.  we might still have to
+                // drain it for the followers after the leader's sink is done.
+            }
+        }
+
+        /**
+         * A follower's stream of an attempt.
+         */
+        private class Reader extends InputStream {
+            private final Attempt attempt;
+            private long position; // protected by synchronized(Flight.this)
+
+            private Reader(Attempt attempt) {
+                this.attempt = attempt;
+            }
+
+            @Override
+            public int read() throws IOException {
+                final byte[] one = new byte[1];
+                final int n = read(one, 0, 1);
+                return (n == -1) ? -1 : (one[0] & 0xff);
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                synchronized (Flight.this) {
+                    while (true) {
+                        if (attempt.abortedOrNull != null) {
+                            throw new IOException(attempt.abortedOrNull.getMessage(), attempt.abortedOrNull);
+                        }
+                        if (position < attempt.published) {
+                            return copyOut(b, off, len);
+                        }
+                        if (attempt.ended) {
+                            return -1;
+                        }
+                        final B2Deadline deadlineOrNull = B2Deadline.currentOrNull();
+                        try {
+                            if (!B2Deadline.waitOn(Flight.this, deadlineOrNull)) {
+                                throw deadlineExceeded(deadlineOrNull, "waiting for a shared download");
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("interrupted while waiting for a shared download");
+                        }
+                    }
+                }
+            }
+
+            // called with the lock held.
+            private int copyOut(byte[] b, int off, int len) {
+                long chunkPosition = attempt.firstChunkPosition;
+                for (byte[] chunk : attempt.chunks) {
+                    if (position < chunkPosition + chunk.length) {
+                        final int start = (int) (position - chunkPosition);
+                        final int n = Math.min(len, chunk.length - start);
+                        System.arraycopy(chunk, start, b, off, n);
+                        position += n;
+                        attempt.trim();
+                        return n;
+                    }
+                    chunkPosition += chunk.length;
+                }
+                throw new IllegalStateException("a reader's position isn't in the buffered chunks");
+            }
+        }
+    }
+
+    /**
+     * Our streams can only throw IOExceptions, so the deadline's exception
+     * goes along as the cause.
+     */
+    private static IOException deadlineExceeded(B2Deadline deadline,
+                                                String whatWasHappening) {
+        final B2LocalException e = deadline.makeExceededException(whatWasHappening, null);
+        return new IOException(e.getMessage(), e);
+    }
+
+    /**
+     * A caller that's sharing a flight's download.
+     */
+    private class Follower {
+        private final Flight flight;
+
+        private Follower(Flight flight) {
+            this.flight = flight;
+        }
+
+        void follow(B2ContentSink sink) throws B2Exception {
+            final B2Deadline deadlineOrNull = B2Deadline.currentOrNull();
+            try {
+                Flight.Attempt attempt = null;
+                while (true) {
+                    attempt = flight.awaitAttemptAfter(attempt, deadlineOrNull);
+                    if (attempt == null) {
+                        throw failure();
+                    }
+                    final Flight.Reader reader = attempt.readerFor(this);
+                    try {
+                        sink.readContent(attempt.headers, reader);
+                        return;
+                    } catch (B2Exception | IOException e) {
+                        if (deadlineOrNull != null && deadlineOrNull.hasPassed()) {
+                            throw deadlineOrNull.makeExceededException("reading a shared download", e);
+                        }
+                        if (!attempt.isAborted()) {
+                            if (e instanceof B2Exception) {
+                                throw (B2Exception) e;
+                            }
+                            throw new B2LocalException("trouble", "trouble reading a shared download: " + e.getMessage(), e);
+                        }
+                        // the leader's response was cut off.  we'll be called again
+                        // with its next one, just like a retry.
+                    } finally {
+                        flight.doneReading(attempt, this);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new B2LocalException("interrupted", "interrupted while waiting for a shared download", e);
+            } finally {
+                flight.leave(this);
+            }
+        }
+
+        private B2Exception failure() {
+            final Throwable failure = flight.getFailureOrNull();
+            if (failure instanceof B2Exception) {
+                return (B2Exception) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            return new B2LocalException("trouble", "a shared download finished without its content");
+        }
+    }
+}
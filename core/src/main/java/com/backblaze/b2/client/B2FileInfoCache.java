@@ -0,0 +1,562 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentHandlers.B2ContentSink;
+import com.backblaze.b2.client.contentSources.B2Headers;
+import com.backblaze.b2.client.structures.B2AccountAuthorization;
+import com.backblaze.b2.client.structures.B2Bucket;
+import com.backblaze.b2.client.structures.B2CompactFileVersionList;
+import com.backblaze.b2.client.structures.B2FileSseForResponse;
+import com.backblaze.b2.client.structures.B2FileVersion;
+import com.backblaze.b2.client.structures.B2ListBucketsResponse;
+import com.backblaze.b2.client.structures.B2ListFileNamesResponse;
+import com.backblaze.b2.client.structures.B2ListFileVersionsResponse;
+import com.backblaze.b2.client.structures.B2OverrideableHeaders;
+import com.backblaze.b2.client.structures.B2ServerSideEncryptionMode;
+import com.backblaze.b2.util.B2ByteRange;
+import com.backblaze.b2.util.B2Clock;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * B2FileInfoCache remembers file versions the client has seen, so that
+ * getFileInfo() and getFileInfoByName() can answer without asking the server.
+ *
+ * It keeps two maps, each holding at most policy.getMaxEntries() entries and
+ * evicting the least recently used:
+ *   * by fileId, for getFileInfo().  any version we see can go here.
+ *   * by bucket name and file name, for getFileInfoByName().  only the
+ *     latest version of a name can go here: getFileInfoByName() results,
+ *     listings of file names, downloads by name, and new uploads.
+ * Every entry expires policy.getTtlMillis() after it was learned.
+ *
+ * Uploads, copies and hides only know the bucketId, so we also remember
+ * the names of buckets we've seen.  If we don't know the name, we forget
+ * every by-name entry for the file name, in any bucket, to be safe.  The
+ * by-name entries are indexed by file name, so that's quick.
+ *
+ * We don't remember "start" versions (they change when they're finished),
+ * folders (they don't have fileIds), or files encrypted with SSE-C (the
+ * server wants the key before it will describe them by name).  We don't
+ * remember pages listed with compactPages either: that would make a whole
+ * B2FileVersion for every entry and keep it, and the point of compact
+ * pages is not to.
+ *
+ * A read that started before something was invalidated might return old
+ * information after the invalidation.  To avoid putting that back in the
+ * cache, the client gets getInvalidationCount() before reading and passes
+ * it to the method that remembers the result.  We remember which fileIds
+ * and file names were invalidated recently, and when, so only the parts of
+ * the result that were invalidated in the meantime are not remembered.
+ * (If so much has been invalidated since the read started that we no longer
+ * know, none of it is remembered.)
+ *
+ * When the policy isn't enabled, nothing is remembered and the methods
+ * return right away without taking the lock.
+ *
+ * THREAD-SAFETY: this class is thread-safe.  The maps are protected by
+ *   synchronized(this), and the counters may be read at any time.
+ */
+public class B2FileInfoCache {
+    // how many bucket names are we willing to remember?  that's the most
+    // buckets any account is allowed to have.
+    static final int MAX_BUCKETS = 100;
+
+    // how many invalidated fileIds (and file names) do we remember?  reads
+    // that started before the ones we've forgotten aren't remembered.
+    static final int MAX_INVALIDATIONS = 4096;
+
+    private static final B2Clock clock = B2Clock.get();
+
+    private final B2FileInfoCachePolicy policy;
+
+    // all of these are protected by synchronized(this).
+    private final LruMap<String> byFileId = new LruMap<>();
+    private final NameLruMap byName = new NameLruMap();
+    private final B2BoundedLruMap<String, String> bucketNameById = B2BoundedLruMap.withMax(MAX_BUCKETS);
+    private long invalidationCount;
+    private final Invalidations invalidatedFileIds = new Invalidations();
+    private final Invalidations invalidatedFileNames = new Invalidations();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static class Entry {
+        private final B2FileVersion version;
+        private final long expiresAtMillis;
+
+        private Entry(B2FileVersion version, long expiresAtMillis) {
+            this.version = version;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static class NameKey {
+        private final String bucketName;
+        private final String fileName;
+
+        private NameKey(String bucketName, String fileName) {
+            this.bucketName = bucketName;
+            this.fileName = fileName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            NameKey that = (NameKey) o;
+            return bucketName.equals(that.bucketName) &&
+                    fileName.equals(that.fileName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucketName, fileName);
+        }
+    }
+
+    /**
+     * A LinkedHashMap in access order that counts what it evicts.
+     * (B2BoundedLruMap doesn't tell anyone when it evicts.)
+     */
+    private class LruMap<K> extends LinkedHashMap<K, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private LruMap() {
+            super(16, 0.75f, true /*useAccessOrder*/);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, B2FileInfoCache.Entry> eldest) {
+            if (size() > policy.getMaxEntries()) {
+                evictions.increment();
+                evicting(eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Called just before the entry for key is evicted.
+         */
+        void evicting(K key) {
+        }
+    }
+
+    /**
+     * The by-name entries, with an index of the buckets each file name
+     * has entries in, so we can forget a name without looking at every
+     * entry.  Only put(), remove() and clear() keep the index up to date.
+     */
+    private class NameLruMap extends LruMap<NameKey> {
+        private static final long serialVersionUID = 1L;
+
+        private final Map<String, Set<String>> bucketNamesByFileName = new HashMap<>();
+
+        @Override
+        public B2FileInfoCache.Entry put(NameKey key, B2FileInfoCache.Entry entry) {
+            // index it first, in case putting it evicts it right away.
+            bucketNamesByFileName.computeIfAbsent(key.fileName, k -> new HashSet<>()).add(key.bucketName);
+            return super.put(key, entry);
+        }
+
+        @Override
+        public B2FileInfoCache.Entry remove(Object key) {
+            final B2FileInfoCache.Entry removed = super.remove(key);
+            if (removed != null) {
+                unindex((NameKey) key);
+            }
+            return removed;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            bucketNamesByFileName.clear();
+        }
+
+        @Override
+        void evicting(NameKey key) {
+            unindex(key);
+        }
+
+        void removeFileName(String fileName) {
+            final Set<String> bucketNames = bucketNamesByFileName.remove(fileName);
+            if (bucketNames != null) {
+                for (String bucketName : bucketNames) {
+                    super.remove(new NameKey(bucketName, fileName));
+                }
+            }
+        }
+
+        private void unindex(NameKey key) {
+            final Set<String> bucketNames = bucketNamesByFileName.get(key.fileName);
+            if (bucketNames != null) {
+                bucketNames.remove(key.bucketName);
+                if (bucketNames.isEmpty()) {
+                    bucketNamesByFileName.remove(key.fileName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remembers the invalidationCount when each of the most recently
+     * invalidated keys was invalidated.
+     */
+    private static class Invalidations {
+        // in the order they were invalidated, so the eldest is the one to forget.
+        private final LinkedHashMap<String, Long> countWhenInvalidated = new LinkedHashMap<>();
+
+        // the newest count we've forgotten.  we can't say what hasn't changed
+        // since before then.
+        private long forgottenCount;
+
+        void invalidated(String key, long count) {
+            countWhenInvalidated.remove(key);
+            countWhenInvalidated.put(key, count);
+            if (countWhenInvalidated.size() > MAX_INVALIDATIONS) {
+                final Iterator<Long> eldest = countWhenInvalidated.values().iterator();
+                forgottenCount = eldest.next();
+                eldest.remove();
+            }
+        }
+
+        void invalidatedAll(long count) {
+            countWhenInvalidated.clear();
+            forgottenCount = count;
+        }
+
+        /**
+         * @return true if key might have been invalidated after countBeforeRead.
+         */
+        boolean invalidatedSince(String key, long countBeforeRead) {
+            if (countBeforeRead < forgottenCount) {
+                return true;
+            }
+            final Long count = countWhenInvalidated.get(key);
+            return count != null && countBeforeRead < count;
+        }
+    }
+
+    B2FileInfoCache(B2FileInfoCachePolicy policy) {
+        this.policy = policy;
+    }
+
+    public B2FileInfoCachePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return how many times a lookup found an unexpired entry.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how many times a lookup had to go to the server.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return how many entries were thrown away to make room for newer ones.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Forgets everything we know about files.  Use this if you know
+     * other clients have been changing things.
+     */
+    public synchronized void invalidateAll() {
+        invalidationCount++;
+        invalidatedFileIds.invalidatedAll(invalidationCount);
+        invalidatedFileNames.invalidatedAll(invalidationCount);
+        byFileId.clear();
+        byName.clear();
+    }
+
+    /**
+     * @return the unexpired version with the given fileId, or null.
+     */
+    B2FileVersion getByIdOrNull(String fileId) {
+        if (!policy.isEnabled()) {
+            return null;
+        }
+        synchronized (this) {
+            return lookUp(byFileId, fileId);
+        }
+    }
+
+    /**
+     * @return the unexpired latest version of the named file, or null.
+     */
+    B2FileVersion getByNameOrNull(String bucketName, String fileName) {
+        if (!policy.isEnabled()) {
+            return null;
+        }
+        synchronized (this) {
+            return lookUp(byName, new NameKey(bucketName, fileName));
+        }
+    }
+
+    /**
+     * @return a number that goes up whenever anything is invalidated.
+     */
+    long getInvalidationCount() {
+        if (!policy.isEnabled()) {
+            return 0;
+        }
+        synchronized (this) {
+            return invalidationCount;
+        }
+    }
+
+    void bucketSeen(B2Bucket bucket) {
+        if (!policy.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            bucketNameById.put(bucket.getBucketId(), bucket.getBucketName());
+        }
+    }
+
+    void bucketsListed(B2ListBucketsResponse response) {
+        if (!policy.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            for (B2Bucket bucket : response.getBuckets()) {
+                bucketNameById.put(bucket.getBucketId(), bucket.getBucketName());
+            }
+        }
+    }
+
+    void bucketDeleted(String bucketId) {
+        if (!policy.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            bucketNameById.remove(bucketId);
+        }
+    }
+
+    /**
+     * Remembers a version read by fileId, unless its fileId has been
+     * invalidated since invalidationsBeforeRead.
+     */
+    void versionRead(long invalidationsBeforeRead, B2FileVersion version) {
+        if (!policy.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            rememberById(invalidationsBeforeRead, version, expiresAtMillis());
+        }
+    }
+
+    /**
+     * Remembers the latest version of a file, read by name, unless its fileId
+     * or name has been invalidated since invalidationsBeforeRead.
+     */
+    void latestVersionRead(long invalidationsBeforeRead, String bucketName, B2FileVersion version) {
+        if (!policy.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            final long expiresAtMillis = expiresAtMillis();
+            rememberById(invalidationsBeforeRead, version, expiresAtMillis);
+            rememberByName(invalidationsBeforeRead, bucketName, version, expiresAtMillis);
+        }
+    }
+
+    /**
+     * Remembers a page from b2_list_file_names.  Every entry in it is
+     * the latest version of its name.
+     */
+    void fileNamesListed(long invalidationsBeforeRead, String bucketId, B2ListFileNamesResponse response) {
+        if (!policy.isEnabled() || response.getFiles() instanceof B2CompactFileVersionList) {
+            return;
+        }
+        synchronized (this) {
+            final long expiresAtMillis = expiresAtMillis();
+            final String bucketNameOrNull = bucketNameById.get(bucketId);
+            for (B2FileVersion version : response.getFiles()) {
+                rememberById(invalidationsBeforeRead, version, expiresAtMillis);
+                if (bucketNameOrNull != null) {
+                    rememberByName(invalidationsBeforeRead, bucketNameOrNull, version, expiresAtMillis);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remembers a page from b2_list_file_versions.  We don't know which
+     * versions are the latest, so these are only remembered by fileId.
+     */
+    void fileVersionsListed(long invalidationsBeforeRead, B2ListFileVersionsResponse response) {
+        if (!policy.isEnabled() || response.getFiles() instanceof B2CompactFileVersionList) {
+            return;
+        }
+        synchronized (this) {
+            final long expiresAtMillis = expiresAtMillis();
+            for (B2FileVersion version : response.getFiles()) {
+                rememberById(invalidationsBeforeRead, version, expiresAtMillis);
+            }
+        }
+    }
+
+    /**
+     * Remembers a version that we just made by uploading, copying,
+     * finishing a large file, or hiding.  It's now the latest version
+     * of its name.
+     *
+     * @param bucketIdOrNull the bucket it's in, or null if we don't know.
+     */
+    void versionCreated(String bucketIdOrNull, B2FileVersion version) {
+        if (!policy.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            // reads of this name that are in progress might have seen the
+            // version before this one.  reads by fileId can't have seen this one.
+            invalidationCount++;
+            invalidatedFileNames.invalidated(version.getFileName(), invalidationCount);
+
+            final long expiresAtMillis = expiresAtMillis();
+            rememberById(invalidationCount, version, expiresAtMillis);
+
+            final String bucketNameOrNull = (bucketIdOrNull == null) ? null : bucketNameById.get(bucketIdOrNull);
+            if (bucketNameOrNull == null) {
+                byName.removeFileName(version.getFileName());
+            } else if (!rememberByName(invalidationCount, bucketNameOrNull, version, expiresAtMillis)) {
+                // hides, for instance, mean there's no longer a version to get by name.
+                byName.remove(new NameKey(bucketNameOrNull, version.getFileName()));
+            }
+        }
+    }
+
+    /**
+     * Forgets a version that has been deleted or changed.  Since it might have
+     * been the latest version of its name, we also forget the name, in every bucket.
+     */
+    void versionChanged(String fileId, String fileName) {
+        if (!policy.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            invalidationCount++;
+            invalidatedFileIds.invalidated(fileId, invalidationCount);
+            invalidatedFileNames.invalidated(fileName, invalidationCount);
+            byFileId.remove(fileId);
+            byName.removeFileName(fileName);
+        }
+    }
+
+    /**
+     * @param accountAuth the authorization the download is made with.
+     * @param request the download request's header overrides.
+     * @param rangeOrNull the range being downloaded, if any.
+     * @param bucketNameOrNull the bucket name for downloads by name, or null for downloads by id.
+     * @param sink where the download should go.
+     * @return a sink that remembers the version described by the response headers
+     *         and then hands the content to the given sink.  if the headers won't
+     *         describe the whole file, this just returns the given sink.
+     */
+    B2ContentSink rememberingSink(B2AccountAuthorization accountAuth,
+                                  B2OverrideableHeaders request,
+                                  B2ByteRange rangeOrNull,
+                                  String bucketNameOrNull,
+                                  B2ContentSink sink) {
+        if (!policy.isEnabled() || rangeOrNull != null || overridesHeaders(request)) {
+            return sink;
+        }
+        final long invalidationsBeforeRead = getInvalidationCount();
+        return (responseHeaders, in) -> {
+            if (responseHeaders.getValueOrNull(B2Headers.FILE_ID) != null &&
+                    responseHeaders.getUploadTimestampOrNull() != null) {
+                final B2FileVersion version = B2StorageClientWebifierImpl.fileVersionFromHeaders(accountAuth, responseHeaders);
+                if (bucketNameOrNull == null) {
+                    versionRead(invalidationsBeforeRead, version);
+                } else {
+                    latestVersionRead(invalidationsBeforeRead, bucketNameOrNull, version);
+                }
+            }
+            sink.readContent(responseHeaders, in);
+        };
+    }
+
+    static boolean overridesHeaders(B2OverrideableHeaders request) {
+        return request.getB2ContentDisposition() != null ||
+                request.getB2ContentLanguage() != null ||
+                request.getB2Expires() != null ||
+                request.getB2CacheControl() != null ||
+                request.getB2ContentEncoding() != null ||
+                request.getB2ContentType() != null;
+    }
+
+    private <K> B2FileVersion lookUp(LruMap<K> map, K key) {
+        final Entry entry = map.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAtMillis <= clock.monotonicMillis()) {
+            map.remove(key);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.version;
+    }
+
+    private void rememberById(long invalidationsBeforeRead, B2FileVersion version, long expiresAtMillis) {
+        if (isRememberable(version) &&
+                (version.isUpload() || version.isHide()) &&
+                !invalidatedFileIds.invalidatedSince(version.getFileId(), invalidationsBeforeRead)) {
+            byFileId.put(version.getFileId(), new Entry(version, expiresAtMillis));
+        }
+    }
+
+    /**
+     * @return true iff the version was remembered.
+     */
+    private boolean rememberByName(long invalidationsBeforeRead,
+                                   String bucketName,
+                                   B2FileVersion version,
+                                   long expiresAtMillis) {
+        if (isRememberable(version) &&
+                version.isUpload() &&
+                !invalidatedFileNames.invalidatedSince(version.getFileName(), invalidationsBeforeRead)) {
+            byName.put(new NameKey(bucketName, version.getFileName()), new Entry(version, expiresAtMillis));
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isRememberable(B2FileVersion version) {
+        if (version.getFileId() == null || version.getFileName() == null) {
+            return false;
+        }
+        final B2FileSseForResponse sse = version.getServerSideEncryption();
+        return sse == null || !B2ServerSideEncryptionMode.SSE_C.equals(sse.getMode());
+    }
+
+    private long expiresAtMillis() {
+        return clock.monotonicMillis() + policy.getTtlMillis();
+    }
+}
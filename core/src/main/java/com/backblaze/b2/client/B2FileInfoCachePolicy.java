@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.util.Objects;
+
+/**
+ * B2FileInfoCachePolicy says whether the client remembers file metadata
+ * so that getFileInfo() and getFileInfoByName() can answer without asking
+ * the server, and if so, how much it remembers and for how long.
+ *
+ * The cache is filled from the responses the client gets anyway: uploads,
+ * copies, listings and downloads of whole files.  hideFile() and
+ * deleteFileVersion() forget what they change.  Changes made by other
+ * clients aren't seen until the entries expire, so pick a ttl that's
+ * as stale as you're willing to be.
+ *
+ * The default policy doesn't cache anything.
+ *
+ * THREAD-SAFETY: this class is immutable.
+ */
+public class B2FileInfoCachePolicy {
+    static final int DEFAULT_MAX_ENTRIES = 0;
+    static final long DEFAULT_TTL_MILLIS = 60 * 1000;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private B2FileInfoCachePolicy(int maxEntries,
+                                  long ttlMillis) {
+        B2Preconditions.checkArgument(maxEntries >= 0, "maxEntries must not be negative");
+        B2Preconditions.checkArgument(ttlMillis > 0, "ttlMillis must be positive");
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public static B2FileInfoCachePolicy defaultPolicy() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the most file versions we remember by fileId, and separately,
+     *         the most we remember by bucket name and file name.
+     *         zero means we don't cache file metadata at all.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return how long we trust what we've learned about a file.
+     */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * @return true iff this policy caches anything.
+     */
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        B2FileInfoCachePolicy that = (B2FileInfoCachePolicy) o;
+        return maxEntries == that.maxEntries &&
+                ttlMillis == that.ttlMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxEntries, ttlMillis);
+    }
+
+    public static class Builder {
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+        private long ttlMillis = DEFAULT_TTL_MILLIS;
+
+        public Builder setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder setTtlMillis(long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            return this;
+        }
+
+        public B2FileInfoCachePolicy build() {
+            return new B2FileInfoCachePolicy(maxEntries, ttlMillis);
+        }
+    }
+}
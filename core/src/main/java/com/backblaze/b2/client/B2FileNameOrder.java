@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+/**
+ * B2FileNameOrder compares file names the way B2 sorts them, which is by
+ * code point, the same as the order of their UTF-8 bytes.
+ *
+ * String.compareTo() compares UTF-16 chars, which puts names with characters
+ * above U+FFFF before ones with characters from U+E000 to U+FFFF, so anything
+ * that needs to agree with the order of a listing should use this instead.
+ */
+final class B2FileNameOrder {
+    private B2FileNameOrder() {
+    }
+
+    static int compareNames(String a,
+                            String b) {
+        final int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            final char ca = a.charAt(i);
+            final char cb = b.charAt(i);
+            if (ca != cb) {
+                // a surrogate is part of a code point above U+FFFF, so it's bigger
+                // than any char that isn't one.  two surrogates compare like their
+                // code points do.
+                final boolean isSurrogateA = Character.isSurrogate(ca);
+                final boolean isSurrogateB = Character.isSurrogate(cb);
+                if (isSurrogateA != isSurrogateB) {
+                    return isSurrogateA ? 1 : -1;
+                }
+                return ca - cb;
+            }
+        }
+        return a.length() - b.length();
+    }
+}
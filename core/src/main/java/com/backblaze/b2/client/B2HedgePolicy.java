@@ -0,0 +1,196 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.util.Objects;
+
+/**
+ * B2HedgePolicy says whether the client hedges reads, and if so, when.
+ *
+ * Hedging is for reads whose latency matters more than their cost:
+ * getFileInfo(), getFileInfoByName(), downloadById() and downloadByName().
+ * When an attempt at one of them hasn't gotten a response after the hedge
+ * delay, the client sends the same request again, and uses whichever
+ * response comes first.  The other request is abandoned.
+ *
+ * For downloads, the response that "comes first" is the first one whose
+ * headers arrive, so the content is only downloaded once, no matter how big
+ * the file is.
+ *
+ * The hedge delay is the given percentile of how long each of these
+ * operations has taken to get a response, so that only the slowest few get
+ * hedged.  Until an operation has minSamples, the client uses maxDelayMillis.
+ * The delay is never less than minDelayMillis or more than maxDelayMillis.
+ *
+ * To keep hedging from adding much load when the service is struggling,
+ * there's a budget: hedges may be at most budgetPercent of the hedgeable
+ * requests, with bursts of up to maxBurst hedges.
+ *
+ * The default policy doesn't hedge.  Hedging needs the client's background
+ * executor, because both attempts run on it, so that the caller can return
+ * as soon as either one is done.  A download's content sink still runs on
+ * the calling thread, but the executor thread that made the winning
+ * request waits for it, so a slow sink holds one of the executor's threads
+ * as long as it runs.  The executor should have threads to spare; when
+ * it's too busy to start the first attempt within the delay, the calling
+ * thread makes the request itself, without a hedge.
+ *
+ * THREAD-SAFETY: this class is immutable.
+ */
+public class B2HedgePolicy {
+    static final double DEFAULT_BUDGET_PERCENT = 0;
+    static final int DEFAULT_MAX_BURST = 10;
+    static final double DEFAULT_PERCENTILE = 95;
+    static final int DEFAULT_MIN_SAMPLES = 20;
+    static final long DEFAULT_MIN_DELAY_MILLIS = 10;
+    static final long DEFAULT_MAX_DELAY_MILLIS = 1000;
+
+    private final double budgetPercent;
+    private final int maxBurst;
+    private final double percentile;
+    private final int minSamples;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+
+    private B2HedgePolicy(double budgetPercent,
+                          int maxBurst,
+                          double percentile,
+                          int minSamples,
+                          long minDelayMillis,
+                          long maxDelayMillis) {
+        B2Preconditions.checkArgument(0 <= budgetPercent && budgetPercent <= 100,
+                "budgetPercent must be between 0 and 100");
+        B2Preconditions.checkArgument(maxBurst > 0, "maxBurst must be positive");
+        B2Preconditions.checkArgument(0 < percentile && percentile < 100,
+                "percentile must be between 0 and 100");
+        B2Preconditions.checkArgument(minSamples >= 0, "minSamples must not be negative");
+        B2Preconditions.checkArgument(minDelayMillis >= 0, "minDelayMillis must not be negative");
+        B2Preconditions.checkArgument(maxDelayMillis >= minDelayMillis,
+                "maxDelayMillis must be at least minDelayMillis");
+        this.budgetPercent = budgetPercent;
+        this.maxBurst = maxBurst;
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.minDelayMillis = minDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public static B2HedgePolicy defaultPolicy() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the most hedges we'll send, as a percentage of hedgeable
+     *         requests.  zero means we don't hedge at all.
+     */
+    public double getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    /**
+     * @return how many hedges can be sent in a row when the budget has
+     *         been saved up.
+     */
+    public int getMaxBurst() {
+        return maxBurst;
+    }
+
+    /**
+     * @return the percentile of an operation's latencies to use as its hedge delay.
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * @return how many latencies we need to see for an operation before
+     *         we trust the percentile.
+     */
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public long getMinDelayMillis() {
+        return minDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * @return true iff this policy hedges anything.
+     */
+    public boolean isEnabled() {
+        return budgetPercent > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        B2HedgePolicy that = (B2HedgePolicy) o;
+        return Double.compare(budgetPercent, that.budgetPercent) == 0 &&
+                maxBurst == that.maxBurst &&
+                Double.compare(percentile, that.percentile) == 0 &&
+                minSamples == that.minSamples &&
+                minDelayMillis == that.minDelayMillis &&
+                maxDelayMillis == that.maxDelayMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(budgetPercent, maxBurst, percentile, minSamples, minDelayMillis, maxDelayMillis);
+    }
+
+    public static class Builder {
+        private double budgetPercent = DEFAULT_BUDGET_PERCENT;
+        private int maxBurst = DEFAULT_MAX_BURST;
+        private double percentile = DEFAULT_PERCENTILE;
+        private int minSamples = DEFAULT_MIN_SAMPLES;
+        private long minDelayMillis = DEFAULT_MIN_DELAY_MILLIS;
+        private long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+
+        public Builder setBudgetPercent(double budgetPercent) {
+            this.budgetPercent = budgetPercent;
+            return this;
+        }
+
+        public Builder setMaxBurst(int maxBurst) {
+            this.maxBurst = maxBurst;
+            return this;
+        }
+
+        public Builder setPercentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        public Builder setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        public Builder setMinDelayMillis(long minDelayMillis) {
+            this.minDelayMillis = minDelayMillis;
+            return this;
+        }
+
+        public Builder setMaxDelayMillis(long maxDelayMillis) {
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        public B2HedgePolicy build() {
+            return new B2HedgePolicy(budgetPercent, maxBurst, percentile, minSamples, minDelayMillis, maxDelayMillis);
+        }
+    }
+}
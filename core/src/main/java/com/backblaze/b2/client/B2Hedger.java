@@ -0,0 +1,516 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * B2Hedger makes one attempt at a read, and if it hasn't gotten a response
+ * by the hedge delay, makes a second attempt and uses whichever responds
+ * first.  See B2HedgePolicy for the details.
+ *
+ * B2StorageClientImpl calls this from inside the callables it gives
+ * B2Retryer, so each retry is hedged separately, and retries happen as usual
+ * when the winning attempt fails.
+ *
+ * An attempt has "responded" when it returns, or when it calls tryToWin()
+ * on the Attempt it's given and gets true.  Downloads call it when their
+ * content sink is called, and give up when it returns false, because the
+ * other attempt won.  The attempt that loses is interrupted, in case it's
+ * still waiting for a connection.
+ *
+ * The attempts run on the background executor, so that the caller can
+ * return as soon as either one is done, even if the other is stuck reading
+ * from its socket.  Work that belongs on the caller's thread, like the
+ * caller's content sink, is handed back to it with runOnCaller(), and the
+ * attempt waits while it runs.
+ *
+ * The attempts run with the caller's B2Deadline, if any.
+ *
+ * THREAD-SAFETY: this class is thread-safe.
+ */
+class B2Hedger {
+    private static final B2Clock clock = B2Clock.get();
+    private static final B2Metrics NO_METRICS = new B2Metrics() {};
+
+    // an operation's delay is computed again when its number of samples has
+    // grown by this fraction (or by one, when there are only a few).  the
+    // histogram counts every latency since we started, so fewer new ones than
+    // that can't move the percentile much, and computing it means copying
+    // the whole histogram.
+    private static final int RECOMPUTE_AFTER_GROWTH_DIVISOR = 64;
+
+    private static class ComputedDelay {
+        private final long sampleCount;
+        private final long delayMillis;
+
+        private ComputedDelay(long sampleCount, long delayMillis) {
+            this.sampleCount = sampleCount;
+            this.delayMillis = delayMillis;
+        }
+    }
+
+    interface CallerWork {
+        void run() throws B2Exception, IOException;
+    }
+
+    /**
+     * What an attempt is given so it can tell the race that it's responded.
+     * getAsBoolean() is the same as tryToWin().
+     */
+    interface Attempt extends BooleanSupplier {
+        /**
+         * Call this when the response arrives.
+         *
+         * @return true iff this attempt responded first.  if it's false, the
+         *         other attempt won and this one should stop as soon as it can.
+         */
+        default boolean tryToWin() {
+            return getAsBoolean();
+        }
+
+        /**
+         * Runs the work on the thread that called B2Hedger.call() and returns
+         * when it's done.  Only the attempt that won may do this.
+         *
+         * @throws B2Exception or IOException if the work throws one.
+         */
+        void runOnCaller(CallerWork work) throws B2Exception, IOException;
+    }
+
+    interface HedgeableCall<T> {
+        /**
+         * @param attempt call tryToWin() on this when the response arrives.
+         * @return the result of the attempt.
+         * @throws B2Exception if there's any trouble.
+         */
+        T call(Attempt attempt) throws B2Exception;
+    }
+
+    // for calls that aren't hedged, which always win, on the caller's thread.
+    private static final Attempt UNHEDGED = new Attempt() {
+        @Override
+        public boolean getAsBoolean() {
+            return true;
+        }
+
+        @Override
+        public void runOnCaller(CallerWork work) throws B2Exception, IOException {
+            work.run();
+        }
+    };
+
+    private final B2HedgePolicy policy;
+    private final ExecutorService executorOrNull;
+    private final B2Metrics metrics;
+    private final ConcurrentHashMap<String, B2LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ComputedDelay> delays = new ConcurrentHashMap<>();
+    private final B2TokenBudget budget;
+    private final LongAdder hedgeCount = new LongAdder();
+    private final LongAdder hedgeWonCount = new LongAdder();
+
+    B2Hedger(B2HedgePolicy policy,
+             ExecutorService executorOrNull,
+             B2Metrics metricsOrNull) {
+        this.policy = policy;
+        this.executorOrNull = executorOrNull;
+        this.metrics = (metricsOrNull != null) ? metricsOrNull : NO_METRICS;
+        this.budget = new B2TokenBudget(policy.getBudgetPercent() / 100, policy.getMaxBurst());
+    }
+
+    /**
+     * Makes the call, hedging it if the policy says to.
+     *
+     * @param operation the name of the operation, such as "b2_get_file_info".
+     *                  the hedge delay is computed separately for each one.
+     * @param call the attempt to make.  when hedging is enabled, it's called
+     *             on the background executor, and it should use
+     *             Attempt.runOnCaller() for anything that has to run on the
+     *             calling thread.
+     * @return the result of the attempt that responded first.
+     * @throws B2Exception if the attempt that responded first threw one, or if
+     *                     both attempts failed before responding.
+     */
+    <T> T call(String operation,
+               HedgeableCall<T> call) throws B2Exception {
+        if (!isEnabled()) {
+            return call.call(UNHEDGED);
+        }
+        budget.earn();
+
+        final Race<T> race = new Race<>();
+        final FutureTask<Void> first = race.launch(0, makeAttempt(race, 0, operation, call));
+        try {
+            executorOrNull.execute(first);
+        } catch (RejectedExecutionException e) {
+            // no room at the executor, so just do it here.
+            first.run();
+        }
+
+        boolean hedged;
+        synchronized (race) {
+            // one wait is enough; it's only notified when there's a response.
+            final long delayMillis = delayMillisFor(operation);
+            if (delayMillis > 0 && !race.hasResponse()) {
+                waitFor(race, delayMillis);
+            }
+            hedged = !race.hasResponse() && race.isStarted(0) && budget.trySpend();
+        }
+
+        if (!race.isStarted(0)) {
+            // the executor hasn't gotten to it.  run() won't do anything if it
+            // starts before we do.
+            first.run();
+        } else if (hedged) {
+            final FutureTask<Void> second = race.launch(1, makeAttempt(race, 1, operation, call));
+            try {
+                executorOrNull.execute(second);
+                hedgeCount.increment();
+            } catch (RejectedExecutionException e) {
+                // the first attempt is still running, so we'll just wait for it.
+                race.unlaunch(1);
+                budget.refund();
+                hedged = false;
+            }
+        }
+
+        while (true) {
+            final CallerWork work;
+            synchronized (race) {
+                while (!race.isDone() && !race.hasWork()) {
+                    waitFor(race, 0);
+                }
+                if (race.isDone()) {
+                    break;
+                }
+                work = race.takeWork();
+            }
+            race.doWork(work);
+        }
+
+        if (hedged) {
+            final boolean hedgeWon = race.getWinner() == 1;
+            if (hedgeWon) {
+                hedgeWonCount.increment();
+            }
+            metrics.hedged(operation, hedgeWon);
+        }
+        return race.getOutcome();
+    }
+
+    /**
+     * @return true iff calls may be hedged.
+     */
+    boolean isEnabled() {
+        return policy.isEnabled() && executorOrNull != null;
+    }
+
+    /**
+     * @return how many hedges have been sent.
+     */
+    long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    /**
+     * @return how many hedges responded before the attempt they were hedging.
+     */
+    long getHedgeWonCount() {
+        return hedgeWonCount.sum();
+    }
+
+    /**
+     * @return how long to wait for an attempt at the given operation before hedging it.
+     */
+    long delayMillisFor(String operation) {
+        final B2LatencyHistogram histogramOrNull = latencies.get(operation);
+        if (histogramOrNull == null) {
+            return policy.getMaxDelayMillis();
+        }
+        final long sampleCount = histogramOrNull.getCount();
+        if (sampleCount < policy.getMinSamples()) {
+            return policy.getMaxDelayMillis();
+        }
+
+        final ComputedDelay computedOrNull = delays.get(operation);
+        if (computedOrNull != null &&
+                sampleCount - computedOrNull.sampleCount < Math.max(1, computedOrNull.sampleCount / RECOMPUTE_AFTER_GROWTH_DIVISOR)) {
+            return computedOrNull.delayMillis;
+        }
+
+        // if several threads get here at once, they all compute it, and one of them wins.
+        final long millis = histogramOrNull.getMillisAtPercentile(policy.getPercentile());
+        final long delayMillis = Math.max(policy.getMinDelayMillis(), Math.min(policy.getMaxDelayMillis(), millis));
+        delays.put(operation, new ComputedDelay(sampleCount, delayMillis));
+        return delayMillis;
+    }
+
+    /*forTests*/ void recordLatency(String operation, long millis) {
+        latencies.computeIfAbsent(operation, k -> new B2LatencyHistogram()).record(millis);
+    }
+
+    @SuppressWarnings("try") // the scope is only there to be closed.
+    private <T> Runnable makeAttempt(Race<T> race,
+                                     int attempt,
+                                     String operation,
+                                     HedgeableCall<T> call) {
+        final B2Deadline deadlineOrNull = B2Deadline.currentOrNull();
+        return () -> {
+            race.started(attempt);
+            final long startMillis = clock.monotonicMillis();
+            final Attempt tryToWin = new Attempt() {
+                @Override
+                public boolean getAsBoolean() {
+                    if (race.claim(attempt)) {
+                        recordLatency(operation, clock.monotonicMillis() - startMillis);
+                    }
+                    return race.getWinner() == attempt;
+                }
+
+                @Override
+                public void runOnCaller(CallerWork work) throws B2Exception, IOException {
+                    race.runOnCaller(attempt, work);
+                }
+            };
+            try (B2Deadline.Scope ignored = B2Deadline.enter(deadlineOrNull)) {
+                final T result = call.call(tryToWin);
+                tryToWin.tryToWin();
+                race.finished(attempt, result, null);
+            } catch (Exception | Error e) {
+                race.finished(attempt, null, e);
+            }
+        };
+    }
+
+    /**
+     * Waits for the race to be notified, or for the given time if it's
+     * positive.  If we're interrupted, we give up on the race, so no attempt
+     * can start using the results after we've returned.
+     */
+    private static void waitFor(Race<?> race,
+                                long millis) throws B2LocalException {
+        try {
+            race.wait(millis);
+        } catch (InterruptedException e) {
+            race.abandon();
+            Thread.currentThread().interrupt();
+            throw new B2LocalException("interrupted", "interrupted while waiting for a hedged request", e);
+        }
+    }
+
+    /**
+     * The state shared by the attempts at one call.  It's notified when an
+     * attempt claims the win, hands work to the caller, or finishes.
+     */
+    private static class Race<T> {
+        private static final int ABANDONED = 2;
+
+        private final Thread caller = Thread.currentThread();
+        private final FutureTask<?>[] tasks = new FutureTask<?>[2];
+        private final boolean[] started = new boolean[2];
+        private int launchedCount;
+        private int finishedCount;
+        private int winner = -1;
+        private boolean abandoned;
+        private boolean winnerFinished;
+        private T result;
+        private Throwable failureOrNull;
+
+        // the work the winner has handed to the caller, and how it went.
+        private CallerWork workOrNull;
+        private boolean workTaken;
+        private boolean workDone;
+        private Throwable workFailureOrNull;
+
+        synchronized FutureTask<Void> launch(int attempt,
+                                             Runnable runnable) {
+            final FutureTask<Void> task = new FutureTask<>(runnable, null);
+            tasks[attempt] = task;
+            launchedCount++;
+            return task;
+        }
+
+        synchronized void unlaunch(int attempt) {
+            tasks[attempt] = null;
+            launchedCount--;
+            notifyAll();
+        }
+
+        synchronized void started(int attempt) {
+            started[attempt] = true;
+        }
+
+        synchronized boolean isStarted(int attempt) {
+            return started[attempt];
+        }
+
+        /**
+         * @return true iff the given attempt is the first to claim the win.
+         */
+        synchronized boolean claim(int attempt) {
+            if (winner >= 0) {
+                return false;
+            }
+            winner = attempt;
+            cancelAllBut(attempt);
+            notifyAll();
+            return true;
+        }
+
+        /**
+         * Keeps any attempt from winning from now on, and stops the ones
+         * that are running, including one that already won.
+         */
+        synchronized void abandon() {
+            if (winner < 0) {
+                winner = ABANDONED;
+            }
+            abandoned = true;
+            cancelAllBut(ABANDONED);
+            notifyAll();
+        }
+
+        /**
+         * Called by the winning attempt.  Runs the work on the caller's
+         * thread and waits for it to be done.  When the attempt is already
+         * on the caller's thread, because the executor didn't get to it, the
+         * work is just run.
+         */
+        void runOnCaller(int attempt,
+                         CallerWork work) throws B2Exception, IOException {
+            if (Thread.currentThread() == caller) {
+                work.run();
+                return;
+            }
+
+            final Throwable failure;
+            synchronized (this) {
+                B2Preconditions.checkState(winner == attempt, "only the winner can run work on the caller");
+                B2Preconditions.checkState(workOrNull == null, "the work has already been given to the caller");
+                workOrNull = work;
+                notifyAll();
+                try {
+                    while (!workDone) {
+                        if (abandoned) {
+                            throw new B2LocalException("interrupted", "the caller gave up on the hedged request");
+                        }
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    // the caller gave up on the race.
+                    Thread.currentThread().interrupt();
+                    throw new B2LocalException("interrupted", "interrupted while the caller was running a hedged request's work", e);
+                }
+                failure = workFailureOrNull;
+            }
+
+            if (failure instanceof B2Exception) {
+                throw (B2Exception) failure;
+            }
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+        }
+
+        synchronized boolean hasWork() {
+            return workOrNull != null && !workTaken;
+        }
+
+        synchronized CallerWork takeWork() {
+            workTaken = true;
+            return workOrNull;
+        }
+
+        /**
+         * Runs the work the winner handed over, on the caller's thread,
+         * and tells the winner how it went.
+         */
+        void doWork(CallerWork work) {
+            Throwable failure = null;
+            try {
+                work.run();
+            } catch (Exception | Error e) {
+                failure = e;
+            }
+            synchronized (this) {
+                workDone = true;
+                workFailureOrNull = failure;
+                notifyAll();
+            }
+        }
+
+        private void cancelAllBut(int attempt) {
+            for (int i = 0; i < tasks.length; i++) {
+                if (i != attempt && tasks[i] != null) {
+                    tasks[i].cancel(true);
+                }
+            }
+        }
+
+        synchronized int getWinner() {
+            return winner;
+        }
+
+        synchronized void finished(int attempt,
+                                   T resultOrNull,
+                                   Throwable failure) {
+            finishedCount++;
+            if (winner == attempt) {
+                winnerFinished = true;
+                result = resultOrNull;
+                failureOrNull = failure;
+            } else if (winner < 0 && failureOrNull == null) {
+                // remember the first failure, in case they all fail.
+                failureOrNull = failure;
+            }
+            notifyAll();
+        }
+
+        /**
+         * @return true iff there's nothing more to wait for, because an
+         *         attempt has won or all of them have failed.
+         */
+        synchronized boolean hasResponse() {
+            return winner >= 0 || finishedCount == launchedCount;
+        }
+
+        synchronized boolean isDone() {
+            return winnerFinished || (winner < 0 && finishedCount == launchedCount);
+        }
+
+        synchronized T getOutcome() throws B2Exception {
+            if (failureOrNull == null) {
+                return result;
+            }
+            if (failureOrNull instanceof B2Exception) {
+                throw (B2Exception) failureOrNull;
+            }
+            if (failureOrNull instanceof RuntimeException) {
+                throw (RuntimeException) failureOrNull;
+            }
+            if (failureOrNull instanceof Error) {
+                throw (Error) failureOrNull;
+            }
+            throw new B2LocalException("hedge_failed", "hedged request failed: " + failureOrNull, failureOrNull);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * B2JitteredRetryPolicy backs off with "decorrelated jitter": each wait is
+ * a random number of milliseconds between baseMillis and three times the
+ * previous wait, capped at maxWaitMillis.  When lots of clients get the same
+ * error at the same time, their retries spread out instead of arriving in
+ * waves, the way they do when everyone doubles the same whole number of
+ * seconds.
+ *
+ * When the server sends a Retry-After, we wait that long plus up to
+ * baseMillis more, and start backing off from baseMillis again.  Retries
+ * that would happen immediately (to get a new auth token or upload url)
+ * wait up to immediateJitterMillis first.
+ *
+ * Each call stops retrying after maxAttempts, or when the next attempt
+ * couldn't start before the call's deadline, whichever comes first.  The
+ * deadline is deadlineMillis after the policy was made, which is when the
+ * call started.  Both may be set differently for each operation, such as
+ * "b2_get_file_info".
+ *
+ * Each attempted operation should have a unique instance of this class
+ * because it stores state about retries between calls.  Use supplier().
+ */
+public class B2JitteredRetryPolicy implements B2MillisecondRetryPolicy {
+    private static final B2Clock clock = B2Clock.get();
+
+    private final Settings settings;
+    private final Random randomOrNull;
+    private final long startMillis;
+    private long previousWaitMillis;
+
+    B2JitteredRetryPolicy(Settings settings,
+                          Random randomOrNull) {
+        this.settings = settings;
+        this.randomOrNull = randomOrNull;
+        this.startMillis = clock.monotonicMillis();
+        this.previousWaitMillis = settings.baseMillis;
+    }
+
+    /**
+     * @return a supplier of policies with the default settings.
+     */
+    public static Supplier<B2RetryPolicy> supplier() {
+        return supplier(Settings.builder().build());
+    }
+
+    /**
+     * @return a supplier of policies with the given settings.
+     */
+    public static Supplier<B2RetryPolicy> supplier(Settings settings) {
+        return () -> new B2JitteredRetryPolicy(settings, null);
+    }
+
+    @Override
+    public Long gotRetryableAfterDelayMillis(String operation,
+                                             int attemptsSoFar,
+                                             long tookMillis,
+                                             B2Exception e) {
+        if (attemptsSoFar >= settings.getMaxAttempts(operation)) {
+            return null;
+        }
+
+        final long waitMillis;
+        final Integer secsFromServer = e.getRetryAfterSecondsOrNull();
+        if (secsFromServer != null) {
+            // obey the server, but don't have everyone it told come back at once.
+            waitMillis = secsFromServer * 1000L + randomBetween(0, settings.baseMillis);
+            previousWaitMillis = settings.baseMillis;
+        } else {
+            waitMillis = Math.min(settings.maxWaitMillis, randomBetween(settings.baseMillis, previousWaitMillis * 3));
+            previousWaitMillis = waitMillis;
+        }
+
+        if (!hasTimeFor(operation, waitMillis)) {
+            return null;
+        }
+        return waitMillis;
+    }
+
+    @Override
+    public boolean gotRetryableImmediately(String operation,
+                                           int attemptsSoFar,
+                                           long tookMillis,
+                                           B2Exception e) {
+        return attemptsSoFar < settings.getMaxAttempts(operation) && hasTimeFor(operation, 0);
+    }
+
+    @Override
+    public long getImmediateRetryDelayMillis(String operation,
+                                             int attemptsSoFar) {
+        return randomBetween(0, settings.immediateJitterMillis);
+    }
+
+    /**
+     * @return true iff we can wait the given time and still start another
+     *         attempt before the operation's deadline, if any.
+     */
+    private boolean hasTimeFor(String operation,
+                               long waitMillis) {
+        final long deadlineMillis = settings.getDeadlineMillis(operation);
+        if (deadlineMillis <= 0) {
+            return true;
+        }
+        final long elapsedMillis = clock.monotonicMillis() - startMillis;
+        return elapsedMillis + waitMillis < deadlineMillis;
+    }
+
+    /**
+     * @return a random number from low to high, inclusive.
+     */
+    private long randomBetween(long low,
+                               long high) {
+        if (high <= low) {
+            return low;
+        }
+        final Random random = (randomOrNull != null) ? randomOrNull : ThreadLocalRandom.current();
+        return low + (long) (random.nextDouble() * (high - low + 1));
+    }
+
+    /**
+     * Settings for B2JitteredRetryPolicy.
+     *
+     * THREAD-SAFETY: this class is immutable.
+     */
+    public static class Settings {
+        static final long DEFAULT_BASE_MILLIS = 100;
+        static final long DEFAULT_MAX_WAIT_MILLIS = 64_000;
+        static final long DEFAULT_IMMEDIATE_JITTER_MILLIS = 50;
+        static final int DEFAULT_MAX_ATTEMPTS = 8;
+        static final long DEFAULT_DEADLINE_MILLIS = 0;
+
+        private final long baseMillis;
+        private final long maxWaitMillis;
+        private final long immediateJitterMillis;
+        private final int maxAttempts;
+        private final long deadlineMillis;
+        private final Map<String, Integer> maxAttemptsByOperation;
+        private final Map<String, Long> deadlineMillisByOperation;
+
+        private Settings(long baseMillis,
+                         long maxWaitMillis,
+                         long immediateJitterMillis,
+                         int maxAttempts,
+                         long deadlineMillis,
+                         Map<String, Integer> maxAttemptsByOperation,
+                         Map<String, Long> deadlineMillisByOperation) {
+            B2Preconditions.checkArgument(baseMillis > 0, "baseMillis must be positive");
+            B2Preconditions.checkArgument(maxWaitMillis >= baseMillis, "maxWaitMillis must be at least baseMillis");
+            B2Preconditions.checkArgument(immediateJitterMillis >= 0, "immediateJitterMillis must not be negative");
+            this.baseMillis = baseMillis;
+            this.maxWaitMillis = maxWaitMillis;
+            this.immediateJitterMillis = immediateJitterMillis;
+            this.maxAttempts = maxAttempts;
+            this.deadlineMillis = deadlineMillis;
+            this.maxAttemptsByOperation = Collections.unmodifiableMap(new HashMap<>(maxAttemptsByOperation));
+            this.deadlineMillisByOperation = Collections.unmodifiableMap(new HashMap<>(deadlineMillisByOperation));
+        }
+
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        public long getBaseMillis() {
+            return baseMillis;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public long getImmediateJitterMillis() {
+            return immediateJitterMillis;
+        }
+
+        /**
+         * @return the most attempts to make at the given operation, including the first.
+         */
+        public int getMaxAttempts(String operation) {
+            return maxAttemptsByOperation.getOrDefault(operation, maxAttempts);
+        }
+
+        /**
+         * @return how long a call to the given operation may keep retrying,
+         *         or zero if it's only limited by the number of attempts.
+         */
+        public long getDeadlineMillis(String operation) {
+            return deadlineMillisByOperation.getOrDefault(operation, deadlineMillis);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Settings that = (Settings) o;
+            return baseMillis == that.baseMillis &&
+                    maxWaitMillis == that.maxWaitMillis &&
+                    immediateJitterMillis == that.immediateJitterMillis &&
+                    maxAttempts == that.maxAttempts &&
+                    deadlineMillis == that.deadlineMillis &&
+                    Objects.equals(maxAttemptsByOperation, that.maxAttemptsByOperation) &&
+                    Objects.equals(deadlineMillisByOperation, that.deadlineMillisByOperation);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(baseMillis, maxWaitMillis, immediateJitterMillis, maxAttempts, deadlineMillis,
+                    maxAttemptsByOperation, deadlineMillisByOperation);
+        }
+
+        public static class Builder {
+            private long baseMillis = DEFAULT_BASE_MILLIS;
+            private long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+            private long immediateJitterMillis = DEFAULT_IMMEDIATE_JITTER_MILLIS;
+            private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+            private long deadlineMillis = DEFAULT_DEADLINE_MILLIS;
+            private final Map<String, Integer> maxAttemptsByOperation = new HashMap<>();
+            private final Map<String, Long> deadlineMillisByOperation = new HashMap<>();
+
+            /**
+             * @param baseMillis the shortest wait, and the most we add to a Retry-After.
+             */
+            public Builder setBaseMillis(long baseMillis) {
+                this.baseMillis = baseMillis;
+                return this;
+            }
+
+            public Builder setMaxWaitMillis(long maxWaitMillis) {
+                this.maxWaitMillis = maxWaitMillis;
+                return this;
+            }
+
+            /**
+             * @param immediateJitterMillis the longest wait before a retry that
+             *                              would otherwise happen immediately.
+             */
+            public Builder setImmediateJitterMillis(long immediateJitterMillis) {
+                this.immediateJitterMillis = immediateJitterMillis;
+                return this;
+            }
+
+            public Builder setMaxAttempts(int maxAttempts) {
+                B2Preconditions.checkArgument(maxAttempts > 0, "maxAttempts must be positive");
+                this.maxAttempts = maxAttempts;
+                return this;
+            }
+
+            public Builder setMaxAttempts(String operation,
+                                          int maxAttempts) {
+                B2Preconditions.checkArgument(maxAttempts > 0, "maxAttempts must be positive");
+                maxAttemptsByOperation.put(operation, maxAttempts);
+                return this;
+            }
+
+            /**
+             * @param deadlineMillis how long each call may keep retrying.  zero means no deadline.
+             */
+            public Builder setDeadlineMillis(long deadlineMillis) {
+                B2Preconditions.checkArgument(deadlineMillis >= 0, "deadlineMillis must not be negative");
+                this.deadlineMillis = deadlineMillis;
+                return this;
+            }
+
+            public Builder setDeadlineMillis(String operation,
+                                             long deadlineMillis) {
+                B2Preconditions.checkArgument(deadlineMillis >= 0, "deadlineMillis must not be negative");
+                deadlineMillisByOperation.put(operation, deadlineMillis);
+                return this;
+            }
+
+            public Settings build() {
+                return new Settings(baseMillis, maxWaitMillis, immediateJitterMillis, maxAttempts, deadlineMillis,
+                        maxAttemptsByOperation, deadlineMillisByOperation);
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.backblaze.b2.client.structures.B2UploadProgress;
 import com.backblaze.b2.client.structures.B2UploadState;
 import com.backblaze.b2.util.B2ByteProgressListener;
 import com.backblaze.b2.util.B2ByteRange;
+import com.backblaze.b2.util.B2Clock;
 import com.backblaze.b2.util.B2Preconditions;
 
 import java.io.IOException;
@@ -30,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 /**
@@ -76,8 +78,23 @@ public class B2LargeFileStorer {
      */
     private final B2CancellationToken cancellationToken = new B2CancellationToken();
 
+    /**
+     * How many part storers haven't started yet.  The upload part url cache
+     * doesn't prefetch urls for more parts than this.
+     */
+    private final AtomicInteger partsNotStarted;
+
+    /**
+     * The B2Deadline that was in effect when this was made, if any.  The
+     * parts are stored with it, and when it passes, storeFile() and
+     * storeParts() cancel whatever is left and give up.
+     */
+    private final B2Deadline deadlineOrNull;
+
     private final B2AccountAuthorizationCache accountAuthCache;
     private final B2UploadPartUrlCache uploadPartUrlCache;
+    private static final B2Clock clock = B2Clock.get();
+
     private final B2StorageClientWebifier webifier;
     private final B2Retryer retryer;
     private final Supplier<B2RetryPolicy> retryPolicySupplier;
@@ -92,6 +109,27 @@ public class B2LargeFileStorer {
             Supplier<B2RetryPolicy> retryPolicySupplier,
             ExecutorService executor,
             boolean partNumberGapsAllowed) {
+        this(storeLargeFileRequest,
+                partStorers,
+                accountAuthCache,
+                webifier,
+                retryer,
+                retryPolicySupplier,
+                executor,
+                partNumberGapsAllowed,
+                B2UploadUrlPrefetcher.disabled());
+    }
+
+    B2LargeFileStorer(
+            B2StoreLargeFileRequest storeLargeFileRequest,
+            List<B2PartStorer> partStorers,
+            B2AccountAuthorizationCache accountAuthCache,
+            B2StorageClientWebifier webifier,
+            B2Retryer retryer,
+            Supplier<B2RetryPolicy> retryPolicySupplier,
+            ExecutorService executor,
+            boolean partNumberGapsAllowed,
+            B2UploadUrlPrefetcher uploadPartUrlPrefetcher) {
         B2Preconditions.checkArgumentIsNotNull(storeLargeFileRequest, "storeLargeFileRequest");
 
         this.largeFileId = storeLargeFileRequest.getFileId();
@@ -101,11 +139,13 @@ public class B2LargeFileStorer {
         this.indexesByPartNumber = computeIndexesByPartNumbers(partStorers);
 
         this.accountAuthCache = accountAuthCache;
-        this.uploadPartUrlCache = new B2UploadPartUrlCache(webifier, accountAuthCache, largeFileId);
+        this.partsNotStarted = new AtomicInteger(this.partStorers.size());
+        this.uploadPartUrlCache = new B2UploadPartUrlCache(webifier, accountAuthCache, largeFileId, uploadPartUrlPrefetcher, retryer.getMetrics(), partsNotStarted::get);
         this.webifier = webifier;
         this.retryer = retryer;
         this.retryPolicySupplier = retryPolicySupplier;
         this.executor = executor;
+        this.deadlineOrNull = B2Deadline.currentOrNull();
     }
 
     private List<B2PartStorer> validateAndSortPartStorers(List<B2PartStorer> partStorers,
@@ -245,6 +285,30 @@ public class B2LargeFileStorer {
             Supplier<B2RetryPolicy> retryPolicySupplier,
             ExecutorService executor,
             boolean allowGaps) throws B2Exception {
+        return forLocalContent(
+                storeLargeFileRequest,
+                contentSource,
+                partSizes,
+                accountAuthCache,
+                webifier,
+                retryer,
+                retryPolicySupplier,
+                executor,
+                allowGaps,
+                B2UploadUrlPrefetcher.disabled());
+    }
+
+    static B2LargeFileStorer forLocalContent(
+            B2StoreLargeFileRequest storeLargeFileRequest,
+            B2ContentSource contentSource,
+            B2PartSizes partSizes,
+            B2AccountAuthorizationCache accountAuthCache,
+            B2StorageClientWebifier webifier,
+            B2Retryer retryer,
+            Supplier<B2RetryPolicy> retryPolicySupplier,
+            ExecutorService executor,
+            boolean allowGaps,
+            B2UploadUrlPrefetcher uploadPartUrlPrefetcher) throws B2Exception {
         B2Preconditions.checkArgumentIsNotNull(storeLargeFileRequest, "storeLargeFileRequest");
 
         // Convert the contentSource into a list of B2PartStorer objects.
@@ -269,22 +333,12 @@ public class B2LargeFileStorer {
                 retryer,
                 retryPolicySupplier,
                 executor,
-                allowGaps);
+                allowGaps,
+                uploadPartUrlPrefetcher);
     }
 
     B2FileVersion storeFile(B2UploadListener uploadListenerOrNull) throws B2Exception {
-        try {
-            return storeFileAsync(uploadListenerOrNull).get();
-        } catch (ExecutionException e) {
-            final Throwable cause = e.getCause();
-            if (cause instanceof B2Exception) {
-                throw (B2Exception) cause;
-            } else {
-                throw new B2LocalException("trouble", "exception while trying to upload parts: " + cause, cause);
-            }
-        } catch (InterruptedException e) {
-            throw new B2LocalException("trouble", "interrupted exception");
-        }
+        return waitFor(storeFileAsync(uploadListenerOrNull));
     }
 
     /**
@@ -324,8 +378,19 @@ public class B2LargeFileStorer {
     }
 
     List<B2Part> storeParts(B2UploadListener uploadListenerOrNull) throws B2Exception {
+        return waitFor(storePartsAsync(uploadListenerOrNull));
+    }
+
+    /**
+     * Waits for the future, but not past the deadline, if any.  At the
+     * deadline, the future is cancelled, which cancels the parts too.
+     */
+    private <T> T waitFor(CompletableFuture<T> future) throws B2Exception {
         try {
-            return storePartsAsync(uploadListenerOrNull).get();
+            if (deadlineOrNull == null) {
+                return future.get();
+            }
+            return future.get(deadlineOrNull.getRemainingMillis(), TimeUnit.MILLISECONDS);
         } catch (ExecutionException e) {
             final Throwable cause = e.getCause();
             if (cause instanceof B2Exception) {
@@ -333,6 +398,9 @@ public class B2LargeFileStorer {
             } else {
                 throw new B2LocalException("trouble", "exception while trying to upload parts: " + cause, cause);
             }
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw deadlineOrNull.makeExceededException("storing large file " + largeFileId, null);
         } catch (InterruptedException e) {
             throw new B2LocalException("trouble", "interrupted exception");
         }
@@ -351,7 +419,10 @@ public class B2LargeFileStorer {
         // Store each part in parallel.
         for (final B2PartStorer partStorer : partStorers) {
             CompletableFuture<B2Part> future = CompletableFuture.supplyAsync(
-                    adaptB2Supplier(() -> partStorer.storePart(this, uploadListener, cancellationToken)),
+                    adaptB2Supplier(() -> {
+                        partsNotStarted.decrementAndGet();
+                        return withinDeadline(() -> partStorer.storePart(this, uploadListener, cancellationToken));
+                    }),
                     executor);
 
             completableFutures.add(future);
@@ -390,7 +461,7 @@ public class B2LargeFileStorer {
     private B2FileVersion finishLargeFileFromB2PartsInCompletionStage(String largeFileId,
                                                                       List<B2Part> parts) {
         return callSupplierAndConvertErrorsForCompletableFutures(
-                () -> finishLargeFileFromB2Parts(largeFileId, parts)
+                () -> withinDeadline(() -> finishLargeFileFromB2Parts(largeFileId, parts))
         );
     }
 
@@ -474,6 +545,17 @@ public class B2LargeFileStorer {
         return () -> callSupplierAndConvertErrorsForCompletableFutures(supplier);
     }
 
+    /**
+     * Calls the supplier with this storer's deadline, if any, in effect,
+     * since it's probably running on one of the executor's threads.
+     */
+    @SuppressWarnings("try") // the scope is only there to be closed.
+    private <Type> Type withinDeadline(B2Supplier<Type> supplier) throws B2Exception, IOException {
+        try (B2Deadline.Scope ignored = B2Deadline.enter(deadlineOrNull)) {
+            return supplier.get();
+        }
+    }
+
     private B2FileVersion finishLargeFileFromB2Parts(String largeFileId,
                                                      List<B2Part> parts) throws B2Exception {
         cancellationToken.throwIfCancelled();
@@ -539,8 +621,9 @@ public class B2LargeFileStorer {
                 contentSource.getContentLength());
         final B2ByteProgressFilteringListener progressListener = new B2ByteProgressFilteringListener(progressAdapter);
 
+        final long startMillis = clock.monotonicMillis();
         try {
-            return retryer.doRetry(
+            final B2Part storedPart = retryer.doRetry(
                     "b2_upload_part",
                     accountAuthCache,
                     (isRetry) -> {
@@ -577,6 +660,8 @@ public class B2LargeFileStorer {
                     },
                     retryPolicySupplier.get()
             );
+            partFinished("b2_upload_part", partNumber, storedPart.getContentLength(), startMillis, true);
+            return storedPart;
         } catch (B2Exception e) {
             updateProgress(
                     uploadListener,
@@ -584,6 +669,7 @@ public class B2LargeFileStorer {
                     contentSource.getContentLength(),
                     0,
                     B2UploadState.FAILED);
+            partFinished("b2_upload_part", partNumber, contentSource.getContentLength(), startMillis, false);
 
             throw e;
         }
@@ -617,8 +703,9 @@ public class B2LargeFileStorer {
                 .setRange(byteRangeOrNull)
                 .build();
 
+        final long startMillis = clock.monotonicMillis();
         try {
-            return retryer.doRetry(
+            final B2Part storedPart = retryer.doRetry(
                     "b2_copy_part",
                     accountAuthCache,
                     () -> {
@@ -643,6 +730,8 @@ public class B2LargeFileStorer {
                         return part;
                     },
                     retryPolicySupplier.get());
+            partFinished("b2_copy_part", partNumber, storedPart.getContentLength(), startMillis, true);
+            return storedPart;
         } catch (B2Exception e) {
             updateProgress(
                     uploadListener,
@@ -650,11 +739,21 @@ public class B2LargeFileStorer {
                     B2UploadProgress.UNKNOWN_PART_SIZE_PLACEHOLDER,
                     0,
                     B2UploadState.FAILED);
+            partFinished("b2_copy_part", partNumber, -1, startMillis, false);
 
             throw e;
         }
     }
 
+    private void partFinished(String operation,
+                              int partNumber,
+                              long byteCount,
+                              long startMillis,
+                              boolean succeeded) {
+        retryer.getMetrics().partFinished(operation, largeFileId, partNumber, byteCount,
+                clock.monotonicMillis() - startMillis, succeeded);
+    }
+
     static B2ContentSource createRangedContentSource(
             B2ContentSource contentSource, long start, long length) throws IOException {
 
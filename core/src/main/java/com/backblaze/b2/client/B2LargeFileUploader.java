@@ -21,6 +21,7 @@ import com.backblaze.b2.client.structures.B2UploadPartRequest;
 import com.backblaze.b2.client.structures.B2UploadPartUrlResponse;
 import com.backblaze.b2.client.structures.B2UploadState;
 import com.backblaze.b2.util.B2ByteProgressListener;
+import com.backblaze.b2.util.B2Clock;
 import com.backblaze.b2.util.B2Collections;
 import com.backblaze.b2.util.B2Preconditions;
 
@@ -35,9 +36,12 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 class B2LargeFileUploader {
+    private static final B2Clock clock = B2Clock.get();
+
     private final B2Retryer retryer;
     private final B2StorageClientWebifier webifier;
     private final B2AccountAuthorizationCache accountAuthCache;
@@ -46,6 +50,7 @@ class B2LargeFileUploader {
     private final B2PartSizes partSizes;
     private final B2UploadFileRequest request;
     private final long contentLength;
+    private final B2UploadUrlPrefetcher uploadPartUrlPrefetcher;
 
     B2LargeFileUploader(B2Retryer retryer,
                         B2StorageClientWebifier webifier,
@@ -55,6 +60,26 @@ class B2LargeFileUploader {
                         B2PartSizes partSizes,
                         B2UploadFileRequest request,
                         long contentLength) {
+        this(retryer,
+                webifier,
+                accountAuthCache,
+                retryPolicySupplier,
+                executor,
+                partSizes,
+                request,
+                contentLength,
+                B2UploadUrlPrefetcher.disabled());
+    }
+
+    B2LargeFileUploader(B2Retryer retryer,
+                        B2StorageClientWebifier webifier,
+                        B2AccountAuthorizationCache accountAuthCache,
+                        Supplier<B2RetryPolicy> retryPolicySupplier,
+                        ExecutorService executor,
+                        B2PartSizes partSizes,
+                        B2UploadFileRequest request,
+                        long contentLength,
+                        B2UploadUrlPrefetcher uploadPartUrlPrefetcher) {
         this.retryer = retryer;
         this.webifier = webifier;
         this.accountAuthCache = accountAuthCache;
@@ -64,6 +89,7 @@ class B2LargeFileUploader {
 
         this.request = request;
         this.contentLength = contentLength;
+        this.uploadPartUrlPrefetcher = uploadPartUrlPrefetcher;
     }
 
     B2FileVersion uploadLargeFile() throws B2Exception {
@@ -193,10 +219,15 @@ class B2LargeFileUploader {
         final B2UploadListener listener = request.getListener();
         final int partCount = allPartSpecs.size();
 
+        // the cache doesn't prefetch urls for more parts than are still waiting to start.
+        final AtomicInteger partsNotStarted = new AtomicInteger(partCount - uploadedAlready.size());
         final B2UploadPartUrlCache uploadPartUrlCache = new B2UploadPartUrlCache(
                 webifier,
                 accountAuthCache,
-                largeFileVersion.getFileId());
+                largeFileVersion.getFileId(),
+                uploadPartUrlPrefetcher,
+                retryer.getMetrics(),
+                partsNotStarted::get);
 
         final List<String> partSha1s = new ArrayList<>();
         final List<Future<B2Part>> uploadedPartFutures = new ArrayList<>();
@@ -209,7 +240,10 @@ class B2LargeFileUploader {
                 final B2Part alreadyUploadedPart = uploadedAlready.get(partSpec);
                 if (alreadyUploadedPart == null) {
                     // do the upload
-                    uploadedPartFutures.add(executor.submit(() -> uploadOnePart(uploadPartUrlCache, request, partCount, partSpec)));
+                    uploadedPartFutures.add(executor.submit(() -> {
+                        partsNotStarted.decrementAndGet();
+                        return uploadOnePart(uploadPartUrlCache, request, partCount, partSpec);
+                    }));
                 } else {
                     // tell the listener about our prior success as soon as we can.
                     listener.progress(B2UploadProgressUtil.forPartSucceeded(partSpec, partCount));
@@ -262,6 +296,22 @@ class B2LargeFileUploader {
                                  B2UploadFileRequest request,
                                  int partCount,
                                  B2PartSpec partSpec) throws B2Exception {
+        final long startMillis = clock.monotonicMillis();
+        boolean succeeded = false;
+        try {
+            final B2Part part = uploadOnePartWithRetries(uploadPartUrlCache, request, partCount, partSpec);
+            succeeded = true;
+            return part;
+        } finally {
+            retryer.getMetrics().partFinished("b2_upload_part", uploadPartUrlCache.getLargeFileId(), partSpec.getPartNumber(),
+                    partSpec.getLength(), clock.monotonicMillis() - startMillis, succeeded);
+        }
+    }
+
+    private B2Part uploadOnePartWithRetries(B2UploadPartUrlCache uploadPartUrlCache,
+                                            B2UploadFileRequest request,
+                                            int partCount,
+                                            B2PartSpec partSpec) throws B2Exception {
         return retryer.doRetry("b2_upload_part",
                 accountAuthCache,
                 (isRetry) -> {
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * B2LatencyHistogram counts latencies in buckets whose width grows with the
+ * latency, like HdrHistogram does.  Values under 32 each get their own bucket.
+ * After that, each power of two is split into 16 buckets, so a bucket's values
+ * are within about 6% of each other.  That covers every non-negative long in
+ * 960 buckets.
+ *
+ * Recording is lock-free and doesn't allocate.
+ *
+ * THREAD-SAFETY: this class is thread-safe.  A snapshot taken while values are
+ * being recorded may include some of them and not others.
+ */
+class B2LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = (Long.SIZE - 1 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    void record(long millis) {
+        // the clock could, in theory, go backwards.
+        final long value = Math.max(0, millis);
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        totalMillis.add(value);
+
+        long max = maxMillis.get();
+        while (value > max && !maxMillis.compareAndSet(max, value)) {
+            max = maxMillis.get();
+        }
+    }
+
+    long[] copyCounts() {
+        final long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Like B2MetricsSnapshot.Operation.getLatencyMillisAtPercentile(), but
+     * without taking a snapshot first.
+     *
+     * @param percentile the percentile to get, from 0 to 100.
+     * @return the latency at the given percentile, or 0 if nothing's been recorded.
+     */
+    long getMillisAtPercentile(double percentile) {
+        final long[] copy = copyCounts();
+        long copiedCount = 0;
+        for (long bucketCount : copy) {
+            copiedCount += bucketCount;
+        }
+        return valueAtPercentile(copy, copiedCount, getMaxMillis(), percentile);
+    }
+
+    /**
+     * @return how many values have been recorded.
+     */
+    long getCount() {
+        return count.sum();
+    }
+
+    long getTotalMillis() {
+        return totalMillis.sum();
+    }
+
+    long getMaxMillis() {
+        return maxMillis.get();
+    }
+
+    /**
+     * @param counts the counts in each bucket.
+     * @param count the sum of the counts.
+     * @param max the largest value that was recorded.
+     * @param percentile the percentile to get, from 0 to 100.
+     * @return the largest value in the bucket holding the given percentile,
+     *         but no more than max, or 0 if count is 0.
+     */
+    static long valueAtPercentile(long[] counts,
+                                  long count,
+                                  long max,
+                                  double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long countSoFar = 0;
+        for (int i = 0; i < counts.length; i++) {
+            countSoFar += counts[i];
+            if (countSoFar >= rank) {
+                return Math.min(highestValueAt(i), max);
+            }
+        }
+        // only reachable if the counts changed while they were being copied.
+        return max;
+    }
+
+    /**
+     * @return the index of the bucket that counts the given non-negative value.
+     */
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int highBit = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = highBit - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+    }
+
+    /**
+     * @return the smallest value counted in the given bucket.
+     */
+    static long lowestValueAt(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKET_COUNT - 1;
+        return ((long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT)) << shift;
+    }
+
+    /**
+     * @return the largest value counted in the given bucket.
+     */
+    static long highestValueAt(int index) {
+        if (index == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return lowestValueAt(index + 1) - 1;
+    }
+}
@@ -17,20 +17,30 @@ public class B2ListFileNamesIterable extends B2ListFilesIterableBase {
 
     private class Iter extends IterBase {
         private B2ListFileNamesResponse currentResponse;
+        // created by the first advance(), which is called from IterBase's constructor,
+        // so it mustn't have an initializer.
+        private B2ListingPrefetcher<B2ListFileNamesResponse> pages;
 
         Iter() throws B2Exception {
         }
 
         @Override
         protected void advance() throws B2Exception {
+            if (pages == null) {
+                pages = newPrefetcher(request.getPrefetchDepth(), this::fetchPageAfter, B2ListFileNamesResponse::atEnd);
+            }
+            currentResponse = pages.next();
+        }
+
+        private B2ListFileNamesResponse fetchPageAfter(B2ListFileNamesResponse previousOrNull) throws B2Exception {
             B2ListFileNamesRequest.Builder builder =
                     B2ListFileNamesRequest.builder(request);
 
-            if (currentResponse != null) {
-                builder.setStartFileName(currentResponse.getNextFileName());
+            if (previousOrNull != null) {
+                builder.setStartFileName(previousOrNull.getNextFileName());
             }
 
-            currentResponse = getClient().listFileNames(builder.build());
+            return getClient().listFileNames(builder.build());
         }
 
         @Override
@@ -17,6 +17,9 @@ public class B2ListFileVersionsIterable extends B2ListFilesIterableBase {
 
     private class Iter extends IterBase {
         private B2ListFileVersionsResponse currentResponse;
+        // created by the first advance(), which is called from IterBase's constructor,
+        // so it mustn't have an initializer.
+        private B2ListingPrefetcher<B2ListFileVersionsResponse> pages;
 
         Iter() throws B2Exception {
         }
@@ -28,15 +31,22 @@ public class B2ListFileVersionsIterable extends B2ListFilesIterableBase {
 
         @Override
         protected void advance() throws B2Exception {
+            if (pages == null) {
+                pages = newPrefetcher(request.getPrefetchDepth(), this::fetchPageAfter, B2ListFileVersionsResponse::atEnd);
+            }
+            currentResponse = pages.next();
+        }
+
+        private B2ListFileVersionsResponse fetchPageAfter(B2ListFileVersionsResponse previousOrNull) throws B2Exception {
             B2ListFileVersionsRequest.Builder builder =
                     B2ListFileVersionsRequest.builder(request);
 
-            if (currentResponse != null) {
-                builder.setStart(currentResponse.getNextFileName(),
-                        currentResponse.getNextFileId());
+            if (previousOrNull != null) {
+                builder.setStart(previousOrNull.getNextFileName(),
+                        previousOrNull.getNextFileId());
             }
 
-            currentResponse = getClient().listFileVersions(builder.build());
+            return getClient().listFileVersions(builder.build());
         }
     }
 
@@ -7,10 +7,25 @@ package com.backblaze.b2.client;
 
 import com.backblaze.b2.client.structures.B2FileVersion;
 
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * This interface collects the APIs we provide on our B2FileVersion iterables.
- * For now, it's just the Iterable-ness.  Someday, I expect it, or some interfaces
+ * For now, it's the Iterable-ness and streams.  Someday, I expect it, or some interfaces
  * to provide some kind of "get resume point" functionality.
+ *
+ * The iterables returned by B2StorageClient split their spliterators at page
+ * boundaries, so parallelStream() processes whole pages on the pool's threads
+ * while the listing continues, without holding the whole listing in memory.
+ * If there's any trouble fetching a page, the stream throws a B2RuntimeException.
  */
 public interface B2ListFilesIterable extends Iterable<B2FileVersion> {
+    default Stream<B2FileVersion> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    default Stream<B2FileVersion> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
 }
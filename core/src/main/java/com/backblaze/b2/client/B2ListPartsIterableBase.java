@@ -10,7 +10,11 @@ import com.backblaze.b2.client.structures.B2ListPartsResponse;
 import com.backblaze.b2.client.structures.B2Part;
 import com.backblaze.b2.util.B2Preconditions;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Predicate;
 
 public abstract class B2ListPartsIterableBase implements B2ListPartsIterable {
     private final B2StorageClientImpl b2Client;
@@ -62,6 +66,24 @@ public abstract class B2ListPartsIterableBase implements B2ListPartsIterable {
             currentIndex = 0;
         }
 
+        // returns the rest of the current page and moves on to the next one.
+        // returns an empty list when there's nothing left.
+        List<B2Part> nextPage() {
+            if (!hasNext()) {
+                return Collections.emptyList();
+            }
+
+            final List<B2Part> items = getCurrentResponseOrNull().getParts();
+            final List<B2Part> rest = items.subList(currentIndex, items.size());
+            currentIndex = items.size();
+            try {
+                advanceIfNeeded();
+            } catch (B2Exception e) {
+                throw new B2RuntimeException("failed to advance iterator: " + e.getMessage(), e);
+            }
+            return rest;
+        }
+
         // may be called when there's no current response yet.
         private int getCurrentResponseSize() {
             final B2ListPartsResponse response = getCurrentResponseOrNull();
@@ -99,10 +121,34 @@ public abstract class B2ListPartsIterableBase implements B2ListPartsIterable {
         }
     }
 
+    /**
+     * Splits at page boundaries, so parallel streams hand out whole pages.
+     * Making the iterator fetches the first page, so that waits until the
+     * stream starts.
+     */
+    @Override
+    public Spliterator<B2Part> spliterator() {
+        return B2PageSpliterator.deferred(() -> {
+            final Iterator<B2Part> iterator = iterator();
+            if (iterator instanceof IterBase) {
+                return ((IterBase) iterator)::nextPage;
+            }
+            return B2PageSpliterator.onePerPage(iterator);
+        });
+    }
+
     protected B2StorageClientImpl getClient() {
         return b2Client;
     }
 
+    // makes something to hand out the pages of a listing, reading ahead depth pages
+    // in the background if the client has a background executor.
+    <R> B2ListingPrefetcher<R> newPrefetcher(int depth,
+                                             B2ListingPrefetcher.PageFetcher<R> fetcher,
+                                             Predicate<R> isLastPage) {
+        return new B2ListingPrefetcher<>(b2Client.getBackgroundExecutorOrNull(), depth, fetcher, isLastPage);
+    }
+
     // creates a new iterator.  you should probably subclass IterBase.
     abstract Iterator<B2Part> createIter() throws B2Exception;
 }
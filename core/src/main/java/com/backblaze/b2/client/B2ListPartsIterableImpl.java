@@ -16,20 +16,30 @@ public class B2ListPartsIterableImpl extends B2ListPartsIterableBase {
 
     private class Iter extends IterBase {
         private B2ListPartsResponse currentResponse;
+        // created by the first advance(), which is called from IterBase's constructor,
+        // so it mustn't have an initializer.
+        private B2ListingPrefetcher<B2ListPartsResponse> pages;
 
         Iter() throws B2Exception {
         }
 
         @Override
         protected void advance() throws B2Exception {
+            if (pages == null) {
+                pages = newPrefetcher(request.getPrefetchDepth(), this::fetchPageAfter, B2ListPartsResponse::atEnd);
+            }
+            currentResponse = pages.next();
+        }
+
+        private B2ListPartsResponse fetchPageAfter(B2ListPartsResponse previousOrNull) throws B2Exception {
             B2ListPartsRequest.Builder builder =
                     B2ListPartsRequest.builder(request);
 
-            if (currentResponse != null) {
-                builder.setStartPartNumber(currentResponse.getNextPartNumber());
+            if (previousOrNull != null) {
+                builder.setStartPartNumber(previousOrNull.getNextPartNumber());
             }
 
-            currentResponse = getClient().listParts(builder.build());
+            return getClient().listParts(builder.build());
         }
 
         @Override
@@ -17,6 +17,9 @@ public class B2ListUnfinishedLargeFilesIterable extends B2ListFilesIterableBase
 
     private class Iter extends IterBase {
         private B2ListUnfinishedLargeFilesResponse currentResponse;
+        // created by the first advance(), which is called from IterBase's constructor,
+        // so it mustn't have an initializer.
+        private B2ListingPrefetcher<B2ListUnfinishedLargeFilesResponse> pages;
 
         Iter() throws B2Exception {
         }
@@ -28,14 +31,21 @@ public class B2ListUnfinishedLargeFilesIterable extends B2ListFilesIterableBase
 
         @Override
         protected void advance() throws B2Exception {
+            if (pages == null) {
+                pages = newPrefetcher(request.getPrefetchDepth(), this::fetchPageAfter, B2ListUnfinishedLargeFilesResponse::atEnd);
+            }
+            currentResponse = pages.next();
+        }
+
+        private B2ListUnfinishedLargeFilesResponse fetchPageAfter(B2ListUnfinishedLargeFilesResponse previousOrNull) throws B2Exception {
             B2ListUnfinishedLargeFilesRequest.Builder builder =
                     B2ListUnfinishedLargeFilesRequest.builder(request);
 
-            if (currentResponse != null) {
-                builder.setStartFileId(currentResponse.getNextFileId());
+            if (previousOrNull != null) {
+                builder.setStartFileId(previousOrNull.getNextFileId());
             }
 
-            currentResponse = getClient().listUnfinishedLargeFiles(builder.build());
+            return getClient().listUnfinishedLargeFiles(builder.build());
         }
     }
 
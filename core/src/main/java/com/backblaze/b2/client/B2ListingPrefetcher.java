@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * B2ListingPrefetcher hands out the pages of a listing one at a time and,
+ * if it has an executor and a positive depth, fetches up to depth pages
+ * past the one the caller is working on in the background.
+ *
+ * Each page's request depends on the previous page's response (that's where
+ * the "next" name or id comes from), so the background fetches happen one
+ * after another, not at the same time.  The first page is always fetched
+ * on the caller's thread.
+ *
+ * If a background fetch fails, the failure is thrown from the next call to
+ * next().  If the caller calls next() again after that, we try fetching that
+ * page again on the caller's thread.
+ *
+ * If the caller stops iterating part way through, at most depth more
+ * pages are fetched before the background work stops on its own.
+ *
+ * THREAD-SAFETY: next() should only be called from one thread at a time,
+ *   like any other Iterator.  The background fetches synchronize with it.
+ */
+class B2ListingPrefetcher<R> {
+    /**
+     * Something which fetches one page of a listing.
+     */
+    interface PageFetcher<R> {
+        /**
+         * @param previousOrNull the page before the one to fetch, or null to fetch the first page.
+         * @return the page after previousOrNull.
+         */
+        R fetch(R previousOrNull) throws B2Exception;
+    }
+
+    private final ExecutorService executorOrNull;
+    private final int depth;
+    private final PageFetcher<R> fetcher;
+    private final Predicate<R> isLastPage;
+
+    // these are protected by synchronized(this).
+    private final ArrayDeque<R> ready = new ArrayDeque<>();
+    private R lastFetchedOrNull;
+    private boolean fetching;
+    private B2Exception failureOrNull;
+
+    B2ListingPrefetcher(ExecutorService executorOrNull,
+                        int depth,
+                        PageFetcher<R> fetcher,
+                        Predicate<R> isLastPage) {
+        B2Preconditions.checkArgument(depth >= 0, "depth must not be negative");
+        this.executorOrNull = executorOrNull;
+        this.depth = (executorOrNull == null) ? 0 : depth;
+        this.fetcher = fetcher;
+        this.isLastPage = isLastPage;
+    }
+
+    /**
+     * Returns the next page.  This must not be called after it has
+     * returned a page that isLastPage.
+     */
+    synchronized R next() throws B2Exception {
+        while (ready.isEmpty() && fetching && failureOrNull == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new B2LocalException("interrupted", "interrupted while waiting for the next listing page", e);
+            }
+        }
+
+        if (failureOrNull != null) {
+            final B2Exception failure = failureOrNull;
+            failureOrNull = null;
+            throw failure;
+        }
+
+        final R page;
+        if (ready.isEmpty()) {
+            // nothing is fetching it for us, so fetch it ourselves.
+            page = fetcher.fetch(lastFetchedOrNull);
+            lastFetchedOrNull = page;
+        } else {
+            page = ready.removeFirst();
+        }
+
+        maybeFetchAnother();
+        return page;
+    }
+
+    // only call while synchronized.
+    private void maybeFetchAnother() {
+        if (depth == 0 ||
+                fetching ||
+                failureOrNull != null ||
+                ready.size() >= depth ||
+                lastFetchedOrNull == null ||
+                isLastPage.test(lastFetchedOrNull)) {
+            return;
+        }
+
+        final R previous = lastFetchedOrNull;
+        fetching = true;
+        try {
+            executorOrNull.execute(() -> fetchInBackground(previous));
+        } catch (RejectedExecutionException e) {
+            // the executor is probably shutting down.  the caller will fetch pages itself.
+            fetching = false;
+        }
+    }
+
+    private void fetchInBackground(R previous) {
+        R page = null;
+        B2Exception failure = null;
+        try {
+            page = fetcher.fetch(previous);
+        } catch (B2Exception e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new B2LocalException("trouble", "unexpected exception while fetching a listing page: " + e, e);
+        }
+
+        synchronized (this) {
+            fetching = false;
+            if (failure != null) {
+                failureOrNull = failure;
+            } else {
+                ready.addLast(page);
+                lastFetchedOrNull = page;
+                maybeFetchAnother();
+            }
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+/**
+ * B2Metrics is told about each attempt the client makes and about the bytes
+ * it transfers.  Set one with B2ClientConfig.Builder.setMetricsOrNull().
+ *
+ * The operation names are the ones B2Retryer and B2RetryPolicy see, which are
+ * *usually* the names of b2 operations, such as "b2_upload_file".
+ *
+ * Every attempt is reported with attemptStarted() and then either
+ * attemptSucceeded() or attemptFailed().  When an attempt fails and the
+ * B2RetryPolicy decides to try again, retrying() is called before waiting.
+ *
+ * The last few methods report individual events, with more detail than
+ * it makes sense to aggregate: each http request, each large file part,
+ * each upload url cache lookup, and each hedged request.  They're meant for
+ * forwarding to a tracing or event recording system, such as Java Flight
+ * Recorder events committed from an implementation of this interface.
+ * B2DefaultMetrics ignores them.
+ *
+ * These are called on the threads making the requests, so implementations
+ * must be thread-safe and quick.  B2DefaultMetrics is a lock-free implementation
+ * that aggregates the attempts and bytes and can take a snapshot.  All methods do nothing
+ * by default, so implementations only need to override the ones they want.
+ * When no B2Metrics is configured, the client doesn't install the wrappers
+ * that count bytes and time web requests, so it costs next to nothing.
+ */
+public interface B2Metrics {
+    /**
+     * Called right before an attempt.
+     *
+     * @param operation the name of what is being attempted.
+     */
+    @SuppressWarnings("unused")
+    default void attemptStarted(String operation) {
+    }
+
+    /**
+     * Called when an attempt returns without an exception.
+     *
+     * @param operation the name of what was attempted.
+     * @param tookMillis how long the attempt took.
+     */
+    @SuppressWarnings("unused")
+    default void attemptSucceeded(String operation,
+                                  long tookMillis) {
+    }
+
+    /**
+     * Called when an attempt throws, whether or not it will be retried.
+     *
+     * @param operation the name of what was attempted.
+     * @param tookMillis how long the attempt took.
+     * @param t what the attempt threw.
+     */
+    @SuppressWarnings("unused")
+    default void attemptFailed(String operation,
+                               long tookMillis,
+                               Throwable t) {
+    }
+
+    /**
+     * Called when the retry policy has decided to try again after a failed attempt.
+     *
+     * @param operation the name of what is being retried.
+     * @param attemptsSoFar how many attempts have been made so far.
+     * @param e the retryable exception from the last attempt.
+     */
+    @SuppressWarnings("unused")
+    default void retrying(String operation,
+                          int attemptsSoFar,
+                          Exception e) {
+    }
+
+    /**
+     * Called when an upload succeeds.  Failed uploads aren't counted.
+     *
+     * @param operation "b2_upload_file" or "b2_upload_part".
+     * @param byteCount how many bytes of content were uploaded.
+     */
+    @SuppressWarnings("unused")
+    default void uploaded(String operation,
+                          long byteCount) {
+    }
+
+    /**
+     * Called when a download's content sink returns or throws.  The count
+     * includes the bytes the sink read before any failure.
+     *
+     * @param operation "b2_download_file_by_id" or "b2_download_file_by_name".
+     * @param byteCount how many bytes of content the sink read.
+     */
+    @SuppressWarnings("unused")
+    default void downloaded(String operation,
+                            long byteCount) {
+    }
+
+    /**
+     * Called when a B2WebApiClient request finishes, successfully or not.
+     * This is only called for clients made by B2StorageHttpClientBuilder,
+     * or for B2WebApiClients wrapped in a B2MetricsWebApiClient.
+     *
+     * @param category the b2 api the url is for, such as "b2_list_file_names",
+     *                 or "other" if it can't be told from the url.
+     * @param status 200 for requests that succeeded, or the status of the
+     *               B2Exception for ones that didn't.  that status is made up
+     *               locally for network trouble.
+     * @param requestBytes how many bytes of content were posted, or 0 for json requests.
+     * @param responseBytes how many bytes of content the sink read, or 0 for json responses.
+     * @param tookMillis how long the request took.
+     */
+    @SuppressWarnings("unused")
+    default void webRequestFinished(String category,
+                                    int status,
+                                    long requestBytes,
+                                    long responseBytes,
+                                    long tookMillis) {
+    }
+
+    /**
+     * Called when a part of a large file has been stored, or given up on.
+     * The time includes all of the attempts to store it.
+     *
+     * @param operation "b2_upload_part" or "b2_copy_part".
+     * @param largeFileId the large file the part is for.
+     * @param partNumber the part's number.
+     * @param byteCount the part's size, or -1 if it's not known (for a copy that failed).
+     * @param tookMillis how long storing the part took.
+     * @param succeeded true iff the part was stored.
+     */
+    @SuppressWarnings("unused")
+    default void partFinished(String operation,
+                              String largeFileId,
+                              int partNumber,
+                              long byteCount,
+                              long tookMillis,
+                              boolean succeeded) {
+    }
+
+    /**
+     * Called when an upload url is wanted for the first attempt at an
+     * upload.  (Retries always get a new url, so they aren't reported.)
+     *
+     * @param operation "b2_get_upload_url" or "b2_get_upload_part_url".
+     * @param hit true iff there was a cached url to use.
+     */
+    @SuppressWarnings("unused")
+    default void uploadUrlCacheLookup(String operation,
+                                      boolean hit) {
+    }
+
+    /**
+     * Called when a hedged request finishes, if a hedge was sent.
+     * See B2HedgePolicy.
+     *
+     * @param operation the operation that was hedged, such as "b2_get_file_info".
+     * @param hedgeWon true iff the hedge responded before the attempt it was hedging.
+     */
+    @SuppressWarnings("unused")
+    default void hedged(String operation,
+                        boolean hedgeWon) {
+    }
+}
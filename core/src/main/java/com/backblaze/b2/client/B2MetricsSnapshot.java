@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * B2MetricsSnapshot holds what a B2DefaultMetrics had counted when
+ * snapshot() was called.
+ *
+ * THREAD-SAFETY: this class is immutable.
+ */
+public class B2MetricsSnapshot {
+    private final Map<String, Operation> operations;
+    private final Map<String, Long> retriesByExceptionType;
+
+    B2MetricsSnapshot(Map<String, Operation> operations,
+                      Map<String, Long> retriesByExceptionType) {
+        this.operations = Collections.unmodifiableMap(new TreeMap<>(operations));
+        this.retriesByExceptionType = Collections.unmodifiableMap(new TreeMap<>(retriesByExceptionType));
+    }
+
+    /**
+     * @return the metrics for each operation that's been attempted, by operation name.
+     */
+    public Map<String, Operation> getOperations() {
+        return operations;
+    }
+
+    /**
+     * @return the metrics for the given operation, or null if it hasn't been attempted.
+     */
+    public Operation getOperationOrNull(String operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * @return how many times each type of exception has been retried, by the
+     *         exception class's simple name, such as "B2ServiceUnavailableException".
+     */
+    public Map<String, Long> getRetriesByExceptionType() {
+        return retriesByExceptionType;
+    }
+
+    public long getBytesUploaded() {
+        return operations.values().stream().mapToLong(Operation::getBytesUploaded).sum();
+    }
+
+    public long getBytesDownloaded() {
+        return operations.values().stream().mapToLong(Operation::getBytesDownloaded).sum();
+    }
+
+    /**
+     * Operation holds the metrics for one operation.
+     */
+    public static class Operation {
+        private final long succeededCount;
+        private final long failedCount;
+        private final long inFlightCount;
+        private final long retryCount;
+        private final long bytesUploaded;
+        private final long bytesDownloaded;
+        private final long[] latencyCounts;
+        private final long latencyCount;
+        private final long totalLatencyMillis;
+        private final long maxLatencyMillis;
+
+        Operation(long succeededCount,
+                  long failedCount,
+                  long inFlightCount,
+                  long retryCount,
+                  long bytesUploaded,
+                  long bytesDownloaded,
+                  long[] latencyCounts,
+                  long totalLatencyMillis,
+                  long maxLatencyMillis) {
+            this.succeededCount = succeededCount;
+            this.failedCount = failedCount;
+            this.inFlightCount = inFlightCount;
+            this.retryCount = retryCount;
+            this.bytesUploaded = bytesUploaded;
+            this.bytesDownloaded = bytesDownloaded;
+            this.latencyCounts = latencyCounts;
+            this.totalLatencyMillis = totalLatencyMillis;
+            this.maxLatencyMillis = maxLatencyMillis;
+
+            long count = 0;
+            for (long bucketCount : latencyCounts) {
+                count += bucketCount;
+            }
+            this.latencyCount = count;
+        }
+
+        /**
+         * @return how many attempts returned without an exception.
+         */
+        public long getSucceededCount() {
+            return succeededCount;
+        }
+
+        /**
+         * @return how many attempts threw, including ones that were retried.
+         */
+        public long getFailedCount() {
+            return failedCount;
+        }
+
+        /**
+         * @return how many attempts were in progress.
+         */
+        public long getInFlightCount() {
+            return inFlightCount;
+        }
+
+        /**
+         * @return how many times a failed attempt was retried.
+         */
+        public long getRetryCount() {
+            return retryCount;
+        }
+
+        public long getBytesUploaded() {
+            return bytesUploaded;
+        }
+
+        public long getBytesDownloaded() {
+            return bytesDownloaded;
+        }
+
+        /**
+         * @return the mean latency of finished attempts, or 0 if there haven't been any.
+         */
+        public double getMeanLatencyMillis() {
+            return (latencyCount == 0) ? 0 : ((double) totalLatencyMillis) / latencyCount;
+        }
+
+        public long getMaxLatencyMillis() {
+            return maxLatencyMillis;
+        }
+
+        /**
+         * The latencies of finished attempts, successful or not, are counted in
+         * buckets, so this is the largest latency in the bucket holding the given
+         * percentile.  It's within about 6% of the real value, and never more
+         * than the maximum.
+         *
+         * @param percentile the percentile to get, from 0 to 100, such as 99.9.
+         * @return the latency in milliseconds at the given percentile, or 0 if
+         *         there haven't been any attempts.
+         */
+        public long getLatencyMillisAtPercentile(double percentile) {
+            B2Preconditions.checkArgument(0 <= percentile && percentile <= 100,
+                    "percentile must be between 0 and 100");
+            return B2LatencyHistogram.valueAtPercentile(latencyCounts, latencyCount, maxLatencyMillis, percentile);
+        }
+    }
+}
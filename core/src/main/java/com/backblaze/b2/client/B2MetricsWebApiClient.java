@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentHandlers.B2ContentSink;
+import com.backblaze.b2.client.contentSources.B2Headers;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.webApiClients.B2WebApiClient;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2InputStreamWithByteProgressListener;
+
+import java.io.InputStream;
+
+/**
+ * B2MetricsWebApiClient wraps another B2WebApiClient and tells a B2Metrics
+ * about each request with webRequestFinished().  B2StorageHttpClientBuilder
+ * wraps its B2WebApiClient in one of these when the B2ClientConfig has a
+ * B2Metrics.
+ *
+ * THREAD-SAFETY: this class is as thread-safe as the client it wraps.
+ */
+public class B2MetricsWebApiClient implements B2WebApiClient {
+    private static final B2Clock clock = B2Clock.get();
+
+    private static final int OK = 200;
+    private static final String API_PATH = "/b2api/";
+    private static final String FILE_PATH = "/file/";
+
+    private final B2WebApiClient webApiClient;
+    private final B2Metrics metrics;
+
+    public B2MetricsWebApiClient(B2WebApiClient webApiClient,
+                                 B2Metrics metrics) {
+        this.webApiClient = webApiClient;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public <ResponseType> ResponseType postJsonReturnJson(String url,
+                                                          B2Headers headersOrNull,
+                                                          Object request,
+                                                          Class<ResponseType> responseClass) throws B2Exception {
+        final long startMillis = clock.monotonicMillis();
+        int status = OK;
+        try {
+            return webApiClient.postJsonReturnJson(url, headersOrNull, request, responseClass);
+        } catch (B2Exception e) {
+            status = e.getStatus();
+            throw e;
+        } finally {
+            metrics.webRequestFinished(categoryOf(url, "other"), status, 0, 0, clock.monotonicMillis() - startMillis);
+        }
+    }
+
+    @Override
+    public <ResponseType> ResponseType postDataReturnJson(String url,
+                                                          B2Headers headersOrNull,
+                                                          InputStream contentSource,
+                                                          long contentLength,
+                                                          Class<ResponseType> responseClass) throws B2Exception {
+        final long startMillis = clock.monotonicMillis();
+        int status = OK;
+        try {
+            return webApiClient.postDataReturnJson(url, headersOrNull, contentSource, contentLength, responseClass);
+        } catch (B2Exception e) {
+            status = e.getStatus();
+            throw e;
+        } finally {
+            metrics.webRequestFinished(categoryOf(url, "other"), status, contentLength, 0, clock.monotonicMillis() - startMillis);
+        }
+    }
+
+    @Override
+    public void getContent(String url,
+                           B2Headers headersOrNull,
+                           B2ContentSink handler) throws B2Exception {
+        final long startMillis = clock.monotonicMillis();
+        final B2MetricsWebifier.ByteCounter counter = new B2MetricsWebifier.ByteCounter();
+        int status = OK;
+        try {
+            webApiClient.getContent(url, headersOrNull, (responseHeaders, in) ->
+                    handler.readContent(responseHeaders, new B2InputStreamWithByteProgressListener(in, counter)));
+        } catch (B2Exception e) {
+            status = e.getStatus();
+            throw e;
+        } finally {
+            metrics.webRequestFinished(categoryOf(url, "b2_download_file_by_name"), status, 0, counter.getByteCount(),
+                    clock.monotonicMillis() - startMillis);
+        }
+    }
+
+    @Override
+    public B2Headers head(String url,
+                          B2Headers headersOrNull) throws B2Exception {
+        final long startMillis = clock.monotonicMillis();
+        int status = OK;
+        try {
+            return webApiClient.head(url, headersOrNull);
+        } catch (B2Exception e) {
+            status = e.getStatus();
+            throw e;
+        } finally {
+            metrics.webRequestFinished(categoryOf(url, "b2_get_file_info_by_name"), status, 0, 0, clock.monotonicMillis() - startMillis);
+        }
+    }
+
+    @Override
+    public void close() {
+        webApiClient.close();
+    }
+
+    /**
+     * Api urls look like "https://api000.backblazeb2.com/b2api/v2/b2_list_file_names",
+     * and upload urls have more after the api name.  Download-by-name urls look like
+     * "https://f000.backblazeb2.com/file/bucketName/fileName".
+     *
+     * @param url the url of a request.
+     * @param fileCategory the category for "/file/" urls.
+     * @return the category of the url.
+     */
+    static String categoryOf(String url,
+                             String fileCategory) {
+        // file names can have anything in them, so whichever comes first counts.
+        final int apiStart = url.indexOf(API_PATH);
+        final int fileStart = url.indexOf(FILE_PATH);
+        if (fileStart >= 0 && (apiStart < 0 || fileStart < apiStart)) {
+            return fileCategory;
+        }
+        if (apiStart >= 0) {
+            // skip the version.
+            final int versionEnd = url.indexOf('/', apiStart + API_PATH.length());
+            if (versionEnd >= 0) {
+                int nameEnd = versionEnd + 1;
+                while (nameEnd < url.length() && url.charAt(nameEnd) != '/' && url.charAt(nameEnd) != '?') {
+                    nameEnd++;
+                }
+                if (nameEnd > versionEnd + 1) {
+                    return url.substring(versionEnd + 1, nameEnd);
+                }
+            }
+        }
+        return "other";
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentHandlers.B2ContentSink;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.structures.B2AccountAuthorization;
+import com.backblaze.b2.client.structures.B2ApplicationKey;
+import com.backblaze.b2.client.structures.B2AuthorizeAccountRequest;
+import com.backblaze.b2.client.structures.B2Bucket;
+import com.backblaze.b2.client.structures.B2CancelLargeFileRequest;
+import com.backblaze.b2.client.structures.B2CancelLargeFileResponse;
+import com.backblaze.b2.client.structures.B2CopyFileRequest;
+import com.backblaze.b2.client.structures.B2CopyPartRequest;
+import com.backblaze.b2.client.structures.B2CreateBucketRequestReal;
+import com.backblaze.b2.client.structures.B2CreateKeyRequestReal;
+import com.backblaze.b2.client.structures.B2CreatedApplicationKey;
+import com.backblaze.b2.client.structures.B2DeleteBucketRequestReal;
+import com.backblaze.b2.client.structures.B2DeleteFileVersionRequest;
+import com.backblaze.b2.client.structures.B2DeleteFileVersionResponse;
+import com.backblaze.b2.client.structures.B2DeleteKeyRequest;
+import com.backblaze.b2.client.structures.B2DownloadAuthorization;
+import com.backblaze.b2.client.structures.B2DownloadByIdRequest;
+import com.backblaze.b2.client.structures.B2DownloadByNameRequest;
+import com.backblaze.b2.client.structures.B2FileVersion;
+import com.backblaze.b2.client.structures.B2FinishLargeFileRequest;
+import com.backblaze.b2.client.structures.B2GetBucketNotificationRulesRequest;
+import com.backblaze.b2.client.structures.B2GetBucketNotificationRulesResponse;
+import com.backblaze.b2.client.structures.B2GetDownloadAuthorizationRequest;
+import com.backblaze.b2.client.structures.B2GetFileInfoByNameRequest;
+import com.backblaze.b2.client.structures.B2GetFileInfoRequest;
+import com.backblaze.b2.client.structures.B2GetUploadPartUrlRequest;
+import com.backblaze.b2.client.structures.B2GetUploadUrlRequest;
+import com.backblaze.b2.client.structures.B2HideFileRequest;
+import com.backblaze.b2.client.structures.B2ListBucketsRequest;
+import com.backblaze.b2.client.structures.B2ListBucketsResponse;
+import com.backblaze.b2.client.structures.B2ListFileNamesRequest;
+import com.backblaze.b2.client.structures.B2ListFileNamesResponse;
+import com.backblaze.b2.client.structures.B2ListFileVersionsRequest;
+import com.backblaze.b2.client.structures.B2ListFileVersionsResponse;
+import com.backblaze.b2.client.structures.B2ListKeysRequestReal;
+import com.backblaze.b2.client.structures.B2ListKeysResponse;
+import com.backblaze.b2.client.structures.B2ListPartsRequest;
+import com.backblaze.b2.client.structures.B2ListPartsResponse;
+import com.backblaze.b2.client.structures.B2ListUnfinishedLargeFilesRequest;
+import com.backblaze.b2.client.structures.B2ListUnfinishedLargeFilesResponse;
+import com.backblaze.b2.client.structures.B2Part;
+import com.backblaze.b2.client.structures.B2SetBucketNotificationRulesRequest;
+import com.backblaze.b2.client.structures.B2SetBucketNotificationRulesResponse;
+import com.backblaze.b2.client.structures.B2StartLargeFileRequest;
+import com.backblaze.b2.client.structures.B2UpdateBucketRequest;
+import com.backblaze.b2.client.structures.B2UpdateFileLegalHoldRequest;
+import com.backblaze.b2.client.structures.B2UpdateFileLegalHoldResponse;
+import com.backblaze.b2.client.structures.B2UpdateFileRetentionRequest;
+import com.backblaze.b2.client.structures.B2UpdateFileRetentionResponse;
+import com.backblaze.b2.client.structures.B2UploadFileRequest;
+import com.backblaze.b2.client.structures.B2UploadPartRequest;
+import com.backblaze.b2.client.structures.B2UploadPartUrlResponse;
+import com.backblaze.b2.client.structures.B2UploadUrlResponse;
+import com.backblaze.b2.util.B2ByteProgressListener;
+import com.backblaze.b2.util.B2InputStreamWithByteProgressListener;
+
+/**
+ * B2MetricsWebifier wraps another webifier and tells a B2Metrics how many
+ * bytes each upload and download transferred.  (B2Retryer tells it about
+ * the attempts.)
+ *
+ * All other calls are passed straight through to the wrapped webifier.
+ *
+ * THREAD-SAFETY: this class is as thread-safe as the webifier it wraps.
+ */
+class B2MetricsWebifier implements B2StorageClientWebifier {
+    private final B2StorageClientWebifier webifier;
+    private final B2Metrics metrics;
+
+    B2MetricsWebifier(B2StorageClientWebifier webifier,
+                      B2Metrics metrics) {
+        this.webifier = webifier;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return a sink that passes the content to the given sink and then
+     *         reports how much of it that sink read.
+     */
+    private B2ContentSink counting(String operation,
+                                   B2ContentSink sink) {
+        return (responseHeaders, in) -> {
+            final ByteCounter counter = new ByteCounter();
+            try {
+                sink.readContent(responseHeaders, new B2InputStreamWithByteProgressListener(in, counter));
+            } finally {
+                metrics.downloaded(operation, counter.getByteCount());
+            }
+        };
+    }
+
+    /**
+     * ByteCounter remembers how many bytes have been read from a stream.
+     */
+    static class ByteCounter implements B2ByteProgressListener {
+        private long nBytesSoFar;
+
+        long getByteCount() {
+            return nBytesSoFar;
+        }
+
+        @Override
+        public void progress(long nBytesSoFar) {
+            this.nBytesSoFar = nBytesSoFar;
+        }
+
+        @Override
+        public void hitException(Exception e, long nBytesSoFar) {
+            this.nBytesSoFar = nBytesSoFar;
+        }
+
+        @Override
+        public void reachedEof(long nBytesSoFar) {
+            this.nBytesSoFar = nBytesSoFar;
+        }
+    }
+
+    @Override
+    public B2AccountAuthorization authorizeAccount(B2AuthorizeAccountRequest request) throws B2Exception {
+        return webifier.authorizeAccount(request);
+    }
+
+    @Override
+    public B2Bucket createBucket(B2AccountAuthorization accountAuth,
+                                 B2CreateBucketRequestReal request) throws B2Exception {
+        return webifier.createBucket(accountAuth, request);
+    }
+
+    @Override
+    public B2CreatedApplicationKey createKey(B2AccountAuthorization accountAuth,
+                                             B2CreateKeyRequestReal request) throws B2Exception {
+        return webifier.createKey(accountAuth, request);
+    }
+
+    @Override
+    public B2ListKeysResponse listKeys(B2AccountAuthorization accountAuth,
+                                       B2ListKeysRequestReal request) throws B2Exception {
+        return webifier.listKeys(accountAuth, request);
+    }
+
+    @Override
+    public B2ApplicationKey deleteKey(B2AccountAuthorization accountAuth,
+                                      B2DeleteKeyRequest request) throws B2Exception {
+        return webifier.deleteKey(accountAuth, request);
+    }
+
+    @Override
+    public B2ListBucketsResponse listBuckets(B2AccountAuthorization accountAuth,
+                                             B2ListBucketsRequest request) throws B2Exception {
+        return webifier.listBuckets(accountAuth, request);
+    }
+
+    @Override
+    public B2UploadUrlResponse getUploadUrl(B2AccountAuthorization accountAuth,
+                                            B2GetUploadUrlRequest request) throws B2Exception {
+        return webifier.getUploadUrl(accountAuth, request);
+    }
+
+    @Override
+    public B2UploadPartUrlResponse getUploadPartUrl(B2AccountAuthorization accountAuth,
+                                                    B2GetUploadPartUrlRequest request) throws B2Exception {
+        return webifier.getUploadPartUrl(accountAuth, request);
+    }
+
+    @Override
+    public B2FileVersion uploadFile(B2UploadUrlResponse uploadUrlResponse,
+                                    B2UploadFileRequest request) throws B2Exception {
+        final B2FileVersion version = webifier.uploadFile(uploadUrlResponse, request);
+        metrics.uploaded("b2_upload_file", version.getContentLength());
+        return version;
+    }
+
+    @Override
+    public B2FileVersion copyFile(B2AccountAuthorization accountAuth,
+                                  B2CopyFileRequest request) throws B2Exception {
+        return webifier.copyFile(accountAuth, request);
+    }
+
+    @Override
+    public B2Part uploadPart(B2UploadPartUrlResponse uploadPartUrlResponse,
+                             B2UploadPartRequest request) throws B2Exception {
+        final B2Part part = webifier.uploadPart(uploadPartUrlResponse, request);
+        metrics.uploaded("b2_upload_part", part.getContentLength());
+        return part;
+    }
+
+    @Override
+    public B2Part copyPart(B2AccountAuthorization accountAuth,
+                           B2CopyPartRequest request) throws B2Exception {
+        return webifier.copyPart(accountAuth, request);
+    }
+
+    @Override
+    public B2ListFileVersionsResponse listFileVersions(B2AccountAuthorization accountAuth,
+                                                       B2ListFileVersionsRequest request) throws B2Exception {
+        return webifier.listFileVersions(accountAuth, request);
+    }
+
+    @Override
+    public B2ListFileNamesResponse listFileNames(B2AccountAuthorization accountAuth,
+                                                 B2ListFileNamesRequest request) throws B2Exception {
+        return webifier.listFileNames(accountAuth, request);
+    }
+
+    @Override
+    public B2ListUnfinishedLargeFilesResponse listUnfinishedLargeFiles(B2AccountAuthorization accountAuth,
+                                                                       B2ListUnfinishedLargeFilesRequest request) throws B2Exception {
+        return webifier.listUnfinishedLargeFiles(accountAuth, request);
+    }
+
+    @Override
+    public B2FileVersion startLargeFile(B2AccountAuthorization accountAuth,
+                                        B2StartLargeFileRequest request) throws B2Exception {
+        return webifier.startLargeFile(accountAuth, request);
+    }
+
+    @Override
+    public B2FileVersion finishLargeFile(B2AccountAuthorization accountAuth,
+                                         B2FinishLargeFileRequest request) throws B2Exception {
+        return webifier.finishLargeFile(accountAuth, request);
+    }
+
+    @Override
+    public B2CancelLargeFileResponse cancelLargeFile(B2AccountAuthorization accountAuth,
+                                                     B2CancelLargeFileRequest request) throws B2Exception {
+        return webifier.cancelLargeFile(accountAuth, request);
+    }
+
+    @Override
+    public void downloadById(B2AccountAuthorization accountAuth,
+                             B2DownloadByIdRequest request,
+                             B2ContentSink handler) throws B2Exception {
+        webifier.downloadById(accountAuth, request, counting("b2_download_file_by_id", handler));
+    }
+
+    @Override
+    public void downloadByName(B2AccountAuthorization accountAuth,
+                               B2DownloadByNameRequest request,
+                               B2ContentSink handler) throws B2Exception {
+        webifier.downloadByName(accountAuth, request, counting("b2_download_file_by_name", handler));
+    }
+
+    @Override
+    public B2DeleteFileVersionResponse deleteFileVersion(B2AccountAuthorization accountAuth,
+                                                         B2DeleteFileVersionRequest request) throws B2Exception {
+        return webifier.deleteFileVersion(accountAuth, request);
+    }
+
+    @Override
+    public B2DownloadAuthorization getDownloadAuthorization(B2AccountAuthorization accountAuth,
+                                                            B2GetDownloadAuthorizationRequest request) throws B2Exception {
+        return webifier.getDownloadAuthorization(accountAuth, request);
+    }
+
+    @Override
+    public B2FileVersion getFileInfo(B2AccountAuthorization accountAuth,
+                                     B2GetFileInfoRequest request) throws B2Exception {
+        return webifier.getFileInfo(accountAuth, request);
+    }
+
+    @Override
+    public B2FileVersion getFileInfoByName(B2AccountAuthorization accountAuth,
+                                           B2GetFileInfoByNameRequest request) throws B2Exception {
+        return webifier.getFileInfoByName(accountAuth, request);
+    }
+
+    @Override
+    public B2FileVersion hideFile(B2AccountAuthorization accountAuth,
+                                  B2HideFileRequest request) throws B2Exception {
+        return webifier.hideFile(accountAuth, request);
+    }
+
+    @Override
+    public B2Bucket updateBucket(B2AccountAuthorization accountAuth,
+                                 B2UpdateBucketRequest request) throws B2Exception {
+        return webifier.updateBucket(accountAuth, request);
+    }
+
+    @Override
+    public B2Bucket deleteBucket(B2AccountAuthorization accountAuth,
+                                 B2DeleteBucketRequestReal request) throws B2Exception {
+        return webifier.deleteBucket(accountAuth, request);
+    }
+
+    @Override
+    public B2ListPartsResponse listParts(B2AccountAuthorization b2AccountAuthorization,
+                                         B2ListPartsRequest request) throws B2Exception {
+        return webifier.listParts(b2AccountAuthorization, request);
+    }
+
+    @Override
+    public String getDownloadByIdUrl(B2AccountAuthorization accountAuth,
+                                     B2DownloadByIdRequest request) throws B2Exception {
+        return webifier.getDownloadByIdUrl(accountAuth, request);
+    }
+
+    @Override
+    public String getDownloadByNameUrl(B2AccountAuthorization accountAuth,
+                                       B2DownloadByNameRequest request) throws B2Exception {
+        return webifier.getDownloadByNameUrl(accountAuth, request);
+    }
+
+    @Override
+    public B2UpdateFileLegalHoldResponse updateFileLegalHold(B2AccountAuthorization accountAuth,
+                                                             B2UpdateFileLegalHoldRequest request) throws B2Exception {
+        return webifier.updateFileLegalHold(accountAuth, request);
+    }
+
+    @Override
+    public B2UpdateFileRetentionResponse updateFileRetention(B2AccountAuthorization accountAuth,
+                                                             B2UpdateFileRetentionRequest request) throws B2Exception {
+        return webifier.updateFileRetention(accountAuth, request);
+    }
+
+    @Override
+    public B2SetBucketNotificationRulesResponse setBucketNotificationRules(B2AccountAuthorization accountAuth,
+                                                                           B2SetBucketNotificationRulesRequest request) throws B2Exception {
+        return webifier.setBucketNotificationRules(accountAuth, request);
+    }
+
+    @Override
+    public B2GetBucketNotificationRulesResponse getBucketNotificationRules(B2AccountAuthorization accountAuth,
+                                                                           B2GetBucketNotificationRulesRequest request) throws B2Exception {
+        return webifier.getBucketNotificationRules(accountAuth, request);
+    }
+
+    @Override
+    public void close() {
+        webifier.close();
+    }
+}
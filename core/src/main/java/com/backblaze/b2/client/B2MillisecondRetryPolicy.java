@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+
+/**
+ * A B2MillisecondRetryPolicy is a B2RetryPolicy that says how long to wait
+ * in milliseconds instead of seconds, and that may also wait a little before
+ * the retries that would otherwise happen immediately.
+ *
+ * B2Retryer calls gotRetryableAfterDelayMillis() instead of
+ * gotRetryableAfterDelay() for policies that implement this interface.
+ */
+public interface B2MillisecondRetryPolicy extends B2RetryPolicy {
+    /**
+     * Just like gotRetryableAfterDelay(), except that it returns the
+     * number of milliseconds to sleep before trying again, or null to stop.
+     *
+     * @param operation the name of what is being retried.  *usually* the name of a b2 operation.
+     * @param attemptsSoFar how many times have we called callable.call() so far?
+     * @param tookMillis     how long did this attempt take?
+     * @param e             the retryable exception.
+     * @return null to stop trying OR the number of milliseconds to sleep before trying again.
+     */
+    Long gotRetryableAfterDelayMillis(String operation,
+                                      int attemptsSoFar,
+                                      long tookMillis,
+                                      B2Exception e);
+
+    /**
+     * Called after gotRetryableImmediately() has returned true.
+     *
+     * @param operation the name of what is being retried.  *usually* the name of a b2 operation.
+     * @param attemptsSoFar how many times have we called callable.call() so far?
+     * @return how many milliseconds to sleep before trying again.
+     */
+    @SuppressWarnings("unused")
+    default long getImmediateRetryDelayMillis(String operation,
+                                              int attemptsSoFar) {
+        return 0;
+    }
+
+    /**
+     * Rounds gotRetryableAfterDelayMillis() up to whole seconds, for callers
+     * that only know about B2RetryPolicy.
+     */
+    @Override
+    default Integer gotRetryableAfterDelay(String operation,
+                                           int attemptsSoFar,
+                                           long tookMillis,
+                                           B2Exception e) {
+        final Long millis = gotRetryableAfterDelayMillis(operation, attemptsSoFar, tookMillis, e);
+        return (millis == null) ? null : (int) ((millis + 999) / 1000);
+    }
+}
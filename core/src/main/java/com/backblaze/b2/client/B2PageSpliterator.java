@@ -0,0 +1,273 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * B2PageSpliterator is a Spliterator over the items of a paged listing.
+ *
+ * Splitting hands off whatever is left of the current page (fetching the
+ * next page first if the current one is used up) as a SIZED spliterator
+ * over just that page, and keeps the rest of the listing for itself.  So a
+ * parallel stream fans the pages out to its workers while one thread at a
+ * time walks the listing.
+ *
+ * We don't know how many items there are until we've fetched the last page,
+ * so this spliterator isn't SIZED, but the pages it splits off are.  That
+ * means a parallel stream keeps splitting until the listing runs out, so to
+ * keep it from fetching the whole listing while the workers are busy,
+ * trySplit() waits while maxPagesAhead of the pages it has split off haven't
+ * been finished yet.  It doesn't wait if nobody is working on those pages,
+ * which happens when the stream has been short-circuited, so the split-off
+ * pages that are held in memory are usually limited to maxPagesAhead.
+ *
+ * THREAD-SAFETY: like any Spliterator, this should only be used by one
+ *   thread at a time.  The pages it splits off may be used by other threads.
+ */
+class B2PageSpliterator<T> implements Spliterator<T> {
+    private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.NONNULL;
+
+    // enough to keep every core busy, with a page waiting for each of them.
+    static final int DEFAULT_MAX_PAGES_AHEAD = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    // if no items of the split-off pages are consumed for this long, we stop
+    // waiting for them to be finished.
+    private static final long STALL_MILLIS = 1000;
+
+    /**
+     * Something which hands out the pages of a listing.
+     */
+    interface PageSource<T> {
+        /**
+         * @return the next page, or an empty list if there are no more.
+         *         it may throw a B2RuntimeException if there's trouble.
+         */
+        List<T> nextPage();
+    }
+
+    private final PageSource<T> source;
+    private final Window window;
+    private List<T> page = Collections.emptyList();
+    private int index;
+    private boolean atEnd;
+
+    B2PageSpliterator(PageSource<T> source) {
+        this(source, DEFAULT_MAX_PAGES_AHEAD);
+    }
+
+    B2PageSpliterator(PageSource<T> source,
+                      int maxPagesAhead) {
+        B2Preconditions.checkArgument(maxPagesAhead > 0, "maxPagesAhead must be positive");
+        this.source = source;
+        this.window = new Window(maxPagesAhead);
+    }
+
+    /**
+     * @param sourceSupplier makes the source.  it isn't called until the first
+     *                       page is needed, because making a source usually
+     *                       means fetching the first page.
+     * @return a spliterator over the pages of the source.
+     */
+    static <T> B2PageSpliterator<T> deferred(Supplier<PageSource<T>> sourceSupplier) {
+        return new B2PageSpliterator<>(new PageSource<T>() {
+            private PageSource<T> sourceOrNull;
+
+            @Override
+            public List<T> nextPage() {
+                if (sourceOrNull == null) {
+                    sourceOrNull = sourceSupplier.get();
+                }
+                return sourceOrNull.nextPage();
+            }
+        });
+    }
+
+    /**
+     * @return a source that hands out the iterator's items one per page, for
+     *         iterators that don't know about pages.
+     */
+    static <T> PageSource<T> onePerPage(Iterator<T> iterator) {
+        return () -> iterator.hasNext() ? Collections.singletonList(iterator.next()) : Collections.emptyList();
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (index >= page.size()) {
+            if (!fetchPage()) {
+                return false;
+            }
+        }
+        action.accept(page.get(index));
+        index++;
+        return true;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (index >= page.size()) {
+            waitForRoom();
+            if (!fetchPage()) {
+                return null;
+            }
+        }
+        final List<T> rest = page.subList(index, page.size());
+        page = Collections.emptyList();
+        index = 0;
+        window.pageSplitOff();
+        return new SplitPage<>(Spliterators.spliterator(rest, CHARACTERISTICS), window);
+    }
+
+    @Override
+    public long estimateSize() {
+        return atEnd ? (page.size() - index) : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+
+    // returns false if there are no more pages.
+    private boolean fetchPage() {
+        if (atEnd) {
+            return false;
+        }
+        page = source.nextPage();
+        index = 0;
+        if (page.isEmpty()) {
+            atEnd = true;
+            return false;
+        }
+        return true;
+    }
+
+    private void waitForRoom() {
+        try {
+            // we're probably on one of a ForkJoinPool's threads, so let it
+            // know we're blocked, in case it needs another thread to finish
+            // the pages we're waiting for.
+            ForkJoinPool.managedBlock(window);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Keeps track of the pages that have been split off and aren't finished.
+     */
+    private static class Window implements ForkJoinPool.ManagedBlocker {
+        private final int maxPagesAhead;
+        private final LongAdder itemsConsumed = new LongAdder();
+
+        // guarded by synchronized(this).
+        private int unfinishedPages;
+
+        private Window(int maxPagesAhead) {
+            this.maxPagesAhead = maxPagesAhead;
+        }
+
+        private synchronized void pageSplitOff() {
+            unfinishedPages++;
+        }
+
+        private synchronized void pageFinished() {
+            unfinishedPages--;
+            notifyAll();
+        }
+
+        private void itemConsumed() {
+            itemsConsumed.increment();
+        }
+
+        @Override
+        public synchronized boolean isReleasable() {
+            return unfinishedPages < maxPagesAhead;
+        }
+
+        @Override
+        public synchronized boolean block() throws InterruptedException {
+            long itemsBefore = itemsConsumed.sum();
+            while (unfinishedPages >= maxPagesAhead) {
+                wait(STALL_MILLIS);
+                final long items = itemsConsumed.sum();
+                if (items == itemsBefore) {
+                    // nobody's working on the pages we've split off.
+                    // the stream may be done with them, so don't wait.
+                    break;
+                }
+                itemsBefore = items;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A page that's been split off.  It tells the window when it's finished.
+     * It's small enough for one thread, so it doesn't split.
+     */
+    private static class SplitPage<T> implements Spliterator<T> {
+        private final Spliterator<T> items;
+        private final Window window;
+        private boolean finished;
+
+        private SplitPage(Spliterator<T> items,
+                          Window window) {
+            this.items = items;
+            this.window = window;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (items.tryAdvance(action)) {
+                window.itemConsumed();
+                return true;
+            }
+            finish();
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            items.forEachRemaining(item -> {
+                action.accept(item);
+                window.itemConsumed();
+            });
+            finish();
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return items.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return items.characteristics();
+        }
+
+        private void finish() {
+            if (!finished) {
+                finished = true;
+                window.pageFinished();
+            }
+        }
+    }
+}
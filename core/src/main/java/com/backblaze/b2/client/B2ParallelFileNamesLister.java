@@ -0,0 +1,647 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2BadRequestException;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.client.exceptions.B2RuntimeException;
+import com.backblaze.b2.client.structures.B2FileVersion;
+import com.backblaze.b2.client.structures.B2ListFileNamesRequest;
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * B2ParallelFileNamesLister lists the file names in a bucket (or under a
+ * prefix) by splitting the names into ranges and listing the ranges at the
+ * same time.
+ *
+ * A normal listing is one long chain of calls, each of which needs the
+ * previous one's nextFileName, so it goes no faster than one round-trip per
+ * page.  We can't know ahead of time where the names are, so we find split
+ * points by probing: we pick a name halfway between two names we know of
+ * and ask the server for the first name at or after it (with maxFileCount=1).
+ * If there is one before the end of the range, that's a split point.  If
+ * not, we know the top half of the range is empty and look in the bottom
+ * half next time.
+ *
+ * The ranges are handed to up to maxConcurrency tasks on the executor, which
+ * list them with client.fileNames(), so this works with any B2StorageClient.
+ * In ordered mode, each range has its own queue of batches and the consumer
+ * reads the ranges in order, so the results come out in the same order as a
+ * normal listing.  The ranges after the one being read keep listing until
+ * maxBufferedPages pages are waiting, in total, so they're mostly done by the
+ * time the consumer gets to them.  In unordered mode, all ranges share one
+ * queue, which holds up to maxBufferedPages pages.
+ *
+ * B2 sorts names by their UTF-8 bytes, which is the same as sorting by code
+ * point, so that's how we compare and split names here.  Java's
+ * String.compareTo() differs from that for some characters outside the BMP.
+ *
+ * The listing tasks stop when the stream is closed or read to the end, or
+ * when the iterator is garbage collected.
+ *
+ * THREAD-SAFETY: the iterator must only be used from one thread, like any
+ *   other Iterator.  It synchronizes with the listing tasks through the queues.
+ */
+class B2ParallelFileNamesLister implements Iterator<B2FileVersion> {
+    // how many batches the range being read may have waiting without a slot.
+    private static final int BATCHES_BUFFERED_PER_RANGE = 2;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final long POLL_MILLIS = 100;
+
+    // we only pick split points made of characters that are allowed in file names.
+    private static final int FIRST_NAME_CODE_POINT = 32;
+    private static final int DEL = 127;
+    private static final int CODE_POINT_LIMIT = Character.MAX_CODE_POINT + 1;
+
+    /**
+     * A range of file names, from lo (inclusive) up to hiOrNull (exclusive).
+     * A null hiOrNull means there's no upper limit.
+     */
+    static class Range {
+        final String lo;
+        final String hiOrNull;
+
+        Range(String lo,
+              String hiOrNull) {
+            this.lo = lo;
+            this.hiOrNull = hiOrNull;
+        }
+
+        boolean isBelowHi(String name) {
+            return hiOrNull == null || B2FileNameOrder.compareNames(name, hiOrNull) < 0;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + lo + ", " + hiOrNull + ")";
+        }
+    }
+
+    /**
+     * Some names from a range, the end of a range, or the failure that ended a range.
+     */
+    private static class Batch {
+        private static final Batch END = new Batch(null, null);
+
+        private final List<B2FileVersion> filesOrNull;
+        private final B2Exception failureOrNull;
+
+        // true iff it holds one of an ordered listing's bufferedPageSlots.
+        private final boolean holdsSlot;
+
+        private Batch(List<B2FileVersion> filesOrNull,
+                      B2Exception failureOrNull) {
+            this(filesOrNull, failureOrNull, false);
+        }
+
+        private Batch(List<B2FileVersion> filesOrNull,
+                      B2Exception failureOrNull,
+                      boolean holdsSlot) {
+            this.filesOrNull = filesOrNull;
+            this.failureOrNull = failureOrNull;
+            this.holdsSlot = holdsSlot;
+        }
+
+        private Batch withSlot() {
+            return new Batch(filesOrNull, failureOrNull, true);
+        }
+    }
+
+    /**
+     * The bookkeeping for one range while we're looking for split points.
+     * searchLo is a name we know is in the range.  there are no names
+     * at or above searchHiOrNull in the range.
+     */
+    private static class Candidate {
+        private final String lo;
+        private String hiOrNull;
+        private final String searchLo;
+        private String searchHiOrNull;
+
+        private Candidate(String lo,
+                          String hiOrNull,
+                          String searchLo,
+                          String searchHiOrNull) {
+            this.lo = lo;
+            this.hiOrNull = hiOrNull;
+            this.searchLo = searchLo;
+            this.searchHiOrNull = searchHiOrNull;
+        }
+    }
+
+    private final Listing listing;
+
+    // these are only used by the consuming thread.
+    // when ordered, rangesFinished is also the index of the range being consumed.
+    private int rangesFinished;
+    private Iterator<B2FileVersion> currentBatch = Collections.emptyIterator();
+
+    private B2ParallelFileNamesLister(B2StorageClient client,
+                                      B2ListFileNamesRequest request,
+                                      List<Range> ranges,
+                                      B2ParallelListingOptions options) {
+        this.listing = new Listing(client, request, ranges, options, this);
+    }
+
+    /**
+     * Finds the split points, starts listing the ranges on the executor, and
+     * returns a Stream of the results.  The Stream should be closed if it isn't
+     * read to the end, so that the listing tasks stop right away instead of
+     * when it's garbage collected.
+     */
+    static Stream<B2FileVersion> stream(B2StorageClient client,
+                                        B2ListFileNamesRequest request,
+                                        B2ParallelListingOptions options,
+                                        ExecutorService executor) throws B2Exception {
+        B2Preconditions.checkArgument(request.getDelimiter() == null,
+                "parallel listing doesn't support delimiters");
+
+        final List<Range> ranges = findRanges(client,
+                request,
+                options.getShardCount(),
+                maxProbesFor(options.getShardCount()));
+        final B2ParallelFileNamesLister lister = new B2ParallelFileNamesLister(client, request, ranges, options);
+        lister.listing.start(executor, Math.min(options.getMaxConcurrency(), ranges.size()));
+
+        final int characteristics = Spliterator.NONNULL |
+                Spliterator.DISTINCT |
+                (options.isOrdered() ? Spliterator.ORDERED : 0);
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(lister, characteristics), false)
+                .onClose(lister::close);
+    }
+
+    // each probe narrows the search by about one bit, so finding a split point
+    // in a dense part of the bucket can take several probes per character.
+    static int maxProbesFor(int shardCount) {
+        return 64 + 16 * shardCount;
+    }
+
+    /**
+     * Splits the names the request would list into up to shardCount ranges.
+     * The ranges are in order and together they cover everything the request
+     * would list.
+     */
+    static List<Range> findRanges(B2StorageClient client,
+                                  B2ListFileNamesRequest request,
+                                  int shardCount,
+                                  int maxProbes) throws B2Exception {
+        final String prefix = (request.getPrefix() == null) ? "" : request.getPrefix();
+        final String startOrNull = request.getStartFileName();
+        final String lo = (startOrNull != null && B2FileNameOrder.compareNames(startOrNull, prefix) > 0) ? startOrNull : prefix;
+        final String hiOrNull = upperBoundOrNull(prefix);
+
+        final String firstOrNull = (shardCount > 1) ? firstNameIfMoreThanOnePageOrNull(client, request, lo) : null;
+        if (firstOrNull == null) {
+            // it's small (or empty), or we were asked not to split it.
+            return Collections.singletonList(new Range(lo, hiOrNull));
+        }
+
+        final List<Candidate> candidates = new ArrayList<>();
+        final Deque<Candidate> toSplit = new ArrayDeque<>();
+        final Candidate whole = new Candidate(lo, hiOrNull, firstOrNull, hiOrNull);
+        candidates.add(whole);
+        toSplit.add(whole);
+
+        int probes = 1;
+        while (candidates.size() < shardCount && !toSplit.isEmpty() && probes < maxProbes) {
+            final Candidate candidate = toSplit.removeFirst();
+            final String midOrNull = midpointOrNull(candidate.searchLo, candidate.searchHiOrNull);
+            if (midOrNull == null) {
+                // there aren't any names between the ones we know about.
+                continue;
+            }
+
+            final String foundOrNull = probeOrNull(client, request, midOrNull);
+            probes++;
+            if (foundOrNull == null ||
+                    (candidate.searchHiOrNull != null && B2FileNameOrder.compareNames(foundOrNull, candidate.searchHiOrNull) >= 0)) {
+                // nothing in the top half.  try the bottom half later.
+                candidate.searchHiOrNull = midOrNull;
+                toSplit.addLast(candidate);
+            } else {
+                final Candidate upper = new Candidate(foundOrNull,
+                        candidate.hiOrNull,
+                        foundOrNull,
+                        candidate.searchHiOrNull);
+                candidate.hiOrNull = foundOrNull;
+                candidate.searchHiOrNull = midOrNull;
+                candidates.add(candidates.indexOf(candidate) + 1, upper);
+                toSplit.addLast(candidate);
+                toSplit.addLast(upper);
+            }
+        }
+
+        final List<Range> ranges = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            ranges.add(new Range(candidate.lo, candidate.hiOrNull));
+        }
+        return ranges;
+    }
+
+    /**
+     * @return the first name the request would list, if it would list more than
+     *         one page of names, otherwise null.  there's no point splitting up
+     *         a listing that fits in one page.
+     */
+    private static String firstNameIfMoreThanOnePageOrNull(B2StorageClient client,
+                                                           B2ListFileNamesRequest request,
+                                                           String lo) throws B2Exception {
+        final int pageSize = batchSizeFor(request);
+        try {
+            final Iterator<B2FileVersion> iterator = client.fileNames(B2ListFileNamesRequest
+                    .builder(request)
+                    .setStartFileName(lo)
+                    .setMaxFileCount(pageSize)
+                    .setPrefetchDepth(0)
+                    .build()).iterator();
+            String firstOrNull = null;
+            for (int i = 0; i <= pageSize; i++) {
+                if (!iterator.hasNext()) {
+                    return null;
+                }
+                final String name = iterator.next().getFileName();
+                if (firstOrNull == null) {
+                    firstOrNull = name;
+                }
+            }
+            return firstOrNull;
+        } catch (B2RuntimeException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * @return the first name at or after startName that the request would list,
+     *         or null if there aren't any (or the server didn't like startName).
+     */
+    private static String probeOrNull(B2StorageClient client,
+                                      B2ListFileNamesRequest request,
+                                      String startName) throws B2Exception {
+        try {
+            final Iterator<B2FileVersion> iterator = client.fileNames(B2ListFileNamesRequest
+                    .builder(request)
+                    .setStartFileName(startName)
+                    .setMaxFileCount(1)
+                    .setPrefetchDepth(0)
+                    .build()).iterator();
+            return iterator.hasNext() ? iterator.next().getFileName() : null;
+        } catch (B2RuntimeException e) {
+            if (e.getCause() instanceof B2BadRequestException) {
+                // we made up startName.  if the server won't take it, just don't split there.
+                return null;
+            }
+            throw unwrap(e);
+        }
+    }
+
+    private static int batchSizeFor(B2ListFileNamesRequest request) {
+        return (request.getMaxFileCount() == null) ? DEFAULT_BATCH_SIZE : request.getMaxFileCount();
+    }
+
+    // the iterators wrap B2Exceptions in B2RuntimeExceptions.
+    private static B2Exception unwrap(B2RuntimeException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof B2Exception) {
+            return (B2Exception) cause;
+        }
+        return new B2LocalException("trouble", "unexpected exception while listing: " + e, e);
+    }
+
+    /**
+     * @return the smallest name that's bigger than every name that starts
+     *         with prefix, or null if there isn't one (the prefix is empty).
+     */
+    static String upperBoundOrNull(String prefix) {
+        final int[] codePoints = prefix.codePoints().toArray();
+        for (int i = codePoints.length - 1; i >= 0; i--) {
+            if (codePoints[i] < Character.MAX_CODE_POINT) {
+                int next = codePoints[i] + 1;
+                if (next == Character.MIN_SURROGATE) {
+                    next = Character.MAX_SURROGATE + 1;
+                }
+                final StringBuilder builder = new StringBuilder();
+                for (int j = 0; j < i; j++) {
+                    builder.appendCodePoint(codePoints[j]);
+                }
+                return builder.appendCodePoint(next).toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a name that's bigger than lo and smaller than hiOrNull (if it's not null),
+     *         and roughly halfway between them, or null if there's no such name.
+     */
+    static String midpointOrNull(String lo,
+                                 String hiOrNull) {
+        final int[] a = lo.codePoints().toArray();
+        final int[] b = (hiOrNull == null) ? null : hiOrNull.codePoints().toArray();
+
+        int i = 0;
+        while (b != null && i < a.length && i < b.length && a[i] == b[i]) {
+            i++;
+        }
+        if (b != null && i == b.length) {
+            // hi is lo or a prefix of lo, so it isn't bigger.
+            return null;
+        }
+
+        final StringBuilder builder = new StringBuilder();
+        for (int j = 0; j < i; j++) {
+            builder.appendCodePoint(a[j]);
+        }
+
+        // the first code point where they differ.  -1 means lo ended.
+        final int loCodePoint = (i < a.length) ? a[i] : -1;
+        final int hiCodePoint = (b == null) ? CODE_POINT_LIMIT : b[i];
+        if (hiCodePoint <= loCodePoint) {
+            return null;
+        }
+
+        // any name between lo and hi would do, but most names are ascii, so
+        // when there's no upper limit here, we guess in the ascii range first.
+        // if there's nothing above the guess, the caller will learn that and
+        // won't look there again.
+        final int below = Math.max(loCodePoint, FIRST_NAME_CODE_POINT - 1);
+        int mid = -1;
+        if (hiCodePoint == CODE_POINT_LIMIT && below < DEL - 1) {
+            mid = nameCodePointBetweenOrNegative(below, DEL);
+        }
+        if (mid < 0) {
+            mid = nameCodePointBetweenOrNegative(below, hiCodePoint);
+        }
+        if (mid >= 0) {
+            return builder.appendCodePoint(mid).toString();
+        }
+
+        if (loCodePoint < 0) {
+            return null;
+        }
+        // there's no room at this position, but anything that keeps lo's code point
+        // here and sorts after the rest of lo is still smaller than hi.
+        builder.appendCodePoint(loCodePoint);
+        final String rest = new String(a, i + 1, a.length - i - 1);
+        return builder.append(midpointOrNull(rest, null)).toString();
+    }
+
+    // returns a code point that's allowed in names, strictly between below and above,
+    // as close to halfway as we can manage, or -1 if there isn't one.
+    private static int nameCodePointBetweenOrNegative(int below,
+                                                      int above) {
+        final int mid = below + (above - below) / 2;
+        for (int candidate = mid; candidate < above; candidate++) {
+            if (candidate > below && isNameCodePoint(candidate)) {
+                return candidate;
+            }
+        }
+        for (int candidate = mid - 1; candidate > below; candidate--) {
+            if (isNameCodePoint(candidate)) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isNameCodePoint(int codePoint) {
+        return codePoint >= FIRST_NAME_CODE_POINT &&
+                codePoint != DEL &&
+                (codePoint < Character.MIN_SURROGATE || codePoint > Character.MAX_SURROGATE);
+    }
+
+    /**
+     * Stops the listing tasks.  It's safe to call more than once.
+     */
+    void close() {
+        listing.close();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentBatch.hasNext()) {
+            if (rangesFinished == listing.ranges.size()) {
+                close();
+                return false;
+            }
+
+            final Batch batch = listing.take(rangesFinished);
+            if (batch.failureOrNull != null) {
+                close();
+                throw new B2RuntimeException("failed to list files: " + batch.failureOrNull.getMessage(),
+                        batch.failureOrNull);
+            }
+            if (batch == Batch.END) {
+                rangesFinished++;
+                listing.rangeBeingRead = rangesFinished;
+            } else {
+                currentBatch = batch.filesOrNull.iterator();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public B2FileVersion next() {
+        if (!hasNext()) {
+            throw new IllegalStateException("don't call when hasNext() returns false!");
+        }
+        return currentBatch.next();
+    }
+
+    /**
+     * The state the listing tasks share with the iterator.
+     *
+     * The tasks only have a weak reference to the iterator, so if it's thrown
+     * away without being closed or read to the end, the tasks notice once
+     * it's been garbage collected, and stop.
+     */
+    private static class Listing {
+        private final B2StorageClient client;
+        private final B2ListFileNamesRequest request;
+        private final List<Range> ranges;
+        private final boolean ordered;
+        private final int batchSize;
+        private final WeakReference<B2ParallelFileNamesLister> readerRef;
+
+        // when ordered, there's one queue per range.  the range being read may
+        // always have a couple of batches waiting in its queue, and any other
+        // batch needs one of the bufferedPageSlots, so the ranges after the one
+        // being read can get well ahead without using unlimited memory.
+        // when unordered, there's one shared queue, and it's bounded.
+        private final List<BlockingQueue<Batch>> queues = new ArrayList<>();
+        private final Semaphore bufferedPageSlotsOrNull;
+        private final AtomicInteger nextRangeIndex = new AtomicInteger();
+        private volatile int rangeBeingRead;
+        private volatile boolean closed;
+
+        // set by a listing task that was interrupted before it could hand over its results.
+        private volatile B2Exception undeliveredFailureOrNull;
+
+        private Listing(B2StorageClient client,
+                        B2ListFileNamesRequest request,
+                        List<Range> ranges,
+                        B2ParallelListingOptions options,
+                        B2ParallelFileNamesLister reader) {
+            this.client = client;
+            this.request = request;
+            this.ranges = ranges;
+            this.ordered = options.isOrdered();
+            this.batchSize = batchSizeFor(request);
+            this.readerRef = new WeakReference<>(reader);
+
+            if (ordered) {
+                for (int i = 0; i < ranges.size(); i++) {
+                    queues.add(new LinkedBlockingQueue<>());
+                }
+                bufferedPageSlotsOrNull = new Semaphore(options.getMaxBufferedPages());
+            } else {
+                queues.add(new ArrayBlockingQueue<>(options.getMaxBufferedPages()));
+                bufferedPageSlotsOrNull = null;
+            }
+        }
+
+        private void start(ExecutorService executor,
+                           int taskCount) throws B2LocalException {
+            for (int i = 0; i < taskCount; i++) {
+                try {
+                    executor.execute(this::listRanges);
+                } catch (RejectedExecutionException e) {
+                    close();
+                    throw new B2LocalException("trouble", "executor rejected parallel listing task: " + e, e);
+                }
+            }
+        }
+
+        private void close() {
+            closed = true;
+        }
+
+        private boolean isStopped() {
+            return closed || readerRef.get() == null;
+        }
+
+        private Batch take(int index) {
+            B2Preconditions.checkState(!closed, "the listing has been closed");
+            final BlockingQueue<Batch> queue = queues.get(ordered ? index : 0);
+            try {
+                while (true) {
+                    final Batch batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (batch != null) {
+                        if (batch.holdsSlot) {
+                            bufferedPageSlotsOrNull.release();
+                        }
+                        return batch;
+                    }
+                    final B2Exception failureOrNull = undeliveredFailureOrNull;
+                    if (failureOrNull != null) {
+                        return new Batch(null, failureOrNull);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new B2RuntimeException("interrupted while waiting for file names",
+                        new B2LocalException("interrupted", "interrupted while waiting for file names", e));
+            }
+        }
+
+        // each listing task runs this.  it keeps taking the next range until they're all taken.
+        private void listRanges() {
+            while (!isStopped()) {
+                final int index = nextRangeIndex.getAndIncrement();
+                if (index >= ranges.size()) {
+                    return;
+                }
+                listRange(index);
+            }
+        }
+
+        private void listRange(int index) {
+            final Range range = ranges.get(index);
+            try {
+                final Iterator<B2FileVersion> iterator = client.fileNames(B2ListFileNamesRequest
+                        .builder(request)
+                        .setStartFileName(range.lo)
+                        .build()).iterator();
+
+                List<B2FileVersion> batch = new ArrayList<>(batchSize);
+                while (!isStopped() && iterator.hasNext()) {
+                    final B2FileVersion version = iterator.next();
+                    if (!range.isBelowHi(version.getFileName())) {
+                        break;
+                    }
+                    batch.add(version);
+                    if (batch.size() == batchSize) {
+                        put(index, new Batch(batch, null));
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    put(index, new Batch(batch, null));
+                }
+                put(index, Batch.END);
+            } catch (B2RuntimeException e) {
+                put(index, new Batch(null, unwrap(e)));
+            } catch (B2Exception e) {
+                put(index, new Batch(null, e));
+            } catch (RuntimeException e) {
+                put(index, new Batch(null, new B2LocalException("trouble", "unexpected exception while listing: " + e, e)));
+            }
+        }
+
+        private void put(int index,
+                         Batch batch) {
+            final BlockingQueue<Batch> queue = queues.get(ordered ? index : 0);
+            try {
+                if (!ordered) {
+                    while (!isStopped()) {
+                        if (queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                            return;
+                        }
+                    }
+                } else if (batch.filesOrNull == null) {
+                    // ends and failures don't take up much room, and the reader needs them to move on.
+                    queue.add(batch);
+                } else {
+                    while (!isStopped()) {
+                        if (index == rangeBeingRead && queue.size() < BATCHES_BUFFERED_PER_RANGE) {
+                            queue.add(batch);
+                            return;
+                        }
+                        if (bufferedPageSlotsOrNull.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                            queue.add(batch.withSlot());
+                            return;
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                undeliveredFailureOrNull = new B2LocalException("interrupted", "a parallel listing task was interrupted", e);
+            }
+        }
+    }
+}
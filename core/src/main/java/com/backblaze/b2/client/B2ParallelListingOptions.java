@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2Preconditions;
+
+/**
+ * B2ParallelListingOptions control how B2StorageClient.fileNamesInParallel()
+ * splits up and lists a bucket.
+ *
+ * shardCount is how many ranges of names we try to split the listing into.
+ * We may end up with fewer if the bucket is small or if we can't find good
+ * places to split it.  Finding each split point takes a listing call or two.
+ *
+ * maxConcurrency is the most ranges that will be listed at once.
+ *
+ * If ordered is true (the default), the names come out in the same order
+ * as a normal listing.  The ranges after the one being consumed are listed in
+ * the background, until maxBufferedPages pages of them are waiting.  If
+ * ordered is false, names come out in whatever order the ranges produce
+ * them, and up to maxBufferedPages pages may be waiting.
+ *
+ * maxBufferedPages is what limits how far ahead of the consumer the listing
+ * gets, and so how much memory it uses.  Each page has up to the request's
+ * maxFileCount names (1000 by default).  When it's too small for the number
+ * of ranges being listed at once, an ordered listing goes little faster than
+ * a normal one.
+ *
+ * THREAD-SAFETY: this class is immutable.
+ */
+public class B2ParallelListingOptions {
+    static final int DEFAULT_SHARD_COUNT = 16;
+    static final int DEFAULT_MAX_CONCURRENCY = 8;
+    static final int DEFAULT_MAX_BUFFERED_PAGES = 64;
+
+    private final int shardCount;
+    private final int maxConcurrency;
+    private final boolean ordered;
+    private final int maxBufferedPages;
+
+    private B2ParallelListingOptions(int shardCount,
+                                     int maxConcurrency,
+                                     boolean ordered,
+                                     int maxBufferedPages) {
+        B2Preconditions.checkArgument(shardCount > 0, "shardCount must be positive");
+        B2Preconditions.checkArgument(maxConcurrency > 0, "maxConcurrency must be positive");
+        B2Preconditions.checkArgument(maxBufferedPages > 0, "maxBufferedPages must be positive");
+        this.shardCount = shardCount;
+        this.maxConcurrency = maxConcurrency;
+        this.ordered = ordered;
+        this.maxBufferedPages = maxBufferedPages;
+    }
+
+    public static B2ParallelListingOptions defaultOptions() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public int getMaxBufferedPages() {
+        return maxBufferedPages;
+    }
+
+    public static class Builder {
+        private int shardCount = DEFAULT_SHARD_COUNT;
+        private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        private boolean ordered = true;
+        private int maxBufferedPages = DEFAULT_MAX_BUFFERED_PAGES;
+
+        public Builder setShardCount(int shardCount) {
+            this.shardCount = shardCount;
+            return this;
+        }
+
+        public Builder setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public Builder setOrdered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        public Builder setMaxBufferedPages(int maxBufferedPages) {
+            this.maxBufferedPages = maxBufferedPages;
+            return this;
+        }
+
+        public B2ParallelListingOptions build() {
+            return new B2ParallelListingOptions(shardCount, maxConcurrency, ordered, maxBufferedPages);
+        }
+    }
+}
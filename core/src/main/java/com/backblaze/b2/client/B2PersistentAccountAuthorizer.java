@@ -0,0 +1,218 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.structures.B2AccountAuthorization;
+import com.backblaze.b2.json.B2Json;
+import com.backblaze.b2.json.B2JsonException;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2IoUtils;
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * B2PersistentAccountAuthorizer wraps another B2AccountAuthorizer and saves
+ * the authorizations it makes in a file, so that a new process can use the
+ * saved one instead of calling b2_authorize_account before its first request.
+ *
+ * A saved authorization is used until it's maxAgeMillis old.  Authorizations
+ * are good for 24 hours, so the default of 20 hours leaves time for the
+ * requests that use it.  Once this has handed out an authorization, asking
+ * it again means the client's authorization was expired or rejected (that's
+ * when B2Retryer clears the B2AccountAuthorizationCache after a
+ * B2UnauthorizedException), so it won't hand out the same saved authorization
+ * again; it gets a fresh one from the wrapped authorizer and saves that.
+ *
+ * The file holds an authorization token, which is as good as the application
+ * key until it expires.  On file systems that support POSIX permissions, the
+ * file is only readable and writable by its owner.  Elsewhere, it gets the
+ * default permissions of its directory, so put it in a directory only this
+ * user can read.  Use one file per application key; this doesn't check that
+ * a saved authorization came from the same key as the wrapped authorizer.
+ *
+ * The file is written by writing a uniquely named temporary file next to it
+ * and renaming it into place, so processes sharing it always read a whole
+ * authorization, even when several write it at once.
+ * A file that can't be read or parsed is treated as missing, and trouble
+ * writing the file is ignored, since the authorization is still good.
+ *
+ * getAgeMillis() says how long ago a saved authorization was saved, so
+ * that a B2AccountAuthorizationCache with a refresh policy refreshes it
+ * when it's old, not when it's been loaded for a while.
+ *
+ * THREAD-SAFETY: this class is thread-safe.  authorize() is synchronized.
+ */
+public class B2PersistentAccountAuthorizer implements B2AccountAuthorizer {
+    static final long DEFAULT_MAX_AGE_MILLIS = 20 * 60 * 60 * 1000L;
+
+    private static final B2Clock clock = B2Clock.get();
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+
+    private final B2AccountAuthorizer authorizer;
+    private final Path path;
+    private final long maxAgeMillis;
+
+    // the last authorization this handed out, or null before the first,
+    // and when it was saved, on the wall clock.
+    // protected by synchronized(this).
+    private B2AccountAuthorization lastReturnedOrNull;
+    private long lastReturnedSavedAtMillis;
+
+    private B2PersistentAccountAuthorizer(B2AccountAuthorizer authorizer,
+                                          Path path,
+                                          long maxAgeMillis) {
+        B2Preconditions.checkArgument(authorizer != null, "authorizer must not be null");
+        B2Preconditions.checkArgument(path != null, "path must not be null");
+        B2Preconditions.checkArgument(maxAgeMillis > 0, "maxAgeMillis must be positive");
+        this.authorizer = authorizer;
+        this.path = path;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    public static Builder builder(B2AccountAuthorizer authorizer,
+                                  Path path) {
+        return new Builder(authorizer, path);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    @Override
+    public synchronized B2AccountAuthorization authorize(B2StorageClientWebifier webifier) throws B2Exception {
+        final Saved savedOrNull = readOrNull();
+        if (savedOrNull != null && !savedOrNull.authorization.equals(lastReturnedOrNull)) {
+            lastReturnedOrNull = savedOrNull.authorization;
+            lastReturnedSavedAtMillis = savedOrNull.savedAtMillis;
+            return savedOrNull.authorization;
+        }
+
+        final B2AccountAuthorization fresh = authorizer.authorize(webifier);
+        lastReturnedOrNull = fresh;
+        lastReturnedSavedAtMillis = clock.wallClockMillis();
+        write(new Saved(lastReturnedSavedAtMillis, fresh));
+        return fresh;
+    }
+
+    @Override
+    public synchronized long getAgeMillis(B2AccountAuthorization authorization) {
+        if (lastReturnedOrNull == null || !lastReturnedOrNull.equals(authorization)) {
+            return 0;
+        }
+        return Math.max(0, clock.wallClockMillis() - lastReturnedSavedAtMillis);
+    }
+
+    /**
+     * @return what's saved if it isn't too old, or null.
+     */
+    private Saved readOrNull() {
+        final Saved saved;
+        try {
+            final String json = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+            saved = B2Json.get().fromJson(json, Saved.class);
+        } catch (IOException | B2JsonException e) {
+            // missing or damaged.  either way, we'll make a new one.
+            return null;
+        }
+
+        // a saved time in the future means someone's clock was wrong,
+        // so we can't tell how old it is.
+        final long ageMillis = clock.wallClockMillis() - saved.savedAtMillis;
+        if (ageMillis < 0 || ageMillis >= maxAgeMillis) {
+            return null;
+        }
+        return saved;
+    }
+
+    private void write(Saved saved) {
+        Path tmpOrNull = null;
+        try {
+            final byte[] bytes = B2Json.get().toJson(saved).getBytes(StandardCharsets.UTF_8);
+
+            // each writer gets its own temporary file, created with the restricted
+            // permissions, so the token is never readable by others.
+            final Path directory = path.toAbsolutePath().getParent();
+            tmpOrNull = Files.createTempFile(directory, path.getFileName().toString(), ".tmp", ownerOnlyIfSupported(directory));
+            Files.write(tmpOrNull, bytes);
+            Files.move(tmpOrNull, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            B2IoUtils.syncDirectoryQuietly(directory);
+        } catch (IOException | B2JsonException e) {
+            // the authorization is still good; the next process will just have to make its own.
+            if (tmpOrNull != null) {
+                try {
+                    Files.deleteIfExists(tmpOrNull);
+                } catch (IOException ignored) {
+                    // nothing more to do.
+                }
+            }
+        }
+    }
+
+    private static FileAttribute<?>[] ownerOnlyIfSupported(Path directory) {
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(OWNER_ONLY) };
+        }
+        return new FileAttribute<?>[0];
+    }
+
+    /**
+     * Saved is what's in the file.
+     */
+    private static class Saved {
+        @B2Json.required
+        private final long savedAtMillis;
+
+        @B2Json.required
+        private final B2AccountAuthorization authorization;
+
+        @B2Json.constructor(params = "savedAtMillis,authorization")
+        private Saved(long savedAtMillis,
+                      B2AccountAuthorization authorization) {
+            this.savedAtMillis = savedAtMillis;
+            this.authorization = authorization;
+        }
+    }
+
+    public static class Builder {
+        private final B2AccountAuthorizer authorizer;
+        private final Path path;
+        private long maxAgeMillis = DEFAULT_MAX_AGE_MILLIS;
+
+        public Builder(B2AccountAuthorizer authorizer,
+                       Path path) {
+            this.authorizer = authorizer;
+            this.path = path;
+        }
+
+        /**
+         * @param maxAgeMillis how long after it was made to keep using a
+         *                     saved authorization.  it should be well under
+         *                     the 24 hours authorizations are good for.
+         * @return this builder.
+         */
+        public Builder setMaxAgeMillis(long maxAgeMillis) {
+            this.maxAgeMillis = maxAgeMillis;
+            return this;
+        }
+
+        public B2PersistentAccountAuthorizer build() {
+            return new B2PersistentAccountAuthorizer(authorizer, path, maxAgeMillis);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * B2RateLimiter paces the requests made by all of a client's threads, and
+ * holds all of them back when the service says to slow down.
+ *
+ * Each request belongs to a Category.  A category may have a rate, in
+ * requests per second, with bursts of up to maxBurst requests; requests
+ * beyond that wait their turn.  By default, only account authorization,
+ * getting upload urls and listing have rates, because they're the calls that
+ * a busy client can make far more of than it needs.  The others are only
+ * held back by pauses.
+ *
+ * When a request gets a 429, or a 503 with a Retry-After header, the whole
+ * client pauses until the Retry-After has passed (or for defaultPauseMillis,
+ * if there wasn't one), instead of just the thread that got it.  The one
+ * exception is uploads: those responses are about the pod behind one upload
+ * url, so they only pause uploads.
+ *
+ * One limiter may be shared by several clients that use the same account.
+ *
+ * THREAD-SAFETY: this class is thread-safe.
+ */
+public class B2RateLimiter {
+    private static final B2Clock clock = B2Clock.get();
+
+    static final long DEFAULT_PAUSE_MILLIS = 1000;
+
+    /**
+     * The kinds of requests that are paced separately.
+     */
+    public enum Category {
+        // b2_authorize_account
+        AUTHORIZE_ACCOUNT,
+        // b2_get_upload_url and b2_get_upload_part_url
+        GET_UPLOAD_URL,
+        // b2_list_buckets, b2_list_file_names, b2_list_file_versions,
+        // b2_list_unfinished_large_files, b2_list_parts and b2_list_keys
+        LIST,
+        // uploading files and parts to an upload url
+        UPLOAD,
+        // downloading, and copying files and parts
+        TRANSFER,
+        // everything else
+        OTHER
+    }
+
+    private final B2Sleeper sleeper;
+    private final long defaultPauseMillis;
+    private final Map<Category, Bucket> bucketsByCategory;
+
+    // the monotonic time when the whole client may continue.
+    private final AtomicLong pausedUntilMillis = new AtomicLong(Long.MIN_VALUE);
+
+    // the monotonic time when each category may continue, indexed by ordinal.
+    private final AtomicLongArray categoryPausedUntilMillis = new AtomicLongArray(Category.values().length);
+
+    private final LongAdder waitCount = new LongAdder();
+    private final LongAdder totalWaitMillis = new LongAdder();
+    private final LongAdder pauseCount = new LongAdder();
+
+    private B2RateLimiter(B2Sleeper sleeper,
+                          long defaultPauseMillis,
+                          Map<Category, Rate> ratesByCategory) {
+        B2Preconditions.checkArgument(defaultPauseMillis > 0, "defaultPauseMillis must be positive");
+        this.sleeper = sleeper;
+        this.defaultPauseMillis = defaultPauseMillis;
+        this.bucketsByCategory = new EnumMap<>(Category.class);
+        final long nowMillis = clock.monotonicMillis();
+        ratesByCategory.forEach((category, rate) -> bucketsByCategory.put(category, new Bucket(rate, nowMillis)));
+        for (int i = 0; i < categoryPausedUntilMillis.length(); i++) {
+            categoryPausedUntilMillis.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    public static B2RateLimiter create() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Waits until a request of the given category may be sent.
+     *
+     * @param category the kind of request.
+     * If there's a B2Deadline in effect, it doesn't start a wait that
+     * would end after the deadline.
+     *
+     * @throws B2LocalException if the thread is interrupted while waiting,
+     *                          or if the deadline would pass while waiting.
+     */
+    void acquire(Category category) throws B2LocalException {
+        final B2Deadline deadlineOrNull = B2Deadline.currentOrNull();
+        final long startMillis = clock.monotonicMillis();
+        long nowMillis = startMillis;
+
+        // wait out any pause.  it might be extended while we sleep.
+        while (true) {
+            final long untilMillis = pausedUntilMillisFor(category);
+            if (untilMillis <= nowMillis) {
+                break;
+            }
+            if (deadlineOrNull != null && untilMillis - nowMillis > deadlineOrNull.getRemainingMillis()) {
+                throw deadlineOrNull.makeExceededException("waiting for a pause in " + category + " requests to end", null);
+            }
+            sleep(untilMillis - nowMillis);
+            nowMillis = clock.monotonicMillis();
+        }
+
+        final Bucket bucketOrNull = bucketsByCategory.get(category);
+        if (bucketOrNull != null) {
+            final long maxWaitMillis = (deadlineOrNull == null) ? Long.MAX_VALUE : deadlineOrNull.getRemainingMillis();
+            final long waitMillis = bucketOrNull.reserve(nowMillis, maxWaitMillis);
+            if (waitMillis < 0) {
+                throw deadlineOrNull.makeExceededException("waiting for the rate of " + category + " requests", null);
+            }
+            if (waitMillis > 0) {
+                sleep(waitMillis);
+            }
+        }
+
+        final long waitedMillis = clock.monotonicMillis() - startMillis;
+        if (waitedMillis > 0) {
+            waitCount.increment();
+            totalWaitMillis.add(waitedMillis);
+        }
+    }
+
+    /**
+     * Called when a request of the given category was told to slow down, or
+     * that the service is unavailable for a while.
+     *
+     * @param category the kind of request that got the response.
+     * @param retryAfterSecondsOrNull the response's Retry-After, if any.
+     */
+    void pause(Category category,
+               Integer retryAfterSecondsOrNull) {
+        final long pauseMillis = (retryAfterSecondsOrNull != null) ?
+                retryAfterSecondsOrNull * 1000L :
+                defaultPauseMillis;
+        if (pauseMillis <= 0) {
+            return;
+        }
+        final long untilMillis = clock.monotonicMillis() + pauseMillis;
+        if (category == Category.UPLOAD) {
+            categoryPausedUntilMillis.accumulateAndGet(category.ordinal(), untilMillis, Math::max);
+        } else {
+            pausedUntilMillis.accumulateAndGet(untilMillis, Math::max);
+        }
+        pauseCount.increment();
+    }
+
+    /**
+     * @return how many milliseconds requests of the given category must wait
+     *         for a pause to end.  it doesn't include waiting for the rate.
+     */
+    public long getPausedMillis(Category category) {
+        final long untilMillis = pausedUntilMillisFor(category);
+        final long nowMillis = clock.monotonicMillis();
+        return (untilMillis > nowMillis) ? (untilMillis - nowMillis) : 0;
+    }
+
+    private long pausedUntilMillisFor(Category category) {
+        return Math.max(pausedUntilMillis.get(), categoryPausedUntilMillis.get(category.ordinal()));
+    }
+
+    /**
+     * @return how many requests have had to wait.
+     */
+    public long getWaitCount() {
+        return waitCount.sum();
+    }
+
+    /**
+     * @return how long requests have waited, in total.
+     */
+    public long getTotalWaitMillis() {
+        return totalWaitMillis.sum();
+    }
+
+    /**
+     * @return how many times the service has told us to slow down.
+     */
+    public long getPauseCount() {
+        return pauseCount.sum();
+    }
+
+    private void sleep(long millis) throws B2LocalException {
+        if (!sleeper.sleepMilliseconds(millis)) {
+            throw new B2LocalException("interrupted", "interrupted while waiting for the rate limiter");
+        }
+    }
+
+    /**
+     * A token bucket that lets threads reserve tokens it doesn't have yet.
+     * They're told how long to wait for them, so the waiting threads leave
+     * at the rate, in the order they arrived.
+     */
+    private static class Bucket {
+        private final double permitsPerMilli;
+        private final double maxPermits;
+        private double permits;
+        private long lastMillis;
+
+        Bucket(Rate rate,
+               long nowMillis) {
+            this.permitsPerMilli = rate.permitsPerSecond / 1000;
+            this.maxPermits = rate.maxBurst;
+            this.permits = maxPermits;
+            this.lastMillis = nowMillis;
+        }
+
+        /**
+         * @param maxWaitMillis the longest the caller is willing to wait.
+         * @return how long the caller must wait for the permit it's just
+         *         reserved, or -1 if it would have to wait longer than
+         *         maxWaitMillis, in which case nothing is reserved.
+         */
+        synchronized long reserve(long nowMillis,
+                                  long maxWaitMillis) {
+            if (nowMillis > lastMillis) {
+                permits = Math.min(maxPermits, permits + (nowMillis - lastMillis) * permitsPerMilli);
+                lastMillis = nowMillis;
+            }
+            final double permitsAfter = permits - 1;
+            final long waitMillis = (permitsAfter >= 0) ? 0 : (long) Math.ceil(-permitsAfter / permitsPerMilli);
+            if (waitMillis > maxWaitMillis) {
+                return -1;
+            }
+            permits = permitsAfter;
+            return waitMillis;
+        }
+    }
+
+    private static class Rate {
+        private final double permitsPerSecond;
+        private final int maxBurst;
+
+        Rate(double permitsPerSecond,
+             int maxBurst) {
+            B2Preconditions.checkArgument(permitsPerSecond > 0, "permitsPerSecond must be positive");
+            B2Preconditions.checkArgument(maxBurst > 0, "maxBurst must be positive");
+            this.permitsPerSecond = permitsPerSecond;
+            this.maxBurst = maxBurst;
+        }
+    }
+
+    public static class Builder {
+        private final Map<Category, Rate> ratesByCategory = new EnumMap<>(Category.class);
+        private long defaultPauseMillis = DEFAULT_PAUSE_MILLIS;
+        private B2Sleeper sleeper = new B2Sleeper();
+
+        Builder() {
+            ratesByCategory.put(Category.AUTHORIZE_ACCOUNT, new Rate(1, 10));
+            ratesByCategory.put(Category.GET_UPLOAD_URL, new Rate(20, 50));
+            ratesByCategory.put(Category.LIST, new Rate(20, 50));
+        }
+
+        /**
+         * Sets the rate for a category of requests.
+         *
+         * @param category the kind of request.
+         * @param permitsPerSecond how many may be sent per second, on average.
+         * @param maxBurst how many may be sent at once when none have been sent for a while.
+         * @return this builder.
+         */
+        public Builder setRate(Category category,
+                               double permitsPerSecond,
+                               int maxBurst) {
+            ratesByCategory.put(category, new Rate(permitsPerSecond, maxBurst));
+            return this;
+        }
+
+        /**
+         * Lets a category of requests be sent as fast as the client likes,
+         * except when the service has said to pause.
+         */
+        public Builder setUnlimited(Category category) {
+            ratesByCategory.remove(category);
+            return this;
+        }
+
+        /**
+         * @param defaultPauseMillis how long to pause after a 429 without a Retry-After.
+         */
+        public Builder setDefaultPauseMillis(long defaultPauseMillis) {
+            this.defaultPauseMillis = defaultPauseMillis;
+            return this;
+        }
+
+        // for tests.
+        Builder setSleeper(B2Sleeper sleeper) {
+            this.sleeper = sleeper;
+            return this;
+        }
+
+        public B2RateLimiter build() {
+            return new B2RateLimiter(sleeper, defaultPauseMillis, ratesByCategory);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * B2RetryBudget limits how many retries all of a client's threads make,
+ * so that a service that's struggling doesn't get several times its usual
+ * load from clients retrying.
+ *
+ * Each B2RetryPolicy decides whether one call should retry, but it can't
+ * see what the other threads are doing.  When the service is unavailable,
+ * every thread's policy says to retry, up to 8 attempts each.  With a
+ * budget, retries after a delay (for 429, 500, 503, request timeouts and
+ * network errors) are at most retryPercent of the attempts that succeeded,
+ * with bursts of up to maxBurst retries.  Once the budget is spent, calls
+ * fail with the error they got instead of retrying, until enough calls
+ * succeed to earn more retries.
+ *
+ * Retries that happen right away, to get a new auth token or upload url,
+ * don't use the budget.
+ *
+ * One budget may be shared by several clients, to limit their retries
+ * together.
+ *
+ * THREAD-SAFETY: this class is thread-safe.
+ */
+public class B2RetryBudget {
+    static final double DEFAULT_RETRY_PERCENT = 10;
+    static final int DEFAULT_MAX_BURST = 50;
+
+    private final double retryPercent;
+    private final int maxBurst;
+    private final B2TokenBudget budget;
+    private final LongAdder allowedCount = new LongAdder();
+    private final LongAdder deniedCount = new LongAdder();
+
+    private B2RetryBudget(double retryPercent,
+                          int maxBurst) {
+        B2Preconditions.checkArgument(0 <= retryPercent && retryPercent <= 100,
+                "retryPercent must be between 0 and 100");
+        B2Preconditions.checkArgument(maxBurst >= 0, "maxBurst must not be negative");
+        this.retryPercent = retryPercent;
+        this.maxBurst = maxBurst;
+        this.budget = new B2TokenBudget(retryPercent / 100, maxBurst);
+    }
+
+    public static B2RetryBudget create() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the most retries we'll make, as a percentage of successful attempts.
+     */
+    public double getRetryPercent() {
+        return retryPercent;
+    }
+
+    /**
+     * @return how many retries can be made in a row when the budget has
+     *         been saved up.
+     */
+    public int getMaxBurst() {
+        return maxBurst;
+    }
+
+    /**
+     * @return how many retries the budget has allowed.
+     */
+    public long getAllowedCount() {
+        return allowedCount.sum();
+    }
+
+    /**
+     * @return how many retries the budget has refused.
+     */
+    public long getDeniedCount() {
+        return deniedCount.sum();
+    }
+
+    /**
+     * @return how many retries could be made right now.
+     */
+    public double getAvailableRetries() {
+        return budget.getTokens();
+    }
+
+    /**
+     * Called when an attempt succeeds, to earn part of a retry.
+     */
+    void succeeded() {
+        budget.earn();
+    }
+
+    /**
+     * @return true iff there's a retry in the budget.  if so, it's been spent.
+     */
+    boolean tryToRetry() {
+        if (budget.trySpend()) {
+            allowedCount.increment();
+            return true;
+        } else {
+            deniedCount.increment();
+            return false;
+        }
+    }
+
+    public static class Builder {
+        private double retryPercent = DEFAULT_RETRY_PERCENT;
+        private int maxBurst = DEFAULT_MAX_BURST;
+
+        public Builder setRetryPercent(double retryPercent) {
+            this.retryPercent = retryPercent;
+            return this;
+        }
+
+        public Builder setMaxBurst(int maxBurst) {
+            this.maxBurst = maxBurst;
+            return this;
+        }
+
+        public B2RetryBudget build() {
+            return new B2RetryBudget(retryPercent, maxBurst);
+        }
+    }
+}
@@ -6,6 +6,7 @@ package com.backblaze.b2.client;
 
 import com.backblaze.b2.client.exceptions.B2Exception;
 import com.backblaze.b2.client.exceptions.B2InternalErrorException;
+import com.backblaze.b2.client.exceptions.B2LocalException;
 import com.backblaze.b2.client.exceptions.B2NetworkBaseException;
 import com.backblaze.b2.client.exceptions.B2RequestTimeoutException;
 import com.backblaze.b2.client.exceptions.B2ServiceUnavailableException;
@@ -19,14 +20,60 @@ import java.util.concurrent.Callable;
  * Instances of this class provide helpers to do automatic backoff and retrying
  * for retryable errors.  The backoff behavior is determined by the B2RetryPolicy
  * that are passed in.
+ *
+ * Each call has its own B2RetryPolicy, but a B2Retryer may also have a
+ * B2RetryBudget and a B2CircuitBreaker, which are shared by all of the
+ * calls, to keep them from piling retries onto a service that's struggling.
+ *
+ * If there's a B2Deadline in effect, it doesn't start attempts after it,
+ * and doesn't wait to retry when the wait would end after it.
  */
 class B2Retryer {
+    private static final B2Metrics NO_METRICS = new B2Metrics() {};
+
     private final B2Sleeper sleeper;
+    private final B2Metrics metrics;
+    private final B2RetryBudget retryBudgetOrNull;
+    private final B2CircuitBreaker circuitBreakerOrNull;
 
     private static final B2Clock clock = B2Clock.get();
 
     B2Retryer(B2Sleeper sleeper) {
+        this(sleeper, null);
+    }
+
+    /**
+     * @param sleeper used to wait between attempts.
+     * @param metricsOrNull if not null, it's told about every attempt and retry.
+     */
+    B2Retryer(B2Sleeper sleeper,
+              B2Metrics metricsOrNull) {
+        this(sleeper, metricsOrNull, null, null);
+    }
+
+    /**
+     * @param sleeper used to wait between attempts.
+     * @param metricsOrNull if not null, it's told about every attempt and retry.
+     * @param retryBudgetOrNull if not null, retries after a delay are only made
+     *                          when it has room for them.
+     * @param circuitBreakerOrNull if not null, attempts are only made when it
+     *                             says the operation's circuit isn't open.
+     */
+    B2Retryer(B2Sleeper sleeper,
+              B2Metrics metricsOrNull,
+              B2RetryBudget retryBudgetOrNull,
+              B2CircuitBreaker circuitBreakerOrNull) {
         this.sleeper = sleeper;
+        this.metrics = (metricsOrNull != null) ? metricsOrNull : NO_METRICS;
+        this.retryBudgetOrNull = retryBudgetOrNull;
+        this.circuitBreakerOrNull = circuitBreakerOrNull;
+    }
+
+    /**
+     * @return the metrics this reports to.  if none were configured, it does nothing.
+     */
+    B2Metrics getMetrics() {
+        return metrics;
     }
 
     interface RetryableCallable<T> {
@@ -70,6 +117,8 @@ class B2Retryer {
 
         // keeps trying until we hit an unretryable exception or the retryPolicy says to stop.
         int attemptsSoFar = 0; // we haven't attempted it at all yet.
+        Exception lastFailureOrNull = null;
+        final B2Deadline deadlineOrNull = B2Deadline.currentOrNull();
         while (true) {
             final long beforeMonoMillis = clock.monotonicMillis();
 
@@ -83,8 +132,32 @@ class B2Retryer {
                     final boolean isRetry = (attemptsSoFar != 0);
                     attemptsSoFar++; // about to attempt again.
 
-                    final T value = callable.call(isRetry);
+                    if (deadlineOrNull != null && deadlineOrNull.hasPassed()) {
+                        throw deadlineOrNull.makeExceededException("trying " + operation, lastFailureOrNull);
+                    }
+                    if (circuitBreakerOrNull != null && !circuitBreakerOrNull.tryToAttempt(operation)) {
+                        throw new B2LocalException("circuit_open",
+                                operation + " has been failing, so it isn't being tried for a while",
+                                lastFailureOrNull);
+                    }
+
+                    metrics.attemptStarted(operation);
+                    final T value;
+                    try {
+                        value = callable.call(isRetry);
+                    } catch (Exception | Error e) {
+                        metrics.attemptFailed(operation, clock.monotonicMillis() - beforeMonoMillis, e);
+                        tellCircuitBreaker(operation, e, deadlineOrNull);
+                        throw e;
+                    }
                     tookMillis = clock.monotonicMillis() - beforeMonoMillis;
+                    metrics.attemptSucceeded(operation, tookMillis);
+                    if (circuitBreakerOrNull != null) {
+                        circuitBreakerOrNull.succeeded(operation);
+                    }
+                    if (retryBudgetOrNull != null) {
+                        retryBudgetOrNull.succeeded();
+                    }
                     retryPolicy.succeeded(operation, attemptsSoFar, tookMillis);
 
                     return value;
@@ -106,6 +179,8 @@ class B2Retryer {
                         if (!retryPolicy.gotRetryableImmediately(operation, attemptsSoFar, tookMillis, e)) {
                             throw e;
                         }
+                        metrics.retrying(operation, attemptsSoFar, e);
+                        sleepBeforeImmediateRetry(operation, attemptsSoFar, retryPolicy);
                         continue; // to go around the loop and try again.
 
                     case OTHER:
@@ -113,6 +188,8 @@ class B2Retryer {
                         if (!retryPolicy.gotRetryableImmediately(operation, attemptsSoFar, tookMillis, e)) {
                             throw e;
                         }
+                        metrics.retrying(operation, attemptsSoFar, e);
+                        sleepBeforeImmediateRetry(operation, attemptsSoFar, retryPolicy);
 
                         //noinspection UnnecessaryContinue
                         continue; // to go around the loop and try again.
@@ -123,8 +200,17 @@ class B2Retryer {
                     B2RequestTimeoutException |
                     B2NetworkBaseException e) {
 
-                final Integer waitSeconds = retryPolicy.gotRetryableAfterDelay(operation, attemptsSoFar, tookMillis, e);
-                if (waitSeconds == null) {
+                final Integer waitSeconds;
+                final Long waitMillis;
+                if (retryPolicy instanceof B2MillisecondRetryPolicy) {
+                    waitSeconds = null;
+                    waitMillis = ((B2MillisecondRetryPolicy) retryPolicy)
+                            .gotRetryableAfterDelayMillis(operation, attemptsSoFar, tookMillis, e);
+                } else {
+                    waitSeconds = retryPolicy.gotRetryableAfterDelay(operation, attemptsSoFar, tookMillis, e);
+                    waitMillis = null;
+                }
+                if (waitSeconds == null && waitMillis == null) {
                     // i haven't convinced myself that making a special "too many retries"
                     // exception to hold the underlying cause is sufficiently useful, so
                     // let's throw the most recent exception we got.  our documentation
@@ -132,13 +218,31 @@ class B2Retryer {
                     // already retried it.
                     throw e;
                 }
+                if (deadlineOrNull != null) {
+                    final long totalWaitMillis = (waitMillis != null) ? waitMillis : waitSeconds * 1000L;
+                    if (totalWaitMillis >= deadlineOrNull.getRemainingMillis()) {
+                        // there's no point in waiting for an attempt we wouldn't make.
+                        throw e;
+                    }
+                }
+                if (retryBudgetOrNull != null && !retryBudgetOrNull.tryToRetry()) {
+                    // lots of calls are retrying, and not many are succeeding,
+                    // so give up on this one.
+                    throw e;
+                }
+                lastFailureOrNull = e;
+                metrics.retrying(operation, attemptsSoFar, e);
 
                 // this sleep might return early, but it won't throw.  if it gets interrupted
                 // it resets the thread's interrupted flag so that we'll get the error later,
                 // hopefully during the next attempt (which is probably blocking on something
                 // like IO).  if we threw from here without retrying, we might surprise our
                 // B2RetryPolicy since it just told us to try again and we wouldn't.
-                sleeper.sleepSeconds(waitSeconds);
+                if (waitMillis != null) {
+                    sleeper.sleepMilliseconds(waitMillis);
+                } else {
+                    sleeper.sleepSeconds(waitSeconds);
+                }
             } catch (B2Exception e) {
                 // other types of exceptions aren't retryable!
                 retryPolicy.gotUnretryable(operation, attemptsSoFar, tookMillis, e);
@@ -155,5 +259,57 @@ class B2Retryer {
         }
     }
 
+    /**
+     * Gives policies that want them a short pause before retrying "immediately",
+     * so that lots of threads that got the same error don't all retry at once.
+     * Like the other sleeps, this won't throw if it's interrupted.
+     */
+    private void sleepBeforeImmediateRetry(String operation,
+                                           int attemptsSoFar,
+                                           B2RetryPolicy retryPolicy) {
+        if (retryPolicy instanceof B2MillisecondRetryPolicy) {
+            final long delayMillis = ((B2MillisecondRetryPolicy) retryPolicy)
+                    .getImmediateRetryDelayMillis(operation, attemptsSoFar);
+            if (delayMillis > 0) {
+                sleeper.sleepMilliseconds(delayMillis);
+            }
+        }
+    }
+
+    /**
+     * Tells the circuit breaker, if any, what a failed attempt says about
+     * whether the service is ok.
+     */
+    private void tellCircuitBreaker(String operation,
+                                    Throwable t,
+                                    B2Deadline deadlineOrNull) {
+        if (circuitBreakerOrNull == null) {
+            return;
+        }
+        if (isDeadlineExceeded(t) ||
+                (t instanceof B2NetworkBaseException && deadlineOrNull != null && deadlineOrNull.hasPassed())) {
+            // the attempt ran out of the caller's time, which says nothing
+            // about the service.  the client's timeouts are shortened to fit
+            // the deadline, so a network timeout once it has passed is most
+            // likely ours, not the service's.
+            circuitBreakerOrNull.ignored(operation);
+        } else if (t instanceof B2ServiceUnavailableException ||
+                t instanceof B2InternalErrorException ||
+                t instanceof B2RequestTimeoutException ||
+                t instanceof B2NetworkBaseException) {
+            circuitBreakerOrNull.failed(operation);
+        } else if (t instanceof B2TooManyRequestsException || !(t instanceof B2Exception)) {
+            // being throttled, or something unexpected on our side.
+            circuitBreakerOrNull.ignored(operation);
+        } else {
+            // the service answered, even if it said no.
+            circuitBreakerOrNull.succeeded(operation);
+        }
+    }
+
+    private static boolean isDeadlineExceeded(Throwable t) {
+        return (t instanceof B2LocalException) && "deadline_exceeded".equals(((B2LocalException) t).getCode());
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * B2SingleFlight lets concurrent identical calls share one call.  The first
+ * caller for a key makes the call, and callers that arrive while it's in
+ * flight wait for it and get the same result, or the same exception.  Once
+ * the call finishes, the next caller for the key makes a new call.
+ *
+ * A caller that's waiting stops waiting when its B2Deadline, if any, passes.
+ * The call goes on for the others.
+ *
+ * Callers that share a call share its retries, too.  They get the same
+ * exception object as the caller that made the call, so its stack trace is
+ * from that caller's thread.
+ *
+ * THREAD-SAFETY: this class is thread-safe.
+ */
+class B2SingleFlight<K, V> {
+    interface Call<V> {
+        V call() throws B2Exception;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder sharedCount = new LongAdder();
+
+    V call(K key, Call<V> call) throws B2Exception {
+        final CompletableFuture<V> mine = new CompletableFuture<>();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            sharedCount.increment();
+            return await(existing);
+        }
+
+        // we remove it before completing it, so that nobody can join
+        // a call whose result has already been handed out.
+        try {
+            final V result = call.call();
+            inFlight.remove(key, mine);
+            mine.complete(result);
+            return result;
+        } catch (B2Exception | RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return how many calls were answered by sharing another call.
+     */
+    long getSharedCount() {
+        return sharedCount.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws B2Exception {
+        final B2Deadline deadlineOrNull = B2Deadline.currentOrNull();
+        try {
+            if (deadlineOrNull == null) {
+                return future.get();
+            }
+            return future.get(deadlineOrNull.getRemainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw deadlineOrNull.makeExceededException("waiting for an identical request", null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new B2LocalException("interrupted", "interrupted while waiting for an identical request", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof B2Exception) {
+                throw (B2Exception) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+}
@@ -14,7 +14,7 @@ class B2Sleeper {
      * @return true iff we slept the whole time without being interrupted.
      *         otherwise, interrupts the current thread and returns false.
      */
-    private boolean sleepMilliseconds(int milliseconds) {
+    boolean sleepMilliseconds(long milliseconds) {
         try {
             Thread.sleep(milliseconds);
             return true;
@@ -35,6 +35,6 @@ class B2Sleeper {
      */
     @SuppressWarnings("UnusedReturnValue")
     boolean sleepSeconds(int seconds) {
-        return sleepMilliseconds(seconds * 1000);
+        return sleepMilliseconds(seconds * 1000L);
     }
 }
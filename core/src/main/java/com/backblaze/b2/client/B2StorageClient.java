@@ -59,6 +59,7 @@ import java.io.Closeable;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
 
 /*****
  * B2StorageClient is the interface for performing B2 operations.
@@ -225,6 +226,32 @@ public interface B2StorageClient extends Closeable {
      */
     B2FileVersion uploadSmallFile(B2UploadFileRequest request) throws B2Exception;
 
+    /**
+     * Uploads each of the specified requests as a normal B2 file, working on
+     * up to options.getMaxConcurrency() of them at once on the executor's threads.
+     * Upload urls are reused across the files, just like they are for uploadSmallFile().
+     *
+     * requests is consumed lazily, so it may be very large as long as it doesn't
+     * need to be held in memory all at once.  A failure to upload one file doesn't
+     * stop the others; it's reported to the listener and in the returned summary.
+     *
+     * @param requests the files to upload.  each must be smaller than the maximum file size (5 GB).
+     * @param options controls concurrency and cancellation.
+     * @param listenerOrNull if non-null, it's told about each file as soon as it's done.
+     * @param executor the executor to use for uploading files in parallel.
+     *                 the caller retains ownership of the executor and is
+     *                 responsible for shutting it down.
+     * @return a summary of which uploads succeeded and which failed.
+     * @throws B2Exception if iterating over the requests fails or the thread is interrupted.
+     */
+    default B2BulkOperationSummary<B2UploadFileRequest> uploadSmallFiles(
+            Iterable<B2UploadFileRequest> requests,
+            B2BulkOperationOptions options,
+            B2BulkOperationListener<B2UploadFileRequest, B2FileVersion> listenerOrNull,
+            ExecutorService executor) throws B2Exception {
+        return B2BulkRunner.run(requests, this::uploadSmallFile, options, listenerOrNull, executor);
+    }
+
     /**
      * Makes a copy of a file in the same bucket.
      * The new file must be smaller than the maximum file size (5 GB).
@@ -604,6 +631,32 @@ public interface B2StorageClient extends Closeable {
         return fileNames(B2ListFileNamesRequest.builder(bucketId).setMaxFileCount(1000).build());
     }
 
+    /**
+     * Returns a stream of the fileNames that match the given request, listing
+     * several ranges of names at the same time.
+     *
+     * Before returning, this probes the bucket (with small listing calls) to
+     * find places to split the names into options.getShardCount() ranges.  The
+     * ranges are then listed by up to options.getMaxConcurrency() tasks on the
+     * executor.  If options.isOrdered(), the names are in the same order as
+     * fileNames(request) would return them.
+     *
+     * The request may not have a delimiter.  If there's any trouble while
+     * reading the stream, it will throw a B2RuntimeException.  Close the stream
+     * if you don't read it to the end, so that the listing tasks stop.
+     *
+     * @param request specifies which fileNames to list.
+     * @param options says how to split up the listing.
+     * @param executor runs the listing tasks.
+     * @return a new stream of the fileVersions that match the given request.
+     * @throws B2Exception if there's any trouble finding the split points.
+     */
+    default Stream<B2FileVersion> fileNamesInParallel(B2ListFileNamesRequest request,
+                                                      B2ParallelListingOptions options,
+                                                      ExecutorService executor) throws B2Exception {
+        return B2ParallelFileNamesLister.stream(this, request, options, executor);
+    }
+
     /**
      * Returns an iterable whose iterator yields the fileVersions of large,
      * unfinished files that match the given request.
@@ -780,6 +833,98 @@ public interface B2StorageClient extends Closeable {
         }
     }
 
+    /**
+     * Deletes each of the specified file versions, working on up to
+     * options.getMaxConcurrency() of them at once on the executor's threads.
+     * Each deletion is retried just like deleteFileVersion() retries.
+     *
+     * versions is consumed lazily, so it may be a listing (like the Iterable
+     * from fileVersions()) whose next page is fetched while the previous page's
+     * versions are being deleted.  To delete the versions in a Stream, pass
+     * stream::iterator.
+     *
+     * A version that's already gone by the time we try to delete it (which the
+     * service reports with the code "file_not_present") counts as deleted,
+     * since that's what you were asking for.  That happens if someone
+     * else deletes it, or if an earlier attempt succeeded but we didn't hear
+     * the answer.  A failure to delete one version doesn't stop the others; it's
+     * reported to the listener and in the returned summary.
+     *
+     * @param versions the file versions to delete.
+     * @param options controls concurrency and cancellation.
+     * @param listenerOrNull if non-null, it's told about each version as soon as it's done.
+     * @param executor the executor to use for deleting in parallel.
+     *                 the caller retains ownership of the executor and is
+     *                 responsible for shutting it down.
+     * @return a summary of which deletions succeeded and which failed.
+     * @throws B2Exception if iterating over the versions fails or the thread is interrupted.
+     *                     any deletions that were started have finished before it's thrown.
+     */
+    default B2BulkOperationSummary<B2FileVersion> deleteFileVersions(
+            Iterable<B2FileVersion> versions,
+            B2BulkOperationOptions options,
+            B2BulkOperationListener<B2FileVersion, B2FileVersion> listenerOrNull,
+            ExecutorService executor) throws B2Exception {
+        return B2BulkRunner.run(versions,
+                version -> {
+                    try {
+                        deleteFileVersion(version);
+                    } catch (B2Exception e) {
+                        // the service says a version that's already gone is a bad
+                        // request, with this code.  anything else, even a 404 for
+                        // a missing bucket, is a real failure.
+                        if (!"file_not_present".equals(e.getCode())) {
+                            throw e;
+                        }
+                    }
+                    return version;
+                },
+                options,
+                listenerOrNull,
+                executor);
+    }
+
+    /**
+     * Just like deleteFileVersions(versions, ...), except that it deletes every
+     * version of every file in the bucket whose name starts with the given prefix.
+     *
+     * @param bucketId the bucket whose file versions should be deleted.
+     * @param prefix only file versions whose names start with this are deleted.
+     */
+    default B2BulkOperationSummary<B2FileVersion> deleteFileVersionsWithPrefix(
+            String bucketId,
+            String prefix,
+            B2BulkOperationOptions options,
+            B2BulkOperationListener<B2FileVersion, B2FileVersion> listenerOrNull,
+            ExecutorService executor) throws B2Exception {
+        final B2ListFileVersionsRequest request = B2ListFileVersionsRequest
+                .builder(bucketId)
+                .setPrefix(prefix)
+                .setMaxFileCount(1000)
+                .build();
+        return deleteFileVersions(fileVersions(request), options, listenerOrNull, executor);
+    }
+
+    /**
+     * Just like deleteAllFilesInBucket(bucketId), except that the versions
+     * are deleted in parallel and it returns a summary instead of stopping at
+     * the first failure.
+     *
+     * @param bucketId the bucket whose file versions should be deleted.
+     * @param options controls concurrency and cancellation.
+     * @param executor the executor to use for deleting in parallel.
+     *                 the caller retains ownership of the executor and is
+     *                 responsible for shutting it down.
+     * @return a summary of which deletions succeeded and which failed.
+     * @throws B2Exception if listing the versions fails or the thread is interrupted.
+     */
+    default B2BulkOperationSummary<B2FileVersion> deleteAllFilesInBucket(
+            String bucketId,
+            B2BulkOperationOptions options,
+            ExecutorService executor) throws B2Exception {
+        return deleteFileVersions(fileVersions(bucketId), options, null, executor);
+    }
+
     /**
      * @param request specifies what the download authorization should allow.
      * @return a download authorization
@@ -67,6 +67,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Supplier;
 
@@ -85,6 +86,14 @@ public class B2StorageClientImpl implements B2StorageClient {
 
     private final B2AccountAuthorizationCache accountAuthCache;
     private final B2UploadUrlCache uploadUrlCache;
+    private final B2UploadUrlPrefetcher uploadUrlPrefetcher;
+    private final B2FileInfoCache fileInfoCache;
+    private final B2SingleFlight<B2GetFileInfoRequest, B2FileVersion> getFileInfoFlightsOrNull;
+    private final B2SingleFlight<B2GetFileInfoByNameRequest, B2FileVersion> getFileInfoByNameFlightsOrNull;
+    private final B2DownloadCoalescer<B2DownloadByIdRequest> downloadByIdCoalescerOrNull;
+    private final B2Hedger hedger;
+    private final List<B2BucketIndex> bucketIndexes = new CopyOnWriteArrayList<>();
+    private final ExecutorService backgroundExecutorOrNull;
     private final boolean contiguousPartNumberingRequired;
 
     // protected by synchronized(this)
@@ -101,7 +110,16 @@ public class B2StorageClientImpl implements B2StorageClient {
     public B2StorageClientImpl(B2StorageClientWebifier webifier,
                                B2ClientConfig config,
                                Supplier<B2RetryPolicy> retryPolicySupplier) {
-        this(webifier, config, retryPolicySupplier, new B2Retryer(new B2Sleeper()));
+        this(webifier, config, retryPolicySupplier, makeRetryer(config));
+    }
+
+    private static B2Retryer makeRetryer(B2ClientConfig config) {
+        final B2CircuitBreakerPolicy circuitBreakerPolicy = config.getCircuitBreakerPolicy();
+        return new B2Retryer(
+                new B2Sleeper(),
+                config.getMetricsOrNull(),
+                config.getRetryBudgetOrNull(),
+                circuitBreakerPolicy.isEnabled() ? new B2CircuitBreaker(circuitBreakerPolicy) : null);
     }
 
     /**
@@ -115,11 +133,47 @@ public class B2StorageClientImpl implements B2StorageClient {
                         B2ClientConfig config,
                         Supplier<B2RetryPolicy> retryPolicySupplier,
                         B2Retryer retryer) {
-        this.webifier = webifier;
+        final B2Metrics metricsOrNull = config.getMetricsOrNull();
+        final B2StorageClientWebifier measuredWebifier = (metricsOrNull == null) ?
+                webifier :
+                new B2MetricsWebifier(webifier, metricsOrNull);
+        final B2AdaptiveConcurrencyLimiter concurrencyLimiterOrNull = config.getConcurrencyLimiterOrNull();
+        final B2StorageClientWebifier concurrencyLimitedWebifier = (concurrencyLimiterOrNull == null) ?
+                measuredWebifier :
+                new B2ConcurrencyLimitingWebifier(measuredWebifier, concurrencyLimiterOrNull);
+        // outside the concurrency limiter, so requests don't hold permits while waiting their turn.
+        final B2RateLimiter rateLimiterOrNull = config.getRateLimiterOrNull();
+        this.webifier = (rateLimiterOrNull == null) ?
+                concurrencyLimitedWebifier :
+                new B2RateLimitingWebifier(concurrencyLimitedWebifier, rateLimiterOrNull);
         this.retryPolicySupplier = retryPolicySupplier;
         this.retryer = retryer;
-        this.accountAuthCache = new B2AccountAuthorizationCache(webifier, config.getAccountAuthorizer());
-        this.uploadUrlCache = new B2UploadUrlCache(webifier, accountAuthCache);
+        this.backgroundExecutorOrNull = config.getBackgroundExecutorOrNull();
+        this.accountAuthCache = new B2AccountAuthorizationCache(
+                this.webifier,
+                config.getAccountAuthorizer(),
+                config.getAccountAuthorizationRefreshPolicy(),
+                backgroundExecutorOrNull);
+        this.uploadUrlPrefetcher = new B2UploadUrlPrefetcher(
+                backgroundExecutorOrNull,
+                config.getUploadUrlCachePolicy().getPrefetchCount());
+        this.uploadUrlCache = new B2UploadUrlCache(
+                this.webifier,
+                accountAuthCache,
+                config.getUploadUrlCachePolicy(),
+                uploadUrlPrefetcher,
+                metricsOrNull);
+        this.fileInfoCache = new B2FileInfoCache(config.getFileInfoCachePolicy());
+        if (config.isRequestCoalescingEnabled()) {
+            this.getFileInfoFlightsOrNull = new B2SingleFlight<>();
+            this.getFileInfoByNameFlightsOrNull = new B2SingleFlight<>();
+            this.downloadByIdCoalescerOrNull = new B2DownloadCoalescer<>(B2DownloadCoalescer.DEFAULT_MAX_BUFFERED_BYTES);
+        } else {
+            this.getFileInfoFlightsOrNull = null;
+            this.getFileInfoByNameFlightsOrNull = null;
+            this.downloadByIdCoalescerOrNull = null;
+        }
+        this.hedger = new B2Hedger(config.getHedgePolicy(), backgroundExecutorOrNull, metricsOrNull);
         this.contiguousPartNumberingRequired = config.isPartNumberGapsAllowed();
     }
 
@@ -155,12 +209,71 @@ public class B2StorageClientImpl implements B2StorageClient {
         return webifier;
     }
 
+    // the iterables use this to read ahead when their requests ask them to.
+    ExecutorService getBackgroundExecutorOrNull() {
+        return backgroundExecutorOrNull;
+    }
+
+    /**
+     * @return the cache of upload urls that uploadSmallFile() uses, so you
+     *         can see how often it had one ready.
+     */
+    public B2UploadUrlCache getUploadUrlCache() {
+        return uploadUrlCache;
+    }
+
+    /**
+     * @return the cache that getFileInfo() and getFileInfoByName() use.
+     *         it doesn't remember anything unless B2ClientConfig's
+     *         fileInfoCachePolicy is enabled.
+     */
+    public B2FileInfoCache getFileInfoCache() {
+        return fileInfoCache;
+    }
+
+    /**
+     * @return how many calls to getFileInfo(), getFileInfoByName() and
+     *         downloadById() shared another identical call's request,
+     *         instead of making their own.  it's always zero unless
+     *         B2ClientConfig's requestCoalescingEnabled is true.
+     */
+    public long getCoalescedRequestCount() {
+        if (downloadByIdCoalescerOrNull == null) {
+            return 0;
+        }
+        return getFileInfoFlightsOrNull.getSharedCount() +
+                getFileInfoByNameFlightsOrNull.getSharedCount() +
+                downloadByIdCoalescerOrNull.getSharedCount();
+    }
+
+    /**
+     * Asks the client to keep the index up to date with its uploads,
+     * deletes and listings of the index's bucket.
+     */
+    public void addBucketIndex(B2BucketIndex index) {
+        bucketIndexes.add(index);
+    }
+
+    public void removeBucketIndex(B2BucketIndex index) {
+        bucketIndexes.remove(index);
+    }
+
+    // tells the file info cache and the bucket indexes about a version we just made.
+    private void versionCreated(String bucketIdOrNull, B2FileVersion version) {
+        fileInfoCache.versionCreated(bucketIdOrNull, version);
+        for (B2BucketIndex index : bucketIndexes) {
+            index.versionCreated(bucketIdOrNull, version);
+        }
+    }
+
     @Override
     public B2Bucket createBucket(B2CreateBucketRequest request) throws B2Exception {
-        return retryer.doRetry("b2_create_bucket", accountAuthCache, () -> {
+        final B2Bucket bucket = retryer.doRetry("b2_create_bucket", accountAuthCache, () -> {
             B2CreateBucketRequestReal realRequest = new B2CreateBucketRequestReal(getAccountIdWithoutRetry(), request);
             return webifier.createBucket(accountAuthCache.get(), realRequest);
         }, retryPolicySupplier.get());
+        fileInfoCache.bucketSeen(bucket);
+        return bucket;
     }
 
     @Override
@@ -194,7 +307,9 @@ public class B2StorageClientImpl implements B2StorageClient {
 
     @Override
     public B2ListBucketsResponse listBuckets(B2ListBucketsRequest listBucketsRequest) throws B2Exception {
-        return retryer.doRetry("b2_list_buckets", accountAuthCache, () -> webifier.listBuckets(accountAuthCache.get(), listBucketsRequest), retryPolicySupplier.get());
+        final B2ListBucketsResponse response = retryer.doRetry("b2_list_buckets", accountAuthCache, () -> webifier.listBuckets(accountAuthCache.get(), listBucketsRequest), retryPolicySupplier.get());
+        fileInfoCache.bucketsListed(response);
+        return response;
     }
 
     @Override
@@ -205,17 +320,19 @@ public class B2StorageClientImpl implements B2StorageClient {
         final long contentLength = getContentLength(request.getContentSource());
         final B2PartSizes partSizes = getPartSizes();
 
-        B2LargeFileUploader uploader = new B2LargeFileUploader(retryer, webifier, accountAuthCache, retryPolicySupplier, executor, partSizes, request, contentLength);
+        B2LargeFileUploader uploader = new B2LargeFileUploader(retryer, webifier, accountAuthCache, retryPolicySupplier, executor, partSizes, request, contentLength, uploadUrlPrefetcher);
         final List<B2Part> alreadyUploadedParts = new ArrayList<>();
         for (B2Part part : parts(fileVersion.getFileId())) {
             alreadyUploadedParts.add(part);
         }
-        return uploader.finishUploadingLargeFile(fileVersion, alreadyUploadedParts);
+        final B2FileVersion version = uploader.finishUploadingLargeFile(fileVersion, alreadyUploadedParts);
+        versionCreated(request.getBucketId(), version);
+        return version;
     }
 
     @Override
     public B2FileVersion uploadSmallFile(B2UploadFileRequest request) throws B2Exception {
-        return retryer.doRetry("b2_upload_file",
+        final B2FileVersion uploaded = retryer.doRetry("b2_upload_file",
                 accountAuthCache,
                 (isRetry) -> {
                     final B2UploadUrlResponse uploadUrlResponse = uploadUrlCache.get(request.getBucketId(), isRetry);
@@ -224,14 +341,19 @@ public class B2StorageClientImpl implements B2StorageClient {
                     return version;
                 },
                 retryPolicySupplier.get());
+        versionCreated(request.getBucketId(), uploaded);
+        return uploaded;
     }
 
     @Override
     public B2FileVersion copySmallFile(B2CopyFileRequest request) throws B2Exception {
-        return retryer.doRetry("b2_copy_file",
+        final B2FileVersion version = retryer.doRetry("b2_copy_file",
                 accountAuthCache,
                 isRetry -> webifier.copyFile(accountAuthCache.get(), request),
                 retryPolicySupplier.get());
+        // without a destination bucket, the copy is in the source's bucket, which we don't know.
+        versionCreated(request.getDestinationBucketId(), version);
+        return version;
     }
 
     @Override
@@ -240,7 +362,9 @@ public class B2StorageClientImpl implements B2StorageClient {
         final long contentLength = getContentLength(request.getContentSource());
         final B2PartSizes partSizes = getPartSizes();
 
-        return uploadLargeFileGuts(executor, partSizes, request, contentLength);
+        final B2FileVersion version = uploadLargeFileGuts(executor, partSizes, request, contentLength);
+        versionCreated(request.getBucketId(), version);
+        return version;
     }
 
     @Override
@@ -260,7 +384,7 @@ public class B2StorageClientImpl implements B2StorageClient {
             B2UploadListener uploadListener,
             ExecutorService executor) throws B2Exception {
 
-        return B2LargeFileStorer.forLocalContent(
+        final B2FileVersion version = B2LargeFileStorer.forLocalContent(
                 storeLargeFileRequest,
                 contentSource,
                 getPartSizes(),
@@ -268,7 +392,11 @@ public class B2StorageClientImpl implements B2StorageClient {
                 webifier,
                 retryer,
                 retryPolicySupplier,
-                executor).storeFile(uploadListener);
+                executor,
+                false,
+                uploadUrlPrefetcher).storeFile(uploadListener);
+        versionCreated(null, version);
+        return version;
     }
 
     @Override
@@ -296,9 +424,15 @@ public class B2StorageClientImpl implements B2StorageClient {
                 webifier,
                 retryer,
                 retryPolicySupplier,
-                executor);
+                executor,
+                false,
+                uploadUrlPrefetcher);
 
-        return storer.storeFileAsync(uploadListenerOrNull);
+        // we return the storer's own future, since cancelling it cancels the upload.
+        // that means the cache might hear about the new version a moment after the caller does.
+        final CompletableFuture<B2FileVersion> future = storer.storeFileAsync(uploadListenerOrNull);
+        future.thenAccept(version -> versionCreated(null, version));
+        return future;
     }
 
     @Override
@@ -317,8 +451,8 @@ public class B2StorageClientImpl implements B2StorageClient {
             B2UploadListener uploadListenerOrNull,
             ExecutorService executor) throws B2Exception {
 
-        // Instantiate and return the manager.
-        return new B2LargeFileStorer(
+        // Instantiate and run the manager.
+        final B2FileVersion version = new B2LargeFileStorer(
                 storeLargeFileRequest,
                 partStorers,
                 accountAuthCache,
@@ -326,7 +460,10 @@ public class B2StorageClientImpl implements B2StorageClient {
                 retryer,
                 retryPolicySupplier,
                 executor,
-                contiguousPartNumberingRequired).storeFile(uploadListenerOrNull);
+                contiguousPartNumberingRequired,
+                uploadUrlPrefetcher).storeFile(uploadListenerOrNull);
+        versionCreated(null, version);
+        return version;
     }
 
     @Override
@@ -356,14 +493,15 @@ public class B2StorageClientImpl implements B2StorageClient {
                 retryer,
                 retryPolicySupplier,
                 executor,
-                contiguousPartNumberingRequired).storeParts(uploadListenerOrNull);
+                contiguousPartNumberingRequired,
+                uploadUrlPrefetcher).storeParts(uploadListenerOrNull);
     }
 
     private B2FileVersion uploadLargeFileGuts(ExecutorService executor,
                                               B2PartSizes partSizes,
                                               B2UploadFileRequest request,
                                               long contentLength) throws B2Exception {
-        B2LargeFileUploader uploader = new B2LargeFileUploader(retryer, webifier, accountAuthCache, retryPolicySupplier, executor, partSizes, request, contentLength);
+        B2LargeFileUploader uploader = new B2LargeFileUploader(retryer, webifier, accountAuthCache, retryPolicySupplier, executor, partSizes, request, contentLength, uploadUrlPrefetcher);
         return uploader.uploadLargeFile();
     }
 
@@ -429,16 +567,46 @@ public class B2StorageClientImpl implements B2StorageClient {
     @Override
     public void downloadById(B2DownloadByIdRequest request,
                              B2ContentSink handler) throws B2Exception {
+        if (downloadByIdCoalescerOrNull == null) {
+            downloadByIdWithoutCoalescing(request, handler);
+        } else {
+            downloadByIdCoalescerOrNull.download(request, handler, sink -> downloadByIdWithoutCoalescing(request, sink));
+        }
+    }
+
+    private void downloadByIdWithoutCoalescing(B2DownloadByIdRequest request,
+                                               B2ContentSink handler) throws B2Exception {
         retryer.doRetry("b2_download_file_by_id",
                 accountAuthCache,
                 () -> {
                     B2AccountAuthorization accountAuth = accountAuthCache.get();
-                    webifier.downloadById(accountAuth, request, handler);
-                    return 0; // to meet Callable api!
+                    final B2ContentSink sink = fileInfoCache.rememberingSink(accountAuth, request, request.getRange(), null, handler);
+                    return hedger.call("b2_download_file_by_id", attempt -> {
+                        webifier.downloadById(accountAuth, request, hedgedSink(attempt, sink));
+                        return 0; // to meet Callable api!
+                    });
                 },
                 retryPolicySupplier.get());
     }
 
+    /**
+     * A hedged download only gives its content to the sink if it's the
+     * first attempt to get a response.  The other one gives up.  The sink
+     * runs on the caller's thread, even though the attempts don't.
+     */
+    private B2ContentSink hedgedSink(B2Hedger.Attempt attempt,
+                                     B2ContentSink sink) {
+        if (!hedger.isEnabled()) {
+            return sink;
+        }
+        return (responseHeaders, in) -> {
+            if (!attempt.tryToWin()) {
+                throw new B2LocalException("hedge_lost", "another attempt at this download responded first");
+            }
+            attempt.runOnCaller(() -> sink.readContent(responseHeaders, in));
+        };
+    }
+
     @Override
     public String getDownloadByIdUrl(B2DownloadByIdRequest request) throws B2Exception {
         return retryer.doRetry("getDownloadByIdUrl",
@@ -469,8 +637,11 @@ public class B2StorageClientImpl implements B2StorageClient {
                 accountAuthCache,
                 () -> {
                     B2AccountAuthorization accountAuth = accountAuthCache.get();
-                    webifier.downloadByName(accountAuth, request, handler);
-                    return 0; // to meet Callable api!
+                    final B2ContentSink sink = fileInfoCache.rememberingSink(accountAuth, request, request.getRange(), request.getBucketName(), handler);
+                    return hedger.call("b2_download_file_by_name", attempt -> {
+                        webifier.downloadByName(accountAuth, request, hedgedSink(attempt, sink));
+                        return 0; // to meet Callable api!
+                    });
                 },
                 retryPolicySupplier.get());
     }
@@ -484,6 +655,10 @@ public class B2StorageClientImpl implements B2StorageClient {
                     return 0; // to meet Callable api!
                 },
                 retryPolicySupplier.get());
+        fileInfoCache.versionChanged(request.getFileId(), request.getFileName());
+        for (B2BucketIndex index : bucketIndexes) {
+            index.versionDeleted(request.getFileId(), request.getFileName());
+        }
     }
 
     @Override
@@ -493,30 +668,79 @@ public class B2StorageClientImpl implements B2StorageClient {
 
     @Override
     public B2FileVersion getFileInfo(B2GetFileInfoRequest request) throws B2Exception {
-        return retryer.doRetry("b2_get_file_info", accountAuthCache, () -> webifier.getFileInfo(accountAuthCache.get(), request), retryPolicySupplier.get());
+        final B2FileVersion cached = fileInfoCache.getByIdOrNull(request.getFileId());
+        if (cached != null) {
+            return cached;
+        }
+        if (getFileInfoFlightsOrNull == null) {
+            return getFileInfoWithoutCoalescing(request);
+        }
+        return getFileInfoFlightsOrNull.call(request, () -> getFileInfoWithoutCoalescing(request));
+    }
+
+    private B2FileVersion getFileInfoWithoutCoalescing(B2GetFileInfoRequest request) throws B2Exception {
+        final long invalidations = fileInfoCache.getInvalidationCount();
+        final B2FileVersion version = retryer.doRetry("b2_get_file_info",
+                accountAuthCache,
+                () -> {
+                    final B2AccountAuthorization accountAuth = accountAuthCache.get();
+                    return hedger.call("b2_get_file_info", attempt -> webifier.getFileInfo(accountAuth, request));
+                },
+                retryPolicySupplier.get());
+        fileInfoCache.versionRead(invalidations, version);
+        return version;
     }
 
     @Override
     public B2FileVersion getFileInfoByName(B2GetFileInfoByNameRequest request) throws B2Exception {
-        return retryer.doRetry("get_file_info_by_name", accountAuthCache, () -> webifier.getFileInfoByName(accountAuthCache.get(), request), retryPolicySupplier.get());
+        // with an SSE-C key, the server checks the key, so we have to ask it.
+        if (request.getServerSideEncryption() == null) {
+            final B2FileVersion cached = fileInfoCache.getByNameOrNull(request.getBucketName(), request.getFileName());
+            if (cached != null) {
+                return cached;
+            }
+        }
+        if (getFileInfoByNameFlightsOrNull == null) {
+            return getFileInfoByNameWithoutCoalescing(request);
+        }
+        return getFileInfoByNameFlightsOrNull.call(request, () -> getFileInfoByNameWithoutCoalescing(request));
+    }
+
+    private B2FileVersion getFileInfoByNameWithoutCoalescing(B2GetFileInfoByNameRequest request) throws B2Exception {
+        final long invalidations = fileInfoCache.getInvalidationCount();
+        final B2FileVersion version = retryer.doRetry("get_file_info_by_name",
+                accountAuthCache,
+                () -> {
+                    final B2AccountAuthorization accountAuth = accountAuthCache.get();
+                    return hedger.call("get_file_info_by_name", attempt -> webifier.getFileInfoByName(accountAuth, request));
+                },
+                retryPolicySupplier.get());
+        fileInfoCache.latestVersionRead(invalidations, request.getBucketName(), version);
+        return version;
     }
 
     @Override
     public B2FileVersion hideFile(B2HideFileRequest request) throws B2Exception {
-        return retryer.doRetry("b2_hide_file", accountAuthCache, () -> webifier.hideFile(accountAuthCache.get(), request), retryPolicySupplier.get());
+        final B2FileVersion version = retryer.doRetry("b2_hide_file", accountAuthCache, () -> webifier.hideFile(accountAuthCache.get(), request), retryPolicySupplier.get());
+        versionCreated(request.getBucketId(), version);
+        return version;
     }
 
     @Override
     public B2Bucket updateBucket(B2UpdateBucketRequest request) throws B2Exception {
-        return retryer.doRetry("b2_update_bucket", accountAuthCache, () -> webifier.updateBucket(accountAuthCache.get(), request), retryPolicySupplier.get());
+        final B2Bucket bucket = retryer.doRetry("b2_update_bucket", accountAuthCache, () -> webifier.updateBucket(accountAuthCache.get(), request), retryPolicySupplier.get());
+        fileInfoCache.bucketSeen(bucket);
+        return bucket;
     }
 
     @Override
     public B2Bucket deleteBucket(B2DeleteBucketRequest request) throws B2Exception {
-        return retryer.doRetry("b2_delete_bucket", accountAuthCache, () ->  {
+        final B2Bucket bucket = retryer.doRetry("b2_delete_bucket", accountAuthCache, () ->  {
             B2DeleteBucketRequestReal realRequest = new B2DeleteBucketRequestReal(getAccountIdWithoutRetry(), request.getBucketId());
             return webifier.deleteBucket(accountAuthCache.get(), realRequest);
         }, retryPolicySupplier.get());
+        fileInfoCache.bucketDeleted(request.getBucketId());
+        return bucket;
     }
 
     @Override
@@ -560,23 +784,29 @@ public class B2StorageClientImpl implements B2StorageClient {
 
     @Override
     public B2FileVersion finishLargeFile(B2FinishLargeFileRequest request) throws B2Exception {
-        return retryer.doRetry("b2_finish_large_file", accountAuthCache,
+        final B2FileVersion version = retryer.doRetry("b2_finish_large_file", accountAuthCache,
                 () -> webifier.finishLargeFile(accountAuthCache.get(), request),
                 retryPolicySupplier.get());
+        versionCreated(null, version);
+        return version;
     }
 
     @Override
     public B2UpdateFileLegalHoldResponse updateFileLegalHold(B2UpdateFileLegalHoldRequest request) throws B2Exception {
-        return retryer.doRetry("b2_update_file_legal_hold", accountAuthCache,
+        final B2UpdateFileLegalHoldResponse response = retryer.doRetry("b2_update_file_legal_hold", accountAuthCache,
                 () -> webifier.updateFileLegalHold(accountAuthCache.get(), request),
                 retryPolicySupplier.get());
+        fileInfoCache.versionChanged(request.getFileId(), request.getFileName());
+        return response;
     }
 
     @Override
     public B2UpdateFileRetentionResponse updateFileRetention(B2UpdateFileRetentionRequest request) throws B2Exception {
-        return retryer.doRetry("b2_update_file_retention", accountAuthCache,
+        final B2UpdateFileRetentionResponse response = retryer.doRetry("b2_update_file_retention", accountAuthCache,
                 () -> webifier.updateFileRetention(accountAuthCache.get(), request),
                 retryPolicySupplier.get());
+        fileInfoCache.versionChanged(request.getFileId(), request.getFileName());
+        return response;
     }
 
 
@@ -585,10 +815,19 @@ public class B2StorageClientImpl implements B2StorageClient {
     // XXX: make private somehow, or move to B2StorageClient interface.
     //
     B2ListFileVersionsResponse listFileVersions(B2ListFileVersionsRequest request) throws B2Exception {
-        return retryer.doRetry("b2_list_file_versions", accountAuthCache, () -> webifier.listFileVersions(accountAuthCache.get(), request), retryPolicySupplier.get());
+        final long invalidations = fileInfoCache.getInvalidationCount();
+        final B2ListFileVersionsResponse response = retryer.doRetry("b2_list_file_versions", accountAuthCache, () -> webifier.listFileVersions(accountAuthCache.get(), request), retryPolicySupplier.get());
+        fileInfoCache.fileVersionsListed(invalidations, response);
+        return response;
     }
     B2ListFileNamesResponse listFileNames(B2ListFileNamesRequest request) throws B2Exception {
-        return retryer.doRetry("b2_list_file_names", accountAuthCache, () -> webifier.listFileNames(accountAuthCache.get(), request), retryPolicySupplier.get());
+        final long invalidations = fileInfoCache.getInvalidationCount();
+        final B2ListFileNamesResponse response = retryer.doRetry("b2_list_file_names", accountAuthCache, () -> webifier.listFileNames(accountAuthCache.get(), request), retryPolicySupplier.get());
+        fileInfoCache.fileNamesListed(invalidations, request.getBucketId(), response);
+        for (B2BucketIndex index : bucketIndexes) {
+            index.fileNamesListed(request, response);
+        }
+        return response;
     }
     B2ListKeysResponse listKeys(B2ListKeysRequest request) throws B2Exception {
 
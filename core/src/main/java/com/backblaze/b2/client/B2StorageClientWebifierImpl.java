@@ -20,6 +20,7 @@ import com.backblaze.b2.client.structures.B2Bucket;
 import com.backblaze.b2.client.structures.B2CancelLargeFileRequest;
 import com.backblaze.b2.client.structures.B2CancelLargeFileResponse;
 import com.backblaze.b2.client.structures.B2Capabilities;
+import com.backblaze.b2.client.structures.B2CompactFileVersionList;
 import com.backblaze.b2.client.structures.B2CopyFileRequest;
 import com.backblaze.b2.client.structures.B2CopyPartRequest;
 import com.backblaze.b2.client.structures.B2CreateBucketRequestReal;
@@ -143,6 +144,40 @@ public class B2StorageClientWebifierImpl implements B2StorageClientWebifier {
         }
     }
 
+    // these are just like B2ListFileNamesResponse and B2ListFileVersionsResponse,
+    // except that they read the files into a B2CompactFileVersionList.
+    private static class CompactListFileNamesResponse {
+        @B2Json.required
+        private final B2CompactFileVersionList files;
+        @B2Json.optional
+        private final String nextFileName;
+
+        @B2Json.constructor(params = "files,nextFileName")
+        CompactListFileNamesResponse(B2CompactFileVersionList files,
+                                     String nextFileName) {
+            this.files = files;
+            this.nextFileName = nextFileName;
+        }
+    }
+
+    private static class CompactListFileVersionsResponse {
+        @B2Json.required
+        private final B2CompactFileVersionList files;
+        @B2Json.optional
+        private final String nextFileName;
+        @B2Json.optional
+        private final String nextFileId;
+
+        @B2Json.constructor(params = "files,nextFileName,nextFileId")
+        CompactListFileVersionsResponse(B2CompactFileVersionList files,
+                                        String nextFileName,
+                                        String nextFileId) {
+            this.files = files;
+            this.nextFileName = nextFileName;
+            this.nextFileId = nextFileId;
+        }
+    }
+
     @Override
     public void close() {
         webApiClient.close();
@@ -415,6 +450,14 @@ public class B2StorageClientWebifierImpl implements B2StorageClientWebifier {
     @Override
     public B2ListFileVersionsResponse listFileVersions(B2AccountAuthorization accountAuth,
                                                        B2ListFileVersionsRequest request) throws B2Exception {
+        if (request.isCompactPages()) {
+            final CompactListFileVersionsResponse response = webApiClient.postJsonReturnJson(
+                    makeUrl(accountAuth, "b2_list_file_versions"),
+                    makeHeaders(accountAuth),
+                    request,
+                    CompactListFileVersionsResponse.class);
+            return new B2ListFileVersionsResponse(response.files, response.nextFileName, response.nextFileId);
+        }
         return webApiClient.postJsonReturnJson(
                 makeUrl(accountAuth, "b2_list_file_versions"),
                 makeHeaders(accountAuth),
@@ -425,6 +468,14 @@ public class B2StorageClientWebifierImpl implements B2StorageClientWebifier {
     @Override
     public B2ListFileNamesResponse listFileNames(B2AccountAuthorization accountAuth,
                                                  B2ListFileNamesRequest request) throws B2Exception {
+        if (request.isCompactPages()) {
+            final CompactListFileNamesResponse response = webApiClient.postJsonReturnJson(
+                    makeUrl(accountAuth, "b2_list_file_names"),
+                    makeHeaders(accountAuth),
+                    request,
+                    CompactListFileNamesResponse.class);
+            return new B2ListFileNamesResponse(response.files, response.nextFileName);
+        }
         return webApiClient.postJsonReturnJson(
                 makeUrl(accountAuth, "b2_list_file_names"),
                 makeHeaders(accountAuth),
@@ -585,6 +636,15 @@ public class B2StorageClientWebifierImpl implements B2StorageClientWebifier {
         B2Headers headers = webApiClient.head(makeGetFileInfoByNameUrl(accountAuth, request.getBucketName(),
                 request.getFileName()), makeHeaders(accountAuth, extras));
 
+        return fileVersionFromHeaders(accountAuth, headers);
+    }
+
+    /**
+     * Makes a B2FileVersion from the headers of a HEAD or GET of a whole file.
+     * B2StorageClientImpl also uses this to remember what it learns from downloads.
+     */
+    static B2FileVersion fileVersionFromHeaders(B2AccountAuthorization accountAuth,
+                                                B2Headers headers) {
         final B2FileRetention b2FileRetentionOrNull = B2FileRetention.getFileRetentionFromHeadersOrNull(headers);
         final String legalHoldOrNull = headers.getFileLegalHoldOrNull();
 
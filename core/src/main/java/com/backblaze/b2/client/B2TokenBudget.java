@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * B2TokenBudget is a bucket of tokens that are earned a fraction at a time
+ * and spent a whole token at a time.  It limits something (like hedges or
+ * retries) to a fraction of something else (like requests or successes),
+ * while allowing bursts of up to maxTokens.  It starts out full.
+ *
+ * The tokens are kept in thousandths, so it can use an AtomicLong.
+ *
+ * THREAD-SAFETY: this class is thread-safe and lock-free.
+ */
+class B2TokenBudget {
+    private static final long MILLI_TOKENS_PER_TOKEN = 1000;
+
+    private final long milliTokensPerEarn;
+    private final long maxMilliTokens;
+    private final AtomicLong milliTokens;
+
+    /**
+     * @param tokensPerEarn how much of a token each call to earn() adds.
+     * @param maxTokens the most tokens the bucket holds.
+     */
+    B2TokenBudget(double tokensPerEarn,
+                  int maxTokens) {
+        this.milliTokensPerEarn = Math.round(tokensPerEarn * MILLI_TOKENS_PER_TOKEN);
+        this.maxMilliTokens = maxTokens * MILLI_TOKENS_PER_TOKEN;
+        this.milliTokens = new AtomicLong(maxMilliTokens);
+    }
+
+    void earn() {
+        add(milliTokensPerEarn);
+    }
+
+    /**
+     * @return true iff there was a whole token to spend, and it's been spent.
+     */
+    boolean trySpend() {
+        while (true) {
+            final long current = milliTokens.get();
+            if (current < MILLI_TOKENS_PER_TOKEN) {
+                return false;
+            }
+            if (milliTokens.compareAndSet(current, current - MILLI_TOKENS_PER_TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token that was spent but not used.
+     */
+    void refund() {
+        add(MILLI_TOKENS_PER_TOKEN);
+    }
+
+    /**
+     * @return how many tokens there are, including fractions of one.
+     */
+    double getTokens() {
+        return ((double) milliTokens.get()) / MILLI_TOKENS_PER_TOKEN;
+    }
+
+    private void add(long milliTokensToAdd) {
+        milliTokens.updateAndGet(current -> Math.min(maxMilliTokens, current + milliTokensToAdd));
+    }
+}
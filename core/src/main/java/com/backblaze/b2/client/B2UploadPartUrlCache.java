@@ -10,6 +10,8 @@ import com.backblaze.b2.client.structures.B2UploadPartUrlResponse;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
 
 /**
  * The B2UploadPartUrlCache holds upload responses for a single large file.
@@ -17,6 +19,12 @@ import java.util.Deque;
  * If you use it and it works, unget() it when you're done.
  * If there's trouble, don't unget() it so it won't be used again.
  *
+ * If the prefetcher is enabled, every get() also starts enough background
+ * fetches to keep a few urls ready for the next parts.  It never keeps more
+ * ready than the number of parts that haven't started yet, so it stops
+ * fetching once the last part has started.  (Parts that have started
+ * already have a url or are getting one themselves.)
+ *
  * THREAD-SAFETY: this class may be used from multiple threads safely.
  *    (for this to be true, the accountAuthCache and webifier must be thread safe!)
  */
@@ -24,6 +32,12 @@ class B2UploadPartUrlCache {
     private final B2StorageClientWebifier webifier;
     private final B2AccountAuthorizationCache accountAuthCache;
     private final String largeFileId;
+    private final B2UploadUrlPrefetcher prefetcher;
+    private final B2Metrics metricsOrNull;
+    private final IntSupplier partsNotStarted;
+
+    // how many background fetches are in flight for this large file.
+    private final AtomicInteger prefetching = new AtomicInteger();
 
     // this is a deque so that i can inexpensively pull from the
     // front and add to the end so that answers don't get stuck too long.
@@ -32,9 +46,45 @@ class B2UploadPartUrlCache {
     B2UploadPartUrlCache(B2StorageClientWebifier webifier,
                          B2AccountAuthorizationCache accountAuthCache,
                          String largeFileId) {
+        this(webifier, accountAuthCache, largeFileId, B2UploadUrlPrefetcher.disabled());
+    }
+
+    B2UploadPartUrlCache(B2StorageClientWebifier webifier,
+                         B2AccountAuthorizationCache accountAuthCache,
+                         String largeFileId,
+                         B2UploadUrlPrefetcher prefetcher) {
+        this(webifier, accountAuthCache, largeFileId, prefetcher, null);
+    }
+
+    B2UploadPartUrlCache(B2StorageClientWebifier webifier,
+                         B2AccountAuthorizationCache accountAuthCache,
+                         String largeFileId,
+                         B2UploadUrlPrefetcher prefetcher,
+                         B2Metrics metricsOrNull) {
+        this(webifier, accountAuthCache, largeFileId, prefetcher, metricsOrNull, () -> Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param partsNotStarted says how many parts haven't started being
+     *                        stored yet.  prefetching doesn't get more
+     *                        urls ready than that.
+     */
+    B2UploadPartUrlCache(B2StorageClientWebifier webifier,
+                         B2AccountAuthorizationCache accountAuthCache,
+                         String largeFileId,
+                         B2UploadUrlPrefetcher prefetcher,
+                         B2Metrics metricsOrNull,
+                         IntSupplier partsNotStarted) {
         this.webifier = webifier;
         this.accountAuthCache = accountAuthCache;
         this.largeFileId = largeFileId;
+        this.prefetcher = prefetcher;
+        this.metricsOrNull = metricsOrNull;
+        this.partsNotStarted = partsNotStarted;
+    }
+
+    String getLargeFileId() {
+        return largeFileId;
     }
 
     /**
@@ -53,17 +103,32 @@ class B2UploadPartUrlCache {
         // with isRetry=false and does not unget() the url before calling it
         // with isRetry=true, we will make progress clearing stale URLS and
         // we won't build up lots of URLs.
-        if (!isRetry) {
-            // first, look to see if we have an answer already.
-            synchronized (this) {
-                B2UploadPartUrlResponse response = responses.pollFirst();
-                if (response != null) {
-                    return response;
-                }
+        B2UploadPartUrlResponse responseOrNull = null;
+        final int readyCount;
+        synchronized (this) {
+            if (!isRetry) {
+                // first, look to see if we have an answer already.
+                responseOrNull = responses.pollFirst();
             }
+            readyCount = responses.size();
+        }
+        if (!isRetry && metricsOrNull != null) {
+            metricsOrNull.uploadUrlCacheLookup("b2_get_upload_part_url", responseOrNull != null);
+        }
+
+        // whether we just took a url or the caller threw one away before
+        // retrying, this is a good time to get more ready.
+        prefetcher.topUp(readyCount, partsNotStarted.getAsInt(), prefetching, this::fetch, this::unget);
+
+        if (responseOrNull != null) {
+            return responseOrNull;
         }
 
         // we don't have an answer yet, so ask the server for one and return it.
+        return fetch();
+    }
+
+    private B2UploadPartUrlResponse fetch() throws B2Exception {
         final B2GetUploadPartUrlRequest request = B2GetUploadPartUrlRequest.builder(largeFileId).build();
         return webifier.getUploadPartUrl(accountAuthCache.get(), request);
     }
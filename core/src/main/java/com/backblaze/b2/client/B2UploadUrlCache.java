@@ -7,10 +7,15 @@ package com.backblaze.b2.client;
 import com.backblaze.b2.client.exceptions.B2Exception;
 import com.backblaze.b2.client.structures.B2GetUploadUrlRequest;
 import com.backblaze.b2.client.structures.B2UploadUrlResponse;
+import com.backblaze.b2.util.B2Clock;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * The B2UploadUrlCache holds upload urls for buckets.
@@ -18,37 +23,109 @@ import java.util.Map;
  * If you use it and it works, unget() it when you're done.
  * If there's trouble, don't unget() it so it won't be used again.
  *
+ * The cache holds at most policy.getMaxUrlsPerBucket() urls for each bucket
+ * and discards urls which have been sitting unused for longer than
+ * policy.getMaxIdleMillis().
+ *
+ * If the prefetcher is enabled, every get() for a bucket also starts enough
+ * background fetches to keep about policy.getPrefetchCount() urls ready for
+ * that bucket.  Buckets nobody is asking for don't get refilled, so their
+ * urls just age out.
+ *
+ * Use B2StorageClientImpl.getUploadUrlCache() to see its hit, miss and
+ * eviction counts.
+ *
  * THREAD-SAFETY: this class may be used from multiple threads safely.
+ *                get() and unget() don't take any locks, so lots of
+ *                uploading threads don't serialize on the cache.
  */
-class B2UploadUrlCache {
+public class B2UploadUrlCache {
     // how many buckets are we willing to track at once?
     static final int MAX_BUCKETS = 100;
 
+    private static final B2Clock clock = B2Clock.get();
+
     private final B2StorageClientWebifier webifier;
     private final B2AccountAuthorizationCache accountAuthCache;
+    private final B2UploadUrlCachePolicy policy;
+    private final B2UploadUrlPrefetcher prefetcher;
+    private final B2Metrics metricsOrNull;
+
+    // we get rid of the least recently used bucket's urls when we've got
+    // more than 100 buckets.  that's the most buckets any account is allowed
+    // to have, so it's reasonable time to start discarding the oldest buckets
+    // if someone is cycling through buckets.
+    private final ConcurrentMap<String, BucketPool> perBucket = new ConcurrentHashMap<>();
+
+    // every get() and unget() takes the next value from this to mark its
+    // bucket as recently used.  it's a counter instead of a time so that
+    // it's strictly ordered even when lots of things happen in the same
+    // millisecond.
+    private final AtomicLong useCounter = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * The cached urls for one bucket.
+     *
+     * This contains a deque so that i can inexpensively pull from the front
+     * and add to the end so that answers don't get stuck too long.  that also
+     * means the entries at the front are the ones that have been idle the
+     * longest.
+     *
+     * 'size' is maintained separately because ConcurrentLinkedDeque.size() walks
+     * the whole deque.  it may briefly disagree with the deque while another
+     * thread is between touching the deque and updating size, which is fine
+     * for enforcing a soft maximum.
+     */
+    private static class BucketPool {
+        private final ConcurrentLinkedDeque<Entry> entries = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger prefetching = new AtomicInteger();
+        private volatile long lastUse;
+    }
 
-    // this is a LinkedHashMap because i want get rid of the least recently
-    // used entries when we've got more than 100 buckets.  that's the most
-    // buckets any account is allowed to have, so it's reasonable time to
-    // start discarding the oldest buckets if someone is cycling through
-    // buckets.
-    //
-    // this contains deques so that i can inexpensively pull from the
-    // front and add to the end so that answers don't get stuck too long.
-    //
-    // it might be nice to have a maximum number of responses per bucket
-    // that i'm willing to keep or a maximum age before we consider them
-    // too old, or something else to help bound memory usage.  meanwhile,
-    // it should be roughly bound by the number of threads that have
-    // ever uploaded to a given bucket simultaneously and that's probably
-    // good enough.
-    private final Map<String, Deque<B2UploadUrlResponse>> perBucket;
+    private static class Entry {
+        private final B2UploadUrlResponse response;
+        private final long ungotAtMonoMillis;
+
+        private Entry(B2UploadUrlResponse response,
+                      long ungotAtMonoMillis) {
+            this.response = response;
+            this.ungotAtMonoMillis = ungotAtMonoMillis;
+        }
+    }
 
     B2UploadUrlCache(B2StorageClientWebifier webifier,
                      B2AccountAuthorizationCache accountAuthCache) {
+        this(webifier, accountAuthCache, B2UploadUrlCachePolicy.defaultPolicy());
+    }
+
+    B2UploadUrlCache(B2StorageClientWebifier webifier,
+                     B2AccountAuthorizationCache accountAuthCache,
+                     B2UploadUrlCachePolicy policy) {
+        this(webifier, accountAuthCache, policy, B2UploadUrlPrefetcher.disabled());
+    }
+
+    B2UploadUrlCache(B2StorageClientWebifier webifier,
+                     B2AccountAuthorizationCache accountAuthCache,
+                     B2UploadUrlCachePolicy policy,
+                     B2UploadUrlPrefetcher prefetcher) {
+        this(webifier, accountAuthCache, policy, prefetcher, null);
+    }
+
+    B2UploadUrlCache(B2StorageClientWebifier webifier,
+                     B2AccountAuthorizationCache accountAuthCache,
+                     B2UploadUrlCachePolicy policy,
+                     B2UploadUrlPrefetcher prefetcher,
+                     B2Metrics metricsOrNull) {
         this.webifier = webifier;
         this.accountAuthCache = accountAuthCache;
-        perBucket = B2BoundedLruMap.withMax(MAX_BUCKETS);
+        this.policy = policy;
+        this.prefetcher = prefetcher;
+        this.metricsOrNull = metricsOrNull;
     }
 
     /**
@@ -69,20 +146,39 @@ class B2UploadUrlCache {
         // with isRetry=false and does not unget() the url before calling it
         // with isRetry=true, we will make progress clearing stale URLS and
         // we won't build up lots of URLs.
+        B2UploadUrlResponse responseOrNull = null;
         if (!isRetry) {
             // first, look to see if we have an answer already.
-            synchronized (this) {
-                Deque<B2UploadUrlResponse> responses = perBucket.get(bucketId);
-                if (responses != null) {
-                    B2UploadUrlResponse response = responses.pollFirst();
-                    if (response != null) {
-                        return response;
-                    }
-                }
+            responseOrNull = pollFresh(bucketId);
+            if (responseOrNull != null) {
+                hits.increment();
+            } else {
+                misses.increment();
             }
+            if (metricsOrNull != null) {
+                metricsOrNull.uploadUrlCacheLookup("b2_get_upload_url", responseOrNull != null);
+            }
+        }
+
+        // whether we just took a url or the caller threw one away before
+        // retrying, this is a good time to get more ready.
+        if (prefetcher.isEnabled()) {
+            final BucketPool pool = getOrCreatePool(bucketId);
+            prefetcher.topUp(pool.size.get(),
+                    pool.prefetching,
+                    () -> fetch(bucketId),
+                    this::unget);
+        }
+
+        if (responseOrNull != null) {
+            return responseOrNull;
         }
 
         // we don't have an answer yet, so ask the server for one and return it.
+        return fetch(bucketId);
+    }
+
+    private B2UploadUrlResponse fetch(String bucketId) throws B2Exception {
         final B2GetUploadUrlRequest request = B2GetUploadUrlRequest.builder(bucketId).build();
         return webifier.getUploadUrl(accountAuthCache.get(), request);
     }
@@ -95,8 +191,111 @@ class B2UploadUrlCache {
      *
      * @param response the response to return to the cache for later use.
      */
-    synchronized void unget(B2UploadUrlResponse response) {
-        Deque<B2UploadUrlResponse> responses = perBucket.computeIfAbsent(response.getBucketId(), k -> new ArrayDeque<>());
-        responses.offerLast(response);
+    void unget(B2UploadUrlResponse response) {
+        final int maxUrlsPerBucket = policy.getMaxUrlsPerBucket();
+        if (maxUrlsPerBucket == 0) {
+            evictions.increment();
+            return;
+        }
+
+        final BucketPool pool = getOrCreatePool(response.getBucketId());
+
+        pool.entries.offerLast(new Entry(response, clock.monotonicMillis()));
+        if (pool.size.incrementAndGet() > maxUrlsPerBucket) {
+            // we're over the limit.  the entry at the front has been idle
+            // the longest, so it's the one to give up.
+            if (pool.entries.pollFirst() != null) {
+                pool.size.decrementAndGet();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * @return the number of get() calls for initial attempts that were answered from the cache.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of get() calls for initial attempts that had to ask the server.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of urls we've thrown away because they were idle too long,
+     *         because their bucket had too many, or because their bucket was
+     *         pushed out of the cache.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the pool for the bucket, which is marked as recently used.
+     */
+    private BucketPool getOrCreatePool(String bucketId) {
+        BucketPool pool = perBucket.get(bucketId);
+        if (pool == null) {
+            pool = perBucket.computeIfAbsent(bucketId, k -> new BucketPool());
+            if (perBucket.size() > MAX_BUCKETS) {
+                evictLeastRecentlyUsedBucket(bucketId);
+            }
+        }
+        pool.lastUse = useCounter.incrementAndGet();
+        return pool;
+    }
+
+    /**
+     * @return the oldest url for the bucket that hasn't been idle too long, or null.
+     *         any too-old urls we find along the way are discarded.
+     */
+    private B2UploadUrlResponse pollFresh(String bucketId) {
+        final BucketPool pool = perBucket.get(bucketId);
+        if (pool == null) {
+            return null;
+        }
+        pool.lastUse = useCounter.incrementAndGet();
+
+        final long oldestAcceptableMonoMillis = clock.monotonicMillis() - policy.getMaxIdleMillis();
+        Entry entry;
+        while ((entry = pool.entries.pollFirst()) != null) {
+            pool.size.decrementAndGet();
+            if (entry.ungotAtMonoMillis >= oldestAcceptableMonoMillis) {
+                return entry.response;
+            }
+            evictions.increment();
+        }
+        return null;
+    }
+
+    /**
+     * Removes the least recently used bucket other than the one we're adding.
+     * This only happens when we start tracking a new bucket while we already
+     * have MAX_BUCKETS of them, so a linear scan is fine.
+     *
+     * If another thread is ungetting a url into the victim at the same moment,
+     * that url may be lost along with the rest of the bucket's urls.  that just
+     * costs a future get_upload_url call.
+     */
+    private void evictLeastRecentlyUsedBucket(String bucketIdToKeep) {
+        String victimBucketId = null;
+        long victimLastUse = Long.MAX_VALUE;
+        for (Map.Entry<String, BucketPool> mapEntry : perBucket.entrySet()) {
+            final long lastUse = mapEntry.getValue().lastUse;
+            if (lastUse < victimLastUse && !mapEntry.getKey().equals(bucketIdToKeep)) {
+                victimBucketId = mapEntry.getKey();
+                victimLastUse = lastUse;
+            }
+        }
+        if (victimBucketId != null) {
+            final BucketPool victim = perBucket.remove(victimBucketId);
+            if (victim != null) {
+                evictions.add(Math.max(0, victim.size.get()));
+            }
+        }
     }
 }
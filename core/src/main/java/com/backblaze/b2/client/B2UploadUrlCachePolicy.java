@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.util.Objects;
+
+/**
+ * B2UploadUrlCachePolicy says how many upload urls the client keeps around
+ * for reuse and for how long.
+ *
+ * Upload urls are handed out by get_upload_url and may be reused for many
+ * uploads.  Keeping a few of them per bucket saves a round-trip per upload,
+ * but urls that have sat unused for a long time are more likely to point at
+ * a pod that's gone away, so we stop trusting them after a while.
+ *
+ * If prefetchCount is positive, the client also uses the B2ClientConfig's
+ * background executor to fetch urls ahead of time so that about
+ * that many are ready for each bucket that's being uploaded to and for each
+ * large file whose parts are being uploaded.
+ *
+ * THREAD-SAFETY: this class is immutable.
+ */
+public class B2UploadUrlCachePolicy {
+    static final int DEFAULT_MAX_URLS_PER_BUCKET = 64;
+    static final long DEFAULT_MAX_IDLE_MILLIS = 10 * 60 * 1000;
+
+    private final int maxUrlsPerBucket;
+    private final long maxIdleMillis;
+    private final int prefetchCount;
+
+    private B2UploadUrlCachePolicy(int maxUrlsPerBucket,
+                                   long maxIdleMillis,
+                                   int prefetchCount) {
+        B2Preconditions.checkArgument(maxUrlsPerBucket >= 0, "maxUrlsPerBucket must not be negative");
+        B2Preconditions.checkArgument(maxIdleMillis > 0, "maxIdleMillis must be positive");
+        B2Preconditions.checkArgument(prefetchCount >= 0, "prefetchCount must not be negative");
+        B2Preconditions.checkArgument(prefetchCount <= maxUrlsPerBucket,
+                "prefetchCount must not be bigger than maxUrlsPerBucket");
+        this.maxUrlsPerBucket = maxUrlsPerBucket;
+        this.maxIdleMillis = maxIdleMillis;
+        this.prefetchCount = prefetchCount;
+    }
+
+    public static B2UploadUrlCachePolicy defaultPolicy() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the most upload urls we will hold for any one bucket.
+     *         zero means we don't reuse upload urls at all.
+     */
+    public int getMaxUrlsPerBucket() {
+        return maxUrlsPerBucket;
+    }
+
+    /**
+     * @return how long an upload url may sit unused in the cache before
+     *         we throw it away instead of using it again.
+     */
+    public long getMaxIdleMillis() {
+        return maxIdleMillis;
+    }
+
+    /**
+     * @return how many urls we try to keep ready for each bucket (or large file)
+     *         that's being uploaded to.  zero means we don't prefetch.
+     */
+    public int getPrefetchCount() {
+        return prefetchCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        B2UploadUrlCachePolicy that = (B2UploadUrlCachePolicy) o;
+        return maxUrlsPerBucket == that.maxUrlsPerBucket &&
+                maxIdleMillis == that.maxIdleMillis &&
+                prefetchCount == that.prefetchCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxUrlsPerBucket, maxIdleMillis, prefetchCount);
+    }
+
+    public static class Builder {
+        private int maxUrlsPerBucket = DEFAULT_MAX_URLS_PER_BUCKET;
+        private long maxIdleMillis = DEFAULT_MAX_IDLE_MILLIS;
+        private int prefetchCount = 0;
+
+        public Builder setMaxUrlsPerBucket(int maxUrlsPerBucket) {
+            this.maxUrlsPerBucket = maxUrlsPerBucket;
+            return this;
+        }
+
+        public Builder setMaxIdleMillis(long maxIdleMillis) {
+            this.maxIdleMillis = maxIdleMillis;
+            return this;
+        }
+
+        public Builder setPrefetchCount(int prefetchCount) {
+            this.prefetchCount = prefetchCount;
+            return this;
+        }
+
+        public B2UploadUrlCachePolicy build() {
+            return new B2UploadUrlCachePolicy(maxUrlsPerBucket, maxIdleMillis, prefetchCount);
+        }
+    }
+}
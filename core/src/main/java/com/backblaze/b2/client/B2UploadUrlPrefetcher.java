@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * B2UploadUrlPrefetcher asks for upload urls (or upload part urls) in the
+ * background so that a thread that wants to upload usually finds one
+ * waiting in its cache instead of making a round-trip to the server first.
+ *
+ * The caches call topUp() every time someone asks them for a url.  topUp()
+ * starts enough background fetches to bring the number of ready urls back up
+ * to the target count.  A fetch that fails is simply dropped; the next caller
+ * will miss, fetch a url itself, and start another top-up.
+ *
+ * THREAD-SAFETY: this class may be used from multiple threads safely.
+ */
+class B2UploadUrlPrefetcher {
+    private static final B2UploadUrlPrefetcher DISABLED = new B2UploadUrlPrefetcher(null, 0);
+
+    private final ExecutorService executorOrNull;
+    private final int targetReadyCount;
+
+    /**
+     * Something which gets one url from the server.
+     */
+    interface Fetcher<T> {
+        T fetch() throws B2Exception;
+    }
+
+    B2UploadUrlPrefetcher(ExecutorService executorOrNull,
+                          int targetReadyCount) {
+        this.executorOrNull = executorOrNull;
+        this.targetReadyCount = (executorOrNull == null) ? 0 : targetReadyCount;
+    }
+
+    static B2UploadUrlPrefetcher disabled() {
+        return DISABLED;
+    }
+
+    boolean isEnabled() {
+        return targetReadyCount > 0;
+    }
+
+    /**
+     * Starts background fetches until readyCount plus the number of fetches
+     * already in flight reaches the target.
+     *
+     * @param readyCount how many urls the cache is holding right now.
+     * @param inFlight how many fetches are in flight for this cache.
+     *                 it's owned by the cache so each bucket or large file
+     *                 is topped up separately.  we update it.
+     * @param fetcher gets a url from the server.
+     * @param deliver puts a url we fetched into the cache.
+     */
+    <T> void topUp(int readyCount,
+                   AtomicInteger inFlight,
+                   Fetcher<T> fetcher,
+                   Consumer<T> deliver) {
+        topUp(readyCount, Integer.MAX_VALUE, inFlight, fetcher, deliver);
+    }
+
+    /**
+     * Like topUp() above, but when the cache knows it'll only be asked for
+     * a few more urls, it doesn't need more than that many ready.
+     *
+     * @param wantedCount the most urls the cache could still use.  when
+     *                    it's less than the target, it's the target instead.
+     */
+    <T> void topUp(int readyCount,
+                   int wantedCount,
+                   AtomicInteger inFlight,
+                   Fetcher<T> fetcher,
+                   Consumer<T> deliver) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        final int target = Math.min(targetReadyCount, wantedCount);
+        while (true) {
+            final int alreadyFetching = inFlight.get();
+            if (readyCount + alreadyFetching >= target) {
+                return;
+            }
+            if (!inFlight.compareAndSet(alreadyFetching, alreadyFetching + 1)) {
+                // someone else is topping up at the same time.  look again.
+                continue;
+            }
+
+            try {
+                executorOrNull.execute(() -> {
+                    try {
+                        deliver.accept(fetcher.fetch());
+                    } catch (B2Exception | RuntimeException e) {
+                        // the caller will fetch one itself if it needs to.
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the executor is probably shutting down.  don't bother trying again.
+                inFlight.decrementAndGet();
+                return;
+            }
+        }
+    }
+}
@@ -144,7 +144,12 @@ public abstract class B2ContentWriter implements B2ContentSink {
     }
 
 
-    /*forTests*/ static String getSha1ToCheckOrNull(B2Headers headers) {
+    /**
+     * @param headers the headers of a download.
+     * @return the sha1 that the downloaded content should have, or null if
+     *         there's no way to check it, such as for a range of a file.
+     */
+    public static String getSha1ToCheckOrNull(B2Headers headers) {
         if (headers.hasContentRange()) {
             return null;
         }
@@ -0,0 +1,549 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client.structures;
+
+import com.backblaze.b2.json.B2JsonBadValueException;
+import com.backblaze.b2.json.B2JsonException;
+import com.backblaze.b2.json.B2JsonHandlerMap;
+import com.backblaze.b2.json.B2JsonNonUrlTypeHandler;
+import com.backblaze.b2.json.B2JsonOptions;
+import com.backblaze.b2.json.B2JsonReader;
+import com.backblaze.b2.json.B2JsonTypeHandler;
+import com.backblaze.b2.json.B2JsonUtil;
+import com.backblaze.b2.json.B2JsonWriter;
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+
+/**
+ * B2CompactFileVersionList is a read-only List of B2FileVersions that
+ * keeps its entries in columns instead of as separate objects.
+ *
+ * The values that repeat from file to file (the action, content type,
+ * file retention, legal hold, server-side encryption, replication status
+ * and the names in fileInfo) are stored once per list, and each entry just
+ * holds a small index to them.  The actions are always the B2FileVersion
+ * constants.  The strings that are different for each file (the fileId,
+ * fileName, content MD5 and the values in fileInfo) are packed, one byte per
+ * character for ASCII, into a single array, and content SHA1s are packed
+ * into 20 bytes each.
+ *
+ * A B2FileVersion is only made when get() is called for an entry, and
+ * the list doesn't hold onto it, so code that looks at each entry once
+ * and lets it go keeps only the compact form around.  The column getters,
+ * like getFileName(i), don't make a B2FileVersion at all.
+ *
+ * It's a B2Json type, so it can be used in place of a List&lt;B2FileVersion&gt;
+ * in a response.  It's written to JSON as an ordinary array of file versions,
+ * and it's read directly from one, without building the whole list of
+ * B2FileVersions first.
+ *
+ * THREAD-SAFETY: instances are immutable and may be shared by threads.
+ */
+public class B2CompactFileVersionList extends AbstractList<B2FileVersion> implements RandomAccess {
+    private static final int SHA1_BYTES = 20;
+    private static final int NULL_STRING = -1;
+    private static final int[] EMPTY_FILE_INFO = new int[0];
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // the strings we share between entries.  the first few are always the same,
+    // so that, for instance, the code for "upload" is the same in every list.
+    private static final String[] WELL_KNOWN_STRINGS = {
+            null,
+            B2FileVersion.UPLOAD_ACTION,
+            B2FileVersion.HIDE_ACTION,
+            B2FileVersion.START_ACTION,
+            B2FileVersion.FOLDER_ACTION
+    };
+
+    private final int size;
+
+    // the values we share between entries.  each has its own table, so we
+    // don't need unchecked casts to get them out.
+    private final List<String> sharedStrings;
+    private final List<B2AuthorizationFilteredResponseField<B2FileRetention>> sharedFileRetentions;
+    private final List<B2AuthorizationFilteredResponseField<String>> sharedLegalHolds;
+    private final List<B2FileSseForResponse> sharedServerSideEncryptions;
+
+    // the packed strings.  each is its length in bytes (as a varint) followed
+    // by its chars, each in one to three bytes.  the string columns hold the
+    // offsets of their strings in here, or NULL_STRING.
+    private final byte[] packedStrings;
+
+    private final int[] fileIds;
+    private final int[] fileNames;
+    private final long[] contentLengths;
+    private final long[] uploadTimestamps;
+    private final boolean[] isSha1Packed;
+    private final byte[] packedSha1s;  // SHA1_BYTES for each entry; only used where isSha1Packed.
+    private final int[] sha1sNotPacked;
+    private final int[] contentMd5s;
+    private final int[][] fileInfos; // each is the code of a name and the offset of its value, repeated.  null for a missing fileInfo.
+
+    // indexes into the shared tables.
+    private final int[] actions;  // sharedStrings
+    private final int[] contentTypes;  // sharedStrings
+    private final int[] fileRetentions;  // sharedFileRetentions
+    private final int[] legalHolds;  // sharedLegalHolds
+    private final int[] serverSideEncryptions;  // sharedServerSideEncryptions
+    private final int[] replicationStatuses;  // sharedStrings
+
+    private B2CompactFileVersionList(Builder builder) {
+        final int n = builder.size;
+        this.size = n;
+        this.sharedStrings = builder.sharedStrings.toList();
+        this.sharedFileRetentions = builder.sharedFileRetentions.toList();
+        this.sharedLegalHolds = builder.sharedLegalHolds.toList();
+        this.sharedServerSideEncryptions = builder.sharedServerSideEncryptions.toList();
+        this.packedStrings = Arrays.copyOf(builder.packedStrings, builder.packedStringsLength);
+        this.fileIds = Arrays.copyOf(builder.fileIds, n);
+        this.fileNames = Arrays.copyOf(builder.fileNames, n);
+        this.contentLengths = Arrays.copyOf(builder.contentLengths, n);
+        this.uploadTimestamps = Arrays.copyOf(builder.uploadTimestamps, n);
+        this.isSha1Packed = Arrays.copyOf(builder.isSha1Packed, n);
+        this.packedSha1s = Arrays.copyOf(builder.packedSha1s, n * SHA1_BYTES);
+        this.sha1sNotPacked = Arrays.copyOf(builder.sha1sNotPacked, n);
+        this.contentMd5s = Arrays.copyOf(builder.contentMd5s, n);
+        this.fileInfos = Arrays.copyOf(builder.fileInfos, n);
+        this.actions = Arrays.copyOf(builder.actions, n);
+        this.contentTypes = Arrays.copyOf(builder.contentTypes, n);
+        this.fileRetentions = Arrays.copyOf(builder.fileRetentions, n);
+        this.legalHolds = Arrays.copyOf(builder.legalHolds, n);
+        this.serverSideEncryptions = Arrays.copyOf(builder.serverSideEncryptions, n);
+        this.replicationStatuses = Arrays.copyOf(builder.replicationStatuses, n);
+    }
+
+    /**
+     * @param fileVersions the file versions to store.  none may be null.
+     * @return a compact list with the same file versions, in the same order.
+     */
+    public static B2CompactFileVersionList from(List<B2FileVersion> fileVersions) {
+        final Builder builder = new Builder();
+        for (B2FileVersion fileVersion : fileVersions) {
+            builder.add(fileVersion);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Makes a new B2FileVersion for the i-th entry.  Calling this twice
+     * for the same entry returns two equal (but different) objects.
+     */
+    @Override
+    public B2FileVersion get(int i) {
+        checkIndex(i);
+        return B2FileVersion.withLazyFileInfo(
+                unpackString(fileIds[i]),
+                unpackString(fileNames[i]),
+                contentLengths[i],
+                getContentType(i),
+                getContentSha1(i),
+                unpackString(contentMd5s[i]),
+                getLazyFileInfo(i),
+                getAction(i),
+                uploadTimestamps[i],
+                sharedFileRetentions.get(fileRetentions[i]),
+                sharedLegalHolds.get(legalHolds[i]),
+                sharedServerSideEncryptions.get(serverSideEncryptions[i]),
+                sharedStrings.get(replicationStatuses[i]));
+    }
+
+    public String getFileId(int i) {
+        checkIndex(i);
+        return unpackString(fileIds[i]);
+    }
+
+    public String getFileName(int i) {
+        checkIndex(i);
+        return unpackString(fileNames[i]);
+    }
+
+    public long getContentLength(int i) {
+        checkIndex(i);
+        return contentLengths[i];
+    }
+
+    public long getUploadTimestamp(int i) {
+        checkIndex(i);
+        return uploadTimestamps[i];
+    }
+
+    public String getAction(int i) {
+        checkIndex(i);
+        return sharedStrings.get(actions[i]);
+    }
+
+    public String getContentType(int i) {
+        checkIndex(i);
+        return sharedStrings.get(contentTypes[i]);
+    }
+
+    public String getContentSha1(int i) {
+        checkIndex(i);
+        if (!isSha1Packed[i]) {
+            return unpackString(sha1sNotPacked[i]);
+        }
+        final char[] hex = new char[2 * SHA1_BYTES];
+        for (int b = 0; b < SHA1_BYTES; b++) {
+            final int value = packedSha1s[i * SHA1_BYTES + b] & 0xff;
+            hex[2 * b] = HEX_DIGITS[value >> 4];
+            hex[2 * b + 1] = HEX_DIGITS[value & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * @return a new, modifiable map with the i-th entry's fileInfo, or null if
+     *         the entry didn't have one.
+     */
+    public Map<String, String> getFileInfo(int i) {
+        checkIndex(i);
+        final int[] namesAndValues = fileInfos[i];
+        if (namesAndValues == null) {
+            return null;
+        }
+        final Map<String, String> fileInfo = new TreeMap<>();
+        for (int j = 0; j < namesAndValues.length; j += 2) {
+            fileInfo.put(sharedStrings.get(namesAndValues[j]), unpackString(namesAndValues[j + 1]));
+        }
+        return fileInfo;
+    }
+
+    private B2LazyFileInfo getLazyFileInfo(int i) {
+        final int[] namesAndValues = fileInfos[i];
+        if (namesAndValues == null) {
+            return null;
+        }
+        final String[] strings = new String[namesAndValues.length];
+        for (int j = 0; j < namesAndValues.length; j += 2) {
+            strings[j] = sharedStrings.get(namesAndValues[j]);
+            strings[j + 1] = unpackString(namesAndValues[j + 1]);
+        }
+        return B2LazyFileInfo.fromSortedNamesAndValues(strings);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("index " + i + " is out of bounds for size " + size);
+        }
+    }
+
+    private String unpackString(int offset) {
+        if (offset == NULL_STRING) {
+            return null;
+        }
+
+        // read the varint length.
+        int pos = offset;
+        int byteCount = 0;
+        for (int shift = 0; ; shift += 7) {
+            final int b = packedStrings[pos++];
+            byteCount |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+
+        // this is the same encoding as DataOutput.writeUTF() uses, which
+        // (unlike real UTF-8) can hold any string, even broken surrogate pairs.
+        final int end = pos + byteCount;
+        final char[] chars = new char[byteCount];
+        int charCount = 0;
+        while (pos < end) {
+            final int b = packedStrings[pos++] & 0xff;
+            if (b < 0x80) {
+                chars[charCount++] = (char) b;
+            } else if (b < 0xe0) {
+                chars[charCount++] = (char) (((b & 0x1f) << 6) | (packedStrings[pos++] & 0x3f));
+            } else {
+                chars[charCount++] = (char) (((b & 0x0f) << 12) |
+                        ((packedStrings[pos++] & 0x3f) << 6) |
+                        (packedStrings[pos++] & 0x3f));
+            }
+        }
+        return new String(chars, 0, charCount);
+    }
+
+    /**
+     * Collects file versions into columns.  It's only used while building
+     * a list, so it's fine for it to make some garbage.
+     */
+    private static class Builder {
+        private final SharedValues<String> sharedStrings = new SharedValues<>();
+        private final SharedValues<B2AuthorizationFilteredResponseField<B2FileRetention>> sharedFileRetentions = new SharedValues<>();
+        private final SharedValues<B2AuthorizationFilteredResponseField<String>> sharedLegalHolds = new SharedValues<>();
+        private final SharedValues<B2FileSseForResponse> sharedServerSideEncryptions = new SharedValues<>();
+
+        private byte[] packedStrings = new byte[0];
+        private int packedStringsLength;
+
+        private int size;
+        private int[] fileIds = new int[0];
+        private int[] fileNames = new int[0];
+        private long[] contentLengths = new long[0];
+        private long[] uploadTimestamps = new long[0];
+        private boolean[] isSha1Packed = new boolean[0];
+        private byte[] packedSha1s = new byte[0];
+        private int[] sha1sNotPacked = new int[0];
+        private int[] contentMd5s = new int[0];
+        private int[][] fileInfos = new int[0][];
+        private int[] actions = new int[0];
+        private int[] contentTypes = new int[0];
+        private int[] fileRetentions = new int[0];
+        private int[] legalHolds = new int[0];
+        private int[] serverSideEncryptions = new int[0];
+        private int[] replicationStatuses = new int[0];
+
+        Builder() {
+            for (String wellKnown : WELL_KNOWN_STRINGS) {
+                sharedStrings.codeFor(wellKnown);
+            }
+        }
+
+        void add(B2FileVersion fileVersion) {
+            B2Preconditions.checkArgument(fileVersion != null, "file versions must not be null");
+            if (size == fileIds.length) {
+                grow();
+            }
+            final int i = size;
+            fileIds[i] = packString(fileVersion.getFileId());
+            fileNames[i] = packString(fileVersion.getFileName());
+            contentLengths[i] = fileVersion.getContentLength();
+            uploadTimestamps[i] = fileVersion.getUploadTimestamp();
+            isSha1Packed[i] = packSha1(i, fileVersion.getContentSha1());
+            sha1sNotPacked[i] = isSha1Packed[i] ? NULL_STRING : packString(fileVersion.getContentSha1());
+            contentMd5s[i] = packString(fileVersion.getContentMd5());
+            fileInfos[i] = compactFileInfo(fileVersion.getLazyFileInfo());
+            actions[i] = sharedStrings.codeFor(fileVersion.getAction());
+            contentTypes[i] = sharedStrings.codeFor(fileVersion.getContentType());
+            fileRetentions[i] = sharedFileRetentions.codeFor(fileVersion.getFileRetentionField());
+            legalHolds[i] = sharedLegalHolds.codeFor(fileVersion.getLegalHoldField());
+            serverSideEncryptions[i] = sharedServerSideEncryptions.codeFor(fileVersion.getServerSideEncryption());
+            replicationStatuses[i] = sharedStrings.codeFor(fileVersion.getReplicationStatus());
+            size++;
+        }
+
+        B2CompactFileVersionList build() {
+            return new B2CompactFileVersionList(this);
+        }
+
+        private void grow() {
+            final int capacity = Math.max(16, 2 * fileIds.length);
+            fileIds = Arrays.copyOf(fileIds, capacity);
+            fileNames = Arrays.copyOf(fileNames, capacity);
+            contentLengths = Arrays.copyOf(contentLengths, capacity);
+            uploadTimestamps = Arrays.copyOf(uploadTimestamps, capacity);
+            isSha1Packed = Arrays.copyOf(isSha1Packed, capacity);
+            packedSha1s = Arrays.copyOf(packedSha1s, capacity * SHA1_BYTES);
+            sha1sNotPacked = Arrays.copyOf(sha1sNotPacked, capacity);
+            contentMd5s = Arrays.copyOf(contentMd5s, capacity);
+            fileInfos = Arrays.copyOf(fileInfos, capacity);
+            actions = Arrays.copyOf(actions, capacity);
+            contentTypes = Arrays.copyOf(contentTypes, capacity);
+            fileRetentions = Arrays.copyOf(fileRetentions, capacity);
+            legalHolds = Arrays.copyOf(legalHolds, capacity);
+            serverSideEncryptions = Arrays.copyOf(serverSideEncryptions, capacity);
+            replicationStatuses = Arrays.copyOf(replicationStatuses, capacity);
+        }
+
+        // returns the offset of the packed string, or NULL_STRING.
+        private int packString(String s) {
+            if (s == null) {
+                return NULL_STRING;
+            }
+            int byteCount = 0;
+            for (int i = 0; i < s.length(); i++) {
+                final char c = s.charAt(i);
+                byteCount += (c < 0x80) ? 1 : (c < 0x800) ? 2 : 3;
+            }
+
+            // make sure there's room for the longest possible varint, too.
+            final int needed = packedStringsLength + 5 + byteCount;
+            if (needed > packedStrings.length) {
+                packedStrings = Arrays.copyOf(packedStrings, Math.max(needed, 2 * packedStrings.length));
+            }
+
+            final int offset = packedStringsLength;
+            int pos = offset;
+            int remaining = byteCount;
+            while (remaining >= 0x80) {
+                packedStrings[pos++] = (byte) ((remaining & 0x7f) | 0x80);
+                remaining >>>= 7;
+            }
+            packedStrings[pos++] = (byte) remaining;
+
+            for (int i = 0; i < s.length(); i++) {
+                final char c = s.charAt(i);
+                if (c < 0x80) {
+                    packedStrings[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    packedStrings[pos++] = (byte) (0xc0 | (c >> 6));
+                    packedStrings[pos++] = (byte) (0x80 | (c & 0x3f));
+                } else {
+                    packedStrings[pos++] = (byte) (0xe0 | (c >> 12));
+                    packedStrings[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    packedStrings[pos++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            packedStringsLength = pos;
+            return offset;
+        }
+
+        // returns false if sha1 isn't 40 lower-case hex digits, which
+        // is the case for large files ("none") and for null.
+        private boolean packSha1(int i, String sha1) {
+            if (sha1 == null || sha1.length() != 2 * SHA1_BYTES) {
+                return false;
+            }
+            for (int b = 0; b < SHA1_BYTES; b++) {
+                final int hi = lowerCaseHexValue(sha1.charAt(2 * b));
+                final int lo = lowerCaseHexValue(sha1.charAt(2 * b + 1));
+                if (hi < 0 || lo < 0) {
+                    return false;
+                }
+                packedSha1s[i * SHA1_BYTES + b] = (byte) ((hi << 4) | lo);
+            }
+            return true;
+        }
+
+        // we only pack lower-case digits so that getContentSha1() returns exactly what was added.
+        private static int lowerCaseHexValue(char c) {
+            if ('0' <= c && c <= '9') {
+                return c - '0';
+            }
+            if ('a' <= c && c <= 'f') {
+                return c - 'a' + 10;
+            }
+            return -1;
+        }
+
+        // the names are kept in order, so that get() can make a B2LazyFileInfo from them.
+        private int[] compactFileInfo(B2LazyFileInfo fileInfo) {
+            if (fileInfo == null) {
+                return null;
+            }
+            if (fileInfo.size() == 0) {
+                return EMPTY_FILE_INFO;
+            }
+            final String[] strings = new String[2 * fileInfo.size()];
+            final int[] count = {0};
+            fileInfo.forEach((name, value) -> {
+                strings[count[0]++] = name;
+                strings[count[0]++] = value;
+            });
+            final String[] sorted = B2LazyFileInfo.sortAndRemoveDuplicates(strings, count[0]);
+
+            final int[] namesAndValues = new int[sorted.length];
+            for (int j = 0; j < sorted.length; j += 2) {
+                namesAndValues[j] = sharedStrings.codeFor(sorted[j]);
+                namesAndValues[j + 1] = packString(sorted[j + 1]);
+            }
+            return namesAndValues;
+        }
+    }
+
+    /**
+     * A table of values that's being built, which gives each distinct value
+     * (including null) a code.
+     */
+    private static class SharedValues<T> {
+        private final List<T> values = new ArrayList<>();
+        private final Map<T, Integer> codes = new HashMap<>();
+
+        int codeFor(T value) {
+            final Integer existingCode = codes.get(value);
+            if (existingCode != null) {
+                return existingCode;
+            }
+            final int code = values.size();
+            values.add(value);
+            codes.put(value, code);
+            return code;
+        }
+
+        List<T> toList() {
+            return new ArrayList<>(values);
+        }
+    }
+
+    @SuppressWarnings("unused") // used by reflection
+    private static B2JsonTypeHandler<B2CompactFileVersionList> getJsonTypeHandler() {
+        return new JsonHandler();
+    }
+
+    /**
+     * Reads and writes a B2CompactFileVersionList as a JSON array of file
+     * versions.  When reading, each file version is put into the columns as
+     * soon as it's been read, so only one is in memory at a time.
+     */
+    private static class JsonHandler extends B2JsonNonUrlTypeHandler<B2CompactFileVersionList> {
+        private B2JsonTypeHandler<B2FileVersion> fileVersionHandler;
+
+        @Override
+        protected void initializeImplementation(B2JsonHandlerMap b2JsonHandlerMap) throws B2JsonException {
+            fileVersionHandler = getUninitializedHandler(b2JsonHandlerMap, B2FileVersion.class);
+        }
+
+        @Override
+        public Type getHandledType() {
+            return B2CompactFileVersionList.class;
+        }
+
+        @Override
+        public void serialize(B2CompactFileVersionList obj,
+                              B2JsonOptions options,
+                              B2JsonWriter out) throws IOException, B2JsonException {
+            B2Preconditions.checkState(isInitialized());
+            out.startArray();
+            for (B2FileVersion fileVersion : obj) {
+                out.startArrayValue();
+                fileVersionHandler.serialize(fileVersion, options, out);
+            }
+            out.finishArray();
+        }
+
+        @Override
+        public B2CompactFileVersionList deserialize(B2JsonReader in,
+                                                    B2JsonOptions options) throws B2JsonException, IOException {
+            B2Preconditions.checkState(isInitialized());
+            final Builder builder = new Builder();
+            if (in.startArrayAndCheckForContents()) {
+                do {
+                    final B2FileVersion fileVersion = B2JsonUtil.deserializeMaybeNull(fileVersionHandler, in, options);
+                    if (fileVersion == null) {
+                        throw new B2JsonBadValueException("file versions in a B2CompactFileVersionList must not be null");
+                    }
+                    builder.add(fileVersion);
+                } while (in.arrayHasMoreValues());
+            }
+            in.finishArray();
+            return builder.build();
+        }
+
+        @Override
+        public B2CompactFileVersionList defaultValueForOptional() {
+            return null;
+        }
+
+        @Override
+        public boolean isStringInJson() {
+            return false;
+        }
+    }
+}
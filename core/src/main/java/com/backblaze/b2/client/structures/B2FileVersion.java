@@ -38,8 +38,8 @@ public class B2FileVersion {
     private final String contentSha1;
     @B2Json.optional // for example, "folder"s don't have contentMd5s nor do largeFiles.
     private final String contentMd5;
-    @B2Json.optional
-    private final Map<String,String> fileInfo;
+    @B2Json.optional  // the map is only built if someone asks for it.
+    private final B2LazyFileInfo fileInfo;
     @B2Json.optional  // for example, large files don't have action in response from b2_start_large_file.
     private final String action;
     @B2Json.required
@@ -53,9 +53,6 @@ public class B2FileVersion {
     @B2Json.optional
     private final String replicationStatus;
 
-    @B2Json.constructor(params = "fileId,fileName,contentLength,contentType," +
-            "contentSha1,contentMd5,fileInfo,action,uploadTimestamp,fileRetention," +
-            "legalHold,serverSideEncryption,replicationStatus")
     public B2FileVersion(String fileId,
                          String fileName,
                          long contentLength,
@@ -69,6 +66,37 @@ public class B2FileVersion {
                          B2AuthorizationFilteredResponseField<String> legalHold,
                          B2FileSseForResponse serverSideEncryption,
                          String replicationStatus) {
+        this(fileId,
+                fileName,
+                contentLength,
+                contentType,
+                contentSha1,
+                contentMd5,
+                B2LazyFileInfo.fromMapOrNull(fileInfo),
+                action,
+                uploadTimestamp,
+                fileRetention,
+                legalHold,
+                serverSideEncryption,
+                replicationStatus);
+    }
+
+    @B2Json.constructor(params = "fileId,fileName,contentLength,contentType," +
+            "contentSha1,contentMd5,fileInfo,action,uploadTimestamp,fileRetention," +
+            "legalHold,serverSideEncryption,replicationStatus")
+    private B2FileVersion(String fileId,
+                          String fileName,
+                          long contentLength,
+                          String contentType,
+                          String contentSha1,
+                          String contentMd5,
+                          B2LazyFileInfo fileInfo,
+                          String action,
+                          long uploadTimestamp,
+                          B2AuthorizationFilteredResponseField<B2FileRetention> fileRetention,
+                          B2AuthorizationFilteredResponseField<String> legalHold,
+                          B2FileSseForResponse serverSideEncryption,
+                          String replicationStatus) {
         this.fileId = fileId;
         this.fileName = fileName;
         this.contentLength = contentLength;
@@ -112,8 +140,15 @@ public class B2FileVersion {
         return fileInfo.get(B2Headers.LARGE_FILE_SHA1_INFO_NAME);
     }
 
+    /**
+     * When this file version was read from JSON, the map is built the
+     * first time this is called, and the same map is returned after that.
+     * File versions may be shared, so the map can't be changed.
+     *
+     * @return the fileInfo, or null if there isn't any.
+     */
     public Map<String, String> getFileInfo() {
-        return fileInfo;
+        return (fileInfo == null) ? null : fileInfo.getMap();
     }
 
     public String getAction() {
@@ -174,6 +209,50 @@ public class B2FileVersion {
 
     public B2FileSseForResponse getServerSideEncryption() { return serverSideEncryption; }
 
+    // B2CompactFileVersionList uses this to make file versions without
+    // building a map for each fileInfo.
+    static B2FileVersion withLazyFileInfo(String fileId,
+                                          String fileName,
+                                          long contentLength,
+                                          String contentType,
+                                          String contentSha1,
+                                          String contentMd5,
+                                          B2LazyFileInfo fileInfo,
+                                          String action,
+                                          long uploadTimestamp,
+                                          B2AuthorizationFilteredResponseField<B2FileRetention> fileRetention,
+                                          B2AuthorizationFilteredResponseField<String> legalHold,
+                                          B2FileSseForResponse serverSideEncryption,
+                                          String replicationStatus) {
+        return new B2FileVersion(fileId,
+                fileName,
+                contentLength,
+                contentType,
+                contentSha1,
+                contentMd5,
+                fileInfo,
+                action,
+                uploadTimestamp,
+                fileRetention,
+                legalHold,
+                serverSideEncryption,
+                replicationStatus);
+    }
+
+    // these return the fields without checking authorization or building
+    // the fileInfo map, so that B2CompactFileVersionList can copy them.
+    B2LazyFileInfo getLazyFileInfo() {
+        return fileInfo;
+    }
+
+    B2AuthorizationFilteredResponseField<B2FileRetention> getFileRetentionField() {
+        return fileRetention;
+    }
+
+    B2AuthorizationFilteredResponseField<String> getLegalHoldField() {
+        return legalHold;
+    }
+
     public String getReplicationStatus() {
         return replicationStatus;
     }
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client.structures;
+
+import com.backblaze.b2.json.B2JsonException;
+import com.backblaze.b2.json.B2JsonNonUrlTypeHandler;
+import com.backblaze.b2.json.B2JsonOptions;
+import com.backblaze.b2.json.B2JsonReader;
+import com.backblaze.b2.json.B2JsonStringDedupCache;
+import com.backblaze.b2.json.B2JsonTypeHandler;
+import com.backblaze.b2.json.B2JsonWriter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * B2LazyFileInfo holds the fileInfo of a B2FileVersion.
+ *
+ * When it's read from JSON, it just keeps the names and values in an array,
+ * sorted by name, and only builds the Map when getMap() is first called.
+ * Most code that lists files never looks at the fileInfo, so most of the
+ * maps are never built.  get() finds a single value without building it.
+ *
+ * When it's made from a Map, it just holds onto the Map.
+ *
+ * The map it hands out can't be changed, because a B2FileVersion may be
+ * shared, for example by B2FileInfoCache, and changes made by one caller
+ * would show up for all of them.
+ *
+ * In JSON, it's an object with string values, just like the
+ * Map&lt;String, String&gt; that B2FileVersion used to have.
+ *
+ * THREAD-SAFETY: it's safe to use from multiple threads.  getMap() builds
+ *   the map just once, so everyone sees the same unmodifiable map.
+ */
+class B2LazyFileInfo {
+    private static final String[] NO_NAMES_AND_VALUES = new String[0];
+
+    // names and values, alternating and sorted by name, or null if we were given a map.
+    private final String[] namesAndValuesOrNull;
+    private volatile Map<String, String> mapOrNull;
+
+    private B2LazyFileInfo(String[] namesAndValuesOrNull, Map<String, String> mapOrNull) {
+        this.namesAndValuesOrNull = namesAndValuesOrNull;
+        this.mapOrNull = mapOrNull;
+    }
+
+    static B2LazyFileInfo fromMapOrNull(Map<String, String> mapOrNull) {
+        return (mapOrNull == null) ? null : new B2LazyFileInfo(null, Collections.unmodifiableMap(mapOrNull));
+    }
+
+    /**
+     * @param namesAndValues names and values, alternating.  the names must be
+     *                       distinct and in order.  this array is NOT copied.
+     */
+    static B2LazyFileInfo fromSortedNamesAndValues(String[] namesAndValues) {
+        return new B2LazyFileInfo(namesAndValues, null);
+    }
+
+    /**
+     * @return the fileInfo as an unmodifiable map, building it the first time.
+     */
+    Map<String, String> getMap() {
+        Map<String, String> map = mapOrNull;
+        if (map == null) {
+            synchronized (this) {
+                map = mapOrNull;
+                if (map == null) {
+                    final Map<String, String> built = new TreeMap<>();
+                    for (int i = 0; i < namesAndValuesOrNull.length; i += 2) {
+                        built.put(namesAndValuesOrNull[i], namesAndValuesOrNull[i + 1]);
+                    }
+                    map = Collections.unmodifiableMap(built);
+                    mapOrNull = map;
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * @return the value for the name, or null if there isn't one.
+     */
+    String get(String name) {
+        final Map<String, String> map = mapOrNull;
+        if (map != null) {
+            return map.get(name);
+        }
+
+        int lo = 0;
+        int hi = (namesAndValuesOrNull.length / 2) - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int cmp = namesAndValuesOrNull[2 * mid].compareTo(name);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return namesAndValuesOrNull[2 * mid + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Calls action with each name and value, without building the map.
+     */
+    void forEach(BiConsumer<String, String> action) {
+        final Map<String, String> map = mapOrNull;
+        if (map != null) {
+            map.forEach(action);
+            return;
+        }
+        for (int i = 0; i < namesAndValuesOrNull.length; i += 2) {
+            action.accept(namesAndValuesOrNull[i], namesAndValuesOrNull[i + 1]);
+        }
+    }
+
+    int size() {
+        final Map<String, String> map = mapOrNull;
+        return (map != null) ? map.size() : (namesAndValuesOrNull.length / 2);
+    }
+
+    @SuppressWarnings("unused") // used by reflection
+    private static B2JsonTypeHandler<B2LazyFileInfo> getJsonTypeHandler() {
+        return new JsonHandler();
+    }
+
+    private static class JsonHandler extends B2JsonNonUrlTypeHandler<B2LazyFileInfo> {
+
+        @Override
+        public Type getHandledType() {
+            return B2LazyFileInfo.class;
+        }
+
+        @Override
+        public void serialize(B2LazyFileInfo obj,
+                              B2JsonOptions options,
+                              B2JsonWriter out) throws IOException, B2JsonException {
+            // this writes the same thing that B2JsonMapHandler writes for a Map<String, String>.
+            out.startObject();
+            final Map<String, String> map = obj.mapOrNull;
+            if (map != null) {
+                for (Map.Entry<String, String> entry : map.entrySet()) {
+                    writeField(entry.getKey(), entry.getValue(), out);
+                }
+            } else {
+                for (int i = 0; i < obj.namesAndValuesOrNull.length; i += 2) {
+                    writeField(obj.namesAndValuesOrNull[i], obj.namesAndValuesOrNull[i + 1], out);
+                }
+            }
+            out.finishObject();
+        }
+
+        private void writeField(String name, String value, B2JsonWriter out) throws IOException, B2JsonException {
+            if (name == null) {
+                throw new B2JsonException("Map key is null");
+            }
+            out.startObjectFieldName();
+            out.writeString(name);
+            out.writeFieldNameValueSeparator();
+            if (value == null) {
+                out.writeText("null");
+            } else {
+                out.writeString(value);
+            }
+        }
+
+        @Override
+        public B2LazyFileInfo deserialize(B2JsonReader in,
+                                          B2JsonOptions options) throws B2JsonException, IOException {
+            final B2JsonStringDedupCache cacheOrNull = (options == null) ? null : options.getStringDedupCacheOrNull();
+            String[] namesAndValues = NO_NAMES_AND_VALUES;
+            int count = 0;
+            if (in.startObjectAndCheckForContents()) {
+                do {
+                    final String name = in.readString(cacheOrNull);
+                    in.skipObjectColon();
+                    final String value;
+                    if (in.peekNextNotWhitespaceChar() == 'n') {
+                        in.readNull();
+                        value = null;
+                    } else {
+                        value = in.readString(cacheOrNull);
+                    }
+                    if (count == namesAndValues.length) {
+                        namesAndValues = Arrays.copyOf(namesAndValues, Math.max(8, 2 * count));
+                    }
+                    namesAndValues[count++] = name;
+                    namesAndValues[count++] = value;
+                } while (in.objectHasMoreFields());
+            }
+            in.finishObject();
+            return fromSortedNamesAndValues(sortAndRemoveDuplicates(namesAndValues, count));
+        }
+
+        @Override
+        public B2LazyFileInfo defaultValueForOptional() {
+            return null;
+        }
+
+        @Override
+        public boolean isStringInJson() {
+            return false;
+        }
+    }
+
+    /**
+     * Sorts the first count entries of namesAndValues by name, with an insertion
+     * sort because there are usually just a few and they're often in order already.
+     * If a name appears more than once, the last value wins, like it would in a map.
+     */
+    static String[] sortAndRemoveDuplicates(String[] namesAndValues, int count) {
+        for (int i = 2; i < count; i += 2) {
+            final String name = namesAndValues[i];
+            final String value = namesAndValues[i + 1];
+            int j = i - 2;
+            while (j >= 0 && namesAndValues[j].compareTo(name) > 0) {
+                namesAndValues[j + 2] = namesAndValues[j];
+                namesAndValues[j + 3] = namesAndValues[j + 1];
+                j -= 2;
+            }
+            namesAndValues[j + 2] = name;
+            namesAndValues[j + 3] = value;
+        }
+
+        // the sort is stable, so the last of any equal names came last in the input.
+        int kept = 0;
+        for (int i = 0; i < count; i += 2) {
+            if (kept > 0 && namesAndValues[kept - 2].equals(namesAndValues[i])) {
+                kept -= 2;
+            }
+            namesAndValues[kept++] = namesAndValues[i];
+            namesAndValues[kept++] = namesAndValues[i + 1];
+        }
+        return (kept == namesAndValues.length) ? namesAndValues : Arrays.copyOf(namesAndValues, kept);
+    }
+}
@@ -20,6 +20,10 @@ public class B2ListFileNamesRequest {
     private final String prefix;
     @B2Json.optional
     private final String delimiter;
+    @B2Json.ignored
+    private final int prefetchDepth;
+    @B2Json.ignored
+    private final boolean compactPages;
 
     @B2Json.constructor(params = "bucketId,startFileName,maxFileCount,prefix,delimiter")
     private B2ListFileNamesRequest(String bucketId,
@@ -27,11 +31,23 @@ public class B2ListFileNamesRequest {
                                    Integer maxFileCount,
                                    String prefix,
                                    String delimiter) {
+        this(bucketId, startFileName, maxFileCount, prefix, delimiter, 0, false);
+    }
+
+    private B2ListFileNamesRequest(String bucketId,
+                                   String startFileName,
+                                   Integer maxFileCount,
+                                   String prefix,
+                                   String delimiter,
+                                   int prefetchDepth,
+                                   boolean compactPages) {
         this.bucketId = bucketId;
         this.startFileName = startFileName;
         this.maxFileCount = maxFileCount;
         this.prefix = prefix;
         this.delimiter = delimiter;
+        this.prefetchDepth = prefetchDepth;
+        this.compactPages = compactPages;
     }
 
     public String getBucketId() {
@@ -54,6 +70,24 @@ public class B2ListFileNamesRequest {
         return delimiter;
     }
 
+    /**
+     * @return how many pages past the one being iterated the iterable for this
+     *         request should fetch in the background.  zero means no read-ahead.
+     *         this is never sent to the server.
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    /**
+     * @return true iff the pages of the response should be decoded into a
+     *         B2CompactFileVersionList instead of a list of B2FileVersions.
+     *         this is never sent to the server.
+     */
+    public boolean isCompactPages() {
+        return compactPages;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -63,12 +97,14 @@ public class B2ListFileNamesRequest {
                 Objects.equals(getStartFileName(), that.getStartFileName()) &&
                 Objects.equals(getMaxFileCount(), that.getMaxFileCount()) &&
                 Objects.equals(getPrefix(), that.getPrefix()) &&
-                Objects.equals(getDelimiter(), that.getDelimiter());
+                Objects.equals(getDelimiter(), that.getDelimiter()) &&
+                getPrefetchDepth() == that.getPrefetchDepth() &&
+                isCompactPages() == that.isCompactPages();
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getBucketId(), getStartFileName(), getMaxFileCount(), getPrefix(), getDelimiter());
+        return Objects.hash(getBucketId(), getStartFileName(), getMaxFileCount(), getPrefix(), getDelimiter(), getPrefetchDepth(), isCompactPages());
     }
 
     public static Builder builder(String bucketId) {
@@ -84,6 +120,8 @@ public class B2ListFileNamesRequest {
         private Integer maxFileCount;
         private String prefix;
         private String delimiter;
+        private int prefetchDepth;
+        private boolean compactPages;
 
         private Builder(String bucketId) {
             this.bucketId = bucketId;
@@ -95,6 +133,8 @@ public class B2ListFileNamesRequest {
             this.maxFileCount = orig.maxFileCount;
             this.prefix = orig.prefix;
             this.delimiter = orig.delimiter;
+            this.prefetchDepth = orig.prefetchDepth;
+            this.compactPages = orig.compactPages;
         }
 
         public B2ListFileNamesRequest build() {
@@ -103,7 +143,9 @@ public class B2ListFileNamesRequest {
                     startFileName,
                     maxFileCount,
                     prefix,
-                    delimiter);
+                    delimiter,
+                    prefetchDepth,
+                    compactPages);
         }
 
         public Builder setStartFileName(String startFileName) {
@@ -133,5 +175,33 @@ public class B2ListFileNamesRequest {
             this.delimiter = "/";
             return this;
         }
+
+        /**
+         * When iterating over the results of this request, fetch up to prefetchDepth
+         * pages past the current one in the background, using the client's background
+         * executor, so the next page is usually ready by the time it's needed.
+         * Without a background executor in the B2ClientConfig, pages are fetched
+         * when they're needed, as usual.  The default is zero (no read-ahead).
+         */
+        public Builder setPrefetchDepth(int prefetchDepth) {
+            B2Preconditions.checkArgument(prefetchDepth >= 0, "prefetchDepth must not be negative");
+            this.prefetchDepth = prefetchDepth;
+            return this;
+        }
+
+        /**
+         * When compactPages is true, each page of the response is decoded into a
+         * B2CompactFileVersionList, which keeps the page in columns and only makes
+         * a B2FileVersion for the entries that are asked for.  That takes several
+         * times less memory per file than a list of B2FileVersions, which matters
+         * if you keep pages around or fetch them ahead.  The default is false.
+         *
+         * Compact pages aren't added to the client's file info cache, because
+         * that would make a B2FileVersion for every entry and keep it.
+         */
+        public Builder setCompactPages(boolean compactPages) {
+            this.compactPages = compactPages;
+            return this;
+        }
     }
 }
@@ -22,6 +22,10 @@ public class B2ListFileVersionsRequest {
     private final String prefix;
     @B2Json.optional
     private final String delimiter;
+    @B2Json.ignored
+    private final int prefetchDepth;
+    @B2Json.ignored
+    private final boolean compactPages;
 
     @B2Json.constructor(params = "bucketId,startFileName,startFileId,maxFileCount,prefix,delimiter")
     private B2ListFileVersionsRequest(String bucketId,
@@ -30,12 +34,25 @@ public class B2ListFileVersionsRequest {
                                       Integer maxFileCount,
                                       String prefix,
                                       String delimiter) {
+        this(bucketId, startFileName, startFileId, maxFileCount, prefix, delimiter, 0, false);
+    }
+
+    private B2ListFileVersionsRequest(String bucketId,
+                                      String startFileName,
+                                      String startFileId,
+                                      Integer maxFileCount,
+                                      String prefix,
+                                      String delimiter,
+                                      int prefetchDepth,
+                                      boolean compactPages) {
         this.bucketId = bucketId;
         this.startFileName = startFileName;
         this.startFileId = startFileId;
         this.maxFileCount = maxFileCount;
         this.prefix = prefix;
         this.delimiter = delimiter;
+        this.prefetchDepth = prefetchDepth;
+        this.compactPages = compactPages;
     }
 
     public String getBucketId() {
@@ -62,6 +79,24 @@ public class B2ListFileVersionsRequest {
         return delimiter;
     }
 
+    /**
+     * @return how many pages past the one being iterated the iterable for this
+     *         request should fetch in the background.  zero means no read-ahead.
+     *         this is never sent to the server.
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    /**
+     * @return true iff the pages of the response should be decoded into a
+     *         B2CompactFileVersionList instead of a list of B2FileVersions.
+     *         this is never sent to the server.
+     */
+    public boolean isCompactPages() {
+        return compactPages;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -72,12 +107,14 @@ public class B2ListFileVersionsRequest {
                 Objects.equals(getStartFileId(), that.getStartFileId()) &&
                 Objects.equals(getMaxFileCount(), that.getMaxFileCount()) &&
                 Objects.equals(getPrefix(), that.getPrefix()) &&
-                Objects.equals(getDelimiter(), that.getDelimiter());
+                Objects.equals(getDelimiter(), that.getDelimiter()) &&
+                getPrefetchDepth() == that.getPrefetchDepth() &&
+                isCompactPages() == that.isCompactPages();
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getBucketId(), getStartFileName(), getStartFileId(), getMaxFileCount(), getPrefix(), getDelimiter());
+        return Objects.hash(getBucketId(), getStartFileName(), getStartFileId(), getMaxFileCount(), getPrefix(), getDelimiter(), getPrefetchDepth(), isCompactPages());
     }
 
     public static Builder builder(String bucketId) {
@@ -95,6 +132,8 @@ public class B2ListFileVersionsRequest {
         private Integer maxFileCount;
         private String prefix;
         private String delimiter;
+        private int prefetchDepth;
+        private boolean compactPages;
 
         private Builder(String bucketId) {
             this.bucketId = bucketId;
@@ -107,6 +146,8 @@ public class B2ListFileVersionsRequest {
             this.maxFileCount = orig.maxFileCount;
             this.prefix = orig.prefix;
             this.delimiter = orig.delimiter;
+            this.prefetchDepth = orig.prefetchDepth;
+            this.compactPages = orig.compactPages;
         }
 
         public B2ListFileVersionsRequest build() {
@@ -116,7 +157,9 @@ public class B2ListFileVersionsRequest {
                     startFileId,
                     maxFileCount,
                     prefix,
-                    delimiter);
+                    delimiter,
+                    prefetchDepth,
+                    compactPages);
         }
 
         public Builder setStart(String startFileName, String startFileId) {
@@ -160,5 +203,33 @@ public class B2ListFileVersionsRequest {
             this.delimiter = "/";
             return this;
         }
+
+        /**
+         * When iterating over the results of this request, fetch up to prefetchDepth
+         * pages past the current one in the background, using the client's background
+         * executor, so the next page is usually ready by the time it's needed.
+         * Without a background executor in the B2ClientConfig, pages are fetched
+         * when they're needed, as usual.  The default is zero (no read-ahead).
+         */
+        public Builder setPrefetchDepth(int prefetchDepth) {
+            B2Preconditions.checkArgument(prefetchDepth >= 0, "prefetchDepth must not be negative");
+            this.prefetchDepth = prefetchDepth;
+            return this;
+        }
+
+        /**
+         * When compactPages is true, each page of the response is decoded into a
+         * B2CompactFileVersionList, which keeps the page in columns and only makes
+         * a B2FileVersion for the entries that are asked for.  That takes several
+         * times less memory per file than a list of B2FileVersions, which matters
+         * if you keep pages around or fetch them ahead.  The default is false.
+         *
+         * Compact pages aren't added to the client's file info cache, because
+         * that would make a B2FileVersion for every entry and keep it.
+         */
+        public Builder setCompactPages(boolean compactPages) {
+            this.compactPages = compactPages;
+            return this;
+        }
     }
 }
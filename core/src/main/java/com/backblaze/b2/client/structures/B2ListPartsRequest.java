@@ -5,6 +5,7 @@
 package com.backblaze.b2.client.structures;
 
 import com.backblaze.b2.json.B2Json;
+import com.backblaze.b2.util.B2Preconditions;
 
 import java.util.Objects;
 
@@ -15,14 +16,24 @@ public class B2ListPartsRequest {
     private final Integer startPartNumber;
     @B2Json.optional
     private final Integer maxPartCount;
+    @B2Json.ignored
+    private final int prefetchDepth;
 
     @B2Json.constructor(params = "fileId,startPartNumber,maxPartCount")
     public B2ListPartsRequest(String fileId,
                               Integer startPartNumber,
                               Integer maxPartCount) {
+        this(fileId, startPartNumber, maxPartCount, 0);
+    }
+
+    private B2ListPartsRequest(String fileId,
+                               Integer startPartNumber,
+                               Integer maxPartCount,
+                               int prefetchDepth) {
         this.fileId = fileId;
         this.startPartNumber = startPartNumber;
         this.maxPartCount = maxPartCount;
+        this.prefetchDepth = prefetchDepth;
     }
 
     public String getFileId() {
@@ -37,6 +48,15 @@ public class B2ListPartsRequest {
         return maxPartCount;
     }
 
+    /**
+     * @return how many pages past the one being iterated the iterable for this
+     *         request should fetch in the background.  zero means no read-ahead.
+     *         this is never sent to the server.
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -44,12 +64,13 @@ public class B2ListPartsRequest {
         B2ListPartsRequest that = (B2ListPartsRequest) o;
         return Objects.equals(getFileId(), that.getFileId()) &&
                 Objects.equals(getStartPartNumber(), that.getStartPartNumber()) &&
-                Objects.equals(getMaxPartCount(), that.getMaxPartCount());
+                Objects.equals(getMaxPartCount(), that.getMaxPartCount()) &&
+                getPrefetchDepth() == that.getPrefetchDepth();
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getFileId(), getStartPartNumber(), getMaxPartCount());
+        return Objects.hash(getFileId(), getStartPartNumber(), getMaxPartCount(), getPrefetchDepth());
     }
 
     public static Builder builder(String largeFileId) {
@@ -64,6 +85,7 @@ public class B2ListPartsRequest {
         private final String fileId;
         private Integer startPartNumber;
         private Integer maxPartCount;
+        private int prefetchDepth;
 
         public Builder(String fileId) {
             this.fileId = fileId;
@@ -73,13 +95,15 @@ public class B2ListPartsRequest {
             this(origRequest.fileId);
             setStartPartNumber(origRequest.startPartNumber);
             setMaxPartCount(origRequest.maxPartCount);
+            setPrefetchDepth(origRequest.prefetchDepth);
         }
 
         public B2ListPartsRequest build() {
             return new B2ListPartsRequest(
                     fileId,
                     startPartNumber,
-                    maxPartCount);
+                    maxPartCount,
+                    prefetchDepth);
         }
 
         public Builder setStartPartNumber(Integer startPartNumber) {
@@ -91,5 +115,18 @@ public class B2ListPartsRequest {
             this.maxPartCount = maxPartCount;
             return this;
         }
+
+        /**
+         * When iterating over the results of this request, fetch up to prefetchDepth
+         * pages past the current one in the background, using the client's background
+         * executor, so the next page is usually ready by the time it's needed.
+         * Without a background executor in the B2ClientConfig, pages are fetched
+         * when they're needed, as usual.  The default is zero (no read-ahead).
+         */
+        public Builder setPrefetchDepth(int prefetchDepth) {
+            B2Preconditions.checkArgument(prefetchDepth >= 0, "prefetchDepth must not be negative");
+            this.prefetchDepth = prefetchDepth;
+            return this;
+        }
     }
 }
@@ -18,17 +18,28 @@ public class B2ListUnfinishedLargeFilesRequest {
     private final String startFileId;
     @B2Json.optional
     private final Integer maxFileCount;
+    @B2Json.ignored
+    private final int prefetchDepth;
 
     @B2Json.constructor(params = "bucketId,namePrefix,startFileId,maxFileCount")
     public B2ListUnfinishedLargeFilesRequest(String bucketId,
                                              String namePrefix,
                                              String startFileId,
                                              Integer maxFileCount) {
+        this(bucketId, namePrefix, startFileId, maxFileCount, 0);
+    }
+
+    private B2ListUnfinishedLargeFilesRequest(String bucketId,
+                                              String namePrefix,
+                                              String startFileId,
+                                              Integer maxFileCount,
+                                              int prefetchDepth) {
         B2Preconditions.checkArgumentIsNotNull(bucketId, "bucketId");
         this.bucketId = bucketId;
         this.namePrefix = namePrefix;
         this.startFileId = startFileId;
         this.maxFileCount = maxFileCount;
+        this.prefetchDepth = prefetchDepth;
     }
 
     public String getBucketId() {
@@ -47,6 +58,15 @@ public class B2ListUnfinishedLargeFilesRequest {
         return maxFileCount;
     }
 
+    /**
+     * @return how many pages past the one being iterated the iterable for this
+     *         request should fetch in the background.  zero means no read-ahead.
+     *         this is never sent to the server.
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -59,12 +79,13 @@ public class B2ListUnfinishedLargeFilesRequest {
         return Objects.equals(bucketId, that.bucketId) &&
                 Objects.equals(namePrefix, that.namePrefix) &&
                 Objects.equals(startFileId, that.startFileId) &&
-                Objects.equals(maxFileCount, that.maxFileCount);
+                Objects.equals(maxFileCount, that.maxFileCount) &&
+                prefetchDepth == that.prefetchDepth;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(bucketId, namePrefix, startFileId, maxFileCount);
+        return Objects.hash(bucketId, namePrefix, startFileId, maxFileCount, prefetchDepth);
     }
 
     public static Builder builder(String bucketId) {
@@ -80,6 +101,7 @@ public class B2ListUnfinishedLargeFilesRequest {
         private String namePrefix;
         private String startFileId;
         private Integer maxFileCount;
+        private int prefetchDepth;
 
         public Builder(String bucketId) {
             this.bucketId = bucketId;
@@ -90,6 +112,7 @@ public class B2ListUnfinishedLargeFilesRequest {
             this.namePrefix = orig.namePrefix;
             this.startFileId = orig.startFileId;
             this.maxFileCount = orig.maxFileCount;
+            this.prefetchDepth = orig.prefetchDepth;
         }
 
         public Builder setNamePrefix(String namePrefix) {
@@ -107,12 +130,26 @@ public class B2ListUnfinishedLargeFilesRequest {
             return this;
         }
 
+        /**
+         * When iterating over the results of this request, fetch up to prefetchDepth
+         * pages past the current one in the background, using the client's background
+         * executor, so the next page is usually ready by the time it's needed.
+         * Without a background executor in the B2ClientConfig, pages are fetched
+         * when they're needed, as usual.  The default is zero (no read-ahead).
+         */
+        public Builder setPrefetchDepth(int prefetchDepth) {
+            B2Preconditions.checkArgument(prefetchDepth >= 0, "prefetchDepth must not be negative");
+            this.prefetchDepth = prefetchDepth;
+            return this;
+        }
+
         public B2ListUnfinishedLargeFilesRequest build() {
             return new B2ListUnfinishedLargeFilesRequest(
                     bucketId,
                     namePrefix,
                     startFileId,
-                    maxFileCount);
+                    maxFileCount,
+                    prefetchDepth);
         }
     }
 }
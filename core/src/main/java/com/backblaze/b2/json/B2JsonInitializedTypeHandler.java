@@ -63,6 +63,20 @@ public abstract class B2JsonInitializedTypeHandler<T> implements B2JsonTypeHandl
      */
     protected void initializeImplementation(B2JsonHandlerMap b2JsonHandlerMap) throws B2JsonException {}
 
+    /**
+     * Gets the handler for another class, for use in initializeImplementation().
+     *
+     * The handler MAY NOT BE INITIALIZED yet, so you cannot assume that any fields
+     * set by its initialize() have been set.  Hold onto it and use it later.
+     *
+     * This lets handlers outside this package depend on other handlers without
+     * B2JsonHandlerMap.getUninitializedHandler() being public.
+     */
+    protected static <U> B2JsonTypeHandler<U> getUninitializedHandler(B2JsonHandlerMap b2JsonHandlerMap,
+                                                                     Class<U> clazz) throws B2JsonException {
+        return b2JsonHandlerMap.getUninitializedHandler(clazz);
+    }
+
     /**
      * Has the initialize method run?
      */
@@ -68,14 +68,25 @@ public class B2JsonOptions {
      */
     private final SerializationOption serializationOption;
 
+    /**
+     * Where to look for string values when de-serializing, so that repeated
+     * values can share one String.  When it's null, every string is new.
+     */
+    private final B2JsonStringDedupCache stringDedupCacheOrNull;
+
     /**
      * Initialize a new B2JsonOptions.
      */
-    private B2JsonOptions(ExtraFieldOption extraFieldOption, int version, boolean redactSensitive, SerializationOption serializationOption) {
+    private B2JsonOptions(ExtraFieldOption extraFieldOption,
+                          int version,
+                          boolean redactSensitive,
+                          SerializationOption serializationOption,
+                          B2JsonStringDedupCache stringDedupCacheOrNull) {
         this.extraFieldOption = extraFieldOption;
         this.version = version;
         this.redactSensitive = redactSensitive;
         this.serializationOption = serializationOption;
+        this.stringDedupCacheOrNull = stringDedupCacheOrNull;
     }
 
     /**
@@ -103,6 +114,13 @@ public class B2JsonOptions {
         return serializationOption;
     }
 
+    /**
+     * The cache used to share repeated string values when de-serializing, if any.
+     */
+    public B2JsonStringDedupCache getStringDedupCacheOrNull() {
+        return stringDedupCacheOrNull;
+    }
+
     /**
      * Returns a new builder for B2JsonOptions.
      */
@@ -119,6 +137,7 @@ public class B2JsonOptions {
         private int version = 1;
         private boolean redactSensitive = false;
         private SerializationOption serializationOption = SerializationOption.PRETTY;
+        private B2JsonStringDedupCache stringDedupCacheOrNull = null;
 
         public Builder setExtraFieldOption(ExtraFieldOption extraFieldOption) {
             this.extraFieldOption = extraFieldOption;
@@ -140,8 +159,13 @@ public class B2JsonOptions {
             return this;
         }
 
+        public Builder setStringDedupCacheOrNull(B2JsonStringDedupCache stringDedupCacheOrNull) {
+            this.stringDedupCacheOrNull = stringDedupCacheOrNull;
+            return this;
+        }
+
         public B2JsonOptions build() {
-            return new B2JsonOptions(extraFieldOption, version, redactSensitive, serializationOption);
+            return new B2JsonOptions(extraFieldOption, version, redactSensitive, serializationOption, stringDedupCacheOrNull);
         }
     }
 }
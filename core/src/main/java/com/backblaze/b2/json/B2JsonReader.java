@@ -164,6 +164,14 @@ public class B2JsonReader {
      * Reads a string value, returning its contents.
      */
     public String readString() throws B2JsonException, IOException {
+        return readString(null);
+    }
+
+    /**
+     * Reads a string value, returning its contents.  If there's a cache, the
+     * string comes from it, so repeated values can share one String.
+     */
+    public String readString(B2JsonStringDedupCache cacheOrNull) throws B2JsonException, IOException {
         skipWhitespace();
         if (currentChar != '"') {
             throw new B2JsonException("string does not start with quote");
@@ -187,7 +195,7 @@ public class B2JsonReader {
         }
         next(); // skip closing quote
 
-        return builder.toString();
+        return (cacheOrNull == null) ? builder.toString() : cacheOrNull.dedup(builder);
     }
 
     private void handleBackslashInString() throws IOException, B2JsonException {
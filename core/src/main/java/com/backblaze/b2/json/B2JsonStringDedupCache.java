@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+
+package com.backblaze.b2.json;
+
+import com.backblaze.b2.util.B2Preconditions;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * B2JsonStringDedupCache remembers recently-read short strings so that
+ * reading the same value again returns the same String instance instead
+ * of a new one.
+ *
+ * JSON responses, especially listings, repeat a few values over and over:
+ * actions, content types, bucket ids, encryption settings and fileInfo
+ * names.  When the results are kept around, sharing those instances saves
+ * a lot of memory.  And when a string is found in the cache, we don't even
+ * make the new one.
+ *
+ * The cache is a fixed-size table where each string can only go in one
+ * slot, chosen by its hash code.  A new string just replaces whatever was
+ * in its slot.  So it never holds more than 'capacity' strings, it never
+ * needs a lock, and the values that keep coming up stay in it.
+ *
+ * Use it by setting it in the B2JsonOptions used for deserialization.
+ *
+ * THREAD-SAFETY: it's safe to share one cache between threads, and that's
+ *   the idea, since the same values come up in all of the responses.
+ */
+public class B2JsonStringDedupCache {
+    /**
+     * A reasonable default for the number of slots.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * A reasonable default for the length of the longest string to cache.
+     * Longer strings, like file names and ids, are rarely repeated.
+     */
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    private final int maxLength;
+    private final int mask;
+    private final AtomicReferenceArray<String> slots;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity the number of slots.  it's rounded up to a power of two.
+     * @param maxLength strings longer than this aren't cached.
+     */
+    public B2JsonStringDedupCache(int capacity, int maxLength) {
+        B2Preconditions.checkArgument(capacity > 0 && capacity <= (1 << 24), "capacity must be between 1 and 2^24");
+        B2Preconditions.checkArgument(maxLength >= 0, "maxLength must not be negative");
+        int slotCount = 1;
+        while (slotCount < capacity) {
+            slotCount <<= 1;
+        }
+        this.maxLength = maxLength;
+        this.mask = slotCount - 1;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+    }
+
+    /**
+     * @return a new cache with DEFAULT_CAPACITY and DEFAULT_MAX_LENGTH.
+     */
+    public static B2JsonStringDedupCache createDefault() {
+        return new B2JsonStringDedupCache(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param chars the characters of the string.
+     * @return a string with the given characters.  if the cache already has
+     *         one, that's what you get.  otherwise, it's a new one, which
+     *         will be returned next time, unless something else has replaced
+     *         it by then.
+     */
+    public String dedup(CharSequence chars) {
+        final int length = chars.length();
+        if (length > maxLength) {
+            return chars.toString();
+        }
+
+        // this is the same as String.hashCode(), so it's well-studied.
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        final int slot = (hash ^ (hash >>> 16)) & mask;
+
+        final String existing = slots.get(slot);
+        if (existing != null && existing.contentEquals(chars)) {
+            hits.increment();
+            return existing;
+        }
+
+        final String result = chars.toString();
+        slots.set(slot, result);
+        misses.increment();
+        return result;
+    }
+
+    /**
+     * @return the number of slots.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @return how many times dedup() has returned a string from the cache.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how many times dedup() has made a new string that was short enough to cache.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+}
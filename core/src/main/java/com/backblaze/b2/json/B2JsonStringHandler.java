@@ -22,7 +22,7 @@ public class B2JsonStringHandler implements B2JsonTypeHandler<String> {
     }
 
     public String deserialize(B2JsonReader in, B2JsonOptions options) throws B2JsonException, IOException {
-        return in.readString();
+        return in.readString((options == null) ? null : options.getStringDedupCacheOrNull());
     }
 
     public String deserializeUrlParam(String urlValue) throws B2JsonException {
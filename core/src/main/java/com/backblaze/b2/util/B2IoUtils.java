@@ -8,6 +8,9 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 public class B2IoUtils {
     private static final int EOF = -1;
@@ -39,6 +42,21 @@ public class B2IoUtils {
         }
     }
 
+    /**
+     * Asks the OS to put the directory's entries on the disk, so that files
+     * that were just created or renamed in it stay that way after a crash.
+     * Some systems, like Windows, can't open a directory to do that, so this
+     * does what it can and ignores any IOExceptions.
+     *
+     * @param directory the directory to sync.
+     */
+    public static void syncDirectoryQuietly(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // ignore
+        }
+    }
 
     private static long copyGuts(InputStream in,
                                  OutputStream out,
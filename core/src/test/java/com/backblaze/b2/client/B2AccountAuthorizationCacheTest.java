@@ -9,14 +9,21 @@ import com.backblaze.b2.client.exceptions.B2InternalErrorException;
 import com.backblaze.b2.client.exceptions.B2LocalException;
 import com.backblaze.b2.client.structures.B2AccountAuthorization;
 import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2ClockSim;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static com.backblaze.b2.client.B2TestHelpers.makeAuth;
 import static com.backblaze.b2.client.B2TestHelpers.makeAuthWithAccountId;
+import static com.backblaze.b2.util.B2DateTimeUtil.parseDateTime;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.doReturn;
@@ -139,4 +146,112 @@ public class B2AccountAuthorizationCacheTest extends B2BaseTest {
         assertEquals("B2AccountAuthorization{accountId='1', authorizationToken='accountToken1', apiUrl='apiUrl1', downloadUrl='downloadUrl1', recommendedPartSize=1000, absoluteMinimumPartSize=100, allowed=B2Allowed(capabilities=[listFiles], bucketId=null, bucketName=null, namePrefix=), s3ApiUrl=s3ApiUrl1}", a.toString());
     }
 
+    @Test
+    public void testRefreshAheadInTheBackground() throws B2Exception {
+        final RefreshFixture fixture = new RefreshFixture(true);
+        assertSame(fixture.auths[1], fixture.cache.get());
+
+        // not old enough yet.
+        fixture.clock.advanceBoth(Duration.ofMillis(REFRESH_AFTER_MILLIS - 1));
+        assertSame(fixture.auths[1], fixture.cache.get());
+        assertTrue(fixture.executor.queued.isEmpty());
+
+        // old enough.  we keep handing out the old one until the refresh is done,
+        // and only start one refresh.
+        fixture.clock.advanceBoth(Duration.ofMillis(1));
+        assertSame(fixture.auths[1], fixture.cache.get());
+        assertSame(fixture.auths[1], fixture.cache.get());
+        assertEquals(1, fixture.executor.queued.size());
+        assertEquals(1, fixture.authorizeCount.get());
+
+        fixture.executor.runAll();
+        assertEquals(2, fixture.authorizeCount.get());
+        assertSame(fixture.auths[2], fixture.cache.get());
+        assertTrue(fixture.executor.queued.isEmpty());
+
+        // the new one's age starts from when we got it.
+        fixture.clock.advanceBoth(Duration.ofMillis(REFRESH_AFTER_MILLIS - 1));
+        assertSame(fixture.auths[2], fixture.cache.get());
+        assertTrue(fixture.executor.queued.isEmpty());
+    }
+
+    @Test
+    public void testFailedRefreshKeepsTheOldOneAndWaitsToRetry() throws B2Exception {
+        final RefreshFixture fixture = new RefreshFixture(true);
+        assertSame(fixture.auths[1], fixture.cache.get());
+        fixture.failing = true;
+
+        fixture.clock.advanceBoth(Duration.ofMillis(REFRESH_AFTER_MILLIS));
+        fixture.cache.get();
+        fixture.executor.runAll();
+        assertEquals(2, fixture.authorizeCount.get());
+        assertSame(fixture.auths[1], fixture.cache.get());
+        assertTrue(fixture.executor.queued.isEmpty());
+
+        fixture.failing = false;
+        fixture.clock.advanceBoth(Duration.ofMillis(RETRY_INTERVAL_MILLIS));
+        assertSame(fixture.auths[1], fixture.cache.get());
+        fixture.executor.runAll();
+        assertSame(fixture.auths[3], fixture.cache.get());
+    }
+
+    @Test
+    public void testRefreshWithoutAnExecutorRunsOnTheCaller() throws B2Exception {
+        final RefreshFixture fixture = new RefreshFixture(false);
+        assertSame(fixture.auths[1], fixture.cache.get());
+
+        fixture.clock.advanceBoth(Duration.ofMillis(REFRESH_AFTER_MILLIS));
+        assertSame(fixture.auths[1], fixture.cache.get());
+        assertEquals(2, fixture.authorizeCount.get());
+        assertSame(fixture.auths[2], fixture.cache.get());
+    }
+
+    @Test
+    public void testRefreshThatFinishesAfterClearIsUsed() throws B2Exception {
+        final RefreshFixture fixture = new RefreshFixture(true);
+        assertSame(fixture.auths[1], fixture.cache.get());
+
+        fixture.clock.advanceBoth(Duration.ofMillis(REFRESH_AFTER_MILLIS));
+        fixture.cache.get();
+        fixture.cache.clear();
+        fixture.executor.runAll();
+        assertSame(fixture.auths[2], fixture.cache.get());
+        assertEquals(2, fixture.authorizeCount.get());
+    }
+
+    private static final long REFRESH_AFTER_MILLIS = 20 * 60 * 60 * 1000;
+    private static final long RETRY_INTERVAL_MILLIS = 60 * 1000;
+
+    /**
+     * A cache that refreshes ahead, with an authorizer that hands out
+     * auths[1], auths[2], ... and, optionally, an executor that holds
+     * on to the refreshes until the test runs them.
+     */
+    private static class RefreshFixture {
+        private final B2ClockSim clock = B2Clock.useSimulator(parseDateTime("2026-01-01 00:00:00"));
+        private final B2AccountAuthorization[] auths = new B2AccountAuthorization[10];
+        private final AtomicInteger authorizeCount = new AtomicInteger();
+        private final B2QueueingExecutor executor = new B2QueueingExecutor();
+        private volatile boolean failing;
+        private final B2AccountAuthorizationCache cache;
+
+        private RefreshFixture(boolean withExecutor) {
+            for (int i = 0; i < auths.length; i++) {
+                auths[i] = makeAuthWithAccountId("accountId", i);
+            }
+            final B2AccountAuthorizer authorizer = webifier -> {
+                final int i = authorizeCount.incrementAndGet();
+                if (failing) {
+                    throw new B2InternalErrorException("testing", "testing message");
+                }
+                return auths[i];
+            };
+            final B2AccountAuthorizationRefreshPolicy policy = B2AccountAuthorizationRefreshPolicy
+                    .builder()
+                    .setRefreshAfterMillis(REFRESH_AFTER_MILLIS)
+                    .setRetryIntervalMillis(RETRY_INTERVAL_MILLIS)
+                    .build();
+            cache = new B2AccountAuthorizationCache(null, authorizer, policy, withExecutor ? executor : null);
+        }
+    }
 }
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.B2AdaptiveConcurrencyLimiter.Outcome;
+import com.backblaze.b2.client.B2AdaptiveConcurrencyLimiter.Permit;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2ClockSim;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.backblaze.b2.util.B2DateTimeUtil.parseDateTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class B2AdaptiveConcurrencyLimiterTest extends B2BaseTest {
+    private final B2ClockSim clock = B2Clock.useSimulator(parseDateTime("2026-10-19 00:00:00"));
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void testGrowsAdditivelyWhileBusyAndHealthy() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(4)
+                .setMaxLimit(6)
+                .build();
+        assertEquals(4, limiter.getLimit());
+
+        // one "window" of successful transfers at the limit adds one to the limit.
+        runWindow(limiter, Outcome.SUCCEEDED);
+        assertEquals(5, limiter.getLimit());
+
+        runWindow(limiter, Outcome.SUCCEEDED);
+        runWindow(limiter, Outcome.SUCCEEDED);
+        runWindow(limiter, Outcome.SUCCEEDED);
+
+        // it never goes above the max.
+        assertEquals(6, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testDoesNotGrowWhenIdle() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(8)
+                .build();
+
+        // one transfer at a time doesn't prove that we could run more than 8 at once.
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire().release(Outcome.SUCCEEDED);
+        }
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    public void testBacksOffOncePerWindowWhenOverloaded() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(16)
+                .build();
+
+        // all 16 are in flight when the server starts complaining.
+        final List<Permit> permits = acquire(limiter, 16);
+        for (Permit permit : permits) {
+            permit.release(Outcome.OVERLOADED);
+        }
+
+        // they were all admitted before the first cut, so we only cut once.
+        assertEquals(8, limiter.getLimit());
+
+        // transfers admitted after the cut can cut it again.
+        limiter.acquire().release(Outcome.OVERLOADED);
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testNeverGoesBelowMin() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(4)
+                .setMinLimit(2)
+                .build();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire().release(Outcome.OVERLOADED);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testFailuresStopGrowthButDontCut() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(4)
+                .build();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire().release(Outcome.FAILED);
+        }
+        assertEquals(4, limiter.getLimit());
+
+        // the error rate is high, so successes don't raise the limit yet.
+        runWindow(limiter, Outcome.SUCCEEDED);
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testIgnoredOutcomesDontChangeTheLimit() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(4)
+                .build();
+
+        runWindow(limiter, Outcome.IGNORED);
+        runWindow(limiter, Outcome.IGNORED);
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testBacksOffWhenLatencyRises() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(4)
+                .setMaxLimit(4)
+                .setLatencyTolerance(2.0)
+                .build();
+
+        // establish a baseline of 100ms per transfer.
+        for (int i = 0; i < 40; i++) {
+            final Permit permit = limiter.acquire();
+            clock.advanceBoth(Duration.ofMillis(100));
+            permit.responseStarted();
+            permit.release(Outcome.SUCCEEDED);
+        }
+        assertEquals(4, limiter.getLimit());
+
+        // now transfers take a lot longer.
+        for (int i = 0; i < 10; i++) {
+            final Permit permit = limiter.acquire();
+            clock.advanceBoth(Duration.ofMillis(1000));
+            permit.responseStarted();
+            permit.release(Outcome.SUCCEEDED);
+        }
+        assertTrue(limiter.getLimit() < 4);
+    }
+
+    @Test
+    public void testLatencyIsOnlyUntilTheResponseStarts() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(4)
+                .setMaxLimit(4)
+                .setLatencyTolerance(2.0)
+                .build();
+
+        for (int i = 0; i < 40; i++) {
+            final Permit permit = limiter.acquire();
+            clock.advanceBoth(Duration.ofMillis(100));
+            permit.responseStarted();
+            permit.release(Outcome.SUCCEEDED);
+        }
+
+        // big downloads, or slow sinks, take longer after the response starts.
+        for (int i = 0; i < 10; i++) {
+            final Permit permit = limiter.acquire();
+            clock.advanceBoth(Duration.ofMillis(100));
+            permit.responseStarted();
+            clock.advanceBoth(Duration.ofMillis(5000));
+            permit.responseStarted();
+            permit.release(Outcome.SUCCEEDED);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testTransfersWithoutAResponseStartDontCountForLatency() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(4)
+                .setMaxLimit(4)
+                .setLatencyTolerance(2.0)
+                .build();
+
+        // like uploads of small files, and then of big parts.
+        for (int i = 0; i < 40; i++) {
+            final Permit permit = limiter.acquire();
+            clock.advanceBoth(Duration.ofMillis(i < 30 ? 100 : 5000));
+            permit.release(Outcome.SUCCEEDED);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testLatencyCanBeIgnored() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(4)
+                .setMaxLimit(4)
+                .setLatencyTolerance(0)
+                .build();
+
+        for (int i = 0; i < 40; i++) {
+            final Permit permit = limiter.acquire();
+            clock.advanceBoth(Duration.ofMillis(i < 30 ? 100 : 5000));
+            permit.responseStarted();
+            permit.release(Outcome.SUCCEEDED);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testAcquireWaitsForRelease() throws Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(1)
+                .build();
+        final Permit first = limiter.acquire();
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean acquired = new AtomicBoolean(false);
+        final Thread thread = new Thread(() -> {
+            started.countDown();
+            try {
+                limiter.acquire().release(Outcome.SUCCEEDED);
+                acquired.set(true);
+            } catch (B2Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // the other thread can't get in until we release.
+        thread.join(100);
+        assertFalse(acquired.get());
+
+        first.release(Outcome.SUCCEEDED);
+        thread.join(10000);
+        assertTrue(acquired.get());
+    }
+
+    @Test
+    public void testInterruptedWhileWaiting() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(1)
+                .build();
+        limiter.acquire();
+
+        Thread.currentThread().interrupt();
+        try {
+            thrown.expect(B2LocalException.class);
+            thrown.expectMessage("interrupted while waiting for a transfer slot");
+            limiter.acquire();
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test
+    public void testReleasingTwiceIsABug() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder().build();
+        final Permit permit = limiter.acquire();
+        permit.release(Outcome.SUCCEEDED);
+
+        thrown.expect(IllegalStateException.class);
+        permit.release(Outcome.SUCCEEDED);
+    }
+
+    @Test
+    public void testBadArguments() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("backoffRatio must be between 0 and 1");
+        B2AdaptiveConcurrencyLimiter.builder().setBackoffRatio(1.5).build();
+    }
+
+    private static List<Permit> acquire(B2AdaptiveConcurrencyLimiter limiter,
+                                        int count) throws B2Exception {
+        final List<Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.add(limiter.acquire());
+        }
+        return permits;
+    }
+
+    // fills the current limit and then releases all of the permits with the given outcome.
+    private static void runWindow(B2AdaptiveConcurrencyLimiter limiter,
+                                  Outcome outcome) throws B2Exception {
+        for (Permit permit : acquire(limiter, limiter.getLimit())) {
+            permit.release(outcome);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.structures.B2FileVersion;
+import com.backblaze.b2.client.structures.B2ListFileNamesRequest;
+import com.backblaze.b2.client.structures.B2ListFileNamesResponse;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Collections;
+import com.backblaze.b2.util.B2Sha1;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class B2BucketIndexTest extends B2BaseTest {
+    private static final String BUCKET_ID = "bucket1";
+
+    private final Path dir;
+    private final Path indexPath;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    public B2BucketIndexTest() throws IOException {
+        dir = Files.createTempDirectory("B2BucketIndexTest");
+        indexPath = dir.resolve("bucket1.index");
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testListingsFillAndSaveAndReopen() throws IOException {
+        final B2BucketIndex index = B2BucketIndex.open(indexPath, BUCKET_ID);
+        assertTrue(index.entriesWithPrefix("").isEmpty());
+
+        listed(index, null, null, "b", version("a", 1), version("a/x", 2));
+        listed(index, null, "b", null, version("b", 3), version("c", 4));
+        assertEquals(Arrays.asList("a", "a/x", "b", "c"), names(index.entriesWithPrefix("")));
+        assertEquals(Arrays.asList("a", "a/x"), names(index.entriesWithPrefix("a")));
+        assertTrue(index.hasUnsavedChanges());
+
+        index.save();
+        assertFalse(index.hasUnsavedChanges());
+        assertEquals(Arrays.asList("a", "a/x", "b", "c"), names(index.entriesWithPrefix("")));
+
+        final B2BucketIndex reopened = B2BucketIndex.open(indexPath, BUCKET_ID);
+        assertEquals(index.entriesWithPrefix(""), reopened.entriesWithPrefix(""));
+        final B2BucketIndexEntry b = reopened.getOrNull("b");
+        assertEquals("id_b", b.getFileId());
+        assertEquals(3, b.getContentLength());
+        assertEquals(B2Sha1.hexSha1OfBytes(content(3)), b.getContentSha1OrNull());
+        assertEquals(3000, b.getUploadTimestamp());
+        assertNull(reopened.getOrNull("bb"));
+    }
+
+    @Test
+    public void testListingReplacesItsRange() throws IOException {
+        final B2BucketIndex index = B2BucketIndex.open(indexPath, BUCKET_ID);
+        listed(index, null, null, null, version("a", 1), version("b", 2), version("c", 3), version("d", 4));
+        index.save();
+
+        // a page from "b" up to "d" that no longer has "c", and has a new "bb".
+        listed(index, null, "b", "d", version("b", 2), version("bb", 5));
+        assertEquals(Arrays.asList("a", "b", "bb", "d"), names(index.entriesWithPrefix("")));
+
+        // a page with a prefix only covers names with the prefix.
+        listed(index, "b", null, null);
+        assertEquals(Arrays.asList("a", "d"), names(index.entriesWithPrefix("")));
+
+        // listings with a delimiter or for other buckets are ignored.
+        index.fileNamesListed(B2ListFileNamesRequest.builder(BUCKET_ID).setDelimiter("/").build(),
+                new B2ListFileNamesResponse(Collections.emptyList(), null));
+        index.fileNamesListed(B2ListFileNamesRequest.builder("bucket2").build(),
+                new B2ListFileNamesResponse(Collections.emptyList(), null));
+        assertEquals(Arrays.asList("a", "d"), names(index.entriesWithPrefix("")));
+    }
+
+    @Test
+    public void testOnlyDifferencesFromTheFileAreKept() throws IOException {
+        final B2BucketIndex index = B2BucketIndex.open(indexPath, BUCKET_ID);
+        listed(index, null, null, null, version("a", 1), version("b", 2), version("c", 3), version("d", 4));
+        assertEquals(4, index.getChangedEntryCount());
+        index.save();
+        assertEquals(0, index.getChangedEntryCount());
+
+        // listing the same thing again changes nothing.
+        listed(index, null, null, null, version("a", 1), version("b", 2), version("c", 3), version("d", 4));
+        assertEquals(0, index.getChangedEntryCount());
+        assertFalse(index.hasUnsavedChanges());
+
+        // "b" changed and "c" is gone.
+        listed(index, null, null, null, version("a", 1), version("b", 22), version("d", 4));
+        assertEquals(2, index.getChangedEntryCount());
+        assertEquals(Arrays.asList("a", "b", "d"), names(index.entriesWithPrefix("")));
+
+        // and now they're back the way they were in the file.
+        listed(index, null, "b", null, version("b", 2), version("c", 3), version("d", 4));
+        assertEquals(0, index.getChangedEntryCount());
+        assertEquals(Arrays.asList("a", "b", "c", "d"), names(index.entriesWithPrefix("")));
+    }
+
+    @Test
+    public void testRefreshSavesAsItGoes() throws Exception {
+        final B2BucketIndex index = B2BucketIndex.open(indexPath, BUCKET_ID, 2);
+        index.refresh(clientWith(version("a", 1), version("b", 2), version("c", 3), version("d", 4), version("e", 5)), "");
+        assertTrue(index.getChangedEntryCount() < 2);
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), names(index.entriesWithPrefix("")));
+
+        // the first four were saved without calling save().
+        assertEquals(Arrays.asList("a", "b", "c", "d"),
+                names(B2BucketIndex.open(indexPath, BUCKET_ID).entriesWithPrefix("")));
+    }
+
+    @Test
+    public void testOwnChanges() throws IOException {
+        final B2BucketIndex index = B2BucketIndex.open(indexPath, BUCKET_ID);
+        listed(index, null, null, null, version("a", 1), version("b", 2));
+
+        index.versionCreated(BUCKET_ID, version("c", 3));
+        index.versionCreated(BUCKET_ID, hide("a"));
+        index.versionCreated("bucket2", version("z", 9));
+        assertEquals(Arrays.asList("b", "c"), names(index.entriesWithPrefix("")));
+
+        // when we don't know the bucket, or something's deleted, the name is dirty.
+        index.versionCreated(null, version("d", 4));
+        index.versionDeleted("id_b", "b");
+        assertEquals(Arrays.asList("b", "d"), index.getDirtyFileNames());
+        assertEquals(Collections.singletonList("c"), names(index.entriesWithPrefix("")));
+
+        // dirty names are saved, too.
+        index.save();
+        assertEquals(Arrays.asList("b", "d"), B2BucketIndex.open(indexPath, BUCKET_ID).getDirtyFileNames());
+
+        // a listing that covers them cleans them.
+        listed(index, null, "a", "c", version("b", 22));
+        assertEquals(Collections.singletonList("d"), index.getDirtyFileNames());
+        assertEquals(22, index.getOrNull("b").getContentLength());
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        final B2BucketIndex index = B2BucketIndex.open(indexPath, BUCKET_ID);
+        listed(index, null, null, null, version("a/1", 1), version("a/2", 2), version("b/1", 3));
+        index.save();
+        index.versionCreated(null, version("b/2", 4));
+
+        final B2StorageClient client = clientWith(version("a/2", 22), version("a/3", 3), version("b/1", 3), version("b/2", 4));
+        index.refresh(client, "a/");
+        assertEquals(Arrays.asList("a/2", "a/3", "b/1"), names(index.entriesWithPrefix("")));
+        assertEquals(22, index.getOrNull("a/2").getContentLength());
+        assertEquals(Collections.singletonList("b/2"), index.getDirtyFileNames());
+
+        index.refreshDirtyFileNames(client);
+        assertTrue(index.getDirtyFileNames().isEmpty());
+        assertEquals(Arrays.asList("a/2", "a/3", "b/1", "b/2"), names(index.entriesWithPrefix("")));
+    }
+
+    @Test
+    public void testDiff() throws IOException {
+        final Path local = Files.createDirectories(dir.resolve("local"));
+        Files.createDirectories(local.resolve("sub"));
+        Files.write(local.resolve("same"), content(4));
+        Files.write(local.resolve("longer"), content(5));
+        Files.write(local.resolve("sub").resolve("different"), "xyz".getBytes(StandardCharsets.UTF_8));
+        Files.write(local.resolve("new"), content(1));
+
+        final B2BucketIndex index = B2BucketIndex.open(indexPath, BUCKET_ID);
+        listed(index, null, null, null,
+                version("backup/gone", 2),
+                version("backup/longer", 4),
+                version("backup/same", 4),
+                version("backup/sub/different", 3),
+                version("other", 1));
+
+        final B2BucketIndexDiff byLength = index.diff(local, "backup/", false);
+        assertEquals(Collections.singletonList("backup/new"), byLength.getOnlyLocalFileNames());
+        assertEquals(Collections.singletonList("backup/gone"), names(byLength.getOnlyInBucket()));
+        assertEquals(Collections.singletonList("backup/longer"), names(byLength.getChanged()));
+
+        final B2BucketIndexDiff bySha1 = index.diff(local, "backup/", true);
+        assertEquals(Arrays.asList("backup/longer", "backup/sub/different"), names(bySha1.getChanged()));
+        assertFalse(bySha1.isEmpty());
+    }
+
+    @Test
+    public void testNamesAreInUtf8Order() throws IOException {
+        // U+FFFD is before U+1F600 in utf-8, but not in utf-16.
+        final String replacement = "\ufffd";
+        final String smiley = "\ud83d\ude00";
+        final B2BucketIndex index = B2BucketIndex.open(indexPath, BUCKET_ID);
+        listed(index, null, null, null, version(replacement, 1), version(smiley, 2));
+        index.save();
+        assertEquals(Arrays.asList(replacement, smiley), names(index.entriesWithPrefix("")));
+        assertEquals(2, B2BucketIndex.open(indexPath, BUCKET_ID).getOrNull(smiley).getContentLength());
+    }
+
+    @Test
+    public void testWrongBucket() throws IOException {
+        B2BucketIndex.open(indexPath, BUCKET_ID).save();
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("is the index of bucket bucket1, not bucket2");
+        B2BucketIndex.open(indexPath, "bucket2");
+    }
+
+    @Test
+    public void testNotAnIndex() throws IOException {
+        Files.write(indexPath, new byte[100]);
+        thrown.expect(IOException.class);
+        thrown.expectMessage("isn't a bucket index");
+        B2BucketIndex.open(indexPath, BUCKET_ID);
+    }
+
+    private static void listed(B2BucketIndex index,
+                               String prefix,
+                               String startFileName,
+                               String nextFileName,
+                               B2FileVersion... versions) {
+        final B2ListFileNamesRequest request = B2ListFileNamesRequest
+                .builder(BUCKET_ID)
+                .setPrefix(prefix)
+                .setStartFileName(startFileName)
+                .build();
+        index.fileNamesListed(request, new B2ListFileNamesResponse(Arrays.asList(versions), nextFileName));
+    }
+
+    private static byte[] content(int length) {
+        final byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) 'a');
+        return bytes;
+    }
+
+    private static B2FileVersion version(String name, int length) {
+        return new B2FileVersion("id_" + name, name, length, "text/plain",
+                B2Sha1.hexSha1OfBytes(content(length)), null, B2Collections.mapOf(),
+                B2FileVersion.UPLOAD_ACTION, 1000L * length, null, null, null, null);
+    }
+
+    private static B2FileVersion hide(String name) {
+        return new B2FileVersion("hide_" + name, name, 0, null, null, null, null,
+                B2FileVersion.HIDE_ACTION, 100_000, null, null, null, null);
+    }
+
+    private static List<String> names(List<B2BucketIndexEntry> entries) {
+        final List<String> names = new ArrayList<>();
+        for (B2BucketIndexEntry entry : entries) {
+            names.add(entry.getFileName());
+        }
+        return names;
+    }
+
+    /**
+     * @return a client whose fileNames() lists the given versions, honoring the
+     *         prefix, startFileName and maxFileCount of the request.
+     */
+    private static B2StorageClient clientWith(B2FileVersion... versions) {
+        final TreeMap<String, B2FileVersion> byName = new TreeMap<>();
+        for (B2FileVersion version : versions) {
+            byName.put(version.getFileName(), version);
+        }
+        return (B2StorageClient) Proxy.newProxyInstance(
+                B2BucketIndexTest.class.getClassLoader(),
+                new Class<?>[] { B2StorageClient.class },
+                (proxy, method, args) -> {
+                    assertEquals("fileNames", method.getName());
+                    final B2ListFileNamesRequest request = (B2ListFileNamesRequest) args[0];
+                    final String prefix = (request.getPrefix() == null) ? "" : request.getPrefix();
+                    final String start = (request.getStartFileName() == null) ? "" : request.getStartFileName();
+                    final int max = (request.getMaxFileCount() == null) ? Integer.MAX_VALUE : request.getMaxFileCount();
+                    final List<B2FileVersion> matches = byName.tailMap(start, true).values().stream()
+                            .filter(v -> v.getFileName().startsWith(prefix))
+                            .limit(max)
+                            .collect(Collectors.toList());
+                    return (B2ListFilesIterable) matches::iterator;
+                });
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2InternalErrorException;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.client.exceptions.B2RuntimeException;
+import com.backblaze.b2.util.B2BaseTest;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class B2BulkRunnerTest extends B2BaseTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testProcessesEverythingWithBoundedConcurrency() throws B2Exception {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        final RecordingListener listener = new RecordingListener();
+
+        final B2BulkOperationSummary<Integer> summary = B2BulkRunner.run(
+                range(100),
+                item -> {
+                    final int now = inFlight.incrementAndGet();
+                    maxInFlight.accumulateAndGet(now, Math::max);
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    inFlight.decrementAndGet();
+                    seen.add(item);
+                    return item * 2;
+                },
+                B2BulkOperationOptions.builder().setMaxConcurrency(3).build(),
+                listener,
+                executor);
+
+        assertEquals(100, summary.getSucceededCount());
+        assertEquals(0, summary.getFailedCount());
+        assertEquals(0, summary.getSkippedCount());
+        assertTrue(summary.allSucceeded());
+        assertEquals(100, seen.size());
+        assertTrue(maxInFlight.get() <= 3);
+        assertEquals(100, listener.succeeded.get());
+        assertEquals(0, inFlight.get());
+    }
+
+    @Test
+    public void testFailuresAreCollectedAndDontStopTheOthers() throws B2Exception {
+        final RecordingListener listener = new RecordingListener();
+        final B2BulkOperationSummary<Integer> summary = B2BulkRunner.run(
+                range(10),
+                item -> {
+                    if (item % 5 == 0) {
+                        throw new B2InternalErrorException("test", "failed " + item);
+                    }
+                    if (item == 7) {
+                        throw new IllegalStateException("oops");
+                    }
+                    return item;
+                },
+                B2BulkOperationOptions.defaultOptions(),
+                listener,
+                executor);
+
+        assertEquals(7, summary.getSucceededCount());
+        assertEquals(3, summary.getFailedCount());
+        assertFalse(summary.allSucceeded());
+        assertFalse(summary.wasCancelled());
+
+        final List<Integer> failedItems = new ArrayList<>();
+        for (B2BulkOperationSummary.Failure<Integer> failure : summary.getFailures()) {
+            failedItems.add(failure.getItem());
+            if (failure.getItem() == 7) {
+                assertTrue(failure.getException() instanceof B2LocalException);
+            }
+        }
+        Collections.sort(failedItems);
+        assertEquals(0, (int) failedItems.get(0));
+        assertEquals(5, (int) failedItems.get(1));
+        assertEquals(7, (int) failedItems.get(2));
+        assertEquals(3, listener.failed.get());
+    }
+
+    @Test
+    public void testCancellation() throws B2Exception {
+        final B2CancellationToken token = new B2CancellationToken();
+        final AtomicInteger processed = new AtomicInteger();
+
+        final B2BulkOperationSummary<Integer> summary = B2BulkRunner.run(
+                range(1000),
+                item -> {
+                    if (processed.incrementAndGet() == 10) {
+                        token.cancel();
+                    }
+                    return item;
+                },
+                B2BulkOperationOptions.builder()
+                        .setMaxConcurrency(1)
+                        .setCancellationTokenOrNull(token)
+                        .build(),
+                null,
+                executor);
+
+        assertTrue(summary.wasCancelled());
+        assertFalse(summary.allSucceeded());
+        assertEquals(10, processed.get());
+        assertEquals(10, summary.getSucceededCount());
+
+        // the next item may have been handed to the executor before it noticed the cancellation.
+        assertTrue(summary.getSkippedCount() <= 1);
+    }
+
+    @Test
+    public void testIterationFailureIsThrownAfterInFlightItemsFinish() throws B2Exception {
+        final AtomicInteger processed = new AtomicInteger();
+        final Iterable<Integer> failingItems = () -> new Iterator<Integer>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                if (next == 5) {
+                    throw new B2RuntimeException("failed to advance iterator",
+                            new B2InternalErrorException("test", "listing failed"));
+                }
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                return next++;
+            }
+        };
+
+        thrown.expect(B2InternalErrorException.class);
+        thrown.expectMessage("listing failed");
+        try {
+            B2BulkRunner.run(failingItems,
+                    item -> processed.incrementAndGet(),
+                    B2BulkOperationOptions.defaultOptions(),
+                    null,
+                    executor);
+        } finally {
+            assertEquals(5, processed.get());
+        }
+    }
+
+    @Test
+    public void testNextFailureIsThrownInsteadOfHanging() throws B2Exception {
+        final AtomicInteger processed = new AtomicInteger();
+        final Iterable<Integer> failingItems = () -> new Iterator<Integer>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                if (next == 5) {
+                    throw new B2RuntimeException("failed to get next item",
+                            new B2InternalErrorException("test", "listing failed"));
+                }
+                return next++;
+            }
+        };
+
+        thrown.expect(B2InternalErrorException.class);
+        thrown.expectMessage("listing failed");
+        try {
+            B2BulkRunner.run(failingItems,
+                    item -> processed.incrementAndGet(),
+                    B2BulkOperationOptions.builder().setMaxConcurrency(1).build(),
+                    null,
+                    executor);
+        } finally {
+            assertEquals(5, processed.get());
+        }
+    }
+
+    @Test
+    public void testRejectedByExecutor() throws B2Exception {
+        executor.shutdown();
+
+        thrown.expect(B2LocalException.class);
+        thrown.expectMessage("executor rejected bulk operation task");
+        B2BulkRunner.run(range(3), item -> item, B2BulkOperationOptions.defaultOptions(), null, executor);
+    }
+
+    @Test
+    public void testBadOptions() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("maxConcurrency must be positive");
+        B2BulkOperationOptions.builder().setMaxConcurrency(0).build();
+    }
+
+    private static List<Integer> range(int count) {
+        final List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    private static class RecordingListener implements B2BulkOperationListener<Integer, Integer> {
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        @Override
+        public void succeeded(Integer item, Integer result) {
+            succeeded.incrementAndGet();
+        }
+
+        @Override
+        public void failed(Integer item, B2Exception e) {
+            failed.incrementAndGet();
+        }
+    }
+}
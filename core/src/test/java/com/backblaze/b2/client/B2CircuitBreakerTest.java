@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2BadRequestException;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2InternalErrorException;
+import com.backblaze.b2.client.exceptions.B2TooManyRequestsException;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2ClockSim;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.backblaze.b2.client.B2CircuitBreaker.State.CLOSED;
+import static com.backblaze.b2.client.B2CircuitBreaker.State.HALF_OPEN;
+import static com.backblaze.b2.client.B2CircuitBreaker.State.OPEN;
+import static com.backblaze.b2.util.B2DateTimeUtil.parseDateTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class B2CircuitBreakerTest extends B2BaseTest {
+    private final B2ClockSim clock = B2Clock.useSimulator(parseDateTime("2026-01-01 00:00:00"));
+    private final B2CircuitBreaker breaker = new B2CircuitBreaker(B2CircuitBreakerPolicy.builder()
+            .setFailureThreshold(3)
+            .setOpenMillis(1000)
+            .setHalfOpenProbes(1)
+            .build());
+    private final B2Sleeper sleeper = new B2Sleeper() {
+        @Override
+        boolean sleepSeconds(int seconds) {
+            clock.advanceBoth(Duration.ofSeconds(seconds));
+            return true;
+        }
+    };
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        failTimes("op", 2);
+        breaker.succeeded("op");
+        failTimes("op", 2);
+        assertEquals(CLOSED, breaker.getState("op"));
+
+        failTimes("op", 1);
+        assertEquals(OPEN, breaker.getState("op"));
+        assertFalse(breaker.tryToAttempt("op"));
+
+        // each operation has its own circuit.
+        assertTrue(breaker.tryToAttempt("other"));
+    }
+
+    @Test
+    public void testHalfOpenProbeClosesOnSuccess() {
+        failTimes("op", 3);
+        clock.advanceBoth(Duration.ofMillis(999));
+        assertFalse(breaker.tryToAttempt("op"));
+
+        clock.advanceBoth(Duration.ofMillis(1));
+        assertTrue(breaker.tryToAttempt("op"));
+        assertEquals(HALF_OPEN, breaker.getState("op"));
+        // only one probe at a time.
+        assertFalse(breaker.tryToAttempt("op"));
+
+        breaker.succeeded("op");
+        assertEquals(CLOSED, breaker.getState("op"));
+        assertTrue(breaker.tryToAttempt("op"));
+    }
+
+    @Test
+    public void testHalfOpenProbeReopensOnFailure() {
+        failTimes("op", 3);
+        clock.advanceBoth(Duration.ofMillis(1000));
+        assertTrue(breaker.tryToAttempt("op"));
+        breaker.failed("op");
+        assertEquals(OPEN, breaker.getState("op"));
+
+        // and it stays open for the whole time again.
+        clock.advanceBoth(Duration.ofMillis(999));
+        assertFalse(breaker.tryToAttempt("op"));
+    }
+
+    @Test
+    public void testIgnoredProbeLetsAnotherProbeThrough() {
+        failTimes("op", 3);
+        clock.advanceBoth(Duration.ofMillis(1000));
+        assertTrue(breaker.tryToAttempt("op"));
+        breaker.ignored("op");
+        assertEquals(HALF_OPEN, breaker.getState("op"));
+        assertTrue(breaker.tryToAttempt("op"));
+    }
+
+    @Test
+    public void testRetryerFailsFastWhileOpen() throws B2Exception {
+        // longer than the retryer's backoff, so the retries don't become probes.
+        final B2CircuitBreaker breaker = new B2CircuitBreaker(B2CircuitBreakerPolicy.builder()
+                .setFailureThreshold(3)
+                .setOpenMillis(60_000)
+                .build());
+        final B2Retryer retryer = new B2Retryer(sleeper, null, null, breaker);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        // the circuit opens during the retries, which stop with the last failure as the cause.
+        try {
+            retryer.doRetry("op", null, () -> {
+                attempts.incrementAndGet();
+                throw new B2InternalErrorException("test", null, "oops");
+            }, new B2DefaultRetryPolicy());
+            fail("should've thrown");
+        } catch (B2Exception e) {
+            assertEquals("circuit_open", e.getCode());
+            assertTrue(e.getCause() instanceof B2InternalErrorException);
+        }
+        assertEquals(3, attempts.get());
+
+        // now calls fail without an attempt.
+        attempts.set(0);
+        try {
+            retryer.doRetry("op", null, () -> {
+                attempts.incrementAndGet();
+                return "ok";
+            }, new B2DefaultRetryPolicy());
+            fail("should've thrown");
+        } catch (B2Exception e) {
+            assertEquals("circuit_open", e.getCode());
+        }
+        assertEquals(0, attempts.get());
+
+        // after a while, a probe gets through and closes it.
+        clock.advanceBoth(Duration.ofMillis(60_000));
+        assertEquals("ok", retryer.doRetry("op", null, () -> "ok", new B2DefaultRetryPolicy()));
+        assertEquals(CLOSED, breaker.getState("op"));
+    }
+
+    @Test
+    public void testOnlyServiceTroubleCountsAsFailure() throws B2Exception {
+        final B2Retryer retryer = new B2Retryer(sleeper, null, null, breaker);
+        failTimes("op", 2);
+
+        // being throttled doesn't count either way, so one more failure opens it.
+        try {
+            retryer.doRetry("op", null, () -> {
+                throw new B2TooManyRequestsException("test", 1, "slow down");
+            }, new B2DefaultRetryPolicy());
+            fail("should've thrown");
+        } catch (B2TooManyRequestsException e) {
+            // expected.
+        }
+        assertEquals(CLOSED, breaker.getState("op"));
+        failTimes("op", 1);
+        assertEquals(OPEN, breaker.getState("op"));
+
+        // a bad request means the service answered, so it resets the count.
+        clock.advanceBoth(Duration.ofMillis(1000));
+        final B2BadRequestException badRequest = new B2BadRequestException("test", null, "bad");
+        try {
+            retryer.doRetry("op", null, () -> {
+                throw badRequest;
+            }, new B2DefaultRetryPolicy());
+            fail("should've thrown");
+        } catch (B2BadRequestException e) {
+            assertSame(badRequest, e);
+        }
+        assertEquals(CLOSED, breaker.getState("op"));
+        failTimes("op", 2);
+        assertEquals(CLOSED, breaker.getState("op"));
+    }
+
+    @Test
+    public void testDefaultPolicyIsDisabled() {
+        assertFalse(B2CircuitBreakerPolicy.defaultPolicy().isEnabled());
+        assertEquals(B2CircuitBreakerPolicy.defaultPolicy(),
+                B2ClientConfig.builder("appKeyId", "appKey", "agent").build().getCircuitBreakerPolicy());
+    }
+
+    private void failTimes(String operation,
+                           int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryToAttempt(operation));
+            breaker.failed(operation);
+        }
+    }
+}
@@ -34,6 +34,7 @@ public class B2ClientConfigTest extends B2BaseTest {
         assertEquals(USER_AGENT, config.getUserAgent());
         assertNull(config.getMasterUrl());
         assertNull(config.getTestModeOrNull());
+        assertEquals(B2UploadUrlCachePolicy.defaultPolicy(), config.getUploadUrlCachePolicy());
     }
 
     @Test
@@ -42,11 +43,21 @@ public class B2ClientConfigTest extends B2BaseTest {
                 .builder(AUTHORIZER, USER_AGENT)
                 .setMasterUrl("https://api.backblazeb2.net/")
                 .setTestModeOrNull(FAIL_SOME_UPLOADS)
+                .setUploadUrlCachePolicy(B2UploadUrlCachePolicy.builder().setMaxUrlsPerBucket(3).build())
                 .build();
         assertEquals(AUTHORIZER, config.getAccountAuthorizer());
         assertEquals(USER_AGENT, config.getUserAgent());
         assertEquals("https://api.backblazeb2.net/", config.getMasterUrl());
         assertEquals(FAIL_SOME_UPLOADS, config.getTestModeOrNull());
+        assertEquals(3, config.getUploadUrlCachePolicy().getMaxUrlsPerBucket());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrefetchingRequiresBackgroundExecutor() {
+        B2ClientConfig
+                .builder(AUTHORIZER, USER_AGENT)
+                .setUploadUrlCachePolicy(B2UploadUrlCachePolicy.builder().setPrefetchCount(2).build())
+                .build();
     }
 
     @Test
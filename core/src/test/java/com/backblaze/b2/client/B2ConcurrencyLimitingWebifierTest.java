@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentHandlers.B2ContentSink;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.client.exceptions.B2ServiceUnavailableException;
+import com.backblaze.b2.client.structures.B2AccountAuthorization;
+import com.backblaze.b2.client.structures.B2DownloadByIdRequest;
+import com.backblaze.b2.client.structures.B2FileVersion;
+import com.backblaze.b2.client.structures.B2GetFileInfoRequest;
+import com.backblaze.b2.client.structures.B2UploadFileRequest;
+import com.backblaze.b2.client.structures.B2UploadUrlResponse;
+import com.backblaze.b2.util.B2BaseTest;
+import org.junit.Test;
+
+import static com.backblaze.b2.client.B2TestHelpers.bucketId;
+import static com.backblaze.b2.client.B2TestHelpers.fileId;
+import static com.backblaze.b2.client.B2TestHelpers.makeAuth;
+import static com.backblaze.b2.client.B2TestHelpers.makeVersion;
+import static com.backblaze.b2.client.B2TestHelpers.uploadUrlResponse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class B2ConcurrencyLimitingWebifierTest extends B2BaseTest {
+    private final B2StorageClientWebifier wrapped = mock(B2StorageClientWebifier.class);
+    private final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+            .setInitialLimit(8)
+            .build();
+    private final B2ConcurrencyLimitingWebifier webifier = new B2ConcurrencyLimitingWebifier(wrapped, limiter);
+    private final B2AccountAuthorization accountAuth = makeAuth(1);
+
+    @Test
+    public void testUploadsAreLimited() throws B2Exception {
+        final B2UploadUrlResponse uploadUrl = uploadUrlResponse(bucketId(1), 1);
+        final B2UploadFileRequest request = mock(B2UploadFileRequest.class);
+        final B2FileVersion version = makeVersion(1, 1);
+        when(wrapped.uploadFile(uploadUrl, request)).thenReturn(version);
+
+        assertSame(version, webifier.uploadFile(uploadUrl, request));
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testOverloadedCutsTheLimit() throws B2Exception {
+        final B2DownloadByIdRequest request = B2DownloadByIdRequest.builder(fileId(1)).build();
+        final B2ContentSink sink = mock(B2ContentSink.class);
+        doThrow(new B2ServiceUnavailableException("busy", null, "try later"))
+                .when(wrapped).downloadById(eq(accountAuth), eq(request), anyObject());
+
+        try {
+            webifier.downloadById(accountAuth, request, sink);
+            fail("should've thrown");
+        } catch (B2ServiceUnavailableException e) {
+            // expected.
+        }
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testLocalTroubleDoesNotCutTheLimit() throws B2Exception {
+        final B2DownloadByIdRequest request = B2DownloadByIdRequest.builder(fileId(1)).build();
+        final B2ContentSink sink = mock(B2ContentSink.class);
+        doThrow(new B2LocalException("trouble", "the sink is full"))
+                .when(wrapped).downloadById(eq(accountAuth), eq(request), anyObject());
+
+        try {
+            webifier.downloadById(accountAuth, request, sink);
+            fail("should've thrown");
+        } catch (B2LocalException e) {
+            // expected.
+        }
+        assertEquals(8, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testOtherCallsArePassedThrough() throws B2Exception {
+        final B2GetFileInfoRequest request = B2GetFileInfoRequest.builder(fileId(1)).build();
+        webifier.getFileInfo(accountAuth, request);
+        verify(wrapped, times(1)).getFileInfo(accountAuth, request);
+
+        webifier.close();
+        verify(wrapped, times(1)).close();
+
+        // the limiter wasn't involved.
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    public void testPermitIsReleasedWhenWrappedWebifierThrowsUnexpectedly() throws B2Exception {
+        when(wrapped.uploadFile(anyObject(), anyObject())).thenThrow(new IllegalStateException("oops"));
+        try {
+            webifier.uploadFile(uploadUrlResponse(bucketId(1), 1), mock(B2UploadFileRequest.class));
+            fail("should've thrown");
+        } catch (IllegalStateException e) {
+            // expected.
+        }
+        assertEquals(0, limiter.getInFlight());
+    }
+}
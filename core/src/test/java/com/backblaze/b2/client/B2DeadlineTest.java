@@ -0,0 +1,386 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentSources.B2HeadersImpl;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.client.exceptions.B2NetworkTimeoutException;
+import com.backblaze.b2.client.exceptions.B2ServiceUnavailableException;
+import com.backblaze.b2.client.exceptions.B2UnauthorizedException;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2ClockSim;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.backblaze.b2.util.B2DateTimeUtil.parseDateTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// the scopes in these tests are only there to be closed.
+@SuppressWarnings("try")
+public class B2DeadlineTest extends B2BaseTest {
+    private static final String OP = "b2_get_file_info";
+
+    private final B2ClockSim clock = B2Clock.useSimulator(parseDateTime("2026-01-01 00:00:00"));
+
+    // a sleeper that lets simulated time pass instead of sleeping.
+    private final B2Sleeper sleeper = new B2Sleeper() {
+        @Override
+        boolean sleepSeconds(int seconds) {
+            clock.advanceBoth(Duration.ofSeconds(seconds));
+            return true;
+        }
+
+        @Override
+        boolean sleepMilliseconds(long milliseconds) {
+            clock.advanceBoth(Duration.ofMillis(milliseconds));
+            return true;
+        }
+    };
+
+    // retries all retryable errors after a second.
+    private final B2RetryPolicy retryPolicy = new B2RetryPolicy() {
+        @Override
+        public Integer gotRetryableAfterDelay(String operation, int attemptsSoFar, long tookMillis, B2Exception e) {
+            return 1;
+        }
+
+        @Override
+        public boolean gotRetryableImmediately(String operation, int attemptsSoFar, long tookMillis, B2Exception e) {
+            return true;
+        }
+    };
+
+    // doesn't retry anything.
+    private final B2RetryPolicy noRetries = new B2RetryPolicy() {
+        @Override
+        public Integer gotRetryableAfterDelay(String operation, int attemptsSoFar, long tookMillis, B2Exception e) {
+            return null;
+        }
+
+        @Override
+        public boolean gotRetryableImmediately(String operation, int attemptsSoFar, long tookMillis, B2Exception e) {
+            return false;
+        }
+    };
+
+    // for the other threads in the tests of waiting.
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+
+        // don't leave a deadline behind for other tests, even if one failed.
+        assertNull(B2Deadline.currentOrNull());
+    }
+
+    @Test
+    public void testRemainingMillis() {
+        final B2Deadline deadline = B2Deadline.after(Duration.ofMillis(300));
+        assertEquals(300, deadline.getRemainingMillis());
+        assertFalse(deadline.hasPassed());
+
+        clock.advanceBoth(Duration.ofMillis(200));
+        assertEquals(100, deadline.getRemainingMillis());
+
+        clock.advanceBoth(Duration.ofMillis(200));
+        assertEquals(0, deadline.getRemainingMillis());
+        assertTrue(deadline.hasPassed());
+    }
+
+    @Test
+    public void testScopesOnlyMakeTheDeadlineSooner() {
+        final B2Deadline later = B2Deadline.afterMillis(1000);
+        final B2Deadline sooner = B2Deadline.afterMillis(100);
+
+        assertNull(B2Deadline.currentOrNull());
+        try (B2Deadline.Scope ignored = later.enter()) {
+            assertSame(later, B2Deadline.currentOrNull());
+
+            try (B2Deadline.Scope ignored2 = sooner.enter()) {
+                assertSame(sooner, B2Deadline.currentOrNull());
+
+                try (B2Deadline.Scope ignored3 = later.enter()) {
+                    // the sooner one is still in effect.
+                    assertSame(sooner, B2Deadline.currentOrNull());
+                }
+                assertSame(sooner, B2Deadline.currentOrNull());
+            }
+            assertSame(later, B2Deadline.currentOrNull());
+        }
+        assertNull(B2Deadline.currentOrNull());
+    }
+
+    @Test
+    public void testEnteringNullChangesNothing() {
+        try (B2Deadline.Scope ignored = B2Deadline.enter(null)) {
+            assertNull(B2Deadline.currentOrNull());
+        }
+
+        final B2Deadline deadline = B2Deadline.afterMillis(100);
+        try (B2Deadline.Scope ignored = deadline.enter()) {
+            try (B2Deadline.Scope ignored2 = B2Deadline.enter(null)) {
+                assertSame(deadline, B2Deadline.currentOrNull());
+            }
+            assertSame(deadline, B2Deadline.currentOrNull());
+        }
+    }
+
+    @Test
+    public void testNegativeIsRejected() {
+        try {
+            B2Deadline.afterMillis(-1);
+            fail("should've thrown");
+        } catch (IllegalArgumentException e) {
+            // expected.
+        }
+    }
+
+    @Test
+    public void testRetryerDoesntWaitPastTheDeadline() throws B2Exception {
+        final B2Retryer retryer = new B2Retryer(sleeper);
+        final AtomicInteger attempts = new AtomicInteger();
+        final long startMillis = clock.monotonicMillis();
+
+        try (B2Deadline.Scope ignored = B2Deadline.afterMillis(2500).enter()) {
+            retryer.doRetry(OP, null, () -> {
+                attempts.incrementAndGet();
+                throw new B2ServiceUnavailableException("test", null, "unavailable");
+            }, retryPolicy);
+            fail("should've thrown");
+        } catch (B2ServiceUnavailableException e) {
+            // expected.  it gives up with the error it got.
+        }
+
+        // attempts at 0s, 1s and 2s.  the next one would be after the deadline.
+        assertEquals(3, attempts.get());
+        assertEquals(2000, clock.monotonicMillis() - startMillis);
+    }
+
+    @Test
+    public void testRetryerDoesntStartAttemptsAfterTheDeadline() throws B2Exception {
+        final B2Retryer retryer = new B2Retryer(sleeper);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        try (B2Deadline.Scope ignored = B2Deadline.afterMillis(500).enter()) {
+            retryer.doRetry(OP, null, () -> {
+                attempts.incrementAndGet();
+                clock.advanceBoth(Duration.ofMillis(300));
+                final B2UnauthorizedException e = new B2UnauthorizedException("test", null, "expired");
+                e.setRequestCategory(B2UnauthorizedException.RequestCategory.UPLOADING);
+                throw e;
+            }, retryPolicy);
+            fail("should've thrown");
+        } catch (B2LocalException e) {
+            assertEquals("deadline_exceeded", e.getCode());
+        }
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testTimeoutsAfterTheDeadlineDontCountAgainstTheCircuit() throws B2Exception {
+        final B2CircuitBreaker breaker = new B2CircuitBreaker(B2CircuitBreakerPolicy.builder()
+                .setFailureThreshold(1)
+                .build());
+        final B2Retryer retryer = new B2Retryer(sleeper, null, null, breaker);
+
+        // the deadline cut the attempt short.
+        try (B2Deadline.Scope ignored = B2Deadline.afterMillis(500).enter()) {
+            retryer.doRetry(OP, null, () -> {
+                clock.advanceBoth(Duration.ofMillis(500));
+                throw new B2NetworkTimeoutException("socket_timeout", null, "timed out");
+            }, noRetries);
+            fail("should've thrown");
+        } catch (B2NetworkTimeoutException e) {
+            // expected.
+        }
+        assertEquals(B2CircuitBreaker.State.CLOSED, breaker.getState(OP));
+
+        // it timed out with time to spare.
+        try (B2Deadline.Scope ignored = B2Deadline.afterMillis(500).enter()) {
+            retryer.doRetry(OP, null, () -> {
+                throw new B2NetworkTimeoutException("socket_timeout", null, "timed out");
+            }, noRetries);
+            fail("should've thrown");
+        } catch (B2NetworkTimeoutException e) {
+            // expected.
+        }
+        assertEquals(B2CircuitBreaker.State.OPEN, breaker.getState(OP));
+    }
+
+    @Test
+    public void testRateLimiterDoesntWaitPastTheDeadline() throws B2Exception {
+        final B2RateLimiter limiter = B2RateLimiter.builder()
+                .setRate(B2RateLimiter.Category.LIST, 1, 1)
+                .setSleeper(sleeper)
+                .build();
+        limiter.acquire(B2RateLimiter.Category.LIST);
+
+        final long startMillis = clock.monotonicMillis();
+        try (B2Deadline.Scope ignored = B2Deadline.afterMillis(500).enter()) {
+            limiter.acquire(B2RateLimiter.Category.LIST);
+            fail("should've thrown");
+        } catch (B2LocalException e) {
+            assertEquals("deadline_exceeded", e.getCode());
+        }
+        assertEquals(startMillis, clock.monotonicMillis());
+
+        // it didn't reserve the permit it wasn't going to wait for.
+        limiter.acquire(B2RateLimiter.Category.LIST);
+        assertEquals(startMillis + 1000, clock.monotonicMillis());
+
+        // and pauses that would outlast the deadline aren't waited out either.
+        limiter.pause(B2RateLimiter.Category.OTHER, 5);
+        try (B2Deadline.Scope ignored = B2Deadline.afterMillis(4000).enter()) {
+            limiter.acquire(B2RateLimiter.Category.OTHER);
+            fail("should've thrown");
+        } catch (B2LocalException e) {
+            assertEquals("deadline_exceeded", e.getCode());
+        }
+        assertEquals(startMillis + 1000, clock.monotonicMillis());
+    }
+
+    @Test
+    public void testConcurrencyLimiterDoesntWaitPastTheDeadline() throws B2Exception {
+        final B2AdaptiveConcurrencyLimiter limiter = B2AdaptiveConcurrencyLimiter.builder()
+                .setInitialLimit(1)
+                .setMinLimit(1)
+                .build();
+        final B2AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+
+        try (B2Deadline.Scope ignored = B2Deadline.afterMillis(100).enter()) {
+            clock.advanceBoth(Duration.ofMillis(100));
+            limiter.acquire();
+            fail("should've thrown");
+        } catch (B2LocalException e) {
+            assertEquals("deadline_exceeded", e.getCode());
+        }
+
+        permit.release(B2AdaptiveConcurrencyLimiter.Outcome.SUCCEEDED);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testSingleFlightDoesntWaitPastTheDeadline() throws Exception {
+        final B2SingleFlight<String, String> singleFlight = new B2SingleFlight<>();
+        final Future<String> leader = executor.submit(() -> singleFlight.call("key", () -> {
+            started.countDown();
+            awaitRelease();
+            return "result";
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        try (B2Deadline.Scope ignored = B2Deadline.afterMillis(0).enter()) {
+            singleFlight.call("key", () -> {
+                throw new AssertionError("should share the call in flight");
+            });
+            fail("should've thrown");
+        } catch (B2LocalException e) {
+            assertEquals("deadline_exceeded", e.getCode());
+        }
+
+        // the call goes on without us.
+        release.countDown();
+        assertEquals("result", leader.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDownloadFollowerDoesntWaitPastTheDeadline() throws Exception {
+        final B2DownloadCoalescer<String> coalescer = new B2DownloadCoalescer<>(1000);
+        final Future<?> leader = executor.submit(() -> {
+            coalescer.download("key", (headers, in) -> { }, sink -> {
+                started.countDown();
+                awaitRelease();
+                try {
+                    sink.readContent(B2HeadersImpl.builder().build(), new ByteArrayInputStream(new byte[10]));
+                } catch (IOException e) {
+                    throw new B2LocalException("trouble", "trouble reading", e);
+                }
+            });
+            return null;
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        try (B2Deadline.Scope ignored = B2Deadline.afterMillis(0).enter()) {
+            coalescer.download("key", (headers, in) -> fail("shouldn't be called"), sink -> fail("should follow"));
+            fail("should've thrown");
+        } catch (B2LocalException e) {
+            assertEquals("deadline_exceeded", e.getCode());
+        }
+
+        release.countDown();
+        leader.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testAuthorizationCacheDoesntWaitPastTheDeadline() throws Exception {
+        final B2AccountAuthorizationCache cache = new B2AccountAuthorizationCache(null, webifier -> {
+            started.countDown();
+            awaitRelease();
+            throw new B2LocalException("test", "not really authorizing");
+        });
+        final Future<?> authorizing = executor.submit(() -> cache.get());
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        try (B2Deadline.Scope ignored = B2Deadline.afterMillis(0).enter()) {
+            cache.get();
+            fail("should've thrown");
+        } catch (B2LocalException e) {
+            assertEquals("deadline_exceeded", e.getCode());
+        }
+
+        release.countDown();
+        try {
+            authorizing.get(10, TimeUnit.SECONDS);
+            fail("should've thrown");
+        } catch (ExecutionException e) {
+            assertEquals("test", ((B2LocalException) e.getCause()).getCode());
+        }
+    }
+
+    @Test
+    public void testRetryerWithoutDeadlineKeepsTrying() throws B2Exception {
+        final B2Retryer retryer = new B2Retryer(sleeper);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertEquals("ok", retryer.doRetry(OP, null, () -> {
+            if (attempts.incrementAndGet() < 5) {
+                throw new B2ServiceUnavailableException("test", null, "unavailable");
+            }
+            return "ok";
+        }, retryPolicy));
+        assertEquals(5, attempts.get());
+    }
+
+    private void awaitRelease() {
+        try {
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2ServiceUnavailableException;
+import com.backblaze.b2.util.B2BaseTest;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class B2DefaultMetricsTest extends B2BaseTest {
+    private final B2DefaultMetrics metrics = new B2DefaultMetrics();
+
+    @Test
+    public void testBuckets() {
+        // small values are exact.
+        for (int i = 0; i < 32; i++) {
+            assertEquals(i, B2LatencyHistogram.indexOf(i));
+            assertEquals(i, B2LatencyHistogram.lowestValueAt(i));
+            assertEquals(i, B2LatencyHistogram.highestValueAt(i));
+        }
+
+        // after that, buckets are contiguous and each covers less than 1/16th of its values.
+        for (int i = 32; i < B2LatencyHistogram.BUCKET_COUNT; i++) {
+            final long lowest = B2LatencyHistogram.lowestValueAt(i);
+            final long highest = B2LatencyHistogram.highestValueAt(i);
+            assertEquals(B2LatencyHistogram.highestValueAt(i - 1) + 1, lowest);
+            assertEquals(i, B2LatencyHistogram.indexOf(lowest));
+            assertEquals(i, B2LatencyHistogram.indexOf(highest));
+            assertTrue((highest - lowest) <= lowest / 16);
+        }
+        assertEquals(Long.MAX_VALUE, B2LatencyHistogram.highestValueAt(B2LatencyHistogram.BUCKET_COUNT - 1));
+        assertEquals(B2LatencyHistogram.BUCKET_COUNT - 1, B2LatencyHistogram.indexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentiles() {
+        for (int millis = 1; millis <= 1000; millis++) {
+            metrics.attemptStarted("op");
+            metrics.attemptSucceeded("op", millis);
+        }
+        final B2MetricsSnapshot.Operation op = metrics.snapshot().getOperationOrNull("op");
+        assertEquals(1000, op.getSucceededCount());
+        assertEquals(500.5, op.getMeanLatencyMillis(), 0.001);
+        assertEquals(1000, op.getMaxLatencyMillis());
+        assertEquals(1, op.getLatencyMillisAtPercentile(0));
+        assertEquals(1000, op.getLatencyMillisAtPercentile(100));
+        assertWithin(500, op.getLatencyMillisAtPercentile(50));
+        assertWithin(990, op.getLatencyMillisAtPercentile(99));
+        assertWithin(999, op.getLatencyMillisAtPercentile(99.9));
+    }
+
+    @Test
+    public void testEmptyOperation() {
+        metrics.attemptStarted("op");
+        final B2MetricsSnapshot.Operation op = metrics.snapshot().getOperationOrNull("op");
+        assertEquals(1, op.getInFlightCount());
+        assertEquals(0, op.getLatencyMillisAtPercentile(99));
+        assertEquals(0, op.getMeanLatencyMillis(), 0);
+        assertNull(metrics.snapshot().getOperationOrNull("other"));
+    }
+
+    @Test
+    public void testCounts() {
+        metrics.attemptStarted("b2_upload_file");
+        metrics.attemptStarted("b2_upload_file");
+        metrics.attemptFailed("b2_upload_file", 10, new IOException("testing"));
+        metrics.retrying("b2_upload_file", 1, new B2ServiceUnavailableException("test", null, "message"));
+        metrics.uploaded("b2_upload_file", 100);
+        metrics.downloaded("b2_download_file_by_id", 30);
+        metrics.downloaded("b2_download_file_by_name", 12);
+
+        final B2MetricsSnapshot snapshot = metrics.snapshot();
+        final B2MetricsSnapshot.Operation upload = snapshot.getOperationOrNull("b2_upload_file");
+        assertEquals(0, upload.getSucceededCount());
+        assertEquals(1, upload.getFailedCount());
+        assertEquals(1, upload.getInFlightCount());
+        assertEquals(1, upload.getRetryCount());
+        assertEquals(10, upload.getMaxLatencyMillis());
+        assertEquals(100, snapshot.getBytesUploaded());
+        assertEquals(42, snapshot.getBytesDownloaded());
+        assertEquals(Long.valueOf(1), snapshot.getRetriesByExceptionType().get("B2ServiceUnavailableException"));
+        assertEquals(3, snapshot.getOperations().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadPercentile() {
+        metrics.attemptStarted("op");
+        metrics.snapshot().getOperationOrNull("op").getLatencyMillisAtPercentile(100.5);
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final int threadCount = 8;
+        final int perThread = 10000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        metrics.attemptStarted("op");
+                        metrics.attemptSucceeded("op", i % 100);
+                        metrics.downloaded("op", 1);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        final B2MetricsSnapshot.Operation op = metrics.snapshot().getOperationOrNull("op");
+        assertEquals(threadCount * perThread, op.getSucceededCount());
+        assertEquals(0, op.getInFlightCount());
+        assertEquals(threadCount * perThread, op.getBytesDownloaded());
+        assertEquals(99, op.getMaxLatencyMillis());
+    }
+
+    // the reported value is the top of the bucket holding the real one.
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + ", got " + actual,
+                expected <= actual && actual <= expected + expected / 16);
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentHandlers.B2ContentSink;
+import com.backblaze.b2.client.contentSources.B2Headers;
+import com.backblaze.b2.client.contentSources.B2HeadersImpl;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.client.structures.B2DownloadByIdRequest;
+import com.backblaze.b2.client.structures.B2FileSseForRequest;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2ByteRange;
+import com.backblaze.b2.util.B2IoUtils;
+import com.backblaze.b2.util.B2Sha1;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class B2DownloadCacheTest extends B2BaseTest {
+    private static final int FILE_SIZE = 1000;
+
+    private final Path dir;
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    // when true, the fake server sends a wrong sha1.
+    private volatile boolean corrupt;
+
+    // when true, the fake server doesn't send a sha1.
+    private volatile boolean noSha1;
+
+    public B2DownloadCacheTest() throws IOException {
+        dir = Files.createTempDirectory("B2DownloadCacheTest");
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testHitAfterMiss() throws Exception {
+        final B2DownloadCache cache = B2DownloadCache.open(dir, 10 * FILE_SIZE);
+        final B2StorageClient client = client();
+
+        final Download first = download(cache, client, request(1, null));
+        final Download second = download(cache, client, request(1, null));
+        assertArrayEquals(content(1), first.bytes);
+        assertArrayEquals(content(1), second.bytes);
+        assertEquals(first.headers.getContentSha1OrNull(), second.headers.getContentSha1OrNull());
+        assertEquals(FILE_SIZE, second.headers.getContentLength());
+
+        assertEquals(1, downloads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEntryCount());
+        assertTrue(cache.getTotalBytes() > FILE_SIZE);
+    }
+
+    @Test
+    public void testRangesAreServedFromTheWholeFile() throws Exception {
+        final B2DownloadCache cache = B2DownloadCache.open(dir, 10 * FILE_SIZE);
+        final B2StorageClient client = client();
+        download(cache, client, request(1, null));
+
+        checkRange(cache, client, B2ByteRange.between(10, 19), 10, 19);
+        checkRange(cache, client, B2ByteRange.startAt(990), 990, 999);
+        checkRange(cache, client, B2ByteRange.between(995, 2000), 995, 999);
+        checkRange(cache, client, B2ByteRange.parse("bytes=-5"), 995, 999);
+        assertEquals(1, downloads.get());
+        assertEquals(4, cache.getHitCount());
+    }
+
+    @Test
+    public void testRangesAreCachedOnTheirOwn() throws Exception {
+        final B2DownloadCache cache = B2DownloadCache.open(dir, 10 * FILE_SIZE);
+        final B2StorageClient client = client();
+
+        checkRange(cache, client, B2ByteRange.between(10, 19), 10, 19);
+        checkRange(cache, client, B2ByteRange.between(10, 19), 10, 19);
+        assertEquals(1, downloads.get());
+
+        // a different range is a different entry.
+        checkRange(cache, client, B2ByteRange.between(10, 20), 10, 20);
+        assertEquals(2, downloads.get());
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    @Test
+    public void testChannel() throws Exception {
+        final B2DownloadCache cache = B2DownloadCache.open(dir, 10 * FILE_SIZE);
+        final B2StorageClient client = client();
+
+        for (int i = 0; i < 2; i++) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final B2Headers headers = cache.downloadById(client, request(2, null), Channels.newChannel(out));
+            assertArrayEquals(content(2), out.toByteArray());
+            assertEquals("fileId2", headers.getValueOrNull(B2Headers.FILE_ID));
+        }
+        assertEquals(1, downloads.get());
+    }
+
+    @Test
+    public void testSha1MismatchIsNotCached() throws Exception {
+        final B2DownloadCache cache = B2DownloadCache.open(dir, 10 * FILE_SIZE);
+        corrupt = true;
+        try {
+            download(cache, client(), request(1, null));
+            fail("should have thrown");
+        } catch (B2LocalException e) {
+            assertEquals("mismatch", e.getCode());
+        }
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, filesIn(dir).size());
+    }
+
+    @Test
+    public void testWholeFilesWithoutSha1AreNotCached() throws Exception {
+        final B2DownloadCache cache = B2DownloadCache.open(dir, 10 * FILE_SIZE);
+        final B2StorageClient client = client();
+        noSha1 = true;
+        assertArrayEquals(content(1), download(cache, client, request(1, null)).bytes);
+        assertArrayEquals(content(1), download(cache, client, request(1, null)).bytes);
+        assertEquals(2, downloads.get());
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, filesIn(dir).size());
+    }
+
+    @Test
+    public void testSomeRequestsBypassTheCache() throws Exception {
+        final B2DownloadCache cache = B2DownloadCache.open(dir, 10 * FILE_SIZE);
+        final B2StorageClient client = client();
+        final B2DownloadByIdRequest withOverride = B2DownloadByIdRequest
+                .builder("fileId1")
+                .setB2ContentType("text/html")
+                .build();
+        final B2DownloadByIdRequest withSseC = B2DownloadByIdRequest
+                .builder("fileId1")
+                .setServerSideEncryption(B2FileSseForRequest.createSseCAes256("abc", "def"))
+                .build();
+        for (int i = 0; i < 2; i++) {
+            assertArrayEquals(content(1), download(cache, client, withOverride).bytes);
+            assertArrayEquals(content(1), download(cache, client, withSseC).bytes);
+        }
+        assertEquals(4, downloads.get());
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        // room for two files, but not three.
+        final B2DownloadCache cache = B2DownloadCache.open(dir, 2 * FILE_SIZE + 1000);
+        final B2StorageClient client = client();
+        download(cache, client, request(1, null));
+        download(cache, client, request(2, null));
+        download(cache, client, request(1, null)); // now 2 is the eldest.
+        download(cache, client, request(3, null));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(2, filesIn(dir).size());
+        assertTrue(cache.getTotalBytes() <= cache.getMaxBytes());
+
+        downloads.set(0);
+        download(cache, client, request(1, null));
+        download(cache, client, request(3, null));
+        assertEquals(0, downloads.get());
+        download(cache, client, request(2, null));
+        assertEquals(1, downloads.get());
+    }
+
+    @Test
+    public void testFilesBiggerThanTheCacheAreNotCached() throws Exception {
+        final B2DownloadCache cache = B2DownloadCache.open(dir, FILE_SIZE / 2);
+        assertArrayEquals(content(1), download(cache, client(), request(1, null)).bytes);
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, filesIn(dir).size());
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        final B2DownloadCache cache = B2DownloadCache.open(dir, 10 * FILE_SIZE);
+        final B2StorageClient client = client();
+        download(cache, client, request(1, null));
+        download(cache, client, request(2, B2ByteRange.between(0, 9)));
+
+        // leftovers that should be cleaned up.
+        Files.write(dir.resolve("download123.tmp"), new byte[10]);
+        Files.write(dir.resolve("0123.b2cache"), new byte[10]);
+
+        final B2DownloadCache reopened = B2DownloadCache.open(dir, 10 * FILE_SIZE);
+        assertEquals(2, reopened.getEntryCount());
+        assertEquals(cache.getTotalBytes(), reopened.getTotalBytes());
+        assertEquals(2, filesIn(dir).size());
+
+        downloads.set(0);
+        assertArrayEquals(content(1), download(reopened, client, request(1, null)).bytes);
+        checkRange(reopened, client, B2ByteRange.between(0, 9), 0, 9);
+        assertEquals(0, downloads.get());
+
+        // a smaller budget evicts what doesn't fit.
+        final B2DownloadCache smaller = B2DownloadCache.open(dir, FILE_SIZE);
+        assertEquals(1, smaller.getEntryCount());
+    }
+
+    @Test
+    public void testConcurrentReadersAndWriters() throws Exception {
+        // room for about three of the five files, so there's eviction too.
+        final B2DownloadCache cache = B2DownloadCache.open(dir, 3 * FILE_SIZE + 1500);
+        final B2StorageClient client = client();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final int fileNum = 1 + (i % 5);
+                final B2ByteRange rangeOrNull = (i % 3 == 0) ? B2ByteRange.between(fileNum, 99) : null;
+                futures.add(executor.submit(() -> {
+                    final Download download = download(cache, client, request(fileNum, rangeOrNull));
+                    final byte[] expected = (rangeOrNull == null) ?
+                            content(fileNum) :
+                            Arrays.copyOfRange(content(fileNum), fileNum, 100);
+                    assertArrayEquals(expected, download.bytes);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(cache.getTotalBytes() <= cache.getMaxBytes());
+        assertEquals(cache.getEntryCount(), filesIn(dir).size());
+        assertEquals(200, cache.getHitCount() + cache.getMissCount());
+    }
+
+    private void checkRange(B2DownloadCache cache,
+                            B2StorageClient client,
+                            B2ByteRange range,
+                            int expectedStart,
+                            int expectedEnd) throws Exception {
+        final Download download = download(cache, client, request(1, range));
+        assertArrayEquals(Arrays.copyOfRange(content(1), expectedStart, expectedEnd + 1), download.bytes);
+        assertEquals(expectedEnd - expectedStart + 1, download.headers.getContentLength());
+        assertEquals("bytes " + expectedStart + "-" + expectedEnd + "/" + FILE_SIZE,
+                download.headers.getValueOrNull(B2Headers.CONTENT_RANGE));
+    }
+
+    private static class Download {
+        private B2Headers headers;
+        private byte[] bytes;
+    }
+
+    private static Download download(B2DownloadCache cache,
+                                     B2StorageClient client,
+                                     B2DownloadByIdRequest request) throws Exception {
+        final Download download = new Download();
+        cache.downloadById(client, request, (headers, in) -> {
+            download.headers = headers;
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            B2IoUtils.copy(in, out);
+            download.bytes = out.toByteArray();
+        });
+        return download;
+    }
+
+    private static B2DownloadByIdRequest request(int fileNum, B2ByteRange rangeOrNull) {
+        return B2DownloadByIdRequest
+                .builder("fileId" + fileNum)
+                .setRange(rangeOrNull)
+                .build();
+    }
+
+    private static byte[] content(int fileNum) {
+        final byte[] bytes = new byte[FILE_SIZE];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * fileNum);
+        }
+        return bytes;
+    }
+
+    private static List<Path> filesIn(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @return a client whose downloadById() serves content(n) for "fileId{n}",
+     *         honoring the range the way the server does.
+     */
+    private B2StorageClient client() {
+        return (B2StorageClient) Proxy.newProxyInstance(
+                B2DownloadCacheTest.class.getClassLoader(),
+                new Class<?>[] { B2StorageClient.class },
+                (proxy, method, args) -> {
+                    assertEquals("downloadById", method.getName());
+                    downloads.incrementAndGet();
+                    final B2DownloadByIdRequest request = (B2DownloadByIdRequest) args[0];
+                    final B2ContentSink sink = (B2ContentSink) args[1];
+                    final byte[] all = content(Integer.parseInt(request.getFileId().substring("fileId".length())));
+
+                    final B2HeadersImpl.Builder headers = B2HeadersImpl.builder()
+                            .set(B2Headers.FILE_ID, request.getFileId())
+                            .set(B2Headers.FILE_NAME, "name");
+                    if (!noSha1) {
+                        headers.set(B2Headers.CONTENT_SHA1, corrupt ? B2Sha1.hexSha1OfBytes(new byte[1]) : B2Sha1.hexSha1OfBytes(all));
+                    }
+                    byte[] bytes = all;
+                    final B2ByteRange range = request.getRange();
+                    if (range != null) {
+                        final long start = (range.start == null) ? all.length - range.end : range.start;
+                        final long end = (range.start == null || range.end == null) ? all.length - 1 : Math.min(range.end, all.length - 1);
+                        bytes = Arrays.copyOfRange(all, (int) start, (int) end + 1);
+                        headers.set(B2Headers.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + all.length);
+                    }
+                    headers.set(B2Headers.CONTENT_LENGTH, Integer.toString(bytes.length));
+                    sink.readContent(headers.build(), new ByteArrayInputStream(bytes));
+                    return null;
+                });
+    }
+}
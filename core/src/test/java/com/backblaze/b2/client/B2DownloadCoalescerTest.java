@@ -0,0 +1,284 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentHandlers.B2ContentSink;
+import com.backblaze.b2.client.contentSources.B2Headers;
+import com.backblaze.b2.client.contentSources.B2HeadersImpl;
+import com.backblaze.b2.client.exceptions.B2ConnectionBrokenException;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2NotFoundException;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2IoUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class B2DownloadCoalescerTest extends B2BaseTest {
+    private static final int FOLLOWERS = 5;
+    private static final int CONTENT_SIZE = 100_000;
+    private static final byte[] CONTENT = content();
+    private static final B2Headers HEADERS = B2HeadersImpl.builder()
+            .set(B2Headers.CONTENT_LENGTH, Integer.toString(CONTENT_SIZE))
+            .build();
+
+    // much smaller than the content, so the leader has to wait for the followers.
+    private final B2DownloadCoalescer<String> coalescer = new B2DownloadCoalescer<>(1000);
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Test
+    public void testFollowersShareTheLeadersResponse() throws Exception {
+        final List<byte[]> results = runAll(FOLLOWERS + 1, sink -> {
+            awaitRelease();
+            sink.readContent(HEADERS, new ByteArrayInputStream(CONTENT));
+        }, this::readAll);
+        for (byte[] result : results) {
+            assertArrayEquals(CONTENT, result);
+        }
+        assertEquals(1, downloads.get());
+        assertEquals(FOLLOWERS, coalescer.getSharedCount());
+    }
+
+    @Test
+    public void testFollowersGetEverythingEvenIfTheLeaderStopsEarly() throws Exception {
+        final AtomicInteger sinkCalls = new AtomicInteger();
+        final List<byte[]> results = runAll(FOLLOWERS + 1, sink -> {
+            awaitRelease();
+            sink.readContent(HEADERS, new ByteArrayInputStream(CONTENT));
+        }, (headers, in) -> {
+            // the first sink to be called only wants a little.
+            if (sinkCalls.getAndIncrement() == 0) {
+                final byte[] bytes = new byte[10];
+                assertEquals(10, in.read(bytes));
+                return bytes;
+            }
+            return readAll(headers, in);
+        });
+        int completeCount = 0;
+        for (byte[] result : results) {
+            if (result.length == CONTENT_SIZE) {
+                assertArrayEquals(CONTENT, result);
+                completeCount++;
+            }
+        }
+        assertEquals(FOLLOWERS, completeCount);
+        assertEquals(1, downloads.get());
+    }
+
+    @Test
+    public void testFollowersStartOverWhenTheLeaderRetries() throws Exception {
+        final AtomicInteger sinkCalls = new AtomicInteger();
+        final List<byte[]> results = runAll(FOLLOWERS + 1, sink -> {
+            awaitRelease();
+            try {
+                sink.readContent(HEADERS, new BrokenInputStream(CONTENT_SIZE / 2));
+                fail("should have thrown");
+            } catch (IOException e) {
+                // this is where the retryer would retry.
+            }
+            sink.readContent(HEADERS, new ByteArrayInputStream(CONTENT));
+        }, (headers, in) -> {
+            sinkCalls.incrementAndGet();
+            return readAll(headers, in);
+        });
+        for (byte[] result : results) {
+            assertArrayEquals(CONTENT, result);
+        }
+        assertEquals(1, downloads.get());
+        assertEquals(2 * (FOLLOWERS + 1), sinkCalls.get());
+    }
+
+    @Test
+    public void testFollowersGetTheLeadersFailure() throws Exception {
+        final B2Exception failure = new B2NotFoundException("not_found", null, "no such file");
+        final ExecutorService executor = Executors.newFixedThreadPool(FOLLOWERS + 1);
+        try {
+            final List<Future<B2Exception>> futures = new ArrayList<>();
+            for (int i = 0; i < FOLLOWERS + 1; i++) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        coalescer.download("key", (headers, in) -> fail("shouldn't be called"), sink -> {
+                            downloads.incrementAndGet();
+                            awaitRelease();
+                            throw failure;
+                        });
+                        fail("should have thrown");
+                        return null;
+                    } catch (B2Exception e) {
+                        return e;
+                    }
+                }));
+            }
+            waitForFollowers();
+            release.countDown();
+            for (Future<B2Exception> future : futures) {
+                assertSame(failure, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, downloads.get());
+    }
+
+    @Test
+    public void testLaterCallsDownloadAgain() throws Exception {
+        release.countDown();
+        for (int i = 0; i < 2; i++) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            coalescer.download("key", (headers, in) -> B2IoUtils.copy(in, out),
+                    download(sink -> sink.readContent(HEADERS, new ByteArrayInputStream(CONTENT))));
+            assertArrayEquals(CONTENT, out.toByteArray());
+        }
+        assertEquals(2, downloads.get());
+        assertEquals(0, coalescer.getSharedCount());
+    }
+
+    @Test
+    public void testLeaderWithoutFollowersDoesntReadTheRestWhenItsSinkFails() {
+        final ByteArrayInputStream response = new ByteArrayInputStream(CONTENT);
+        try {
+            coalescer.download("key", (headers, in) -> {
+                final byte[] bytes = new byte[10];
+                assertEquals(10, in.read(bytes));
+                throw new IOException("disk full");
+            }, download(sink -> sink.readContent(HEADERS, response)));
+            fail("should have thrown");
+        } catch (B2Exception e) {
+            assertEquals("disk full", e.getCause().getMessage());
+        }
+        assertEquals(CONTENT_SIZE - 10, response.available());
+    }
+
+    @Test
+    public void testLeaderWithoutFollowersDoesntReadTheRestWhenItsSinkStopsEarly() throws B2Exception {
+        final ByteArrayInputStream response = new ByteArrayInputStream(CONTENT);
+        coalescer.download("key", (headers, in) -> assertEquals(10, in.read(new byte[10])),
+                download(sink -> sink.readContent(HEADERS, response)));
+        assertEquals(CONTENT_SIZE - 10, response.available());
+    }
+
+    private interface Server {
+        void serve(B2ContentSink sink) throws B2Exception, IOException;
+    }
+
+    private interface Reader {
+        byte[] read(B2Headers headers, InputStream in) throws IOException;
+    }
+
+    /**
+     * Starts the callers, waits for all but the leader to join, lets the
+     * download go, and returns what each caller's sink read.
+     */
+    private List<byte[]> runAll(int callers,
+                                Server server,
+                                Reader reader) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            final List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    final byte[][] result = new byte[1][];
+                    final B2ContentSink sink = (headers, in) -> {
+                        assertEquals(HEADERS, headers);
+                        result[0] = reader.read(headers, in);
+                    };
+                    coalescer.download("key", sink, download(server));
+                    return result[0];
+                }));
+            }
+            waitForFollowers();
+            release.countDown();
+            final List<byte[]> results = new ArrayList<>();
+            for (Future<byte[]> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return a download that counts itself and turns IOExceptions into
+     *         B2Exceptions, the way the web client does.
+     */
+    private B2DownloadCoalescer.Download download(Server server) {
+        return sink -> {
+            downloads.incrementAndGet();
+            try {
+                server.serve(sink);
+            } catch (IOException e) {
+                throw new B2ConnectionBrokenException("broken", null, "connection broken", e);
+            }
+        };
+    }
+
+    private void waitForFollowers() throws InterruptedException {
+        while (coalescer.getSharedCount() < FOLLOWERS) {
+            Thread.sleep(1);
+        }
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private byte[] readAll(B2Headers headers, InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        B2IoUtils.copy(in, out);
+        assertTrue(out.size() <= headers.getContentLength());
+        return out.toByteArray();
+    }
+
+    private static byte[] content() {
+        final byte[] bytes = new byte[CONTENT_SIZE];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 7);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the first 'length' bytes of CONTENT, and then fails, like a
+     * broken connection.
+     */
+    private static class BrokenInputStream extends InputStream {
+        private final int length;
+        private int position;
+
+        private BrokenInputStream(int length) {
+            this.length = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == length) {
+                throw new IOException("connection reset");
+            }
+            return CONTENT[position++] & 0xff;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentHandlers.B2ContentSink;
+import com.backblaze.b2.client.structures.B2CompactFileVersionList;
+import com.backblaze.b2.client.structures.B2DownloadByIdRequest;
+import com.backblaze.b2.client.structures.B2DownloadByNameRequest;
+import com.backblaze.b2.client.structures.B2FileSseForResponse;
+import com.backblaze.b2.client.structures.B2FileVersion;
+import com.backblaze.b2.client.structures.B2ListFileNamesResponse;
+import com.backblaze.b2.client.structures.B2ListFileVersionsResponse;
+import com.backblaze.b2.client.structures.B2ServerSideEncryptionMode;
+import com.backblaze.b2.json.B2Json;
+import com.backblaze.b2.json.B2JsonException;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2ByteRange;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2ClockSim;
+import com.backblaze.b2.util.B2Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.backblaze.b2.client.B2TestHelpers.bucketId;
+import static com.backblaze.b2.client.B2TestHelpers.bucketName;
+import static com.backblaze.b2.client.B2TestHelpers.fileId;
+import static com.backblaze.b2.client.B2TestHelpers.fileName;
+import static com.backblaze.b2.client.B2TestHelpers.makeAuth;
+import static com.backblaze.b2.client.B2TestHelpers.makeBucket;
+import static com.backblaze.b2.client.B2TestHelpers.makeFileHeaders;
+import static com.backblaze.b2.client.B2TestHelpers.makeVersion;
+import static com.backblaze.b2.util.B2DateTimeUtil.parseDateTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class B2FileInfoCacheTest extends B2BaseTest {
+    private static final long TTL_MILLIS = 1000;
+
+    private final B2ClockSim clock = B2Clock.useSimulator(parseDateTime("2026-01-01 00:00:00"));
+    private final B2FileInfoCache cache = new B2FileInfoCache(B2FileInfoCachePolicy.builder()
+            .setMaxEntries(3)
+            .setTtlMillis(TTL_MILLIS)
+            .build());
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void testDefaultPolicyIsDisabled() {
+        final B2FileInfoCache disabled = new B2FileInfoCache(B2FileInfoCachePolicy.defaultPolicy());
+        assertFalse(disabled.getPolicy().isEnabled());
+
+        disabled.versionRead(disabled.getInvalidationCount(), makeVersion(1, 1));
+        assertNull(disabled.getByIdOrNull(fileId(1)));
+        assertEquals(0, disabled.getMissCount());
+
+        // it doesn't even look at the arguments.
+        disabled.bucketsListed(null);
+        disabled.fileNamesListed(0, bucketId(1), null);
+    }
+
+    @Test
+    public void testReadById() {
+        assertNull(cache.getByIdOrNull(fileId(1)));
+
+        final B2FileVersion version = makeVersion(1, 1);
+        cache.versionRead(cache.getInvalidationCount(), version);
+        assertSame(version, cache.getByIdOrNull(fileId(1)));
+
+        // it's only by id, not by name.
+        assertNull(cache.getByNameOrNull(bucketName(1), fileName(1)));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testChangingAHitsFileInfoDoesntChangeTheNextHit() throws B2JsonException {
+        final B2FileVersion version = B2Json.get().fromJson("{\n" +
+                "  \"action\": \"upload\",\n" +
+                "  \"contentLength\": 7,\n" +
+                "  \"fileId\": \"" + fileId(1) + "\",\n" +
+                "  \"fileInfo\": { \"color\": \"red\" },\n" +
+                "  \"fileName\": \"" + fileName(1) + "\",\n" +
+                "  \"uploadTimestamp\": 1\n" +
+                "}", B2FileVersion.class);
+        cache.versionRead(cache.getInvalidationCount(), version);
+
+        try {
+            cache.getByIdOrNull(fileId(1)).getFileInfo().put("color", "blue");
+            fail("should've thrown");
+        } catch (UnsupportedOperationException e) {
+            // expected.
+        }
+        assertEquals("red", cache.getByIdOrNull(fileId(1)).getFileInfo().get("color"));
+    }
+
+    @Test
+    public void testEntriesExpire() {
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(1), makeVersion(1, 1));
+
+        clock.advanceBoth(Duration.ofMillis(TTL_MILLIS - 1));
+        assertEquals(fileId(1), cache.getByIdOrNull(fileId(1)).getFileId());
+        assertEquals(fileId(1), cache.getByNameOrNull(bucketName(1), fileName(1)).getFileId());
+
+        clock.advanceBoth(Duration.ofMillis(1));
+        assertNull(cache.getByIdOrNull(fileId(1)));
+        assertNull(cache.getByNameOrNull(bucketName(1), fileName(1)));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        for (int i = 1; i <= 3; i++) {
+            cache.versionRead(cache.getInvalidationCount(), makeVersion(i, i));
+        }
+        // use 1, so 2 is the least recently used.
+        cache.getByIdOrNull(fileId(1));
+        cache.versionRead(cache.getInvalidationCount(), makeVersion(4, 4));
+
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.getByIdOrNull(fileId(2)));
+        assertEquals(fileId(1), cache.getByIdOrNull(fileId(1)).getFileId());
+        assertEquals(fileId(3), cache.getByIdOrNull(fileId(3)).getFileId());
+        assertEquals(fileId(4), cache.getByIdOrNull(fileId(4)).getFileId());
+    }
+
+    @Test
+    public void testReadsStartedBeforeAnInvalidationAreNotRemembered() {
+        final long invalidations = cache.getInvalidationCount();
+        cache.versionChanged(fileId(1), fileName(1));
+        cache.latestVersionRead(invalidations, bucketName(1), makeVersion(1, 1));
+        assertNull(cache.getByIdOrNull(fileId(1)));
+        assertNull(cache.getByNameOrNull(bucketName(1), fileName(1)));
+    }
+
+    @Test
+    public void testReadsAreOnlyDroppedForWhatWasInvalidated() {
+        cache.bucketSeen(makeBucket(1));
+        final long invalidations = cache.getInvalidationCount();
+        cache.versionChanged(fileId(2), fileName(2));
+        cache.versionCreated(bucketId(1), makeVersion(3, 3));
+
+        cache.latestVersionRead(invalidations, bucketName(1), makeVersion(1, 1));
+        assertEquals(fileId(1), cache.getByIdOrNull(fileId(1)).getFileId());
+        assertEquals(fileId(1), cache.getByNameOrNull(bucketName(1), fileName(1)).getFileId());
+
+        // a new version of the name was made, so the version we read by name may be old.
+        // its fileId is still right, though.
+        cache.versionCreated(bucketId(1), makeVersion(4, 5));
+        cache.latestVersionRead(invalidations, bucketName(1), makeVersion(5, 5));
+        assertEquals(fileId(5), cache.getByIdOrNull(fileId(5)).getFileId());
+        assertEquals(fileId(4), cache.getByNameOrNull(bucketName(1), fileName(5)).getFileId());
+    }
+
+    @Test
+    public void testReadsOlderThanTheInvalidationsWeRememberAreDropped() {
+        final long invalidations = cache.getInvalidationCount();
+        for (int i = 0; i <= B2FileInfoCache.MAX_INVALIDATIONS; i++) {
+            cache.versionChanged(fileId(100 + i), fileName(100 + i));
+        }
+
+        // we don't know whether fileId(1) changed, so we don't remember it.
+        cache.versionRead(invalidations, makeVersion(1, 1));
+        assertNull(cache.getByIdOrNull(fileId(1)));
+
+        cache.versionRead(cache.getInvalidationCount(), makeVersion(1, 1));
+        assertEquals(fileId(1), cache.getByIdOrNull(fileId(1)).getFileId());
+    }
+
+    @Test
+    public void testForgettingNamesAfterEvictions() {
+        // the cache holds 3 names, so the first one is evicted.
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(1), makeVersion(1, 1));
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(2), makeVersion(2, 1));
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(1), makeVersion(3, 3));
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(1), makeVersion(4, 4));
+        assertNull(cache.getByNameOrNull(bucketName(1), fileName(1)));
+        assertEquals(fileId(2), cache.getByNameOrNull(bucketName(2), fileName(1)).getFileId());
+
+        cache.versionChanged(fileId(2), fileName(1));
+        assertNull(cache.getByNameOrNull(bucketName(2), fileName(1)));
+        assertEquals(fileId(3), cache.getByNameOrNull(bucketName(1), fileName(3)).getFileId());
+        assertEquals(fileId(4), cache.getByNameOrNull(bucketName(1), fileName(4)).getFileId());
+
+        // the name can be remembered again.
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(1), makeVersion(5, 1));
+        assertEquals(fileId(5), cache.getByNameOrNull(bucketName(1), fileName(1)).getFileId());
+    }
+
+    @Test
+    public void testUploadReplacesNameInKnownBucket() {
+        cache.bucketSeen(makeBucket(1));
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(1), makeVersion(1, 1));
+
+        final B2FileVersion newer = makeVersion(2, 1);
+        cache.versionCreated(bucketId(1), newer);
+        assertSame(newer, cache.getByNameOrNull(bucketName(1), fileName(1)));
+        assertSame(newer, cache.getByIdOrNull(fileId(2)));
+
+        // the old version is still there by id.
+        assertEquals(fileId(1), cache.getByIdOrNull(fileId(1)).getFileId());
+    }
+
+    @Test
+    public void testUploadToUnknownBucketForgetsNameEverywhere() {
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(1), makeVersion(1, 1));
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(2), makeVersion(2, 1));
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(2), makeVersion(3, 3));
+
+        cache.versionCreated(bucketId(9), makeVersion(4, 1));
+        assertNull(cache.getByNameOrNull(bucketName(1), fileName(1)));
+        assertNull(cache.getByNameOrNull(bucketName(2), fileName(1)));
+        assertEquals(fileId(3), cache.getByNameOrNull(bucketName(2), fileName(3)).getFileId());
+        assertEquals(fileId(4), cache.getByIdOrNull(fileId(4)).getFileId());
+    }
+
+    @Test
+    public void testHideForgetsName() {
+        cache.bucketSeen(makeBucket(1));
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(1), makeVersion(1, 1));
+
+        final B2FileVersion hidden = withAction(makeVersion(2, 1), B2FileVersion.HIDE_ACTION);
+        cache.versionCreated(bucketId(1), hidden);
+        assertNull(cache.getByNameOrNull(bucketName(1), fileName(1)));
+        assertSame(hidden, cache.getByIdOrNull(fileId(2)));
+    }
+
+    @Test
+    public void testDeleteForgetsIdAndName() {
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(1), makeVersion(1, 1));
+        cache.versionChanged(fileId(1), fileName(1));
+        assertNull(cache.getByIdOrNull(fileId(1)));
+        assertNull(cache.getByNameOrNull(bucketName(1), fileName(1)));
+    }
+
+    @Test
+    public void testDeletedBucketIsForgotten() {
+        cache.bucketSeen(makeBucket(1));
+        cache.bucketDeleted(bucketId(1));
+        cache.fileNamesListed(cache.getInvalidationCount(), bucketId(1),
+                new B2ListFileNamesResponse(B2Collections.listOf(makeVersion(1, 1)), null));
+        assertNull(cache.getByNameOrNull(bucketName(1), fileName(1)));
+        assertEquals(fileId(1), cache.getByIdOrNull(fileId(1)).getFileId());
+    }
+
+    @Test
+    public void testListings() {
+        cache.bucketSeen(makeBucket(1));
+        final B2FileVersion started = withAction(makeVersion(3, 3), B2FileVersion.START_ACTION);
+        cache.fileNamesListed(cache.getInvalidationCount(), bucketId(1),
+                new B2ListFileNamesResponse(B2Collections.listOf(makeVersion(1, 1), started), null));
+        assertEquals(fileId(1), cache.getByNameOrNull(bucketName(1), fileName(1)).getFileId());
+        assertNull(cache.getByIdOrNull(fileId(3)));
+
+        // versions aren't necessarily the latest, so they're only remembered by id.
+        cache.fileVersionsListed(cache.getInvalidationCount(),
+                new B2ListFileVersionsResponse(B2Collections.listOf(makeVersion(2, 2)), null, null));
+        assertEquals(fileId(2), cache.getByIdOrNull(fileId(2)).getFileId());
+        assertNull(cache.getByNameOrNull(bucketName(1), fileName(2)));
+    }
+
+    @Test
+    public void testCompactPagesAreNotRemembered() {
+        cache.bucketSeen(makeBucket(1));
+        cache.fileNamesListed(cache.getInvalidationCount(), bucketId(1),
+                new B2ListFileNamesResponse(B2CompactFileVersionList.from(B2Collections.listOf(makeVersion(1, 1))), null));
+        cache.fileVersionsListed(cache.getInvalidationCount(),
+                new B2ListFileVersionsResponse(B2CompactFileVersionList.from(B2Collections.listOf(makeVersion(2, 2))), null, null));
+        assertNull(cache.getByIdOrNull(fileId(1)));
+        assertNull(cache.getByNameOrNull(bucketName(1), fileName(1)));
+        assertNull(cache.getByIdOrNull(fileId(2)));
+    }
+
+    @Test
+    public void testSseCIsNotRemembered() {
+        final B2FileVersion plain = makeVersion(1, 1);
+        final B2FileVersion encrypted = new B2FileVersion(plain.getFileId(), plain.getFileName(), plain.getContentLength(),
+                plain.getContentType(), plain.getContentSha1(), plain.getContentMd5(), plain.getFileInfo(),
+                plain.getAction(), plain.getUploadTimestamp(), null, null,
+                new B2FileSseForResponse(B2ServerSideEncryptionMode.SSE_C, "AES256", "md5"), null);
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(1), encrypted);
+        assertNull(cache.getByIdOrNull(fileId(1)));
+        assertNull(cache.getByNameOrNull(bucketName(1), fileName(1)));
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        cache.latestVersionRead(cache.getInvalidationCount(), bucketName(1), makeVersion(1, 1));
+        cache.invalidateAll();
+        assertNull(cache.getByIdOrNull(fileId(1)));
+        assertNull(cache.getByNameOrNull(bucketName(1), fileName(1)));
+    }
+
+    @Test
+    public void testDownloadsOfWholeFilesAreRemembered() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final B2ContentSink sink = (headers, in) -> calls.incrementAndGet();
+
+        final B2DownloadByNameRequest byName = B2DownloadByNameRequest.builder(bucketName(1), fileName(7)).build();
+        cache.rememberingSink(makeAuth(1), byName, byName.getRange(), bucketName(1), sink)
+                .readContent(makeFileHeaders(7), new ByteArrayInputStream(new byte[7]));
+        assertEquals(1, calls.get());
+        final B2FileVersion version = cache.getByNameOrNull(bucketName(1), fileName(7));
+        assertEquals(fileId(7), version.getFileId());
+        assertEquals(fileName(7), version.getFileName());
+        assertEquals(7, version.getContentLength());
+
+        // with a range or overridden headers, the headers don't describe the file, so we don't wrap the sink.
+        final B2DownloadByIdRequest ranged = B2DownloadByIdRequest.builder(fileId(8)).setRange(B2ByteRange.between(0, 1)).build();
+        assertSame(sink, cache.rememberingSink(makeAuth(1), ranged, ranged.getRange(), null, sink));
+        final B2DownloadByIdRequest overridden = B2DownloadByIdRequest.builder(fileId(8)).setB2ContentType("text/html").build();
+        assertSame(sink, cache.rememberingSink(makeAuth(1), overridden, overridden.getRange(), null, sink));
+    }
+
+    @Test
+    public void testBadPolicy() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("ttlMillis must be positive");
+        B2FileInfoCachePolicy.builder().setTtlMillis(0).build();
+    }
+
+    @Test
+    public void testPolicyEquals() {
+        assertEquals(B2FileInfoCachePolicy.defaultPolicy(), B2FileInfoCachePolicy.builder().build());
+        assertTrue(B2FileInfoCachePolicy.builder().setMaxEntries(1).build().isEnabled());
+        assertFalse(B2FileInfoCachePolicy.defaultPolicy().equals(B2FileInfoCachePolicy.builder().setMaxEntries(1).build()));
+    }
+
+    private static B2FileVersion withAction(B2FileVersion version, String action) {
+        return new B2FileVersion(version.getFileId(), version.getFileName(), version.getContentLength(),
+                version.getContentType(), version.getContentSha1(), version.getContentMd5(), version.getFileInfo(),
+                action, version.getUploadTimestamp(), null, null, null, null);
+    }
+}
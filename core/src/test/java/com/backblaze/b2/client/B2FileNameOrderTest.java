@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2BaseTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class B2FileNameOrderTest extends B2BaseTest {
+    @Test
+    public void testCompareNames() {
+        assertTrue(B2FileNameOrder.compareNames("a", "b") < 0);
+        assertTrue(B2FileNameOrder.compareNames("a", "ab") < 0);
+        assertTrue(B2FileNameOrder.compareNames("ab", "a") > 0);
+        assertEquals(0, B2FileNameOrder.compareNames("abc", "abc"));
+
+        // b2 sorts by code point.  String.compareTo() puts this emoji (a surrogate pair)
+        // before U+FF5E, but it's really after it.
+        final String emoji = new String(Character.toChars(0x1F600));
+        assertTrue(emoji.compareTo("～") < 0);
+        assertTrue(B2FileNameOrder.compareNames(emoji, "～") > 0);
+    }
+
+    @Test
+    public void testSortsLikeUtf8Bytes() {
+        final String emoji = new String(Character.toChars(0x1F600));
+        final List<String> names = new ArrayList<>(Arrays.asList("b", emoji, "a" + emoji, "～", "ab", "a", "\uD7FF"));
+        names.sort(B2FileNameOrder::compareNames);
+        assertEquals(Arrays.asList("a", "ab", "a" + emoji, "b", "\uD7FF", "～", emoji), names);
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2ClockSim;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.backblaze.b2.util.B2DateTimeUtil.parseDateTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class B2HedgerTest extends B2BaseTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private final B2Metrics metrics = new B2Metrics() {
+        @Override
+        public void hedged(String operation, boolean hedgeWon) {
+            events.add(operation + " " + hedgeWon);
+        }
+    };
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testDisabledHedgerCallsOnTheCallingThread() throws B2Exception {
+        final B2Hedger hedger = new B2Hedger(B2HedgePolicy.defaultPolicy(), executor, metrics);
+        final Thread caller = Thread.currentThread();
+        assertEquals("result", hedger.call("op", tryToWin -> {
+            assertSame(caller, Thread.currentThread());
+            assertTrue(tryToWin.getAsBoolean());
+            return "result";
+        }));
+        assertEquals(0, hedger.getHedgeCount());
+    }
+
+    @Test
+    public void testQuickResponsesAreNotHedged() throws B2Exception {
+        final B2Hedger hedger = makeHedger(1000, 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("result", hedger.call("op", tryToWin -> "result"));
+        }
+        assertEquals(0, hedger.getHedgeCount());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testHedgeWinsWhenTheFirstAttemptIsStuck() throws Exception {
+        final B2Hedger hedger = makeHedger(20, 10);
+        final AtomicInteger attempts = new AtomicInteger();
+        final CountDownLatch firstInterrupted = new CountDownLatch(1);
+
+        assertEquals("second", hedger.call("op", tryToWin -> {
+            if (attempts.getAndIncrement() == 0) {
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    firstInterrupted.countDown();
+                }
+                return "first";
+            }
+            return "second";
+        }));
+
+        // the loser is interrupted.
+        assertTrue(firstInterrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(1, hedger.getHedgeCount());
+        assertEquals(1, hedger.getHedgeWonCount());
+        assertEquals("op true", events.get(0));
+    }
+
+    @Test
+    public void testFirstResponseWinsEvenAfterHedging() throws Exception {
+        final B2Hedger hedger = makeHedger(20, 10);
+        final AtomicInteger attempts = new AtomicInteger();
+        final CountDownLatch hedgeStarted = new CountDownLatch(1);
+        final CountDownLatch hedgeInterrupted = new CountDownLatch(1);
+
+        assertEquals("first", hedger.call("op", tryToWin -> {
+            if (attempts.getAndIncrement() == 0) {
+                // don't answer until the hedge has been sent.
+                await(hedgeStarted);
+                return "first";
+            }
+            hedgeStarted.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                hedgeInterrupted.countDown();
+            }
+            return "second";
+        }));
+
+        assertTrue(hedgeInterrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(1, hedger.getHedgeCount());
+        assertEquals(0, hedger.getHedgeWonCount());
+        assertEquals("op false", events.get(0));
+    }
+
+    @Test
+    public void testOnlyTheWinnerGetsToReadTheContent() throws Exception {
+        final B2Hedger hedger = makeHedger(20, 10);
+        final AtomicInteger attempts = new AtomicInteger();
+        final CountDownLatch hedgeResponded = new CountDownLatch(1);
+        final CountDownLatch firstGaveUp = new CountDownLatch(1);
+        final List<String> readers = Collections.synchronizedList(new ArrayList<>());
+
+        hedger.call("op", tryToWin -> {
+            final int attempt = attempts.getAndIncrement();
+            if (attempt == 0) {
+                awaitUninterruptibly(hedgeResponded);
+            }
+            // this is what the content sink of a hedged download does.
+            if (tryToWin.getAsBoolean()) {
+                readers.add("attempt " + attempt);
+            } else {
+                firstGaveUp.countDown();
+            }
+            if (attempt == 1) {
+                hedgeResponded.countDown();
+            }
+            return null;
+        });
+
+        assertTrue(firstGaveUp.await(10, TimeUnit.SECONDS));
+        assertEquals(1, readers.size());
+        assertEquals("attempt 1", readers.get(0));
+    }
+
+    @Test
+    public void testWinnersWorkRunsOnTheCallingThread() throws B2Exception {
+        final B2Hedger hedger = makeHedger(1000, 10);
+        final Thread caller = Thread.currentThread();
+        final List<Thread> workers = Collections.synchronizedList(new ArrayList<>());
+
+        assertEquals("result", hedger.call("op", attempt -> {
+            assertTrue(attempt.tryToWin());
+            try {
+                // this is what the content sink of a hedged download does.
+                attempt.runOnCaller(() -> workers.add(Thread.currentThread()));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return "result";
+        }));
+
+        assertEquals(1, workers.size());
+        assertSame(caller, workers.get(0));
+        assertEquals(0, hedger.getHedgeCount());
+    }
+
+    @Test
+    public void testHedgesWorkRunsOnTheCallingThread() throws B2Exception {
+        final B2Hedger hedger = makeHedger(20, 10);
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger attempts = new AtomicInteger();
+        final CountDownLatch hedgeWon = new CountDownLatch(1);
+        final List<Thread> workers = Collections.synchronizedList(new ArrayList<>());
+
+        assertEquals("second", hedger.call("op", attempt -> {
+            if (attempts.getAndIncrement() == 0) {
+                awaitUninterruptibly(hedgeWon);
+                assertFalse(attempt.tryToWin());
+                return "first";
+            }
+            assertTrue(attempt.tryToWin());
+            hedgeWon.countDown();
+            try {
+                attempt.runOnCaller(() -> workers.add(Thread.currentThread()));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return "second";
+        }));
+
+        assertEquals(1, workers.size());
+        assertSame(caller, workers.get(0));
+        assertEquals(1, hedger.getHedgeWonCount());
+    }
+
+    @Test
+    public void testCallersWorkFailuresGoBackToTheAttempt() throws B2Exception {
+        final B2Hedger hedger = makeHedger(1000, 10);
+
+        assertEquals("disk full", hedger.call("op", attempt -> {
+            assertTrue(attempt.tryToWin());
+            try {
+                attempt.runOnCaller(() -> {
+                    throw new IOException("disk full");
+                });
+                return "no failure";
+            } catch (IOException e) {
+                return e.getMessage();
+            }
+        }));
+    }
+
+    @Test
+    public void testFailureBeforeTheDelayIsThrownWithoutHedging() {
+        final B2Hedger hedger = makeHedger(1000, 10);
+        try {
+            hedger.call("op", tryToWin -> {
+                throw new B2LocalException("test", "failed");
+            });
+            fail("should've thrown");
+        } catch (B2Exception e) {
+            assertEquals("test", e.getCode());
+        }
+        assertEquals(0, hedger.getHedgeCount());
+    }
+
+    @Test
+    public void testHedgeResultIsUsedWhenTheFirstAttemptFails() throws B2Exception {
+        final B2Hedger hedger = makeHedger(20, 10);
+        final AtomicInteger attempts = new AtomicInteger();
+        final CountDownLatch hedgeStarted = new CountDownLatch(1);
+
+        assertEquals("second", hedger.call("op", tryToWin -> {
+            if (attempts.getAndIncrement() == 0) {
+                awaitUninterruptibly(hedgeStarted);
+                throw new B2LocalException("test", "first failed");
+            }
+            hedgeStarted.countDown();
+            return "second";
+        }));
+    }
+
+    @Test
+    public void testBudgetLimitsHedges() throws B2Exception {
+        // one hedge saved up, and a tenth of a hedge for each call.
+        final B2Hedger hedger = new B2Hedger(B2HedgePolicy.builder()
+                .setBudgetPercent(10)
+                .setMaxBurst(1)
+                .setMinDelayMillis(1)
+                .setMaxDelayMillis(1)
+                .build(), executor, metrics);
+        for (int i = 0; i < 20; i++) {
+            hedger.call("op", tryToWin -> {
+                sleep(10);
+                return null;
+            });
+        }
+        assertTrue("hedges: " + hedger.getHedgeCount(), 1 <= hedger.getHedgeCount() && hedger.getHedgeCount() <= 3);
+    }
+
+    @Test
+    public void testDelayIsThePercentileOfLatencies() throws B2Exception {
+        final B2ClockSim clock = B2Clock.useSimulator(parseDateTime("2026-01-01 00:00:00"));
+        final B2Hedger hedger = new B2Hedger(B2HedgePolicy.builder()
+                .setBudgetPercent(5)
+                .setPercentile(90)
+                .setMinSamples(10)
+                .setMinDelayMillis(5)
+                .setMaxDelayMillis(1000)
+                .build(), executor, metrics);
+
+        // until there are enough samples, we use the maximum.
+        assertEquals(1000, hedger.delayMillisFor("op"));
+        for (int i = 1; i <= 9; i++) {
+            final int millis = i;
+            hedger.call("op", tryToWin -> {
+                clock.advanceBoth(Duration.ofMillis(millis));
+                return null;
+            });
+        }
+        assertEquals(1000, hedger.delayMillisFor("op"));
+
+        for (int i = 10; i <= 100; i++) {
+            final int millis = i;
+            hedger.call("op", tryToWin -> {
+                clock.advanceBoth(Duration.ofMillis(millis));
+                return null;
+            });
+        }
+        final long delay = hedger.delayMillisFor("op");
+        assertTrue("delay: " + delay, 90 <= delay && delay <= 95);
+
+        // other operations are separate, and the minimum applies.
+        assertEquals(1000, hedger.delayMillisFor("other"));
+        for (int i = 0; i < 10; i++) {
+            hedger.call("other", tryToWin -> null);
+        }
+        assertEquals(5, hedger.delayMillisFor("other"));
+    }
+
+    @Test
+    public void testDelayIsOnlyComputedAgainAfterEnoughNewSamples() {
+        final B2Hedger hedger = new B2Hedger(B2HedgePolicy.builder()
+                .setBudgetPercent(5)
+                .setPercentile(99.5)
+                .setMinSamples(10)
+                .setMinDelayMillis(5)
+                .setMaxDelayMillis(1000)
+                .build(), executor, metrics);
+        for (int i = 0; i < 6400; i++) {
+            hedger.recordLatency("op", 10);
+        }
+        assertEquals(10, hedger.delayMillisFor("op"));
+
+        // 50 slow ones would change the percentile, but it takes 6400/64 new
+        // samples before we look at the histogram again.
+        for (int i = 0; i < 50; i++) {
+            hedger.recordLatency("op", 500);
+        }
+        assertEquals(10, hedger.delayMillisFor("op"));
+
+        for (int i = 0; i < 50; i++) {
+            hedger.recordLatency("op", 500);
+        }
+        final long delay = hedger.delayMillisFor("op");
+        assertTrue("delay: " + delay, 450 <= delay && delay <= 500);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHedgingRequiresAnExecutor() {
+        B2ClientConfig.builder("appKeyId", "appKey", "agent")
+                .setHedgePolicy(B2HedgePolicy.builder().setBudgetPercent(5).build())
+                .build();
+    }
+
+    private B2Hedger makeHedger(long delayMillis,
+                                double budgetPercent) {
+        return new B2Hedger(B2HedgePolicy.builder()
+                .setBudgetPercent(budgetPercent)
+                .setMinDelayMillis(delayMillis)
+                .setMaxDelayMillis(delayMillis)
+                .build(), executor, metrics);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException("interrupted", e);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        while (true) {
+            try {
+                assertTrue(latch.await(10, TimeUnit.SECONDS));
+                return;
+            } catch (InterruptedException e) {
+                // keep waiting.
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // the losers are interrupted.
+        }
+    }
+}
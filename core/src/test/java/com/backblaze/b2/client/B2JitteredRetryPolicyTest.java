@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2ServiceUnavailableException;
+import com.backblaze.b2.client.exceptions.B2TooManyRequestsException;
+import com.backblaze.b2.client.exceptions.B2UnauthorizedException;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2ClockSim;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.backblaze.b2.util.B2DateTimeUtil.parseDateTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class B2JitteredRetryPolicyTest extends B2BaseTest {
+    private static final String OP = "b2_get_file_info";
+
+    private final B2ClockSim clock = B2Clock.useSimulator(parseDateTime("2026-01-01 00:00:00"));
+    private final B2Exception unavailable = new B2ServiceUnavailableException("test", null, "unavailable");
+
+    @Test
+    public void testWaitsAreJitteredAndCapped() {
+        final B2JitteredRetryPolicy policy = new B2JitteredRetryPolicy(B2JitteredRetryPolicy.Settings.builder()
+                .setBaseMillis(100)
+                .setMaxWaitMillis(2000)
+                .setMaxAttempts(100)
+                .build(), new Random(1));
+
+        long previous = 100;
+        for (int attempt = 1; attempt < 50; attempt++) {
+            final long wait = policy.gotRetryableAfterDelayMillis(OP, attempt, 0, unavailable);
+            assertTrue("wait: " + wait, 100 <= wait && wait <= Math.min(2000, previous * 3));
+            previous = wait;
+        }
+    }
+
+    @Test
+    public void testPoliciesDontRetryInLockstep() {
+        final Random random = new Random(2);
+        final Set<Long> firstWaits = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            final B2JitteredRetryPolicy policy =
+                    new B2JitteredRetryPolicy(B2JitteredRetryPolicy.Settings.builder().build(), random);
+            firstWaits.add(policy.gotRetryableAfterDelayMillis(OP, 1, 0, unavailable));
+        }
+        assertTrue("distinct waits: " + firstWaits.size(), firstWaits.size() > 10);
+    }
+
+    @Test
+    public void testRetryAfterIsObeyedWithALittleJitter() {
+        final B2JitteredRetryPolicy policy = new B2JitteredRetryPolicy(B2JitteredRetryPolicy.Settings.builder()
+                .setBaseMillis(100)
+                .build(), new Random(3));
+        final long wait = policy.gotRetryableAfterDelayMillis(OP, 1, 0,
+                new B2TooManyRequestsException("test", 3, "slow down"));
+        assertTrue("wait: " + wait, 3000 <= wait && wait <= 3100);
+    }
+
+    @Test
+    public void testMaxAttemptsPerOperation() {
+        final B2JitteredRetryPolicy.Settings settings = B2JitteredRetryPolicy.Settings.builder()
+                .setMaxAttempts(3)
+                .setMaxAttempts("b2_list_file_names", 5)
+                .build();
+        final B2JitteredRetryPolicy policy = new B2JitteredRetryPolicy(settings, new Random(4));
+
+        assertTrue(policy.gotRetryableAfterDelayMillis(OP, 2, 0, unavailable) != null);
+        assertNull(policy.gotRetryableAfterDelayMillis(OP, 3, 0, unavailable));
+        assertTrue(policy.gotRetryableAfterDelayMillis("b2_list_file_names", 4, 0, unavailable) != null);
+        assertNull(policy.gotRetryableAfterDelayMillis("b2_list_file_names", 5, 0, unavailable));
+        assertFalse(policy.gotRetryableImmediately(OP, 3, 0, unavailable));
+    }
+
+    @Test
+    public void testDeadlineStopsRetries() {
+        final B2JitteredRetryPolicy.Settings settings = B2JitteredRetryPolicy.Settings.builder()
+                .setBaseMillis(100)
+                .setMaxWaitMillis(100)
+                .setMaxAttempts(1000)
+                .setDeadlineMillis(OP, 350)
+                .build();
+        final B2JitteredRetryPolicy policy = new B2JitteredRetryPolicy(settings, new Random(5));
+
+        assertEquals(100L, (long) policy.gotRetryableAfterDelayMillis(OP, 1, 0, unavailable));
+        clock.advanceBoth(Duration.ofMillis(200));
+        assertEquals(100L, (long) policy.gotRetryableAfterDelayMillis(OP, 2, 0, unavailable));
+        clock.advanceBoth(Duration.ofMillis(100));
+        // the next attempt couldn't start before 350ms.
+        assertNull(policy.gotRetryableAfterDelayMillis(OP, 3, 0, unavailable));
+        assertTrue(policy.gotRetryableImmediately(OP, 3, 0, unavailable));
+        clock.advanceBoth(Duration.ofMillis(50));
+        assertFalse(policy.gotRetryableImmediately(OP, 3, 0, unavailable));
+
+        // other operations don't have a deadline.
+        assertTrue(policy.gotRetryableAfterDelayMillis("other", 3, 0, unavailable) != null);
+    }
+
+    @Test
+    public void testRoundsUpToSecondsForOlderCallers() {
+        final B2JitteredRetryPolicy policy = new B2JitteredRetryPolicy(B2JitteredRetryPolicy.Settings.builder()
+                .setBaseMillis(100)
+                .setMaxWaitMillis(100)
+                .build(), new Random(6));
+        assertEquals(1, (int) policy.gotRetryableAfterDelay(OP, 1, 0, unavailable));
+    }
+
+    @Test
+    public void testRetryerSleepsInMilliseconds() throws B2Exception {
+        final List<String> sleeps = new ArrayList<>();
+        final B2Retryer retryer = new B2Retryer(new B2Sleeper() {
+            @Override
+            boolean sleepMilliseconds(long milliseconds) {
+                sleeps.add("ms " + milliseconds);
+                return true;
+            }
+
+            @Override
+            boolean sleepSeconds(int seconds) {
+                sleeps.add("s " + seconds);
+                return true;
+            }
+        });
+        final B2JitteredRetryPolicy.Settings settings = B2JitteredRetryPolicy.Settings.builder()
+                .setBaseMillis(100)
+                .setMaxWaitMillis(100)
+                .setImmediateJitterMillis(0)
+                .build();
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertEquals("ok", retryer.doRetry(OP, null, () -> {
+            switch (attempts.incrementAndGet()) {
+                case 1:
+                    throw new B2ServiceUnavailableException("test", null, "unavailable");
+                case 2:
+                    final B2UnauthorizedException e = new B2UnauthorizedException("test", null, "expired");
+                    e.setRequestCategory(B2UnauthorizedException.RequestCategory.UPLOADING);
+                    throw e;
+                default:
+                    return "ok";
+            }
+        }, B2JitteredRetryPolicy.supplier(settings).get()));
+
+        // no sleep before the immediate retry, because its jitter is zero.
+        assertEquals(1, sleeps.size());
+        assertEquals("ms 100", sleeps.get(0));
+    }
+
+    @Test
+    public void testImmediateRetriesGetALittleJitter() {
+        final B2JitteredRetryPolicy policy = new B2JitteredRetryPolicy(B2JitteredRetryPolicy.Settings.builder()
+                .setImmediateJitterMillis(50)
+                .build(), new Random(7));
+        for (int i = 0; i < 100; i++) {
+            final long delay = policy.getImmediateRetryDelayMillis(OP, 1);
+            assertTrue("delay: " + delay, 0 <= delay && delay <= 50);
+        }
+    }
+
+    @Test
+    public void testSettingsAreChecked() {
+        try {
+            B2JitteredRetryPolicy.Settings.builder().setBaseMillis(1000).setMaxWaitMillis(10).build();
+            fail("should've thrown");
+        } catch (IllegalArgumentException e) {
+            // expected.
+        }
+        try {
+            B2JitteredRetryPolicy.Settings.builder().setMaxAttempts(OP, 0);
+            fail("should've thrown");
+        } catch (IllegalArgumentException e) {
+            // expected.
+        }
+    }
+}
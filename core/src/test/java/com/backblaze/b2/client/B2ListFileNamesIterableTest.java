@@ -29,6 +29,8 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class B2ListFileNamesIterableTest extends B2BaseTest {
@@ -250,6 +252,39 @@ public class B2ListFileNamesIterableTest extends B2BaseTest {
         assertFalse(iter.hasNext());
     }
 
+    @Test
+    public void testReadAhead() throws B2Exception {
+        final B2QueueingExecutor executor = new B2QueueingExecutor();
+        when(client.getBackgroundExecutorOrNull()).thenReturn(executor);
+
+        final B2ListFileNamesRequest request = B2ListFileNamesRequest
+                .builder(BUCKET_ID)
+                .setPrefetchDepth(1)
+                .build();
+
+        final List<B2FileVersion> pageOneNames = B2Collections.listOf(makeVersion(1, 1));
+        when(client.listFileNames(request)).thenReturn(new B2ListFileNamesResponse(pageOneNames, fileName(2)));
+
+        final B2ListFileNamesRequest pageTwoRequest = B2ListFileNamesRequest
+                .builder(request)
+                .setStartFileName(fileName(2))
+                .build();
+        final List<B2FileVersion> pageTwoNames = B2Collections.listOf(makeVersion(2, 2));
+        when(client.listFileNames(pageTwoRequest)).thenReturn(new B2ListFileNamesResponse(pageTwoNames, null));
+
+        // getting the first page starts fetching the second one in the background.
+        final Iterator<B2FileVersion> iter = new B2ListFileNamesIterable(client, request).iterator();
+        assertEquals(1, executor.queued.size());
+        executor.runAll();
+
+        // the second page was the last, so there's nothing more to fetch.
+        assertEquals(0, executor.queued.size());
+        assertSame(pageOneNames.get(0), iter.next());
+        assertSame(pageTwoNames.get(0), iter.next());
+        assertFalse(iter.hasNext());
+        verify(client, times(2)).listFileNames(anyObject());
+    }
+
     @Test
     public void testBuilder() {
         B2ListFileNamesRequest request = B2ListFileNamesRequest
@@ -18,10 +18,12 @@ import org.junit.rules.ExpectedException;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static com.backblaze.b2.client.B2TestHelpers.SAMPLE_MD5;
 import static com.backblaze.b2.client.B2TestHelpers.SAMPLE_SHA1;
 import static com.backblaze.b2.client.B2TestHelpers.fileId;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.mock;
@@ -122,6 +124,33 @@ public class B2ListPartsIterableImplTest extends B2BaseTest {
         assertTrue(!iter.hasNext());
     }
 
+    @Test
+    public void testStreams() throws B2Exception {
+        final B2ListPartsRequest request = TRIVIAL_REQUEST;
+
+        final List<B2Part> pageOneParts = B2Collections.listOf(part(1), part(2));
+        when(client.listParts(request)).thenReturn(new B2ListPartsResponse(pageOneParts, 3));
+
+        final B2ListPartsRequest pageTwoRequest = B2ListPartsRequest
+                .builder(LARGE_FILE_ID)
+                .setStartPartNumber(3)
+                .build();
+        final List<B2Part> pageTwoParts = B2Collections.listOf(part(3), part(4), part(5));
+        when(client.listParts(pageTwoRequest)).thenReturn(new B2ListPartsResponse(pageTwoParts, null));
+
+        final B2ListPartsIterable iterable = new B2ListPartsIterableImpl(client, request);
+        final List<Integer> partNumbers = iterable.stream()
+                .map(B2Part::getPartNumber)
+                .collect(Collectors.toList());
+        assertEquals(B2Collections.listOf(1, 2, 3, 4, 5), partNumbers);
+
+        // parallel streams split at page boundaries, but keep the order.
+        final List<Integer> parallelPartNumbers = iterable.parallelStream()
+                .map(B2Part::getPartNumber)
+                .collect(Collectors.toList());
+        assertEquals(partNumbers, parallelPartNumbers);
+    }
+
     @Test
     public void testForCoverage() {
         B2ListPartsRequest request = B2ListPartsRequest
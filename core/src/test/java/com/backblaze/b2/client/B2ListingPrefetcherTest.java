@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2InternalErrorException;
+import com.backblaze.b2.util.B2BaseTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class B2ListingPrefetcherTest extends B2BaseTest {
+    private static final int LAST_PAGE = 5;
+
+    private final B2QueueingExecutor executor = new B2QueueingExecutor();
+
+    // the 'previous' argument of every fetch, in order.
+    private final List<Integer> fetchedAfter = new ArrayList<>();
+    private int failuresToInject;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void testWithoutReadAhead() throws B2Exception {
+        final B2ListingPrefetcher<Integer> pages = newPrefetcher(executor, 0);
+        for (int i = 0; i <= LAST_PAGE; i++) {
+            assertEquals(i, (int) pages.next());
+        }
+        assertEquals(0, executor.queued.size());
+        assertEquals(LAST_PAGE + 1, fetchedAfter.size());
+    }
+
+    @Test
+    public void testWithoutExecutor() throws B2Exception {
+        final B2ListingPrefetcher<Integer> pages = newPrefetcher(null, 3);
+        for (int i = 0; i <= LAST_PAGE; i++) {
+            assertEquals(i, (int) pages.next());
+        }
+        assertEquals(LAST_PAGE + 1, fetchedAfter.size());
+    }
+
+    @Test
+    public void testReadsAheadUpToDepth() throws B2Exception {
+        final B2ListingPrefetcher<Integer> pages = newPrefetcher(executor, 2);
+
+        // the first page is fetched by the caller, then the next one is started.
+        assertEquals(0, (int) pages.next());
+        assertEquals(1, executor.queued.size());
+
+        // each background fetch starts the next one, one at a time, until two are ready.
+        executor.runOne();
+        assertEquals(1, executor.queued.size());
+        executor.runOne();
+        assertEquals(0, executor.queued.size());
+        assertEquals(3, fetchedAfter.size());
+
+        // taking a ready page makes room for another one.
+        assertEquals(1, (int) pages.next());
+        assertEquals(1, executor.queued.size());
+        assertEquals(2, (int) pages.next());
+        executor.runAll();
+        executor.runAll();
+
+        // we never fetch past the last page.
+        for (int i = 3; i <= LAST_PAGE; i++) {
+            assertEquals(i, (int) pages.next());
+            executor.runAll();
+        }
+        assertEquals(0, executor.queued.size());
+        assertEquals(LAST_PAGE + 1, fetchedAfter.size());
+    }
+
+    @Test
+    public void testBackgroundFailureIsThrownOnceThenRetried() throws B2Exception {
+        final B2ListingPrefetcher<Integer> pages = newPrefetcher(executor, 1);
+        assertEquals(0, (int) pages.next());
+
+        failuresToInject = 1;
+        executor.runAll();
+        try {
+            pages.next();
+            assertTrue("should have thrown", false);
+        } catch (B2InternalErrorException e) {
+            assertEquals("injected failure", e.getMessage());
+        }
+
+        // the caller fetches the failed page itself and read-ahead starts again.
+        assertEquals(1, (int) pages.next());
+        assertEquals(1, executor.queued.size());
+        executor.runAll();
+        assertEquals(2, (int) pages.next());
+    }
+
+    @Test
+    public void testRejectedByExecutor() throws B2Exception {
+        executor.shutdown();
+        final B2ListingPrefetcher<Integer> pages = newPrefetcher(executor, 2);
+        for (int i = 0; i <= LAST_PAGE; i++) {
+            assertEquals(i, (int) pages.next());
+        }
+    }
+
+    @Test
+    public void testWithRealThreads() throws Exception {
+        final ExecutorService realExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final B2ListingPrefetcher<Integer> pages = newPrefetcher(realExecutor, 3);
+            for (int i = 0; i <= LAST_PAGE; i++) {
+                assertEquals(i, (int) pages.next());
+            }
+        } finally {
+            realExecutor.shutdown();
+            assertTrue(realExecutor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        synchronized (fetchedAfter) {
+            assertEquals(LAST_PAGE + 1, fetchedAfter.size());
+        }
+    }
+
+    @Test
+    public void testNegativeDepth() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("depth must not be negative");
+        newPrefetcher(executor, -1);
+    }
+
+    private B2ListingPrefetcher<Integer> newPrefetcher(ExecutorService executorOrNull, int depth) {
+        return new B2ListingPrefetcher<>(executorOrNull,
+                depth,
+                this::fetchPageAfter,
+                page -> page == LAST_PAGE);
+    }
+
+    private Integer fetchPageAfter(Integer previousOrNull) throws B2Exception {
+        synchronized (fetchedAfter) {
+            if (failuresToInject > 0) {
+                failuresToInject--;
+                throw new B2InternalErrorException("test", "injected failure");
+            }
+            fetchedAfter.add(previousOrNull);
+            return (previousOrNull == null) ? 0 : previousOrNull + 1;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentHandlers.B2ContentSink;
+import com.backblaze.b2.client.contentSources.B2Headers;
+import com.backblaze.b2.client.contentSources.B2HeadersImpl;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2NotFoundException;
+import com.backblaze.b2.client.webApiClients.B2WebApiClient;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2ClockSim;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.backblaze.b2.client.B2TestHelpers.makeBytes;
+import static com.backblaze.b2.util.B2DateTimeUtil.parseDateTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class B2MetricsWebApiClientTest extends B2BaseTest {
+    private static final String API_URL = "https://api000.backblazeb2.com/b2api/v2/";
+    private static final String DOWNLOAD_URL = "https://f000.backblazeb2.com/";
+
+    private final B2ClockSim clock = B2Clock.useSimulator(parseDateTime("2026-01-01 00:00:00"));
+    private final List<String> events = new ArrayList<>();
+    private final B2Metrics recorder = new B2Metrics() {
+        @Override
+        public void webRequestFinished(String category, int status, long requestBytes, long responseBytes, long tookMillis) {
+            events.add(category + " " + status + " " + requestBytes + " " + responseBytes + " " + tookMillis);
+        }
+    };
+    private final B2MetricsWebApiClient client = new B2MetricsWebApiClient(new FakeWebApiClient(), recorder);
+
+    @Test
+    public void testCategories() {
+        assertEquals("b2_list_file_names", B2MetricsWebApiClient.categoryOf(API_URL + "b2_list_file_names", "x"));
+        assertEquals("b2_upload_file", B2MetricsWebApiClient.categoryOf(
+                "https://pod-000-1005-03.backblaze.com/b2api/v2/b2_upload_file/bucketId/token", "x"));
+        assertEquals("b2_download_file_by_id", B2MetricsWebApiClient.categoryOf(
+                DOWNLOAD_URL + "b2api/v2/b2_download_file_by_id?fileId=4_z27", "x"));
+        assertEquals("x", B2MetricsWebApiClient.categoryOf(DOWNLOAD_URL + "file/bucket/a/b2api/v2/b2_list_buckets", "x"));
+        assertEquals("other", B2MetricsWebApiClient.categoryOf("https://example.com/b2api/", "x"));
+        assertEquals("other", B2MetricsWebApiClient.categoryOf("https://example.com/", "x"));
+    }
+
+    @Test
+    public void testRequestsAreReported() throws B2Exception {
+        client.postJsonReturnJson(API_URL + "b2_list_buckets", null, "request", String.class);
+        client.postDataReturnJson("https://pod/b2api/v2/b2_upload_part/fileId/token", null,
+                new ByteArrayInputStream(makeBytes(10)), 10, String.class);
+        client.getContent(DOWNLOAD_URL + "file/bucket/name", null, (headers, in) -> in.read(new byte[100]));
+        client.head(DOWNLOAD_URL + "file/bucket/name", null);
+
+        assertEquals(4, events.size());
+        assertEquals("b2_list_buckets 200 0 0 5", events.get(0));
+        assertEquals("b2_upload_part 200 10 0 5", events.get(1));
+        assertEquals("b2_download_file_by_name 200 0 100 5", events.get(2));
+        assertEquals("b2_get_file_info_by_name 200 0 0 5", events.get(3));
+    }
+
+    @Test
+    public void testFailuresAreReportedWithTheirStatus() {
+        try {
+            client.postJsonReturnJson(API_URL + "b2_get_file_info", null, "missing", String.class);
+            fail("should've thrown");
+        } catch (B2Exception e) {
+            assertEquals(404, e.getStatus());
+        }
+        assertEquals("b2_get_file_info 404 0 0 5", events.get(0));
+    }
+
+    /**
+     * Each request takes 5 milliseconds.  Requests for "missing" aren't found.
+     */
+    private class FakeWebApiClient implements B2WebApiClient {
+        @Override
+        public <ResponseType> ResponseType postJsonReturnJson(String url,
+                                                              B2Headers headersOrNull,
+                                                              Object request,
+                                                              Class<ResponseType> responseClass) throws B2Exception {
+            clock.advanceBoth(Duration.ofMillis(5));
+            if ("missing".equals(request)) {
+                throw new B2NotFoundException("not_found", null, "not found");
+            }
+            return null;
+        }
+
+        @Override
+        public <ResponseType> ResponseType postDataReturnJson(String url,
+                                                              B2Headers headersOrNull,
+                                                              InputStream contentSource,
+                                                              long contentLength,
+                                                              Class<ResponseType> responseClass) {
+            clock.advanceBoth(Duration.ofMillis(5));
+            return null;
+        }
+
+        @Override
+        public void getContent(String url,
+                               B2Headers headersOrNull,
+                               B2ContentSink handler) throws B2Exception {
+            clock.advanceBoth(Duration.ofMillis(5));
+            try {
+                handler.readContent(B2HeadersImpl.builder().build(), new ByteArrayInputStream(makeBytes(1000)));
+            } catch (Exception e) {
+                throw new RuntimeException("unexpected: " + e, e);
+            }
+        }
+
+        @Override
+        public B2Headers head(String url,
+                              B2Headers headersOrNull) {
+            clock.advanceBoth(Duration.ofMillis(5));
+            return B2HeadersImpl.builder().build();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
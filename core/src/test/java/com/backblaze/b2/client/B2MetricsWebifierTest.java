@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentHandlers.B2ContentSink;
+import com.backblaze.b2.client.contentSources.B2HeadersImpl;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.client.structures.B2DownloadByIdRequest;
+import com.backblaze.b2.client.structures.B2DownloadByNameRequest;
+import com.backblaze.b2.util.B2BaseTest;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+
+import static com.backblaze.b2.client.B2TestHelpers.makeBytes;
+import static com.backblaze.b2.client.B2TestHelpers.makePart;
+import static com.backblaze.b2.client.B2TestHelpers.makeVersion;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class B2MetricsWebifierTest extends B2BaseTest {
+    private final B2DefaultMetrics metrics = new B2DefaultMetrics();
+    private final B2MetricsWebifier webifier = new B2MetricsWebifier(server(), metrics);
+
+    @Test
+    public void testUploadsAreCountedWhenTheySucceed() throws Exception {
+        webifier.uploadFile(null, null);
+        webifier.uploadPart(null, null);
+
+        final B2MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1000, snapshot.getOperationOrNull("b2_upload_file").getBytesUploaded());
+        assertEquals(2000, snapshot.getOperationOrNull("b2_upload_part").getBytesUploaded());
+        assertEquals(3000, snapshot.getBytesUploaded());
+    }
+
+    @Test
+    public void testDownloadsCountWhatTheSinkRead() throws Exception {
+        // this sink only reads part of the content.
+        webifier.downloadById(null, B2DownloadByIdRequest.builder("fileId").build(), (headers, in) -> {
+            final byte[] buf = new byte[300];
+            assertEquals(300, in.read(buf));
+            assertEquals(7, in.skip(7));
+            in.read();
+        });
+        assertEquals(308, metrics.snapshot().getOperationOrNull("b2_download_file_by_id").getBytesDownloaded());
+
+        // and this one fails part way through.
+        try {
+            webifier.downloadByName(null, B2DownloadByNameRequest.builder("bucket", "name").build(), (headers, in) -> {
+                assertEquals(100, in.read(new byte[100]));
+                throw new B2LocalException("test", "sink failed");
+            });
+            fail("should've thrown");
+        } catch (B2LocalException e) {
+            // expected.
+        }
+        assertEquals(100, metrics.snapshot().getOperationOrNull("b2_download_file_by_name").getBytesDownloaded());
+        assertEquals(408, metrics.snapshot().getBytesDownloaded());
+    }
+
+    @Test
+    public void testOtherCallsAreNotCounted() throws Exception {
+        webifier.getFileInfo(null, null);
+        webifier.copyFile(null, null);
+        assertNull(metrics.snapshot().getOperationOrNull("b2_get_file_info"));
+        assertEquals(0, metrics.snapshot().getOperations().size());
+    }
+
+    private static B2StorageClientWebifier server() {
+        return (B2StorageClientWebifier) Proxy.newProxyInstance(
+                B2MetricsWebifierTest.class.getClassLoader(),
+                new Class<?>[] { B2StorageClientWebifier.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "uploadFile":
+                        case "getFileInfo":
+                        case "copyFile":
+                            return makeVersion(1, 1);
+                        case "uploadPart":
+                            return makePart(2);
+                        case "downloadById":
+                        case "downloadByName":
+                            final B2ContentSink sink = (B2ContentSink) args[2];
+                            sink.readContent(B2HeadersImpl.builder().build(), new ByteArrayInputStream(makeBytes(1000)));
+                            return null;
+                        default:
+                            throw new IllegalStateException("unexpected call to " + method.getName());
+                    }
+                });
+    }
+}
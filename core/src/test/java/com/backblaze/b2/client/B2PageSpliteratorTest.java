@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.util.B2BaseTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class B2PageSpliteratorTest extends B2BaseTest {
+    // the parallel tests read it from other threads.
+    private volatile int pagesFetched;
+
+    @Test
+    public void testSequential() {
+        final B2PageSpliterator<Integer> spliterator = new B2PageSpliterator<>(pages(3, 4));
+        final List<Integer> seen = new ArrayList<>();
+        spliterator.forEachRemaining(seen::add);
+
+        assertEquals(range(12), seen);
+        assertFalse(spliterator.tryAdvance(seen::add));
+        assertEquals(0, spliterator.estimateSize());
+    }
+
+    @Test
+    public void testSplitsAtPageBoundaries() {
+        final B2PageSpliterator<Integer> spliterator = new B2PageSpliterator<>(pages(3, 4));
+        assertEquals(Long.MAX_VALUE, spliterator.estimateSize());
+        assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+        assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+
+        // take one item from the first page, then split off the rest of it.
+        final List<Integer> seen = new ArrayList<>();
+        assertTrue(spliterator.tryAdvance(seen::add));
+        final Spliterator<Integer> restOfFirstPage = spliterator.trySplit();
+        assertEquals(3, restOfFirstPage.estimateSize());
+        assertTrue(restOfFirstPage.hasCharacteristics(Spliterator.SIZED | Spliterator.ORDERED));
+        assertEquals(1, pagesFetched);
+
+        // the next split fetches the second page and hands it off whole.
+        final Spliterator<Integer> secondPage = spliterator.trySplit();
+        assertEquals(4, secondPage.estimateSize());
+        assertEquals(2, pagesFetched);
+
+        restOfFirstPage.forEachRemaining(seen::add);
+        secondPage.forEachRemaining(seen::add);
+        spliterator.forEachRemaining(seen::add);
+        assertEquals(range(12), seen);
+        assertNull(spliterator.trySplit());
+    }
+
+    @Test
+    public void testEmpty() {
+        final B2PageSpliterator<Integer> spliterator = new B2PageSpliterator<>(pages(0, 4));
+        assertNull(spliterator.trySplit());
+        assertFalse(spliterator.tryAdvance(i -> { }));
+    }
+
+    @Test
+    public void testParallelStream() {
+        final List<Integer> result = StreamSupport
+                .stream(new B2PageSpliterator<>(pages(50, 100)), true)
+                .map(i -> i * 2)
+                .collect(Collectors.toList());
+
+        // the stream is ordered, so the result is too.
+        final List<Integer> expected = new ArrayList<>();
+        for (int i : range(5000)) {
+            expected.add(i * 2);
+        }
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testParallelStreamDoesntFetchFarAhead() {
+        final int pageSize = 10;
+        final int maxPagesAhead = 2;
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicInteger mostPagesAhead = new AtomicInteger();
+
+        final long count = StreamSupport
+                .stream(new B2PageSpliterator<>(pages(100, pageSize), maxPagesAhead), true)
+                .peek(i -> {
+                    // a page is only finished after all of its items have been
+                    // processed, so read pagesFetched first.
+                    final int fetched = pagesFetched;
+                    final int pagesFinished = processed.get() / pageSize;
+                    mostPagesAhead.accumulateAndGet(fetched - pagesFinished, Math::max);
+                    sleepMillis(1);
+                    processed.incrementAndGet();
+                })
+                .count();
+        assertEquals(1000, count);
+
+        // the split-off pages, plus the one the spliterator may be holding.
+        assertTrue("mostPagesAhead=" + mostPagesAhead, mostPagesAhead.get() <= maxPagesAhead + 1);
+    }
+
+    @Test
+    public void testShortCircuitedParallelStreamFinishes() {
+        // findAny() leaves split-off pages unfinished.  trySplit() mustn't
+        // wait for them forever.
+        final Optional<Integer> found = StreamSupport
+                .stream(new B2PageSpliterator<>(pages(1000, 10), 2), true)
+                .filter(i -> i == 25)
+                .findAny();
+        assertEquals(Integer.valueOf(25), found.orElse(null));
+    }
+
+    @Test
+    public void testDeferredDoesntMakeTheSourceUntilItsNeeded() {
+        final AtomicInteger sourcesMade = new AtomicInteger();
+        final Stream<Integer> stream = StreamSupport.stream(B2PageSpliterator.deferred(() -> {
+            sourcesMade.incrementAndGet();
+            return pages(2, 3);
+        }), false);
+        assertEquals(0, sourcesMade.get());
+        assertEquals(0, pagesFetched);
+
+        assertEquals(range(6), stream.collect(Collectors.toList()));
+        assertEquals(1, sourcesMade.get());
+    }
+
+    @Test
+    public void testOnePerPage() {
+        final B2PageSpliterator<Integer> spliterator =
+                B2PageSpliterator.deferred(() -> B2PageSpliterator.onePerPage(range(5).iterator()));
+        final Spliterator<Integer> first = spliterator.trySplit();
+        assertEquals(1, first.estimateSize());
+
+        final List<Integer> seen = new ArrayList<>();
+        first.forEachRemaining(seen::add);
+        spliterator.forEachRemaining(seen::add);
+        assertEquals(range(5), seen);
+    }
+
+    private static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // hands out pageCount pages of pageSize consecutive integers.
+    private B2PageSpliterator.PageSource<Integer> pages(int pageCount, int pageSize) {
+        final Iterator<Integer> pageNumbers = range(pageCount).iterator();
+        return () -> {
+            if (!pageNumbers.hasNext()) {
+                return Collections.emptyList();
+            }
+            pagesFetched++;
+            final int first = pageNumbers.next() * pageSize;
+            final List<Integer> page = new ArrayList<>();
+            for (int i = 0; i < pageSize; i++) {
+                page.add(first + i);
+            }
+            return page;
+        };
+    }
+
+    private static List<Integer> range(int count) {
+        final List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.B2ParallelFileNamesLister.Range;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2InternalErrorException;
+import com.backblaze.b2.client.exceptions.B2RuntimeException;
+import com.backblaze.b2.client.structures.B2FileVersion;
+import com.backblaze.b2.client.structures.B2ListFileNamesRequest;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Collections;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.backblaze.b2.client.B2TestHelpers.bucketId;
+import static com.backblaze.b2.client.B2TestHelpers.fileId;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class B2ParallelFileNamesListerTest extends B2BaseTest {
+    private static final String BUCKET_ID = bucketId(1);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final TreeSet<String> names = new TreeSet<>(B2FileNameOrder::compareNames);
+    private volatile String failAtNameOrNull;
+
+    // every name the fake client has handed out.
+    private final Set<String> listed = ConcurrentHashMap.newKeySet();
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testUpperBound() {
+        assertNull(B2ParallelFileNamesLister.upperBoundOrNull(""));
+        assertEquals("b", B2ParallelFileNamesLister.upperBoundOrNull("a"));
+        assertEquals("photos0", B2ParallelFileNamesLister.upperBoundOrNull("photos/"));
+        assertEquals("", B2ParallelFileNamesLister.upperBoundOrNull("퟿"));
+        assertEquals("b", B2ParallelFileNamesLister.upperBoundOrNull("a" + new String(Character.toChars(Character.MAX_CODE_POINT))));
+    }
+
+    @Test
+    public void testMidpoint() {
+        checkMidpoint("a", "c");
+        checkMidpoint("a", "b");
+        checkMidpoint("abc", "abd");
+        checkMidpoint("photos/2019", "photos/2020");
+        checkMidpoint("", "a");
+        checkMidpoint("x", null);
+        checkMidpoint("", null);
+        checkMidpoint("퟾", "");
+
+        // there's nothing between a name and the same name with a space on the end.
+        assertNull(B2ParallelFileNamesLister.midpointOrNull("a", "a "));
+        assertNull(B2ParallelFileNamesLister.midpointOrNull("b", "a"));
+        assertNull(B2ParallelFileNamesLister.midpointOrNull("a", "a"));
+    }
+
+    private void checkMidpoint(String lo, String hiOrNull) {
+        final String mid = B2ParallelFileNamesLister.midpointOrNull(lo, hiOrNull);
+        assertTrue(lo + " < " + mid, B2FileNameOrder.compareNames(lo, mid) < 0);
+        if (hiOrNull != null) {
+            assertTrue(mid + " < " + hiOrNull, B2FileNameOrder.compareNames(mid, hiOrNull) < 0);
+        }
+        mid.codePoints().forEach(cp -> assertTrue("no control characters", cp >= 32 && cp != 127));
+    }
+
+    @Test
+    public void testFindRangesCoversEverything() throws B2Exception {
+        addNames("a/", 300);
+        addNames("m/", 300);
+        addNames("z/", 300);
+        final B2StorageClient client = fakeClient();
+
+        final List<Range> ranges = B2ParallelFileNamesLister.findRanges(client,
+                B2ListFileNamesRequest.builder(BUCKET_ID).setMaxFileCount(100).build(),
+                8,
+                B2ParallelFileNamesLister.maxProbesFor(8));
+        assertEquals(8, ranges.size());
+        assertEquals("", ranges.get(0).lo);
+        assertNull(ranges.get(ranges.size() - 1).hiOrNull);
+        for (int i = 1; i < ranges.size(); i++) {
+            // each range starts where the previous one ends, with a name that's really there.
+            assertEquals(ranges.get(i - 1).hiOrNull, ranges.get(i).lo);
+            assertTrue(names.contains(ranges.get(i).lo));
+        }
+    }
+
+    @Test
+    public void testFindRangesWithPrefix() throws B2Exception {
+        addNames("a/", 10);
+        addNames("b/", 300);
+        addNames("c/", 10);
+        final B2StorageClient client = fakeClient();
+
+        final List<Range> ranges = B2ParallelFileNamesLister.findRanges(client,
+                B2ListFileNamesRequest.builder(BUCKET_ID).setPrefix("b/").setMaxFileCount(50).build(),
+                4,
+                B2ParallelFileNamesLister.maxProbesFor(4));
+        assertEquals(4, ranges.size());
+        assertEquals("b/", ranges.get(0).lo);
+        assertEquals("b0", ranges.get(3).hiOrNull);
+    }
+
+    @Test
+    public void testOnePageIsNotSplit() throws B2Exception {
+        addNames("a/", 100);
+        final List<Range> ranges = B2ParallelFileNamesLister.findRanges(fakeClient(),
+                B2ListFileNamesRequest.builder(BUCKET_ID).setMaxFileCount(100).build(),
+                8,
+                B2ParallelFileNamesLister.maxProbesFor(8));
+        assertEquals(1, ranges.size());
+    }
+
+    @Test
+    public void testFindRangesOfEmptyBucket() throws B2Exception {
+        final List<Range> ranges = B2ParallelFileNamesLister.findRanges(fakeClient(),
+                B2ListFileNamesRequest.builder(BUCKET_ID).build(),
+                8,
+                B2ParallelFileNamesLister.maxProbesFor(8));
+        assertEquals(1, ranges.size());
+    }
+
+    @Test
+    public void testOrderedStreamMatchesSerialListing() throws B2Exception {
+        addNames("a/", 500);
+        addNames("q/自由/", 500);
+        addNames(new String(Character.toChars(0x1F600)) + "/", 50);
+        final B2StorageClient client = fakeClient();
+
+        final List<String> listed;
+        try (Stream<B2FileVersion> stream = B2ParallelFileNamesLister.stream(client,
+                B2ListFileNamesRequest.builder(BUCKET_ID).setMaxFileCount(37).build(),
+                B2ParallelListingOptions.builder().setShardCount(6).setMaxConcurrency(3).build(),
+                executor)) {
+            listed = stream.map(B2FileVersion::getFileName).collect(Collectors.toList());
+        }
+        assertEquals(new ArrayList<>(names), listed);
+    }
+
+    @Test
+    public void testUnorderedStreamHasEverything() throws B2Exception {
+        addNames("a/", 500);
+        addNames("b/", 500);
+        final B2StorageClient client = fakeClient();
+
+        final TreeSet<String> listed = new TreeSet<>(B2FileNameOrder::compareNames);
+        try (Stream<B2FileVersion> stream = B2ParallelFileNamesLister.stream(client,
+                B2ListFileNamesRequest.builder(BUCKET_ID).setMaxFileCount(50).build(),
+                B2ParallelListingOptions.builder().setOrdered(false).build(),
+                executor)) {
+            stream.forEach(version -> assertTrue(listed.add(version.getFileName())));
+        }
+        assertEquals(names, listed);
+    }
+
+    @Test
+    public void testOrderedListingReadsAheadOfTheConsumer() throws Exception {
+        addNames("a/", 100);
+        addNames("h/", 100);
+        addNames("p/", 100);
+        addNames("w/", 100);
+        final B2StorageClient client = fakeClient();
+
+        try (Stream<B2FileVersion> stream = B2ParallelFileNamesLister.stream(client,
+                B2ListFileNamesRequest.builder(BUCKET_ID).setMaxFileCount(10).build(),
+                B2ParallelListingOptions.builder().setShardCount(4).setMaxConcurrency(4).build(),
+                executor)) {
+            final Iterator<B2FileVersion> iterator = stream.iterator();
+            assertEquals("a/00000", iterator.next().getFileName());
+
+            // while we sit on the first range, the others are listed all the way
+            // through, instead of stopping after a couple of pages each.
+            final long giveUpAt = System.currentTimeMillis() + 5000;
+            while (listed.size() < names.size() && System.currentTimeMillis() < giveUpAt) {
+                Thread.sleep(10);
+            }
+            assertEquals(names.size(), listed.size());
+        }
+    }
+
+    @Test
+    public void testBufferedPagesAreLimited() throws Exception {
+        addNames("a/", 1000);
+        final B2StorageClient client = fakeClient();
+
+        try (Stream<B2FileVersion> stream = B2ParallelFileNamesLister.stream(client,
+                B2ListFileNamesRequest.builder(BUCKET_ID).setMaxFileCount(10).build(),
+                B2ParallelListingOptions.builder().setShardCount(4).setMaxConcurrency(4).setMaxBufferedPages(5).build(),
+                executor)) {
+            final Iterator<B2FileVersion> iterator = stream.iterator();
+            iterator.next();
+            Thread.sleep(500);
+
+            // 5 pages for all the ranges, a couple more for the one being read, the
+            // one we're reading, and the ones the tasks are waiting to hand over, plus
+            // a name past the end of each range.  finding the ranges also looks at
+            // the first page and up to maxProbesFor(4) other names.
+            final int mostExpected = (5 + 2 + 1 + 4) * 10 + 4 + 11 + B2ParallelFileNamesLister.maxProbesFor(4);
+            assertTrue("listed " + listed.size(), listed.size() <= mostExpected);
+            assertTrue(mostExpected < names.size());
+
+            // and it all comes out in order.
+            final List<String> rest = new ArrayList<>();
+            iterator.forEachRemaining(version -> rest.add(version.getFileName()));
+            assertEquals(new ArrayList<>(names).subList(1, names.size()), rest);
+        }
+    }
+
+    @Test
+    public void testAbandonedStreamStopsItsTasks() throws Exception {
+        addNames("a/", 1000);
+        final ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+
+        startAndAbandon(fakeClient());
+        assertTrue(pool.getActiveCount() > 0);
+
+        // the tasks don't keep the iterator alive, so it can be collected, and then they stop.
+        final long giveUpAt = System.currentTimeMillis() + 10000;
+        while (pool.getActiveCount() > 0 && System.currentTimeMillis() < giveUpAt) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    private void startAndAbandon(B2StorageClient client) throws B2Exception {
+        final Stream<B2FileVersion> stream = B2ParallelFileNamesLister.stream(client,
+                B2ListFileNamesRequest.builder(BUCKET_ID).setMaxFileCount(10).build(),
+                B2ParallelListingOptions.builder().setShardCount(4).setMaxConcurrency(4).setMaxBufferedPages(1).build(),
+                executor);
+        stream.iterator().next();
+    }
+
+    @Test
+    public void testFailureIsThrownFromTheStream() throws B2Exception {
+        addNames("a/", 100);
+        failAtNameOrNull = "a/00050";
+
+        thrown.expect(B2RuntimeException.class);
+        thrown.expectMessage("listing failed");
+        try (Stream<B2FileVersion> stream = B2ParallelFileNamesLister.stream(fakeClient(),
+                B2ListFileNamesRequest.builder(BUCKET_ID).setMaxFileCount(10).build(),
+                B2ParallelListingOptions.builder().setShardCount(4).build(),
+                executor)) {
+            stream.count();
+        }
+    }
+
+    @Test
+    public void testDelimitersAreNotAllowed() throws B2Exception {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("parallel listing doesn't support delimiters");
+        B2ParallelFileNamesLister.stream(fakeClient(),
+                B2ListFileNamesRequest.builder(BUCKET_ID).setWithinFolder("a/").build(),
+                B2ParallelListingOptions.defaultOptions(),
+                executor);
+    }
+
+    private void addNames(String prefix, int count) {
+        for (int i = 0; i < count; i++) {
+            names.add(String.format("%s%05d", prefix, i));
+        }
+    }
+
+    private B2StorageClient fakeClient() throws B2Exception {
+        final B2StorageClient client = mock(B2StorageClient.class);
+        when(client.fileNames((B2ListFileNamesRequest) anyObject()))
+                .thenAnswer(invocation -> list((B2ListFileNamesRequest) invocation.getArguments()[0]));
+        return client;
+    }
+
+    // answers the way the client would, for the names in 'names'.
+    private B2ListFilesIterable list(B2ListFileNamesRequest request) {
+        final String prefix = (request.getPrefix() == null) ? "" : request.getPrefix();
+        final String start = (request.getStartFileName() == null) ? "" : request.getStartFileName();
+
+        final List<B2FileVersion> files = new ArrayList<>();
+        for (String name : names.tailSet(start, true)) {
+            if (!name.startsWith(prefix)) {
+                if (B2FileNameOrder.compareNames(name, prefix) < 0) {
+                    continue;
+                }
+                break;
+            }
+            files.add(new B2FileVersion(fileId(files.size()),
+                    name,
+                    1,
+                    "text/plain",
+                    null,
+                    null,
+                    B2Collections.mapOf(),
+                    "upload",
+                    1,
+                    null,
+                    null,
+                    null,
+                    null));
+        }
+
+        return () -> files.stream()
+                .peek(version -> {
+                    listed.add(version.getFileName());
+                    if (version.getFileName().equals(failAtNameOrNull)) {
+                        throw new B2RuntimeException("failed to advance iterator",
+                                new B2InternalErrorException("test", "listing failed"));
+                    }
+                })
+                .iterator();
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2UnauthorizedException;
+import com.backblaze.b2.client.structures.B2AccountAuthorization;
+import com.backblaze.b2.json.B2Json;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2ClockSim;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.backblaze.b2.client.B2TestHelpers.makeAuthWithAccountId;
+import static com.backblaze.b2.util.B2DateTimeUtil.parseDateTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class B2PersistentAccountAuthorizerTest extends B2BaseTest {
+    private final B2ClockSim clock = B2Clock.useSimulator(parseDateTime("2026-01-01 00:00:00"));
+    private final Path dir;
+    private final Path path;
+
+    // counts calls to the wrapped authorizer, which returns auth(count).
+    private final AtomicInteger authorizeCount = new AtomicInteger();
+    private final B2AccountAuthorizer counting = webifier -> auth(authorizeCount.incrementAndGet());
+
+    public B2PersistentAccountAuthorizerTest() throws IOException {
+        dir = Files.createTempDirectory("B2PersistentAccountAuthorizerTest");
+        path = dir.resolve("auth.json");
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Test
+    public void testSavedAuthorizationIsUsedByTheNextProcess() throws Exception {
+        assertEquals(auth(1), make().authorize(null));
+        assertEquals(1, authorizeCount.get());
+        assertTrue(Files.exists(path));
+        assertEquals(Collections.singletonList(path), filesInDir());
+
+        // a new instance is like a new process.
+        clock.advanceBoth(Duration.ofHours(19));
+        assertEquals(auth(1), make().authorize(null));
+        assertEquals(1, authorizeCount.get());
+    }
+
+    @Test
+    public void testOldAuthorizationIsReplaced() throws Exception {
+        make().authorize(null);
+
+        clock.advanceBoth(Duration.ofHours(20));
+        assertEquals(auth(2), make().authorize(null));
+        assertEquals(2, authorizeCount.get());
+
+        // and the new one is saved.
+        assertEquals(auth(2), make().authorize(null));
+        assertEquals(2, authorizeCount.get());
+    }
+
+    @Test
+    public void testMaxAge() throws Exception {
+        make().authorize(null);
+
+        clock.advanceBoth(Duration.ofMinutes(10));
+        final B2PersistentAccountAuthorizer authorizer = B2PersistentAccountAuthorizer
+                .builder(counting, path)
+                .setMaxAgeMillis(Duration.ofMinutes(10).toMillis())
+                .build();
+        assertEquals(auth(2), authorizer.authorize(null));
+    }
+
+    @Test
+    public void testSavedInTheFutureIsReplaced() throws Exception {
+        final long future = clock.wallClockMillis() + Duration.ofHours(1).toMillis();
+        Files.write(path, ("{ \"savedAtMillis\": " + future + ", \"authorization\": " +
+                B2Json.toJsonOrThrowRuntime(auth(7)) + " }").getBytes(StandardCharsets.UTF_8));
+        assertEquals(auth(1), make().authorize(null));
+    }
+
+    @Test
+    public void testAskingAgainGetsAFreshAuthorization() throws Exception {
+        final B2PersistentAccountAuthorizer authorizer = make();
+        make().authorize(null);
+        assertEquals(1, authorizeCount.get());
+
+        // the first call uses the saved one, but asking again means it didn't work.
+        assertEquals(auth(1), authorizer.authorize(null));
+        assertEquals(auth(2), authorizer.authorize(null));
+        assertEquals(2, authorizeCount.get());
+
+        // and other processes pick up the fresh one.
+        assertEquals(auth(2), make().authorize(null));
+    }
+
+    @Test
+    public void testAuthorizationCacheFallsBackAfterClear() throws Exception {
+        // this is what B2Retryer does after a B2UnauthorizedException.
+        make().authorize(null);
+        final B2AccountAuthorizationCache cache = new B2AccountAuthorizationCache(null, make());
+        assertEquals(auth(1), cache.get());
+        cache.clear();
+        assertEquals(auth(2), cache.get());
+        assertEquals(2, authorizeCount.get());
+    }
+
+    @Test
+    public void testAuthorizationCacheRefreshesBySavedAge() throws Exception {
+        make().authorize(null);
+        clock.advanceBoth(Duration.ofHours(19));
+
+        final B2AccountAuthorizationRefreshPolicy refreshPolicy = B2AccountAuthorizationRefreshPolicy.builder()
+                .setRefreshAfterMillis(Duration.ofHours(18).toMillis())
+                .build();
+        final B2PersistentAccountAuthorizer authorizer = make();
+        final B2AccountAuthorizationCache cache = new B2AccountAuthorizationCache(null, authorizer, refreshPolicy, null);
+        assertEquals(auth(1), cache.get());
+        assertEquals(Duration.ofHours(19).toMillis(), authorizer.getAgeMillis(auth(1)));
+
+        // it was saved 19 hours ago, so it's refreshed right away, even though
+        // this cache only just got it.  without an executor, the refresh happens
+        // during get(), which still returns the old one.
+        assertEquals(auth(1), cache.get());
+        assertEquals(2, authorizeCount.get());
+        assertEquals(auth(2), cache.get());
+        assertEquals(0, authorizer.getAgeMillis(auth(2)));
+        assertEquals(0, authorizer.getAgeMillis(auth(1)));
+    }
+
+    @Test
+    public void testDamagedFileIsIgnored() throws Exception {
+        Files.write(path, "{ \"savedAtMillis\": ".getBytes(StandardCharsets.UTF_8));
+        assertEquals(auth(1), make().authorize(null));
+        assertEquals(auth(1), make().authorize(null));
+        assertEquals(1, authorizeCount.get());
+    }
+
+    @Test
+    public void testFailureIsNotSaved() throws Exception {
+        final B2AccountAuthorizer failing = webifier -> {
+            throw new B2UnauthorizedException("bad_auth_token", null, "nope");
+        };
+        try {
+            B2PersistentAccountAuthorizer.builder(failing, path).build().authorize(null);
+            fail("should've thrown");
+        } catch (B2UnauthorizedException e) {
+            // expected.
+        }
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void testFileIsOnlyReadableByOwner() throws Exception {
+        make().authorize(null);
+        if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(path)));
+        }
+    }
+
+    @Test
+    public void testUnwritableFileIsIgnored() throws Exception {
+        final Path missingDir = dir.resolve("missing").resolve("auth.json");
+        final B2PersistentAccountAuthorizer authorizer = B2PersistentAccountAuthorizer.builder(counting, missingDir).build();
+        assertEquals(auth(1), authorizer.authorize(null));
+        assertEquals(auth(2), authorizer.authorize(null));
+    }
+
+    @Test
+    public void testBuilderDefaults() {
+        final B2PersistentAccountAuthorizer authorizer = make();
+        assertSame(path, authorizer.getPath());
+        assertEquals(B2PersistentAccountAuthorizer.DEFAULT_MAX_AGE_MILLIS, authorizer.getMaxAgeMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxAgeMustBePositive() {
+        B2PersistentAccountAuthorizer.builder(counting, path).setMaxAgeMillis(0).build();
+    }
+
+    private List<Path> filesInDir() throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.collect(Collectors.toList());
+        }
+    }
+
+    private B2PersistentAccountAuthorizer make() {
+        return B2PersistentAccountAuthorizer.builder(counting, path).build();
+    }
+
+    // they're all for the same account, with different tokens.
+    private static B2AccountAuthorization auth(int i) {
+        return makeAuthWithAccountId("account", i);
+    }
+}
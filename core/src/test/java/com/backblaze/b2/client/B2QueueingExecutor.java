@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An executor that holds on to its tasks until the test runs them.
+ */
+class B2QueueingExecutor extends AbstractExecutorService {
+    final List<Runnable> queued = new ArrayList<>();
+    private boolean isShutdown;
+
+    void runAll() {
+        final List<Runnable> toRun = new ArrayList<>(queued);
+        queued.clear();
+        toRun.forEach(Runnable::run);
+    }
+
+    // runs the oldest task, which may queue more tasks.
+    void runOne() {
+        queued.remove(0).run();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (isShutdown) {
+            throw new RejectedExecutionException("shut down");
+        }
+        queued.add(command);
+    }
+
+    @Override
+    public void shutdown() {
+        isShutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        return queued;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return isShutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return isShutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return true;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2ClockSim;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.backblaze.b2.client.B2RateLimiter.Category.AUTHORIZE_ACCOUNT;
+import static com.backblaze.b2.client.B2RateLimiter.Category.LIST;
+import static com.backblaze.b2.client.B2RateLimiter.Category.OTHER;
+import static com.backblaze.b2.client.B2RateLimiter.Category.UPLOAD;
+import static com.backblaze.b2.util.B2DateTimeUtil.parseDateTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class B2RateLimiterTest extends B2BaseTest {
+    private final B2ClockSim clock = B2Clock.useSimulator(parseDateTime("2026-01-01 00:00:00"));
+    private final List<Long> sleeps = new ArrayList<>();
+    private final B2Sleeper sleeper = new B2Sleeper() {
+        @Override
+        boolean sleepMilliseconds(long milliseconds) {
+            sleeps.add(milliseconds);
+            clock.advanceBoth(Duration.ofMillis(milliseconds));
+            return true;
+        }
+    };
+
+    @Test
+    public void testBurstThenRate() throws B2LocalException {
+        final B2RateLimiter limiter = B2RateLimiter.builder()
+                .setRate(LIST, 10, 3)
+                .setSleeper(sleeper)
+                .build();
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(LIST);
+        }
+        assertTrue(sleeps.isEmpty());
+
+        // after the burst, one every 100ms.
+        limiter.acquire(LIST);
+        limiter.acquire(LIST);
+        assertEquals(2, sleeps.size());
+        assertEquals(100, (long) sleeps.get(0));
+        assertEquals(100, (long) sleeps.get(1));
+        assertEquals(2, limiter.getWaitCount());
+        assertEquals(200, limiter.getTotalWaitMillis());
+
+        // waiting earns permits back, up to the burst.
+        clock.advanceBoth(Duration.ofSeconds(10));
+        sleeps.clear();
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(LIST);
+        }
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    public void testBaselineRatesAndUnlimitedCategories() throws B2LocalException {
+        final B2RateLimiter limiter = B2RateLimiter.builder()
+                .setSleeper(sleeper)
+                .build();
+        // authorizing has a default burst of 10 and a rate of one per second.
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(AUTHORIZE_ACCOUNT);
+        }
+        limiter.acquire(AUTHORIZE_ACCOUNT);
+        assertEquals(1, sleeps.size());
+        assertEquals(1000, (long) sleeps.get(0));
+
+        // other requests aren't paced by default.
+        sleeps.clear();
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire(OTHER);
+        }
+        assertTrue(sleeps.isEmpty());
+
+        final B2RateLimiter unlimited = B2RateLimiter.builder()
+                .setUnlimited(AUTHORIZE_ACCOUNT)
+                .setSleeper(sleeper)
+                .build();
+        for (int i = 0; i < 1000; i++) {
+            unlimited.acquire(AUTHORIZE_ACCOUNT);
+        }
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    public void testRetryAfterPausesTheWholeClient() throws B2LocalException {
+        final B2RateLimiter limiter = B2RateLimiter.builder()
+                .setSleeper(sleeper)
+                .build();
+        limiter.pause(LIST, 5);
+        assertEquals(5000, limiter.getPausedMillis(OTHER));
+        assertEquals(5000, limiter.getPausedMillis(UPLOAD));
+
+        limiter.acquire(OTHER);
+        assertEquals(1, sleeps.size());
+        assertEquals(5000, (long) sleeps.get(0));
+        assertEquals(0, limiter.getPausedMillis(OTHER));
+        assertEquals(1, limiter.getPauseCount());
+    }
+
+    @Test
+    public void testPauseWithoutRetryAfterUsesTheDefault() throws B2LocalException {
+        final B2RateLimiter limiter = B2RateLimiter.builder()
+                .setDefaultPauseMillis(250)
+                .setSleeper(sleeper)
+                .build();
+        limiter.pause(OTHER, null);
+        limiter.acquire(OTHER);
+        assertEquals(250, (long) sleeps.get(0));
+    }
+
+    @Test
+    public void testLongerPausesWin() {
+        final B2RateLimiter limiter = B2RateLimiter.builder()
+                .setSleeper(sleeper)
+                .build();
+        limiter.pause(OTHER, 10);
+        limiter.pause(OTHER, 2);
+        assertEquals(10_000, limiter.getPausedMillis(OTHER));
+    }
+
+    @Test
+    public void testUploadPausesOnlyPauseUploads() {
+        final B2RateLimiter limiter = B2RateLimiter.builder()
+                .setSleeper(sleeper)
+                .build();
+        limiter.pause(UPLOAD, 3);
+        assertEquals(3000, limiter.getPausedMillis(UPLOAD));
+        assertEquals(0, limiter.getPausedMillis(LIST));
+    }
+
+    @Test
+    public void testInterruptedWhileWaiting() {
+        final B2RateLimiter limiter = B2RateLimiter.builder()
+                .setSleeper(new B2Sleeper() {
+                    @Override
+                    boolean sleepMilliseconds(long milliseconds) {
+                        return false;
+                    }
+                })
+                .build();
+        limiter.pause(OTHER, 1);
+        try {
+            limiter.acquire(OTHER);
+            fail("should've thrown");
+        } catch (B2LocalException e) {
+            assertEquals("interrupted", e.getCode());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRateMustBePositive() {
+        B2RateLimiter.builder().setRate(LIST, 0, 1);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.contentHandlers.B2ContentSink;
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2ServiceUnavailableException;
+import com.backblaze.b2.client.exceptions.B2TooManyRequestsException;
+import com.backblaze.b2.client.structures.B2AccountAuthorization;
+import com.backblaze.b2.client.structures.B2DownloadByIdRequest;
+import com.backblaze.b2.client.structures.B2FileVersion;
+import com.backblaze.b2.client.structures.B2ListFileNamesRequest;
+import com.backblaze.b2.client.structures.B2UploadFileRequest;
+import com.backblaze.b2.client.structures.B2UploadUrlResponse;
+import com.backblaze.b2.util.B2BaseTest;
+import org.junit.Test;
+
+import static com.backblaze.b2.client.B2TestHelpers.bucketId;
+import static com.backblaze.b2.client.B2TestHelpers.fileId;
+import static com.backblaze.b2.client.B2TestHelpers.makeAuth;
+import static com.backblaze.b2.client.B2TestHelpers.makeVersion;
+import static com.backblaze.b2.client.B2TestHelpers.uploadUrlResponse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class B2RateLimitingWebifierTest extends B2BaseTest {
+    private final B2StorageClientWebifier wrapped = mock(B2StorageClientWebifier.class);
+    private final B2RateLimiter limiter = B2RateLimiter.create();
+    private final B2RateLimitingWebifier webifier = new B2RateLimitingWebifier(wrapped, limiter);
+    private final B2AccountAuthorization accountAuth = makeAuth(1);
+
+    @Test
+    public void testRequestsArePassedThrough() throws B2Exception {
+        final B2DownloadByIdRequest request = B2DownloadByIdRequest.builder(fileId(1)).build();
+        final B2ContentSink sink = mock(B2ContentSink.class);
+
+        webifier.downloadById(accountAuth, request, sink);
+        verify(wrapped).downloadById(accountAuth, request, sink);
+        assertEquals(0, limiter.getPauseCount());
+    }
+
+    @Test
+    public void testTooManyRequestsPausesTheClient() throws B2Exception {
+        final B2ListFileNamesRequest request = B2ListFileNamesRequest.builder(bucketId(1)).build();
+        when(wrapped.listFileNames(accountAuth, request))
+                .thenThrow(new B2TooManyRequestsException("too_many_requests", 7, "slow down"));
+
+        try {
+            webifier.listFileNames(accountAuth, request);
+            fail("should've thrown");
+        } catch (B2TooManyRequestsException e) {
+            // expected.
+        }
+        assertEquals(7000, limiter.getPausedMillis(B2RateLimiter.Category.OTHER));
+    }
+
+    @Test
+    public void testServiceUnavailableOnlyPausesWithRetryAfter() throws B2Exception {
+        final B2UploadUrlResponse uploadUrl = uploadUrlResponse(bucketId(1), 1);
+        final B2UploadFileRequest request = mock(B2UploadFileRequest.class);
+        final B2FileVersion version = makeVersion(1, 1);
+        doThrow(new B2ServiceUnavailableException("busy", null, "try another pod"))
+                .when(wrapped).uploadFile(uploadUrl, request);
+
+        try {
+            webifier.uploadFile(uploadUrl, request);
+            fail("should've thrown");
+        } catch (B2ServiceUnavailableException e) {
+            // expected.
+        }
+        assertEquals(0, limiter.getPauseCount());
+
+        doReturn(version).when(wrapped).uploadFile(uploadUrl, request);
+        assertSame(version, webifier.uploadFile(uploadUrl, request));
+    }
+}
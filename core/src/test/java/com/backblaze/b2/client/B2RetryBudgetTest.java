@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2ServiceUnavailableException;
+import com.backblaze.b2.client.exceptions.B2UnauthorizedException;
+import com.backblaze.b2.util.B2BaseTest;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class B2RetryBudgetTest extends B2BaseTest {
+    private final AtomicInteger sleeps = new AtomicInteger();
+    private final B2Sleeper sleeper = new B2Sleeper() {
+        @Override
+        boolean sleepSeconds(int seconds) {
+            sleeps.incrementAndGet();
+            return true;
+        }
+    };
+
+    @Test
+    public void testBudgetStartsFullAndIsEarnedBySuccesses() {
+        final B2RetryBudget budget = B2RetryBudget.builder()
+                .setRetryPercent(20)
+                .setMaxBurst(2)
+                .build();
+        assertTrue(budget.tryToRetry());
+        assertTrue(budget.tryToRetry());
+        assertFalse(budget.tryToRetry());
+
+        // five successes earn one retry.
+        for (int i = 0; i < 4; i++) {
+            budget.succeeded();
+            assertFalse(budget.tryToRetry());
+        }
+        budget.succeeded();
+        assertTrue(budget.tryToRetry());
+        assertFalse(budget.tryToRetry());
+
+        assertEquals(3, budget.getAllowedCount());
+        assertEquals(6, budget.getDeniedCount());
+    }
+
+    @Test
+    public void testBudgetNeverHoldsMoreThanTheBurst() {
+        final B2RetryBudget budget = B2RetryBudget.builder()
+                .setRetryPercent(50)
+                .setMaxBurst(3)
+                .build();
+        for (int i = 0; i < 100; i++) {
+            budget.succeeded();
+        }
+        assertEquals(3, budget.getAvailableRetries(), 0.0001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRetryPercentMustBeAPercentage() {
+        B2RetryBudget.builder().setRetryPercent(101).build();
+    }
+
+    @Test
+    public void testRetryerStopsRetryingWhenTheBudgetIsSpent() throws B2Exception {
+        final B2RetryBudget budget = B2RetryBudget.builder()
+                .setRetryPercent(10)
+                .setMaxBurst(3)
+                .build();
+        final B2Retryer retryer = new B2Retryer(sleeper, null, budget, null);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            retryer.doRetry("op", null, () -> {
+                attempts.incrementAndGet();
+                throw new B2ServiceUnavailableException("test", null, "unavailable");
+            }, new B2DefaultRetryPolicy());
+            fail("should've thrown");
+        } catch (B2ServiceUnavailableException e) {
+            // expected.
+        }
+        // the policy would've allowed 8 attempts, but the budget only has 3 retries.
+        assertEquals(4, attempts.get());
+        assertEquals(3, sleeps.get());
+
+        // now, even the next call's first failure isn't retried.
+        attempts.set(0);
+        try {
+            retryer.doRetry("op", null, () -> {
+                attempts.incrementAndGet();
+                throw new B2ServiceUnavailableException("test", null, "unavailable");
+            }, new B2DefaultRetryPolicy());
+            fail("should've thrown");
+        } catch (B2ServiceUnavailableException e) {
+            // expected.
+        }
+        assertEquals(1, attempts.get());
+
+        // successes earn more retries.
+        for (int i = 0; i < 10; i++) {
+            retryer.doRetry("op", null, () -> "ok", new B2DefaultRetryPolicy());
+        }
+        attempts.set(0);
+        assertEquals("ok", retryer.doRetry("op", null, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new B2ServiceUnavailableException("test", null, "unavailable");
+            }
+            return "ok";
+        }, new B2DefaultRetryPolicy()));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testImmediateRetriesDontUseTheBudget() throws B2Exception {
+        final B2RetryBudget budget = B2RetryBudget.builder()
+                .setMaxBurst(0)
+                .build();
+        final B2Retryer retryer = new B2Retryer(sleeper, null, budget, null);
+        final AtomicInteger attempts = new AtomicInteger();
+
+        assertEquals("ok", retryer.doRetry("op", null, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                final B2UnauthorizedException e = new B2UnauthorizedException("test", null, "expired");
+                e.setRequestCategory(B2UnauthorizedException.RequestCategory.UPLOADING);
+                throw e;
+            }
+            return "ok";
+        }, new B2DefaultRetryPolicy()));
+        assertEquals(2, attempts.get());
+        assertEquals(0, budget.getDeniedCount());
+    }
+}
@@ -248,6 +248,35 @@ public class B2RetryerTest extends B2BaseTest {
         checkNotRetried(new RuntimeException("testing"));
     }
 
+    @Test
+    public void testMetricsAreToldAboutAttemptsAndRetries() throws B2Exception {
+        final B2DefaultMetrics metrics = new B2DefaultMetrics();
+        final B2Retryer measuredRetryer = new B2Retryer(sleeper, metrics);
+        when(policy.gotRetryableAfterDelay(eq(OP), anyInt(), anyLong(), any())).thenReturn(1);
+        when(policy.gotRetryableImmediately(eq(OP), anyInt(), anyLong(), any())).thenReturn(true);
+
+        final Guts guts = new Guts(serviceUnavailable(null), unauthorized(OTHER), serviceUnavailable(null), "hello");
+        assertEquals("hello", measuredRetryer.doRetry(OP, goodAuthCache, guts, policy));
+
+        final B2MetricsSnapshot snapshot = metrics.snapshot();
+        final B2MetricsSnapshot.Operation operation = snapshot.getOperationOrNull(OP);
+        assertEquals(1, operation.getSucceededCount());
+        assertEquals(3, operation.getFailedCount());
+        assertEquals(3, operation.getRetryCount());
+        assertEquals(0, operation.getInFlightCount());
+        assertEquals(Long.valueOf(2), snapshot.getRetriesByExceptionType().get("B2ServiceUnavailableException"));
+        assertEquals(Long.valueOf(1), snapshot.getRetriesByExceptionType().get("B2UnauthorizedException"));
+
+        // the last failure isn't retried.
+        try {
+            measuredRetryer.doRetry(OP, goodAuthCache, new Guts(badRequest()), policy);
+        } catch (B2BadRequestException e) {
+            // expected.
+        }
+        assertEquals(4, metrics.snapshot().getOperationOrNull(OP).getFailedCount());
+        assertEquals(3, metrics.snapshot().getOperationOrNull(OP).getRetryCount());
+    }
+
     private void checkNotRetried(Exception exceptionToThrowFromCallable) {
         final Guts guts = new Guts(exceptionToThrowFromCallable);
 
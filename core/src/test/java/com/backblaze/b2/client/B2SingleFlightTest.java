@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2NotFoundException;
+import com.backblaze.b2.util.B2BaseTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class B2SingleFlightTest extends B2BaseTest {
+    private static final int CALLERS = 10;
+
+    private final B2SingleFlight<String, String> flights = new B2SingleFlight<>();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Test
+    public void testConcurrentCallsShareOneCall() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            final List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(executor.submit(() -> flights.call("key", this::blockingCall)));
+            }
+            waitForSharers(CALLERS - 1);
+            release.countDown();
+            for (Future<String> future : futures) {
+                assertEquals("result1", future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+        assertEquals(CALLERS - 1, flights.getSharedCount());
+
+        // once it's done, the next caller makes a new call.
+        assertEquals("result2", flights.call("key", this::blockingCall));
+    }
+
+    @Test
+    public void testDifferentKeysDontShare() throws Exception {
+        release.countDown();
+        assertEquals("result1", flights.call("a", this::blockingCall));
+        assertEquals("result2", flights.call("b", this::blockingCall));
+        assertEquals(0, flights.getSharedCount());
+    }
+
+    @Test
+    public void testExceptionsAreShared() throws Exception {
+        final B2Exception failure = new B2NotFoundException("not_found", null, "no such file");
+        final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            final List<Future<B2Exception>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        flights.call("key", () -> {
+                            blockingCall();
+                            throw failure;
+                        });
+                        fail("should have thrown");
+                        return null;
+                    } catch (B2Exception e) {
+                        return e;
+                    }
+                }));
+            }
+            waitForSharers(CALLERS - 1);
+            release.countDown();
+            for (Future<B2Exception> future : futures) {
+                assertSame(failure, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    private String blockingCall() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return "result" + calls.incrementAndGet();
+    }
+
+    private void waitForSharers(int count) throws InterruptedException {
+        while (flights.getSharedCount() < count) {
+            Thread.sleep(1);
+        }
+    }
+}
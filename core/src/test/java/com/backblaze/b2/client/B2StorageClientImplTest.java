@@ -7,7 +7,9 @@ package com.backblaze.b2.client;
 import com.backblaze.b2.client.contentHandlers.B2ContentSink;
 import com.backblaze.b2.client.contentSources.B2ContentSource;
 import com.backblaze.b2.client.contentSources.B2ContentTypes;
+import com.backblaze.b2.client.exceptions.B2BadRequestException;
 import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.client.exceptions.B2NotFoundException;
 import com.backblaze.b2.client.structures.B2AccountAuthorization;
 import com.backblaze.b2.client.structures.B2AuthorizationFilteredResponseField;
 import com.backblaze.b2.client.structures.B2AuthorizeAccountRequest;
@@ -84,9 +86,12 @@ import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
@@ -110,6 +115,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyObject;
@@ -539,6 +546,84 @@ public class B2StorageClientImplTest extends B2BaseTest {
         }
     }
 
+    @Test
+    public void testDeleteAllFilesInBucketInParallel() throws B2Exception {
+        final B2ListFileVersionsRequest request = B2ListFileVersionsRequest.builder(bucketId(1)).setMaxFileCount(1000).build();
+        final List<B2FileVersion> versions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            versions.add(makeVersion(i, i));
+        }
+        final B2ListFileVersionsResponse response = new B2ListFileVersionsResponse(versions, null, null);
+        when(webifier.listFileVersions(anyObject(), eq(request))).thenReturn(response);
+
+        // one is already gone, which the service reports as a 400 with
+        // "file_not_present".  one can't be deleted, and one gets a 404,
+        // which isn't how the service says the version is gone.
+        final B2FileVersion alreadyGone = versions.get(3);
+        when(webifier.deleteFileVersion(anyObject(), eq(B2DeleteFileVersionRequest.builder(alreadyGone.getFileName(), alreadyGone.getFileId()).build())))
+                .thenThrow(new B2BadRequestException("file_not_present", null, "File not present: " + alreadyGone.getFileName()));
+        final B2FileVersion stuck = versions.get(7);
+        when(webifier.deleteFileVersion(anyObject(), eq(B2DeleteFileVersionRequest.builder(stuck.getFileName(), stuck.getFileId()).build())))
+                .thenThrow(new B2BadRequestException("access_denied", null, "nope"));
+        final B2FileVersion notFound = versions.get(8);
+        when(webifier.deleteFileVersion(anyObject(), eq(B2DeleteFileVersionRequest.builder(notFound.getFileName(), notFound.getFileId()).build())))
+                .thenThrow(new B2NotFoundException("not_found", null, "bucket not found"));
+
+        final B2BulkOperationSummary<B2FileVersion> summary = client.deleteAllFilesInBucket(bucketId(1),
+                B2BulkOperationOptions.builder().setMaxConcurrency(4).build(),
+                executor);
+
+        assertEquals(8, summary.getSucceededCount());
+        assertEquals(2, summary.getFailedCount());
+        final Set<B2FileVersion> failed = new HashSet<>();
+        for (int i = 0; i < summary.getFailures().size(); i++) {
+            failed.add(summary.getFailures().get(i).getItem());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(stuck, notFound)), failed);
+        for (B2FileVersion version : versions) {
+            final B2DeleteFileVersionRequest deleteRequest = B2DeleteFileVersionRequest.builder(version.getFileName(), version.getFileId()).build();
+            verify(webifier, times(1)).deleteFileVersion(anyObject(), eq(deleteRequest));
+        }
+    }
+
+    @Test
+    public void testDeleteFileVersionsWithPrefix() throws B2Exception {
+        final B2ListFileVersionsRequest request = B2ListFileVersionsRequest
+                .builder(bucketId(1))
+                .setPrefix(FILE_PREFIX)
+                .setMaxFileCount(1000)
+                .build();
+        final List<B2FileVersion> versions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            versions.add(makeVersion(i, i));
+        }
+        when(webifier.listFileVersions(anyObject(), eq(request))).thenReturn(new B2ListFileVersionsResponse(versions, null, null));
+
+        final List<B2FileVersion> deleted = new ArrayList<>();
+        final B2BulkOperationSummary<B2FileVersion> summary = client.deleteFileVersionsWithPrefix(bucketId(1),
+                FILE_PREFIX,
+                B2BulkOperationOptions.defaultOptions(),
+                new B2BulkOperationListener<B2FileVersion, B2FileVersion>() {
+                    @Override
+                    public void succeeded(B2FileVersion item, B2FileVersion result) {
+                        synchronized (deleted) {
+                            deleted.add(item);
+                        }
+                    }
+
+                    @Override
+                    public void failed(B2FileVersion item, B2Exception e) {
+                        fail("unexpected failure for " + item);
+                    }
+                },
+                executor);
+
+        assertTrue(summary.allSucceeded());
+        assertEquals(3, summary.getSucceededCount());
+        assertEquals(3, deleted.size());
+        verify(webifier, times(3)).deleteFileVersion(anyObject(), anyObject());
+    }
+
     @Test
     public void testGetDownloadAuthorization() throws B2Exception {
         final B2DownloadAuthorization downloadAuth = new B2DownloadAuthorization(bucketId(1), FILE_PREFIX, "downloadAuthToken");
@@ -955,6 +1040,39 @@ public class B2StorageClientImplTest extends B2BaseTest {
         assertEquals(uploadUrl, new B2UploadUrlResponse(bucketId(1), "uploadUrl", "uploadAuthToken"));
     }
 
+    @Test
+    public void testUploadSmallFiles() throws B2Exception, IOException {
+        final B2GetUploadUrlRequest uploadUrlRequest = B2GetUploadUrlRequest.builder(bucketId(1)).build();
+        final B2UploadUrlResponse uploadUrl = new B2UploadUrlResponse(bucketId(1), "uploadUrl", "uploadAuthToken");
+        when(webifier.getUploadUrl(anyObject(), eq(uploadUrlRequest))).thenReturn(uploadUrl);
+
+        final List<B2UploadFileRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final B2ContentSource contentSource = mock(B2ContentSource.class);
+            when(contentSource.getContentLength()).thenReturn(10L);
+            requests.add(B2UploadFileRequest
+                    .builder(bucketId(1), fileName(i), B2ContentTypes.TEXT_PLAIN, contentSource)
+                    .build());
+        }
+        when(webifier.uploadFile(anyObject(), eq(requests.get(0)))).thenReturn(makeVersion(0, 0));
+        when(webifier.uploadFile(anyObject(), eq(requests.get(1)))).thenThrow(new B2BadRequestException("bad_request", null, "nope"));
+        when(webifier.uploadFile(anyObject(), eq(requests.get(2)))).thenReturn(makeVersion(2, 2));
+
+        final B2BulkOperationSummary<B2UploadFileRequest> summary = client.uploadSmallFiles(requests,
+                B2BulkOperationOptions.builder().setMaxConcurrency(1).build(),
+                null,
+                executor);
+
+        assertEquals(2, summary.getSucceededCount());
+        assertEquals(1, summary.getFailedCount());
+        assertSame(requests.get(1), summary.getFailures().get(0).getItem());
+
+        // the url from the first upload was reused for the second and after the
+        // failure, the third had to get a new one.
+        verify(webifier, times(2)).getUploadUrl(anyObject(), anyObject());
+        verify(webifier, times(3)).uploadFile(anyObject(), anyObject());
+    }
+
     @Test
     public void testSmallFileCopy() throws B2Exception {
         final B2FileVersion fileVersion = makeVersion(2, 2);
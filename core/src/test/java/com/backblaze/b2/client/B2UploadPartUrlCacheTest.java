@@ -12,9 +12,15 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static com.backblaze.b2.client.B2TestHelpers.bucketId;
 import static com.backblaze.b2.client.B2TestHelpers.makeAuth;
 import static com.backblaze.b2.client.B2TestHelpers.uploadPartUrlResponse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.doReturn;
@@ -104,4 +110,56 @@ public class B2UploadPartUrlCacheTest extends B2BaseTest {
 
         uploadPartCache.get(false);
     }
+
+    @Test
+    public void testPrefetching() throws Exception {
+        doReturn(makeAuth(1)).when(authCache).get();
+        final B2UploadPartUrlResponse response = uploadPartUrlResponse(bucketId(1), 1);
+        doReturn(response).when(webifier).getUploadPartUrl(anyObject(), anyObject());
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final B2UploadPartUrlCache prefetchingCache = new B2UploadPartUrlCache(webifier,
+                authCache,
+                LARGE_FILE_ID_1,
+                new B2UploadUrlPrefetcher(executor, 2));
+
+        // the first get has to ask the server itself, but it also starts two prefetches.
+        assertSame(response, prefetchingCache.get(false));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        verify(webifier, times(3)).getUploadPartUrl(anyObject(), anyObject());
+
+        // the next two come from the cache.  (the executor is shut down, so there's no more prefetching.)
+        assertSame(response, prefetchingCache.get(false));
+        assertSame(response, prefetchingCache.get(false));
+        verify(webifier, times(3)).getUploadPartUrl(anyObject(), anyObject());
+    }
+
+    @Test
+    public void testNoPrefetchingForPartsThatHaveStarted() throws Exception {
+        doReturn(makeAuth(1)).when(authCache).get();
+        final B2UploadPartUrlResponse response = uploadPartUrlResponse(bucketId(1), 1);
+        doReturn(response).when(webifier).getUploadPartUrl(anyObject(), anyObject());
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final AtomicInteger partsNotStarted = new AtomicInteger(1);
+        final B2UploadPartUrlCache prefetchingCache = new B2UploadPartUrlCache(webifier,
+                authCache,
+                LARGE_FILE_ID_1,
+                new B2UploadUrlPrefetcher(executor, 2),
+                null,
+                partsNotStarted::get);
+
+        // only one part is left to start, so only one url is prefetched.
+        assertSame(response, prefetchingCache.get(false));
+        partsNotStarted.set(0);
+        executor.submit(() -> {}).get(); // there's one thread, so the prefetch is done.
+        verify(webifier, times(2)).getUploadPartUrl(anyObject(), anyObject());
+
+        // the last part takes the prefetched one without asking for more.
+        assertSame(response, prefetchingCache.get(false));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        verify(webifier, times(2)).getUploadPartUrl(anyObject(), anyObject());
+    }
 }
@@ -8,14 +8,26 @@ import com.backblaze.b2.client.exceptions.B2Exception;
 import com.backblaze.b2.client.exceptions.B2InternalErrorException;
 import com.backblaze.b2.client.structures.B2UploadUrlResponse;
 import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Clock;
+import com.backblaze.b2.util.B2ClockSim;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static com.backblaze.b2.client.B2TestHelpers.bucketId;
 import static com.backblaze.b2.client.B2TestHelpers.makeAuth;
 import static com.backblaze.b2.client.B2TestHelpers.uploadUrlResponse;
 import static com.backblaze.b2.client.B2UploadUrlCache.MAX_BUCKETS;
+import static com.backblaze.b2.util.B2DateTimeUtil.parseDateTime;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.doReturn;
@@ -87,6 +99,34 @@ public class B2UploadUrlCacheTest extends B2BaseTest {
         verify(webifier, times(1)).getUploadUrl(anyObject(), anyObject());
     }
 
+    @Test
+    public void testLookupsAreReportedToMetrics() throws B2Exception {
+        doReturn(makeAuth(1)).when(authCache).get();
+        final List<String> lookups = new ArrayList<>();
+        final B2Metrics metrics = new B2Metrics() {
+            @Override
+            public void uploadUrlCacheLookup(String operation, boolean hit) {
+                lookups.add(operation + " " + (hit ? "hit" : "miss"));
+            }
+        };
+        final B2UploadUrlCache measuredCache = new B2UploadUrlCache(webifier,
+                authCache,
+                B2UploadUrlCachePolicy.defaultPolicy(),
+                B2UploadUrlPrefetcher.disabled(),
+                metrics);
+
+        final B2UploadUrlResponse response = uploadUrlResponse(bucketId(1), 1);
+        doReturn(response).when(webifier).getUploadUrl(anyObject(), anyObject());
+        measuredCache.get(bucketId(1), false);
+        measuredCache.unget(response);
+        measuredCache.get(bucketId(1), false);
+
+        // retries don't look in the cache, so they aren't reported.
+        measuredCache.get(bucketId(1), true);
+
+        assertEquals(Arrays.asList("b2_get_upload_url miss", "b2_get_upload_url hit"), lookups);
+    }
+
     @Test
     public void testMaxBuckets() throws B2Exception {
         // set up an answer from the webifier (even though we won't use it for a while)
@@ -124,6 +164,143 @@ public class B2UploadUrlCacheTest extends B2BaseTest {
         verify(webifier, times(1)).getUploadUrl(anyObject(), anyObject());
     }
 
+    @Test
+    public void testMaxUrlsPerBucket() throws B2Exception {
+        doReturn(makeAuth(1)).when(authCache).get();
+        final B2UploadUrlCache smallCache = new B2UploadUrlCache(webifier,
+                authCache,
+                B2UploadUrlCachePolicy.builder().setMaxUrlsPerBucket(2).build());
+
+        final B2UploadUrlResponse response1 = uploadUrlResponse(bucketId(1), 1);
+        final B2UploadUrlResponse response2 = uploadUrlResponse(bucketId(1), 2);
+        final B2UploadUrlResponse response3 = uploadUrlResponse(bucketId(1), 3);
+        smallCache.unget(response1);
+        smallCache.unget(response2);
+        smallCache.unget(response3);
+
+        // the one that was idle the longest was pushed out.
+        assertEquals(1, smallCache.getEvictionCount());
+        assertTrue(response2 == smallCache.get(bucketId(1), false));
+        assertTrue(response3 == smallCache.get(bucketId(1), false));
+
+        // now it's empty.
+        final B2UploadUrlResponse response4 = uploadUrlResponse(bucketId(1), 4);
+        doReturn(response4).when(webifier).getUploadUrl(anyObject(), anyObject());
+        assertTrue(response4 == smallCache.get(bucketId(1), false));
+
+        assertEquals(2, smallCache.getHitCount());
+        assertEquals(1, smallCache.getMissCount());
+    }
+
+    @Test
+    public void testZeroUrlsPerBucketMeansNoReuse() throws B2Exception {
+        doReturn(makeAuth(1)).when(authCache).get();
+        final B2UploadUrlCache noCache = new B2UploadUrlCache(webifier,
+                authCache,
+                B2UploadUrlCachePolicy.builder().setMaxUrlsPerBucket(0).build());
+
+        final B2UploadUrlResponse response1 = uploadUrlResponse(bucketId(1), 1);
+        doReturn(response1).when(webifier).getUploadUrl(anyObject(), anyObject());
+        noCache.unget(noCache.get(bucketId(1), false));
+        noCache.get(bucketId(1), false);
+
+        verify(webifier, times(2)).getUploadUrl(anyObject(), anyObject());
+        assertEquals(0, noCache.getHitCount());
+        assertEquals(2, noCache.getMissCount());
+        assertEquals(1, noCache.getEvictionCount());
+    }
+
+    @Test
+    public void testIdleUrlsExpire() throws B2Exception {
+        final B2ClockSim clock = B2Clock.useSimulator(parseDateTime("2026-10-19 00:00:00"));
+        doReturn(makeAuth(1)).when(authCache).get();
+        final B2UploadUrlCache expiringCache = new B2UploadUrlCache(webifier,
+                authCache,
+                B2UploadUrlCachePolicy.builder().setMaxIdleMillis(60 * 1000).build());
+
+        final B2UploadUrlResponse oldResponse = uploadUrlResponse(bucketId(1), 1);
+        expiringCache.unget(oldResponse);
+        clock.advanceBoth(Duration.ofSeconds(45));
+
+        final B2UploadUrlResponse newerResponse = uploadUrlResponse(bucketId(1), 2);
+        expiringCache.unget(newerResponse);
+        clock.advanceBoth(Duration.ofSeconds(30));
+
+        // the old one has been idle for 75 seconds, so it's discarded and we
+        // get the newer one, which has only been idle for 30 seconds.
+        assertTrue(newerResponse == expiringCache.get(bucketId(1), false));
+        assertEquals(1, expiringCache.getEvictionCount());
+        assertEquals(1, expiringCache.getHitCount());
+
+        // put it back and let it go stale too.
+        expiringCache.unget(newerResponse);
+        clock.advanceBoth(Duration.ofMinutes(2));
+
+        final B2UploadUrlResponse freshResponse = uploadUrlResponse(bucketId(1), 3);
+        doReturn(freshResponse).when(webifier).getUploadUrl(anyObject(), anyObject());
+        assertTrue(freshResponse == expiringCache.get(bucketId(1), false));
+        assertEquals(2, expiringCache.getEvictionCount());
+        assertEquals(1, expiringCache.getMissCount());
+        verify(webifier, times(1)).getUploadUrl(anyObject(), anyObject());
+    }
+
+    @Test
+    public void testManyThreads() throws Exception {
+        doReturn(makeAuth(1)).when(authCache).get();
+        doReturn(uploadUrlResponse(bucketId(1), 1)).when(webifier).getUploadUrl(anyObject(), anyObject());
+
+        final int threadCount = 8;
+        final int iterationsPerThread = 1000;
+        final Thread[] threads = new Thread[threadCount];
+        for (int iThread = 0; iThread < threadCount; iThread++) {
+            threads[iThread] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < iterationsPerThread; i++) {
+                        uploadCache.unget(uploadCache.get(bucketId(1), false));
+                    }
+                } catch (B2Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            threads[iThread].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // every get was either a hit or a miss, and we never needed more urls
+        // than there were threads.
+        assertEquals(threadCount * iterationsPerThread, uploadCache.getHitCount() + uploadCache.getMissCount());
+        assertTrue(uploadCache.getMissCount() <= threadCount);
+    }
+
+    @Test
+    public void testPrefetchingForHotBuckets() throws Exception {
+        doReturn(makeAuth(1)).when(authCache).get();
+        final B2UploadUrlResponse response = uploadUrlResponse(bucketId(1), 1);
+        doReturn(response).when(webifier).getUploadUrl(anyObject(), anyObject());
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final B2UploadUrlCachePolicy policy = B2UploadUrlCachePolicy.builder().setPrefetchCount(2).build();
+        final B2UploadUrlCache prefetchingCache = new B2UploadUrlCache(webifier,
+                authCache,
+                policy,
+                new B2UploadUrlPrefetcher(executor, policy.getPrefetchCount()));
+
+        // the first get misses, but it starts two prefetches.
+        assertTrue(response == prefetchingCache.get(bucketId(1), false));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        verify(webifier, times(3)).getUploadUrl(anyObject(), anyObject());
+
+        // the next two are hits.  (the executor is shut down, so there's no more prefetching.)
+        assertTrue(response == prefetchingCache.get(bucketId(1), false));
+        assertTrue(response == prefetchingCache.get(bucketId(1), false));
+        verify(webifier, times(3)).getUploadUrl(anyObject(), anyObject());
+        assertEquals(2, prefetchingCache.getHitCount());
+        assertEquals(1, prefetchingCache.getMissCount());
+    }
+
     @Test
     public void testExceptionFromAuthCache() throws B2Exception {
         final B2Exception e = new B2InternalErrorException("testing", "testing message");
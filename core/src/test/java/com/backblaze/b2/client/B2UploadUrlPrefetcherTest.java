@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client;
+
+import com.backblaze.b2.client.exceptions.B2InternalErrorException;
+import com.backblaze.b2.util.B2BaseTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class B2UploadUrlPrefetcherTest extends B2BaseTest {
+    private final B2QueueingExecutor executor = new B2QueueingExecutor();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final List<String> delivered = new ArrayList<>();
+    private final AtomicInteger fetchCount = new AtomicInteger();
+
+    @Test
+    public void testTopsUpToTheTarget() {
+        final B2UploadUrlPrefetcher prefetcher = new B2UploadUrlPrefetcher(executor, 3);
+        assertTrue(prefetcher.isEnabled());
+
+        // one is ready, so we need two more.
+        topUp(prefetcher, 1);
+        assertEquals(2, executor.queued.size());
+        assertEquals(2, inFlight.get());
+
+        // those two are still in flight, so we don't need any more.
+        topUp(prefetcher, 1);
+        assertEquals(2, executor.queued.size());
+
+        executor.runAll();
+        assertEquals(0, inFlight.get());
+        assertEquals(2, delivered.size());
+        assertEquals(2, fetchCount.get());
+
+        // nothing to do when the cache is already full.
+        topUp(prefetcher, 3);
+        assertEquals(0, executor.queued.size());
+    }
+
+    @Test
+    public void testDoesntGetMoreThanAreWanted() {
+        final B2UploadUrlPrefetcher prefetcher = new B2UploadUrlPrefetcher(executor, 3);
+
+        // only two more parts will want urls, and one is ready already.
+        topUp(prefetcher, 1, 2);
+        assertEquals(1, executor.queued.size());
+
+        // no parts are left to start, so there's nothing to get ready.
+        executor.runAll();
+        topUp(prefetcher, 0, 0);
+        assertEquals(0, executor.queued.size());
+        assertEquals(1, fetchCount.get());
+    }
+
+    @Test
+    public void testFailedFetchesAreDropped() {
+        final B2UploadUrlPrefetcher prefetcher = new B2UploadUrlPrefetcher(executor, 1);
+        prefetcher.<String>topUp(0,
+                inFlight,
+                () -> {
+                    throw new B2InternalErrorException("test", "oops");
+                },
+                delivered::add);
+        executor.runAll();
+
+        assertEquals(0, inFlight.get());
+        assertEquals(0, delivered.size());
+    }
+
+    @Test
+    public void testRejectedByExecutor() {
+        final B2UploadUrlPrefetcher prefetcher = new B2UploadUrlPrefetcher(executor, 4);
+        executor.shutdown();
+
+        topUp(prefetcher, 0);
+        assertEquals(0, inFlight.get());
+        assertEquals(0, fetchCount.get());
+    }
+
+    @Test
+    public void testDisabled() {
+        assertFalse(B2UploadUrlPrefetcher.disabled().isEnabled());
+        topUp(B2UploadUrlPrefetcher.disabled(), 0);
+
+        // without an executor, there's nothing to prefetch with.
+        final B2UploadUrlPrefetcher noExecutor = new B2UploadUrlPrefetcher(null, 4);
+        assertFalse(noExecutor.isEnabled());
+        topUp(noExecutor, 0);
+
+        assertEquals(0, inFlight.get());
+        assertEquals(0, executor.queued.size());
+    }
+
+    private void topUp(B2UploadUrlPrefetcher prefetcher, int readyCount) {
+        prefetcher.topUp(readyCount,
+                inFlight,
+                () -> "url" + fetchCount.incrementAndGet(),
+                delivered::add);
+    }
+
+    private void topUp(B2UploadUrlPrefetcher prefetcher, int readyCount, int wantedCount) {
+        prefetcher.topUp(readyCount,
+                wantedCount,
+                inFlight,
+                () -> "url" + fetchCount.incrementAndGet(),
+                delivered::add);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client.structures;
+
+import com.backblaze.b2.client.B2TestHelpers;
+import com.backblaze.b2.client.contentSources.B2ContentTypes;
+import com.backblaze.b2.json.B2Json;
+import com.backblaze.b2.json.B2JsonException;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.backblaze.b2.client.B2TestHelpers.fileId;
+import static com.backblaze.b2.client.B2TestHelpers.fileName;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class B2CompactFileVersionListTest extends B2BaseTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void testSameAsOriginal() {
+        final List<B2FileVersion> versions = makeVersions();
+        final B2CompactFileVersionList compact = B2CompactFileVersionList.from(versions);
+
+        assertEquals(versions.size(), compact.size());
+        assertEquals(versions, compact);
+        assertEquals(versions.hashCode(), compact.hashCode());
+        for (int i = 0; i < versions.size(); i++) {
+            final B2FileVersion version = versions.get(i);
+            assertEquals(version.getFileId(), compact.getFileId(i));
+            assertEquals(version.getFileName(), compact.getFileName(i));
+            assertEquals(version.getContentLength(), compact.getContentLength(i));
+            assertEquals(version.getUploadTimestamp(), compact.getUploadTimestamp(i));
+            assertEquals(version.getContentSha1(), compact.getContentSha1(i));
+            assertEquals(version.getFileInfo(), compact.getFileInfo(i));
+        }
+        assertNull(compact.getContentSha1(2));
+        assertNull(compact.getFileInfo(2));
+    }
+
+    @Test
+    public void testValuesAreShared() {
+        final B2CompactFileVersionList compact = B2CompactFileVersionList.from(makeVersions());
+
+        // the action is always the constant.
+        assertSame(B2FileVersion.UPLOAD_ACTION, compact.getAction(0));
+        assertSame(B2FileVersion.HIDE_ACTION, compact.getAction(2));
+
+        // equal values are stored once.
+        assertSame(compact.getContentType(0), compact.getContentType(1));
+        final B2FileVersion first = compact.get(0);
+        final B2FileVersion second = compact.get(1);
+        assertSame(first.getFileRetentionField(), second.getFileRetentionField());
+        assertSame(first.getServerSideEncryption(), second.getServerSideEncryption());
+
+        // but each call to get() makes a new B2FileVersion.
+        assertNotSame(first, compact.get(0));
+        assertEquals(first, compact.get(0));
+    }
+
+    @Test
+    public void testStringsArePackedExactly() {
+        final String[] names = {
+                "",
+                "plain.txt",
+                "caf\u00e9/\u81ea\u7531.txt",
+                new String(Character.toChars(0x1F600)) + ".png",
+                "broken\ud800surrogate",
+                "\u0000",
+                String.join("", Collections.nCopies(200, "\u00e9"))  // long enough for a two-byte length.
+        };
+        final List<B2FileVersion> versions = new ArrayList<>();
+        for (String name : names) {
+            versions.add(new B2FileVersion(null, name, 0, null, null, null,
+                    B2Collections.mapOf("name", name), null, 0, null, null, null, null));
+        }
+        final B2CompactFileVersionList compact = B2CompactFileVersionList.from(versions);
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(names[i], compact.getFileName(i));
+            assertEquals(names[i], compact.getFileInfo(i).get("name"));
+            assertNull(compact.getFileId(i));
+        }
+        assertEquals(versions, compact);
+    }
+
+    @Test
+    public void testJson() throws B2JsonException {
+        final List<B2FileVersion> versions = makeVersions();
+        final String json = B2Json.get().listToJson(versions, B2FileVersion.class);
+
+        final B2CompactFileVersionList compact = B2Json.get().fromJson(json, B2CompactFileVersionList.class);
+        assertEquals(versions, compact);
+        assertEquals(json, B2Json.get().toJson(compact));
+
+        assertTrue(B2Json.get().fromJson("[]", B2CompactFileVersionList.class).isEmpty());
+    }
+
+    @Test
+    public void testNullEntriesAreRejected() throws B2JsonException {
+        thrown.expect(B2JsonException.class);
+        thrown.expectMessage("file versions in a B2CompactFileVersionList must not be null");
+        B2Json.get().fromJson("[null]", B2CompactFileVersionList.class);
+    }
+
+    @Test
+    public void testIsReadOnly() {
+        final B2CompactFileVersionList compact = B2CompactFileVersionList.from(makeVersions());
+        thrown.expect(UnsupportedOperationException.class);
+        compact.add(compact.get(0));
+    }
+
+    @Test
+    public void testIndexIsChecked() {
+        final B2CompactFileVersionList compact = B2CompactFileVersionList.from(makeVersions());
+        thrown.expect(IndexOutOfBoundsException.class);
+        compact.getFileName(compact.size());
+    }
+
+    @Test
+    public void testCompactPagesIsCopiedButNotSent() throws B2JsonException {
+        final B2ListFileNamesRequest request = B2ListFileNamesRequest
+                .builder("bucketId")
+                .setCompactPages(true)
+                .build();
+        assertTrue(request.isCompactPages());
+        assertEquals(request, B2ListFileNamesRequest.builder(request).build());
+
+        final String json = B2Json.get().toJson(request);
+        assertFalse(json.contains("compactPages"));
+        assertFalse(B2Json.get().fromJson(json, B2ListFileNamesRequest.class).isCompactPages());
+    }
+
+    private static List<B2FileVersion> makeVersions() {
+        final B2AuthorizationFilteredResponseField<B2FileRetention> retention =
+                new B2AuthorizationFilteredResponseField<>(true, new B2FileRetention("governance", 123456L));
+        final B2FileSseForResponse sse = new B2FileSseForResponse("SSE-B2", "AES256", null);
+
+        final List<B2FileVersion> versions = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            final String sha1;
+            switch (i % 4) {
+                case 0: sha1 = B2TestHelpers.SAMPLE_SHA1; break;
+                case 1: sha1 = B2TestHelpers.SAMPLE_SHA1.toUpperCase(); break;
+                case 2: sha1 = null; break;
+                default: sha1 = "none"; break;
+            }
+            versions.add(new B2FileVersion(
+                    fileId(i),
+                    fileName(i),
+                    i * 1000L,
+                    new String(B2ContentTypes.TEXT_PLAIN),  // a different instance each time.
+                    sha1,
+                    B2TestHelpers.SAMPLE_MD5,
+                    (i % 4 == 2) ? null : B2Collections.mapOf("color", "blue" + i, "size", "" + i),
+                    new String((i % 4 == 2) ? B2FileVersion.HIDE_ACTION : B2FileVersion.UPLOAD_ACTION),
+                    i,
+                    new B2AuthorizationFilteredResponseField<>(true, new B2FileRetention("governance", 123456L)),
+                    (i % 2 == 0) ? new B2AuthorizationFilteredResponseField<>(false, null) : null,
+                    new B2FileSseForResponse("SSE-B2", "AES256", null),
+                    "PENDING"));
+        }
+        assertEquals(retention, versions.get(0).getFileRetentionField());
+        assertEquals(sse, versions.get(0).getServerSideEncryption());
+        return versions;
+    }
+}
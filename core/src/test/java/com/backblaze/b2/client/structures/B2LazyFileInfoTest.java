@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client.structures;
+
+import com.backblaze.b2.client.contentSources.B2Headers;
+import com.backblaze.b2.json.B2Json;
+import com.backblaze.b2.json.B2JsonException;
+import com.backblaze.b2.json.B2JsonOptions;
+import com.backblaze.b2.json.B2JsonStringDedupCache;
+import com.backblaze.b2.util.B2BaseTest;
+import com.backblaze.b2.util.B2Collections;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class B2LazyFileInfoTest extends B2BaseTest {
+    private static final String JSON = "{\n" +
+            "  \"action\": \"upload\",\n" +
+            "  \"contentLength\": 7,\n" +
+            "  \"fileId\": \"4_zBlah_0000001\",\n" +
+            "  \"fileInfo\": {\n" +
+            "    \"zebra\": \"stripes\",\n" +
+            "    \"" + B2Headers.LARGE_FILE_SHA1_INFO_NAME + "\": \"da39a3ee5e6b4b0d3255bfef95601890afd80709\",\n" +
+            "    \"color\": \"red\",\n" +
+            "    \"nothing\": null,\n" +
+            "    \"color\": \"blue\"\n" +
+            "  },\n" +
+            "  \"fileName\": \"files/0001\",\n" +
+            "  \"uploadTimestamp\": 1\n" +
+            "}";
+
+    @Test
+    public void testReadFromJson() throws B2JsonException {
+        final B2FileVersion version = B2Json.get().fromJson(JSON, B2FileVersion.class);
+
+        // these don't need the map.
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709", version.getLargeFileSha1OrNull());
+        assertEquals(4, version.getLazyFileInfo().size());
+
+        // the map is what B2JsonMapHandler would have made, and we get the same one each time.
+        final Map<String, String> expected = new TreeMap<>();
+        expected.put("zebra", "stripes");
+        expected.put(B2Headers.LARGE_FILE_SHA1_INFO_NAME, "da39a3ee5e6b4b0d3255bfef95601890afd80709");
+        expected.put("color", "blue");
+        expected.put("nothing", null);
+        assertEquals(expected, version.getFileInfo());
+        assertSame(version.getFileInfo(), version.getFileInfo());
+    }
+
+    @Test
+    public void testJsonIsTheSameAsForAMap() throws B2JsonException {
+        final B2FileVersion lazy = B2Json.get().fromJson(JSON, B2FileVersion.class);
+        final B2FileVersion fromMap = new B2FileVersion(
+                lazy.getFileId(),
+                lazy.getFileName(),
+                lazy.getContentLength(),
+                null,
+                null,
+                null,
+                new TreeMap<>(B2Json.get().fromJson(JSON, B2FileVersion.class).getFileInfo()),
+                lazy.getAction(),
+                lazy.getUploadTimestamp(),
+                null,
+                null,
+                null,
+                null);
+
+        // before and after the lazy one builds its map.
+        assertEquals(B2Json.get().toJson(fromMap), B2Json.get().toJson(lazy));
+        assertEquals(fromMap, lazy);
+        assertEquals(B2Json.get().toJson(fromMap), B2Json.get().toJson(lazy));
+        assertEquals(fromMap.hashCode(), lazy.hashCode());
+    }
+
+    @Test
+    public void testMissingAndEmptyFileInfo() throws B2JsonException {
+        final B2FileVersion missing = B2Json.get().fromJson("{\"fileName\": \"a\", \"uploadTimestamp\": 1}", B2FileVersion.class);
+        assertNull(missing.getFileInfo());
+
+        final B2FileVersion empty = B2Json.get().fromJson("{\"fileName\": \"a\", \"fileInfo\": {}, \"uploadTimestamp\": 1}", B2FileVersion.class);
+        assertEquals(B2Collections.mapOf(), empty.getFileInfo());
+        assertNull(empty.getLargeFileSha1OrNull());
+    }
+
+    @Test
+    public void testStringDedupCache() throws B2JsonException {
+        final B2JsonOptions options = B2JsonOptions.builder()
+                .setStringDedupCacheOrNull(B2JsonStringDedupCache.createDefault())
+                .build();
+        final B2FileVersion one = B2Json.get().fromJson(JSON, B2FileVersion.class, options);
+        final B2FileVersion two = B2Json.get().fromJson(JSON, B2FileVersion.class, options);
+        assertSame(one.getLargeFileSha1OrNull(), two.getLargeFileSha1OrNull());
+        assertSame(one.getFileInfo().get("zebra"), two.getFileInfo().get("zebra"));
+    }
+
+    @Test
+    public void testMapIsKept() {
+        final Map<String, String> fileInfo = new HashMap<>();
+        fileInfo.put("color", "green");
+        final B2FileVersion version = new B2FileVersion(null, "a", 0, null, null, null,
+                fileInfo, null, 0, null, null, null, null);
+        assertEquals(fileInfo, version.getFileInfo());
+        assertEquals("green", version.getLazyFileInfo().get("color"));
+
+        // it's a view of the given map, not a copy.
+        fileInfo.put("size", "big");
+        assertEquals("big", version.getFileInfo().get("size"));
+    }
+
+    @Test
+    public void testMapCantBeChanged() throws B2JsonException {
+        final B2FileVersion fromJson = B2Json.get().fromJson(JSON, B2FileVersion.class);
+        final B2FileVersion fromMap = new B2FileVersion(null, "a", 0, null, null, null,
+                new HashMap<>(), null, 0, null, null, null, null);
+        for (B2FileVersion version : Arrays.asList(fromJson, fromMap)) {
+            try {
+                version.getFileInfo().put("color", "purple");
+                fail("should've thrown");
+            } catch (UnsupportedOperationException e) {
+                // expected.
+            }
+        }
+        assertEquals("blue", fromJson.getFileInfo().get("color"));
+    }
+
+    @Test
+    public void testGet() {
+        final B2LazyFileInfo fileInfo = B2LazyFileInfo.fromSortedNamesAndValues(
+                new String[] { "a", "1", "b", "2", "c", null, "d", "4" });
+        assertEquals("1", fileInfo.get("a"));
+        assertEquals("2", fileInfo.get("b"));
+        assertNull(fileInfo.get("c"));
+        assertEquals("4", fileInfo.get("d"));
+        assertNull(fileInfo.get("0"));
+        assertNull(fileInfo.get("bb"));
+        assertNull(fileInfo.get("e"));
+        assertNull(B2LazyFileInfo.fromSortedNamesAndValues(new String[0]).get("a"));
+    }
+
+    @Test
+    public void testSortAndRemoveDuplicates() {
+        checkSort(new String[] {}, new String[] {});
+        checkSort(new String[] { "a", "1" }, new String[] { "a", "1" });
+        checkSort(new String[] { "a", "1", "b", "2" }, new String[] { "b", "2", "a", "1" });
+        checkSort(new String[] { "a", "3", "b", "2" }, new String[] { "a", "1", "b", "2", "a", "3" });
+        checkSort(new String[] { "a", "3" }, new String[] { "a", "1", "a", "2", "a", "3" });
+    }
+
+    private void checkSort(String[] expected, String[] input) {
+        // leave some room on the end, like the JSON reader does.
+        final String[] withRoom = Arrays.copyOf(input, input.length + 4);
+        assertArrayEquals(expected, B2LazyFileInfo.sortAndRemoveDuplicates(withRoom, input.length));
+    }
+}
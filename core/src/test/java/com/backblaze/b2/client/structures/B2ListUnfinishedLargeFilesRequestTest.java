@@ -6,10 +6,13 @@
 
 package com.backblaze.b2.client.structures;
 
+import com.backblaze.b2.json.B2Json;
+import com.backblaze.b2.json.B2JsonException;
 import com.backblaze.b2.util.B2BaseTest;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class B2ListUnfinishedLargeFilesRequestTest extends B2BaseTest {
 
@@ -47,4 +50,18 @@ public class B2ListUnfinishedLargeFilesRequestTest extends B2BaseTest {
                         .build()
         );
     }
+
+    @Test
+    public void testPrefetchDepthIsCopiedButNotSent() throws B2JsonException {
+        final B2ListUnfinishedLargeFilesRequest request = B2ListUnfinishedLargeFilesRequest
+                .builder("bucketId")
+                .setPrefetchDepth(3)
+                .build();
+        assertEquals(3, request.getPrefetchDepth());
+        assertEquals(request, B2ListUnfinishedLargeFilesRequest.builder(request).build());
+
+        final String json = B2Json.get().toJson(request);
+        assertFalse(json.contains("prefetchDepth"));
+        assertEquals(0, B2Json.get().fromJson(json, B2ListUnfinishedLargeFilesRequest.class).getPrefetchDepth());
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+
+package com.backblaze.b2.json;
+
+import com.backblaze.b2.util.B2BaseTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class B2JsonStringDedupCacheTest extends B2BaseTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private static class Item {
+        @B2Json.required
+        final String action;
+        @B2Json.required
+        final String name;
+        @B2Json.optional
+        final Map<String, String> info;
+
+        @B2Json.constructor(params = "action,name,info")
+        Item(String action, String name, Map<String, String> info) {
+            this.action = action;
+            this.name = name;
+            this.info = info;
+        }
+    }
+
+    @Test
+    public void testDedup() {
+        final B2JsonStringDedupCache cache = new B2JsonStringDedupCache(16, 8);
+        final String first = cache.dedup(new StringBuilder("upload"));
+        final String second = cache.dedup(new StringBuilder("upload"));
+        assertEquals("upload", first);
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // long strings aren't cached, or counted.
+        final String longOne = cache.dedup("much too long");
+        assertNotSame(longOne, cache.dedup(new StringBuilder("much too long")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // the empty string is fine, too.
+        assertSame(cache.dedup(new StringBuilder()), cache.dedup(new StringBuilder()));
+    }
+
+    @Test
+    public void testCollisionsReplace() {
+        // with one slot, each new string replaces the last, but we always get the right value.
+        final B2JsonStringDedupCache cache = new B2JsonStringDedupCache(1, 64);
+        assertEquals(1, cache.getCapacity());
+        final String a = cache.dedup("a");
+        assertEquals("b", cache.dedup("b"));
+        assertEquals("a", cache.dedup("a"));
+        assertEquals(0, cache.getHitCount());
+        assertNotSame(a, cache.dedup(new StringBuilder("b")));
+    }
+
+    @Test
+    public void testCapacityIsRoundedUp() {
+        assertEquals(1024, B2JsonStringDedupCache.createDefault().getCapacity());
+        assertEquals(64, new B2JsonStringDedupCache(33, 10).getCapacity());
+        assertEquals(32, new B2JsonStringDedupCache(32, 10).getCapacity());
+    }
+
+    @Test
+    public void testBadCapacity() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("capacity must be between 1 and 2^24");
+        new B2JsonStringDedupCache(0, 10);
+    }
+
+    @Test
+    public void testDecodingSharesValues() throws B2JsonException {
+        final String json = "[" +
+                "{\"action\": \"upload\", \"name\": \"a\", \"info\": {\"src_last_modified_millis\": \"1\"}}," +
+                "{\"action\": \"upload\", \"name\": \"b\", \"info\": {\"src_last_modified_millis\": \"2\"}}" +
+                "]";
+        final B2JsonStringDedupCache cache = B2JsonStringDedupCache.createDefault();
+        final B2JsonOptions options = B2JsonOptions.builder()
+                .setStringDedupCacheOrNull(cache)
+                .build();
+        final List<Item> items = B2Json.get().listFromJson(json, Item.class, options);
+
+        assertEquals("a", items.get(0).name);
+        assertEquals("b", items.get(1).name);
+        assertSame(items.get(0).action, items.get(1).action);
+        assertSame(items.get(0).info.keySet().iterator().next(), items.get(1).info.keySet().iterator().next());
+        assertEquals("2", items.get(1).info.get("src_last_modified_millis"));
+
+        // without a cache, they're different instances.
+        final List<Item> uncached = B2Json.get().listFromJson(json, Item.class);
+        assertNotSame(uncached.get(0).action, uncached.get(1).action);
+    }
+}
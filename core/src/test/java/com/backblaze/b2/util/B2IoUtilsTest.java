@@ -12,6 +12,8 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static com.backblaze.b2.client.B2TestHelpers.makeBytes;
 import static org.junit.Assert.assertArrayEquals;
@@ -84,6 +86,19 @@ public class B2IoUtilsTest extends B2BaseTest {
         B2IoUtils.readToEnd(in);
     }
 
+    @Test
+    public void testSyncDirectoryQuietly() throws IOException {
+        final Path dir = Files.createTempDirectory("B2IoUtilsTest");
+        try {
+            B2IoUtils.syncDirectoryQuietly(dir);
+
+            // problems are ignored.
+            B2IoUtils.syncDirectoryQuietly(dir.resolve("missing"));
+        } finally {
+            Files.delete(dir);
+        }
+    }
+
     @Test
     public void test_forCoverage() {
         new B2IoUtils();
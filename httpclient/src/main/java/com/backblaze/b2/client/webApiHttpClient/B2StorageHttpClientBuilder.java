@@ -8,6 +8,7 @@ import com.backblaze.b2.client.B2AccountAuthorizer;
 import com.backblaze.b2.client.B2AccountAuthorizerSimpleImpl;
 import com.backblaze.b2.client.B2ClientConfig;
 import com.backblaze.b2.client.B2DefaultRetryPolicy;
+import com.backblaze.b2.client.B2MetricsWebApiClient;
 import com.backblaze.b2.client.B2RetryPolicy;
 import com.backblaze.b2.client.B2Sdk;
 import com.backblaze.b2.client.B2StorageClient;
@@ -63,9 +64,12 @@ public class B2StorageHttpClientBuilder {
     }
 
     public B2StorageClient build() {
-        final B2WebApiClient webApiClient = (this.webApiClient != null) ?
+        final B2WebApiClient unmeasuredWebApiClient = (this.webApiClient != null) ?
                 this.webApiClient :
                 B2WebApiHttpClientImpl.builder().setHttpClientFactory(httpClientFactory).build();
+        final B2WebApiClient webApiClient = (config.getMetricsOrNull() == null) ?
+                unmeasuredWebApiClient :
+                new B2MetricsWebApiClient(unmeasuredWebApiClient, config.getMetricsOrNull());
         final B2StorageClientWebifier webifier = new B2StorageClientWebifierImpl(
                 webApiClient,
                 config.getUserAgent() + " " + B2Sdk.getName() + "/" + B2Sdk.getVersion(),
@@ -4,6 +4,7 @@
  */
 package com.backblaze.b2.client.webApiHttpClient;
 
+import com.backblaze.b2.client.B2Deadline;
 import com.backblaze.b2.client.contentHandlers.B2ContentSink;
 import com.backblaze.b2.client.contentSources.B2Headers;
 import com.backblaze.b2.client.contentSources.B2HeadersImpl;
@@ -18,6 +19,7 @@ import com.backblaze.b2.client.webApiClients.B2WebApiClient;
 import com.backblaze.b2.json.B2Json;
 import com.backblaze.b2.json.B2JsonException;
 import com.backblaze.b2.json.B2JsonOptions;
+import com.backblaze.b2.json.B2JsonStringDedupCache;
 import com.backblaze.b2.util.B2Preconditions;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
@@ -25,13 +27,16 @@ import org.apache.http.HttpStatus;
 import org.apache.http.NoHttpResponseException;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.Configurable;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.util.EntityUtils;
 
@@ -52,12 +57,20 @@ public class B2WebApiHttpClientImpl implements B2WebApiClient {
     private final B2Json bzJson = B2Json.get();
     private final HttpClientFactory clientFactory;
     private final RequestConfig defaultRequestConfig;
+    private final B2JsonOptions responseJsonOptions;
 
-    private B2WebApiHttpClientImpl(HttpClientFactory clientFactory) {
+    private B2WebApiHttpClientImpl(HttpClientFactory clientFactory,
+                                   B2JsonStringDedupCache stringDedupCacheOrNull) {
         this.clientFactory = (clientFactory != null) ?
                 clientFactory :
                 HttpClientFactoryImpl.build();
         defaultRequestConfig = HttpClientFactoryImpl.builder().createRequestConfig();
+        responseJsonOptions = (stringDedupCacheOrNull == null) ?
+                B2JsonOptions.DEFAULT_AND_ALLOW_EXTRA_FIELDS :
+                B2JsonOptions.builder()
+                        .setExtraFieldOption(B2JsonOptions.ExtraFieldOption.IGNORE)
+                        .setStringDedupCacheOrNull(stringDedupCacheOrNull)
+                        .build();
     }
 
     @SuppressWarnings("WeakerAccess")
@@ -73,7 +86,7 @@ public class B2WebApiHttpClientImpl implements B2WebApiClient {
                                                           Class<ResponseType> responseClass) throws B2Exception {
         final String responseString = postJsonAndReturnString(url, headersOrNull, request);
         try {
-            return bzJson.fromJson(responseString, responseClass, B2JsonOptions.DEFAULT_AND_ALLOW_EXTRA_FIELDS);
+            return bzJson.fromJson(responseString, responseClass, responseJsonOptions);
         } catch (B2JsonException e) {
             throw new B2LocalException("parsing_failed", "can't convert response from json: " + e.getMessage(), e);
         }
@@ -87,8 +100,8 @@ public class B2WebApiHttpClientImpl implements B2WebApiClient {
                                                           Class<ResponseType> responseClass) throws B2Exception {
         try {
             InputStreamEntity requestEntity = new InputStreamEntity(inputStream, contentLength);
-            String responseJson = postAndReturnString(url, headersOrNull, requestEntity);
-            return B2Json.get().fromJson(responseJson, responseClass, B2JsonOptions.DEFAULT_AND_ALLOW_EXTRA_FIELDS);
+            String responseJson = postAndReturnString(url, headersOrNull, requestEntity, HttpClientFactory.Purpose.UPLOAD);
+            return B2Json.get().fromJson(responseJson, responseClass, responseJsonOptions);
         } catch (B2JsonException e) {
             throw new B2LocalException("parsing_failed", "can't convert response from json: " + e.getMessage(), e);
         }
@@ -122,7 +135,10 @@ public class B2WebApiHttpClientImpl implements B2WebApiClient {
                 .setContentCompressionEnabled(false)
                 .build());
 
-        try (CloseableHttpResponse response = clientFactory.create().execute(get)) {
+        final CloseableHttpClient client = clientFactory.create(HttpClientFactory.Purpose.DOWNLOAD);
+        applyDeadline(get, client);
+
+        try (CloseableHttpResponse response = client.execute(get)) {
             int statusCode = response.getStatusLine().getStatusCode();
             HttpEntity responseEntity = response.getEntity();
             if (200 <= statusCode && statusCode < 300) {
@@ -167,7 +183,9 @@ public class B2WebApiHttpClientImpl implements B2WebApiClient {
                 head.setHeaders(makeHeaders(headersOrNull));
             }
 
-            response = clientFactory.create().execute(head);
+            final CloseableHttpClient client = clientFactory.create(HttpClientFactory.Purpose.DOWNLOAD);
+            applyDeadline(head, client);
+            response = client.execute(head);
 
             int statusCode = response.getStatusLine().getStatusCode();
             if (statusCode == HttpStatus.SC_OK) {
@@ -190,6 +208,50 @@ public class B2WebApiHttpClientImpl implements B2WebApiClient {
         clientFactory.close();
     }
 
+    /**
+     * If there's a B2Deadline in effect, this limits the time the request
+     * may wait for a pooled connection, for connecting, and for each read,
+     * to the time that's left.
+     *
+     * Setting a request's config replaces the client's, so we start from the
+     * request's own config, or else the client's.
+     *
+     * @throws B2LocalException if the deadline has already passed.
+     */
+    private void applyDeadline(HttpRequestBase request,
+                               CloseableHttpClient client) throws B2LocalException {
+        final B2Deadline deadlineOrNull = B2Deadline.currentOrNull();
+        if (deadlineOrNull == null) {
+            return;
+        }
+        final long remainingMillis = deadlineOrNull.getRemainingMillis();
+        if (remainingMillis <= 0) {
+            throw deadlineOrNull.makeExceededException("sending " + request.getMethod() + " " + request.getURI(), null);
+        }
+        final int timeoutMillis = (int) Math.min(Integer.MAX_VALUE, remainingMillis);
+
+        RequestConfig config = request.getConfig();
+        if (config == null && client instanceof Configurable) {
+            config = ((Configurable) client).getConfig();
+        }
+        if (config == null) {
+            config = defaultRequestConfig;
+        }
+        request.setConfig(RequestConfig.copy(config)
+                .setConnectionRequestTimeout(atMost(config.getConnectionRequestTimeout(), timeoutMillis))
+                .setConnectTimeout(atMost(config.getConnectTimeout(), timeoutMillis))
+                .setSocketTimeout(atMost(config.getSocketTimeout(), timeoutMillis))
+                .build());
+    }
+
+    /**
+     * @return the smaller timeout.  httpclient uses zero or less for "forever".
+     */
+    private static int atMost(int timeoutMillis,
+                              int limitMillis) {
+        return (timeoutMillis <= 0) ? limitMillis : Math.min(timeoutMillis, limitMillis);
+    }
+
     private B2Headers makeHeaders(Header[] allHeaders) {
         final B2HeadersImpl.Builder builder = B2HeadersImpl.builder();
         for (Header header : allHeaders) {
@@ -202,7 +264,7 @@ public class B2WebApiHttpClientImpl implements B2WebApiClient {
                                            B2Headers headersOrNull,
                                            Object request) throws B2Exception {
         ByteArrayEntity requestEntity = parseToByteArrayEntityUsingBzJson(request);
-        return postAndReturnString(url, headersOrNull, requestEntity);
+        return postAndReturnString(url, headersOrNull, requestEntity, HttpClientFactory.Purpose.API);
     }
 
     /**
@@ -212,10 +274,14 @@ public class B2WebApiHttpClientImpl implements B2WebApiClient {
      * @param url the url to post to
      * @param headersOrNull the headers, if any.
      * @param requestEntity the entity to post.
+     * @param purpose what kind of host we're posting to.
      * @return the body of the response.
      * @throws B2Exception if there's any trouble
      */
-    private String postAndReturnString(String url, B2Headers headersOrNull, HttpEntity requestEntity)
+    private String postAndReturnString(String url,
+                                       B2Headers headersOrNull,
+                                       HttpEntity requestEntity,
+                                       HttpClientFactory.Purpose purpose)
             throws B2Exception {
 
         CloseableHttpResponse response = null;
@@ -228,7 +294,9 @@ public class B2WebApiHttpClientImpl implements B2WebApiClient {
                 post.setEntity(requestEntity);
             }
 
-            response = clientFactory.create().execute(post);
+            final CloseableHttpClient client = clientFactory.create(purpose);
+            applyDeadline(post, client);
+            response = client.execute(post);
 
             HttpEntity responseEntity = response.getEntity();
             String responseText = EntityUtils.toString(responseEntity, "UTF-8");
@@ -370,14 +438,25 @@ public class B2WebApiHttpClientImpl implements B2WebApiClient {
     @SuppressWarnings("WeakerAccess")
     public static class Builder {
         private HttpClientFactory httpClientFactory;
+        private B2JsonStringDedupCache stringDedupCacheOrNull;
 
         public Builder setHttpClientFactory(HttpClientFactory httpClientFactory) {
             this.httpClientFactory = httpClientFactory;
             return this;
         }
 
+        /**
+         * If set, strings in responses are read through this cache, so repeated
+         * values (like content types and actions in listings) share one String.
+         * The default is null, which means no cache.
+         */
+        public Builder setStringDedupCacheOrNull(B2JsonStringDedupCache stringDedupCacheOrNull) {
+            this.stringDedupCacheOrNull = stringDedupCacheOrNull;
+            return this;
+        }
+
         public B2WebApiHttpClientImpl build() {
-            return new B2WebApiHttpClientImpl(httpClientFactory);
+            return new B2WebApiHttpClientImpl(httpClientFactory, stringDedupCacheOrNull);
         }
     }
 }
@@ -24,9 +24,34 @@ public interface HttpClientFactory extends AutoCloseable {
      */
     CloseableHttpClient create() throws B2Exception;
 
+    /**
+     * Like create(), but says what kind of host the client will be used
+     * for, so that factories can keep separate connection pools for them.
+     * By default, this just calls create().
+     *
+     * @param purpose what kind of host the client will talk to.
+     * @return a new httpClient for use by the SDK.
+     * @throws B2Exception if there's any trouble creating the client.
+     */
+    default CloseableHttpClient create(Purpose purpose) throws B2Exception {
+        return create();
+    }
+
     /**
      * Called to release resources, such as an HttpClientConnectionManager.
      */
     @Override
     void close();
+
+    /**
+     * The kinds of hosts the SDK talks to.
+     */
+    enum Purpose {
+        // the api url, for everything except uploads and downloads.
+        API,
+        // the upload urls returned by b2_get_upload_url and b2_get_upload_part_url.
+        UPLOAD,
+        // the download url, for downloads and HEAD requests.
+        DOWNLOAD
+    }
 }
@@ -5,23 +5,42 @@
 package com.backblaze.b2.client.webApiHttpClient;
 
 import com.backblaze.b2.client.exceptions.B2Exception;
+import com.backblaze.b2.util.B2Clock;
 import com.backblaze.b2.util.B2Preconditions;
+import org.apache.http.HttpClientConnection;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.ConnectionConfig;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
 import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.ssl.SSLContexts;
 import org.apache.http.util.VersionInfo;
 
 import javax.net.ssl.SSLContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This is the default HttpClientFactory implementation.
@@ -33,9 +52,18 @@ import java.util.concurrent.TimeUnit;
  * If you have a non-https implementation of B2 that you test against,
  * you *may* choose to enable 'http' support when creating the factory.
  * We really do *not* recommend that in production.
+ *
+ * By default, all of the created HttpClients share one connection pool.
+ * Use Builder.setPoolLimits() to give api, upload, or download hosts a
+ * pool of their own, so that, for instance, a lot of big uploads can't
+ * use up all of the connections and leave none for api calls.  Use
+ * getPoolStats() to see how busy the pools are.
  */
 public class HttpClientFactoryImpl implements HttpClientFactory {
-    private final HttpClientConnectionManager connectionManager;
+    private static final B2Clock clock = B2Clock.get();
+
+    // every purpose has a pool, but they may share them.
+    private final Map<Purpose, InstrumentedConnectionManager> connectionManagers;
     private final RequestConfig requestConfig;
     private final IdleConnectionMonitorThread connectionJanitor;
 
@@ -53,11 +81,11 @@ public class HttpClientFactoryImpl implements HttpClientFactory {
             "org.apache.http.client", HttpClientBuilder.class);
 
 
-    private HttpClientFactoryImpl(HttpClientConnectionManager connectionManager,
+    private HttpClientFactoryImpl(Map<Purpose, InstrumentedConnectionManager> connectionManagers,
                           RequestConfig requestConfig) {
-        this.connectionManager = connectionManager;
+        this.connectionManagers = connectionManagers;
         this.requestConfig = requestConfig;
-        connectionJanitor = new IdleConnectionMonitorThread(connectionManager);
+        connectionJanitor = new IdleConnectionMonitorThread(distinctConnectionManagers());
         connectionJanitor.start();
     }
 
@@ -70,11 +98,19 @@ public class HttpClientFactoryImpl implements HttpClientFactory {
         return new Builder();
     }
 
+    /**
+     * @return a new httpClient that uses the API pool.
+     */
     @Override
     public CloseableHttpClient create() throws B2Exception {
+        return create(Purpose.API);
+    }
+
+    @Override
+    public CloseableHttpClient create(Purpose purpose) throws B2Exception {
         return HttpClients.custom()
                 .setUserAgent(APACHE_HTTP_CLIENT_USER_AGENT)
-                .setConnectionManager(connectionManager)
+                .setConnectionManager(connectionManagers.get(purpose))
                 .setDefaultRequestConfig(requestConfig)
                 // Allow connections to be idle for up to 4 seconds before not reusing. This strategy is needed
                 // because we are seeing connections being closed by the server after 4 seconds, then when we attempt
@@ -83,9 +119,21 @@ public class HttpClientFactoryImpl implements HttpClientFactory {
                 .build();
     }
 
+    /**
+     * Purposes that share a pool will return the same numbers.
+     *
+     * @param purpose the purpose whose pool you're interested in.
+     * @return a snapshot of the pool used for the given purpose.
+     */
+    public HttpClientPoolStats getPoolStats(Purpose purpose) {
+        return connectionManagers.get(purpose).getPoolStats();
+    }
+
     @Override
     public void close() {
-        connectionManager.shutdown();
+        for (InstrumentedConnectionManager connectionManager : distinctConnectionManagers()) {
+            connectionManager.shutdown();
+        }
         connectionJanitor.shutdown();
         try {
             connectionJanitor.join();
@@ -95,6 +143,10 @@ public class HttpClientFactoryImpl implements HttpClientFactory {
         }
     }
 
+    private Collection<InstrumentedConnectionManager> distinctConnectionManagers() {
+        return new LinkedHashSet<>(connectionManagers.values());
+    }
+
     /**
      * The factory we're building will have close() called on it and when it
      * does, it will close its connection manager.  Since we don't want to
@@ -125,6 +177,10 @@ public class HttpClientFactoryImpl implements HttpClientFactory {
         private int maxTotalConnectionsInPool = DEFAULT_MAX_TOTAL_CONNECTIONS_IN_POOL;
         private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
 
+        // purposes that have a pool of their own.  the rest share a pool
+        // sized by maxTotalConnectionsInPool and maxConnectionsPerRoute.
+        private final Map<Purpose, PoolLimits> separatePoolLimits = new EnumMap<>(Purpose.class);
+
         public Builder setSupportInsecureHttp(boolean supportInsecureHttp) {
             this.supportInsecureHttp = supportInsecureHttp;
             return this;
@@ -155,13 +211,32 @@ public class HttpClientFactoryImpl implements HttpClientFactory {
             return this;
         }
 
+        /**
+         * Gives clients created for the given purpose a connection pool of
+         * their own, with the given limits.  Upload urls are on many hosts,
+         * so maxTotalConnections limits all of them together while
+         * maxConnectionsPerRoute limits each one.
+         *
+         * @param purpose the purpose that should have its own pool.
+         * @param maxTotalConnections the most connections the pool will have.
+         * @param maxConnectionsPerRoute the most connections the pool will have to any one host.
+         * @return this builder.
+         */
+        public Builder setPoolLimits(Purpose purpose,
+                                     int maxTotalConnections,
+                                     int maxConnectionsPerRoute) {
+            B2Preconditions.checkArgument(maxTotalConnections > 0, "maxTotalConnections must be positive");
+            B2Preconditions.checkArgument(maxConnectionsPerRoute > 0, "maxConnectionsPerRoute must be positive");
+            separatePoolLimits.put(purpose, new PoolLimits(maxTotalConnections, maxConnectionsPerRoute));
+            return this;
+        }
 
         public HttpClientFactoryImpl build() {
             B2Preconditions.checkState(!builtOneAlready, "called build() more than once?!");
             builtOneAlready = true;
 
             return new HttpClientFactoryImpl(
-                    createConnectionManager(),
+                    createConnectionManagers(),
                     createRequestConfig());
         }
 
@@ -177,7 +252,30 @@ public class HttpClientFactoryImpl implements HttpClientFactory {
 
         }
 
-        private HttpClientConnectionManager createConnectionManager() {
+        private Map<Purpose, InstrumentedConnectionManager> createConnectionManagers() {
+            final Registry<ConnectionSocketFactory> registry = createRegistry();
+
+            final Map<Purpose, InstrumentedConnectionManager> managers = new EnumMap<>(Purpose.class);
+            InstrumentedConnectionManager sharedOrNull = null;
+            for (Purpose purpose : Purpose.values()) {
+                final PoolLimits limitsOrNull = separatePoolLimits.get(purpose);
+                if (limitsOrNull != null) {
+                    managers.put(purpose, createConnectionManager(registry,
+                            limitsOrNull.maxTotalConnections,
+                            limitsOrNull.maxConnectionsPerRoute));
+                } else {
+                    if (sharedOrNull == null) {
+                        sharedOrNull = createConnectionManager(registry,
+                                maxTotalConnectionsInPool,
+                                maxConnectionsPerRoute);
+                    }
+                    managers.put(purpose, sharedOrNull);
+                }
+            }
+            return managers;
+        }
+
+        private Registry<ConnectionSocketFactory> createRegistry() {
             // For SSL/TLS,
             //   HttpClient says it uses Java Secure Socket Extension:
             //     https://hc.apache.org/httpcomponents-client-ga/tutorial/html/connmgmt.html
@@ -206,25 +304,121 @@ public class HttpClientFactoryImpl implements HttpClientFactory {
                 registryBuilder.register("http", plainFactory);
             }
 
-            final Registry<ConnectionSocketFactory> registry = registryBuilder.build();
+            return registryBuilder.build();
+        }
 
-            final PoolingHttpClientConnectionManager mgr = new PoolingHttpClientConnectionManager(registry);
-            mgr.setMaxTotal(maxTotalConnectionsInPool);
+        private static InstrumentedConnectionManager createConnectionManager(Registry<ConnectionSocketFactory> registry,
+                                                                             int maxTotalConnections,
+                                                                             int maxConnectionsPerRoute) {
+            final InstrumentedConnectionManager mgr = new InstrumentedConnectionManager(
+                    registry,
+                    new CountingConnectionFactory());
+            mgr.setMaxTotal(maxTotalConnections);
             mgr.setDefaultMaxPerRoute(maxConnectionsPerRoute);
             mgr.setValidateAfterInactivity(2000);
             return mgr;
         }
     }
 
+    private static class PoolLimits {
+        private final int maxTotalConnections;
+        private final int maxConnectionsPerRoute;
+
+        PoolLimits(int maxTotalConnections,
+                   int maxConnectionsPerRoute) {
+            this.maxTotalConnections = maxTotalConnections;
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        }
+    }
+
+    /**
+     * Counts the connections it creates.  The pool creates exactly one
+     * connection for each of its entries, so this tells us how many
+     * connections have been opened.
+     */
+    private static class CountingConnectionFactory implements HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> {
+        private final LongAdder createdCount = new LongAdder();
+
+        @Override
+        public ManagedHttpClientConnection create(HttpRoute route,
+                                                  ConnectionConfig config) {
+            createdCount.increment();
+            return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+        }
+    }
+
+    /**
+     * A PoolingHttpClientConnectionManager that keeps track of how long
+     * requests wait to lease a connection.
+     *
+     * THREAD-SAFETY: the counters are all lock-free.
+     */
+    private static class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+        private final CountingConnectionFactory connectionFactory;
+        private final LongAdder leaseCount = new LongAdder();
+        private final LongAdder leaseTimeoutCount = new LongAdder();
+        private final LongAdder totalLeaseWaitMillis = new LongAdder();
+        private final AtomicLong maxLeaseWaitMillis = new AtomicLong();
+
+        InstrumentedConnectionManager(Registry<ConnectionSocketFactory> registry,
+                                      CountingConnectionFactory connectionFactory) {
+            super(registry, connectionFactory);
+            this.connectionFactory = connectionFactory;
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route,
+                                                   Object state) {
+            final ConnectionRequest request = super.requestConnection(route, state);
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout,
+                                                TimeUnit timeUnit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    final long startMillis = clock.monotonicMillis();
+                    try {
+                        return request.get(timeout, timeUnit);
+                    } catch (ConnectionPoolTimeoutException e) {
+                        leaseTimeoutCount.increment();
+                        throw e;
+                    } finally {
+                        final long waitMillis = clock.monotonicMillis() - startMillis;
+                        leaseCount.increment();
+                        totalLeaseWaitMillis.add(waitMillis);
+                        maxLeaseWaitMillis.accumulateAndGet(waitMillis, Math::max);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+
+        HttpClientPoolStats getPoolStats() {
+            final PoolStats totals = getTotalStats();
+            return new HttpClientPoolStats(
+                    totals.getLeased(),
+                    totals.getAvailable(),
+                    totals.getPending(),
+                    totals.getMax(),
+                    leaseCount.sum(),
+                    leaseTimeoutCount.sum(),
+                    totalLeaseWaitMillis.sum(),
+                    maxLeaseWaitMillis.get(),
+                    connectionFactory.createdCount.sum());
+        }
+    }
+
     // from https://hc.apache.org/httpcomponents-client-ga/tutorial/html/connmgmt.html
     private static class IdleConnectionMonitorThread extends Thread {
 
-        private final HttpClientConnectionManager connMgr;
+        private final List<HttpClientConnectionManager> connMgrs;
         private volatile boolean shutdown;
 
-        IdleConnectionMonitorThread(HttpClientConnectionManager connMgr) {
+        IdleConnectionMonitorThread(Collection<? extends HttpClientConnectionManager> connMgrs) {
             super();
-            this.connMgr = connMgr;
+            this.connMgrs = new ArrayList<>(connMgrs);
         }
 
         @Override
@@ -233,11 +427,13 @@ public class HttpClientFactoryImpl implements HttpClientFactory {
                 while (!shutdown) {
                     synchronized (this) {
                         wait(5000);
-                        // Close expired connections
-                        connMgr.closeExpiredConnections();
-                        // Optionally, close connections
-                        // that have been idle longer than 30 sec
-                        connMgr.closeIdleConnections(30, TimeUnit.SECONDS);
+                        for (HttpClientConnectionManager connMgr : connMgrs) {
+                            // Close expired connections
+                            connMgr.closeExpiredConnections();
+                            // Optionally, close connections
+                            // that have been idle longer than 30 sec
+                            connMgr.closeIdleConnections(30, TimeUnit.SECONDS);
+                        }
                     }
                 }
             } catch (InterruptedException ex) {
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client.webApiHttpClient;
+
+/**
+ * HttpClientPoolStats is a snapshot of one of HttpClientFactoryImpl's
+ * connection pools.  Get one with HttpClientFactoryImpl.getPoolStats().
+ *
+ * The first few values are the pool's current state.  The rest are
+ * totals since the pool was created.
+ *
+ * THREAD-SAFETY: instances are immutable.
+ */
+public class HttpClientPoolStats {
+    private final int leased;
+    private final int available;
+    private final int pending;
+    private final int max;
+    private final long leaseCount;
+    private final long leaseTimeoutCount;
+    private final long totalLeaseWaitMillis;
+    private final long maxLeaseWaitMillis;
+    private final long connectionsCreated;
+
+    HttpClientPoolStats(int leased,
+                        int available,
+                        int pending,
+                        int max,
+                        long leaseCount,
+                        long leaseTimeoutCount,
+                        long totalLeaseWaitMillis,
+                        long maxLeaseWaitMillis,
+                        long connectionsCreated) {
+        this.leased = leased;
+        this.available = available;
+        this.pending = pending;
+        this.max = max;
+        this.leaseCount = leaseCount;
+        this.leaseTimeoutCount = leaseTimeoutCount;
+        this.totalLeaseWaitMillis = totalLeaseWaitMillis;
+        this.maxLeaseWaitMillis = maxLeaseWaitMillis;
+        this.connectionsCreated = connectionsCreated;
+    }
+
+    /**
+     * @return how many connections are in use right now.
+     */
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * @return how many idle connections are in the pool, ready to be reused.
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    /**
+     * @return how many requests are waiting for a connection right now.
+     *         if this is often non-zero, the pool is too small.
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * @return the most connections the pool will have at once.
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * @return how many times a connection has been asked for, including
+     *         the times it timed out.
+     */
+    public long getLeaseCount() {
+        return leaseCount;
+    }
+
+    /**
+     * @return how many times a request gave up waiting for a connection.
+     */
+    public long getLeaseTimeoutCount() {
+        return leaseTimeoutCount;
+    }
+
+    /**
+     * @return the total time requests have spent waiting for connections.
+     */
+    public long getTotalLeaseWaitMillis() {
+        return totalLeaseWaitMillis;
+    }
+
+    /**
+     * @return the average time a request waited for a connection, or 0 if
+     *         none have been asked for.
+     */
+    public double getMeanLeaseWaitMillis() {
+        return (leaseCount == 0) ? 0 : ((double) totalLeaseWaitMillis) / leaseCount;
+    }
+
+    /**
+     * @return the longest any request has waited for a connection.
+     */
+    public long getMaxLeaseWaitMillis() {
+        return maxLeaseWaitMillis;
+    }
+
+    /**
+     * @return how many connections have been opened.
+     */
+    public long getConnectionsCreated() {
+        return connectionsCreated;
+    }
+
+    /**
+     * Connections are closed when they've been idle too long, when the
+     * server closes them, or when they can't be reused after an error.
+     * This is computed from the other values, so it may be a little off
+     * if the pool was busy while the snapshot was being taken.
+     *
+     * @return how many connections have been closed.
+     */
+    public long getConnectionsClosed() {
+        return Math.max(0, connectionsCreated - leased - available);
+    }
+
+    @Override
+    public String toString() {
+        return "HttpClientPoolStats{" +
+                "leased=" + leased +
+                ", available=" + available +
+                ", pending=" + pending +
+                ", max=" + max +
+                ", leaseCount=" + leaseCount +
+                ", leaseTimeoutCount=" + leaseTimeoutCount +
+                ", totalLeaseWaitMillis=" + totalLeaseWaitMillis +
+                ", maxLeaseWaitMillis=" + maxLeaseWaitMillis +
+                ", connectionsCreated=" + connectionsCreated +
+                ", connectionsClosed=" + getConnectionsClosed() +
+                '}';
+    }
+}
@@ -4,11 +4,14 @@
  */
 package com.backblaze.b2.client.webApiHttpClient;
 
+import com.backblaze.b2.client.B2Deadline;
 import com.backblaze.b2.client.contentHandlers.B2ContentMemoryWriter;
 import com.backblaze.b2.client.contentSources.B2Headers;
 import com.backblaze.b2.client.contentSources.B2HeadersImpl;
 import com.backblaze.b2.client.exceptions.B2Exception;
 import com.backblaze.b2.client.exceptions.B2InternalErrorException;
+import com.backblaze.b2.client.exceptions.B2LocalException;
+import com.backblaze.b2.client.exceptions.B2NetworkTimeoutException;
 import com.backblaze.b2.client.structures.B2ErrorStructure;
 import com.backblaze.b2.client.webApiClients.B2WebApiClient;
 import com.backblaze.b2.json.B2Json;
@@ -38,6 +41,9 @@ public class B2WebApiHttpClientImplTest {
     /* URL to make a call to the web server */
     private String url;
 
+    /* URL of a path that takes a couple of seconds to respond */
+    private String slowUrl;
+
     /* The response handler for the web server, we will set its response to return */
     private static final SimpleHttpRequestHandler requestHandler = new SimpleHttpRequestHandler();
 
@@ -108,6 +114,37 @@ public class B2WebApiHttpClientImplTest {
         doTestGetContentWithTextException(REQUEST_HEADERS, TEXT_ERROR_RESPONSE);
     }
 
+    @Test
+    public void testDeadlineLimitsTheSocketTimeout() throws B2Exception {
+        final long startMillis = System.currentTimeMillis();
+        try (B2Deadline.Scope ignored = B2Deadline.afterMillis(200).enter()) {
+            b2WebApiClient.getContent(slowUrl, B2HeadersImpl.builder().build(), B2ContentMemoryWriter.build());
+            fail("should've thrown");
+        } catch (B2NetworkTimeoutException e) {
+            // expected.
+        }
+        final long tookMillis = System.currentTimeMillis() - startMillis;
+        assertTrue("took " + tookMillis + "ms", tookMillis < 1500);
+
+        // without a deadline, it waits for the response.
+        b2WebApiClient.getContent(slowUrl, B2HeadersImpl.builder().build(), B2ContentMemoryWriter.build());
+    }
+
+    @Test
+    public void testPassedDeadlineDoesntSendRequest() throws B2Exception {
+        final SimpleHttpRequestHandler unusedHandler = new SimpleHttpRequestHandler();
+        unusedHandler.setNextResponse(LARGE_CONTENT_RESPONSE);
+        server.addPath("/unused", unusedHandler);
+        try (B2Deadline.Scope ignored = B2Deadline.afterMillis(0).enter()) {
+            b2WebApiClient.getContent("http://127.0.0.1:" + server.getPort() + "/unused",
+                    B2HeadersImpl.builder().build(), B2ContentMemoryWriter.build());
+            fail("should've thrown");
+        } catch (B2LocalException e) {
+            assertEquals("deadline_exceeded", e.getCode());
+        }
+        assertNull(unusedHandler.getLastRequestMethod());
+    }
+
     private void doTestGetContentWithJsonException(Map<String, String> requestHeaders, SimpleHttpRequestHandler.Response expectedResponse, Map<String, String> responseHeaders) {
         final B2HeadersImpl.Builder requestHeaderBuilder = B2HeadersImpl.builder();
         requestHeaders.forEach(requestHeaderBuilder::set);
@@ -189,7 +226,19 @@ public class B2WebApiHttpClientImplTest {
     public final void setupLocal() throws Exception {
         server = new SimpleHttpServer(0, 10);
         server.addPath("/test", requestHandler);
+        server.addPath("/slow", new SimpleHttpRequestHandler() {
+            @Override
+            public Response handleRequest(String requestMethod, Map<String, String> headers, byte[] requestBody) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return createResponse(HttpStatus.SC_OK, ContentType.TEXT_PLAIN.toString(), "slow".getBytes());
+            }
+        });
         url = "http://127.0.0.1:" + server.getPort() + "/test";
+        slowUrl = "http://127.0.0.1:" + server.getPort() + "/slow";
         Thread.sleep(100); // pause a bit before actual tests
     }
 
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026, Backblaze Inc. All Rights Reserved.
+ * License https://www.backblaze.com/using_b2_code.html
+ */
+package com.backblaze.b2.client.webApiHttpClient;
+
+import com.backblaze.b2.client.webApiHttpClient.HttpClientFactory.Purpose;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.backblaze.b2.client.webApiHttpClient.SimpleHttpRequestHandler.createResponse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HttpClientFactoryImplTest {
+    private final SimpleHttpRequestHandler requestHandler = new SimpleHttpRequestHandler();
+    private SimpleHttpServer server;
+    private String url;
+    private HttpClientFactoryImpl factory;
+
+    @Before
+    public void setUp() {
+        server = new SimpleHttpServer(0, 10);
+        server.addPath("/test", requestHandler);
+        url = "http://127.0.0.1:" + server.getPort() + "/test";
+    }
+
+    @After
+    public void tearDown() {
+        if (factory != null) {
+            factory.close();
+        }
+        server.close();
+    }
+
+    @Test
+    public void testPoolsAreSharedByDefault() throws Exception {
+        factory = HttpClientFactoryImpl.builder()
+                .setSupportInsecureHttp(true)
+                .build();
+        get(Purpose.DOWNLOAD);
+
+        for (Purpose purpose : Purpose.values()) {
+            final HttpClientPoolStats stats = factory.getPoolStats(purpose);
+            assertEquals(100, stats.getMax());
+            assertEquals(1, stats.getLeaseCount());
+            assertEquals(0, stats.getLeased());
+            assertEquals(1, stats.getAvailable());
+            assertEquals(1, stats.getConnectionsCreated());
+            assertEquals(0, stats.getConnectionsClosed());
+        }
+    }
+
+    @Test
+    public void testSeparatePools() throws Exception {
+        factory = HttpClientFactoryImpl.builder()
+                .setSupportInsecureHttp(true)
+                .setPoolLimits(Purpose.UPLOAD, 4, 2)
+                .build();
+        get(Purpose.API);
+        get(Purpose.DOWNLOAD);
+
+        final HttpClientPoolStats upload = factory.getPoolStats(Purpose.UPLOAD);
+        assertEquals(4, upload.getMax());
+        assertEquals(0, upload.getLeaseCount());
+        assertEquals(0, upload.getConnectionsCreated());
+
+        // api and download still share the default pool, and the connection was reused.
+        final HttpClientPoolStats api = factory.getPoolStats(Purpose.API);
+        assertEquals(100, api.getMax());
+        assertEquals(2, api.getLeaseCount());
+        assertEquals(1, api.getConnectionsCreated());
+        assertEquals(api.toString(), factory.getPoolStats(Purpose.DOWNLOAD).toString());
+    }
+
+    @Test
+    public void testLeasedConnectionsAndTimeouts() throws Exception {
+        factory = HttpClientFactoryImpl.builder()
+                .setSupportInsecureHttp(true)
+                .setPoolLimits(Purpose.API, 1, 1)
+                .build();
+        requestHandler.setNextResponse(okResponse());
+
+        // hold on to the only connection...
+        try (CloseableHttpResponse response = factory.create(Purpose.API).execute(new HttpGet(url))) {
+            assertEquals(1, factory.getPoolStats(Purpose.API).getLeased());
+            assertEquals(0, factory.getPoolStats(Purpose.DOWNLOAD).getLeased());
+
+            // ...so this can't get one.
+            final HttpGet get = new HttpGet(url);
+            get.setConfig(RequestConfig.custom().setConnectionRequestTimeout(10).build());
+            try {
+                factory.create(Purpose.API).execute(get);
+                fail("should've thrown");
+            } catch (ConnectionPoolTimeoutException e) {
+                // expected.
+            }
+            EntityUtils.consume(response.getEntity());
+        }
+
+        final HttpClientPoolStats stats = factory.getPoolStats(Purpose.API);
+        assertEquals(0, stats.getLeased());
+        assertEquals(0, stats.getPending());
+        assertEquals(2, stats.getLeaseCount());
+        assertEquals(1, stats.getLeaseTimeoutCount());
+        assertEquals(1, stats.getConnectionsCreated());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPoolLimitsMustBePositive() {
+        HttpClientFactoryImpl.builder().setPoolLimits(Purpose.API, 0, 1);
+    }
+
+    private void get(Purpose purpose) throws Exception {
+        requestHandler.setNextResponse(okResponse());
+        try (CloseableHttpResponse response = factory.create(purpose).execute(new HttpGet(url))) {
+            assertEquals(HttpStatus.SC_OK, response.getStatusLine().getStatusCode());
+            EntityUtils.consume(response.getEntity());
+        }
+    }
+
+    private static SimpleHttpRequestHandler.Response okResponse() {
+        return createResponse(HttpStatus.SC_OK, ContentType.TEXT_PLAIN.toString(), "ok".getBytes());
+    }
+}